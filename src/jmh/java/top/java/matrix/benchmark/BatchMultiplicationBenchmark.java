@@ -0,0 +1,103 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixBatch;
+import top.java.matrix.internal.StandardMatrixBatch;
+import top.java.matrix.operations.multiplication.FastBatchMultiplication;
+
+/**
+* {@link BatchMultiplicationBenchmark} compares batched multiplication of many small matrices with multiplying
+* the same matrices one by one. Shapes are specified as <i>size</i>{@code x}<i>n</i> (i.e., <i>size</i> products
+* of two <i>n</i>-by-<i>n</i> matrices).
+*
+* @param <M> the dimension of the matrices
+*
+* @author Mirko Raner
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+@Fork(1)
+public class BatchMultiplicationBenchmark<M extends Dimension> extends MatrixBenchmark
+{
+    @Param({"1000x16", "1000x64"})
+    public String shape;
+
+    private Matrix<M, M>[] left;
+    private Matrix<M, M>[] right;
+    private MatrixBatch<M, M> leftBatch;
+    private MatrixBatch<M, M> rightBatch;
+
+    @Setup
+    public void setUp()
+    {
+        int[] dimensions = dimensions(shape);
+        @SuppressWarnings("unchecked")
+        Matrix<M, M>[] left = (Matrix<M, M>[])new Matrix<?, ?>[dimensions[0]];
+        @SuppressWarnings("unchecked")
+        Matrix<M, M>[] right = (Matrix<M, M>[])new Matrix<?, ?>[dimensions[0]];
+        for (int index = 0; index < dimensions[0]; index++)
+        {
+            left[index] = random(dimensions[1], dimensions[1]);
+            right[index] = random(dimensions[1], dimensions[1]);
+        }
+        this.left = left;
+        this.right = right;
+        leftBatch = StandardMatrixBatch.of(left);
+        rightBatch = StandardMatrixBatch.of(right);
+    }
+
+    @Benchmark
+    public Matrix<M, M>[] individual()
+    {
+        @SuppressWarnings("unchecked")
+        Matrix<M, M>[] result = (Matrix<M, M>[])new Matrix<?, ?>[left.length];
+        for (int index = 0; index < left.length; index++)
+        {
+            result[index] = left[index].times(right[index]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public MatrixBatch<M, M> forkJoin()
+    {
+        return leftBatch.times(rightBatch);
+    }
+
+    @Benchmark
+    public MatrixBatch<M, M> fast()
+    {
+        return leftBatch.using(new FastBatchMultiplication<>(StandardMatrixBatch::new)).times(rightBatch);
+    }
+}
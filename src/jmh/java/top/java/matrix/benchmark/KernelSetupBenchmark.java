@@ -0,0 +1,107 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.operations.MatrixMultiplication;
+import top.java.matrix.operations.multiplication.FastMultiplication;
+import top.java.matrix.operations.multiplication.TiledFastMultiplication;
+
+/**
+* {@link KernelSetupBenchmark} separates the one-time cost of setting up an Aparapi kernel (bytecode analysis,
+* OpenCL compilation and buffer allocation) from the cost of a multiplication with an already pooled kernel.
+* The {@code firstCall} benchmark creates a new operation for every invocation, whereas {@code pooledCall}
+* reuses the same operation (and therefore the same kernel).
+*
+* @param <M> the dimension of the matrices
+*
+* @author Mirko Raner
+**/
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+@Fork(1)
+public class KernelSetupBenchmark<M extends Dimension> extends MatrixBenchmark
+{
+    @Param({"Fast", "TiledFast"})
+    public String strategy;
+
+    @Param({"100", "500"})
+    public int size;
+
+    private Matrix<M, M> matrix;
+    private MatrixMultiplication<M, M, M> pooled;
+
+    @Setup
+    public void setUp()
+    {
+        matrix = random(size, size);
+        pooled = multiplication();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        ((AutoCloseable)pooled).close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public Matrix<M, M> firstCall() throws Exception
+    {
+        MatrixMultiplication<M, M, M> multiplication = multiplication();
+        try
+        {
+            return multiplication.apply(matrix, matrix);
+        }
+        finally
+        {
+            ((AutoCloseable)multiplication).close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public Matrix<M, M> pooledCall()
+    {
+        return pooled.apply(matrix, matrix);
+    }
+
+    private MatrixMultiplication<M, M, M> multiplication()
+    {
+        switch (strategy)
+        {
+            case "Fast": return new FastMultiplication<>(FACTORY);
+            case "TiledFast": return new TiledFastMultiplication<>(FACTORY);
+            default: throw new IllegalArgumentException(strategy);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.benchmark;
+
+import java.util.Random;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.internal.StandardMatrix;
+
+/**
+* {@link MatrixBenchmark} is the common base class for the JMH benchmarks. It provides seeded random test matrices
+* and parsing of the matrix shapes that are passed as benchmark parameters.
+*
+* @author Mirko Raner
+**/
+public abstract class MatrixBenchmark
+{
+    protected final static MatrixFactory FACTORY = StandardMatrix::new;
+
+    private final Random random = new Random(1000);
+
+    /**
+    * Parses a shape parameter like {@code "1000x200x50"}.
+    *
+    * @param shape the shape, with its dimensions separated by {@code x}
+    * @return the individual dimensions
+    **/
+    protected int[] dimensions(String shape)
+    {
+        String[] parts = shape.split("x");
+        int[] dimensions = new int[parts.length];
+        for (int index = 0; index < parts.length; index++)
+        {
+            dimensions[index] = Integer.parseInt(parts[index]);
+        }
+        return dimensions;
+    }
+
+    protected <M extends Dimension, N extends Dimension> Matrix<M, N> random(int rows, int columns)
+    {
+        float[] values = new float[rows*columns];
+        for (int index = 0; index < values.length; index++)
+        {
+            values[index] = random.nextInt(100);
+        }
+        return FACTORY.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), values);
+    }
+}
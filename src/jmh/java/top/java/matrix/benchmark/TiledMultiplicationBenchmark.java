@@ -0,0 +1,76 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.operations.multiplication.TiledFastMultiplication;
+
+/**
+* {@link TiledMultiplicationBenchmark} measures {@link TiledFastMultiplication} for different tile sizes. Shapes that
+* are not a multiple of the tile size show the cost of padding and masking the ragged edge tiles.
+*
+* @param <M> the rows dimension of the left matrix
+* @param <N> the columns dimension of the right matrix
+* @param <K> the shared dimension of both matrices
+*
+* @author Mirko Raner
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+@Fork(1)
+public class TiledMultiplicationBenchmark<M extends Dimension, N extends Dimension, K extends Dimension> extends MatrixBenchmark
+{
+    @Param({"5", "10", "16"})
+    public int tileSize;
+
+    @Param({"1000x1000x1000", "10000x100x10", "1001x999x1003"})
+    public String shape;
+
+    private Matrix<M, K> left;
+    private Matrix<K, N> right;
+    private TiledFastMultiplication<M, N, K> multiplication;
+
+    @Setup
+    public void setUp()
+    {
+        int[] dimensions = dimensions(shape);
+        left = random(dimensions[0], dimensions[1]);
+        right = random(dimensions[1], dimensions[2]);
+        multiplication = new TiledFastMultiplication<>(FACTORY, tileSize);
+    }
+
+    @Benchmark
+    public Matrix<M, N> multiply()
+    {
+        return multiplication.apply(left, right);
+    }
+}
@@ -0,0 +1,67 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+
+/**
+* {@link TranspositionBenchmark} measures matrix transposition for square, tall-skinny and odd-sized matrices.
+* Shapes are specified as <i>rows</i>{@code x}<i>columns</i>.
+*
+* @param <M> the rows dimension of the matrix
+* @param <N> the columns dimension of the matrix
+*
+* @author Mirko Raner
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+@Fork(1)
+public class TranspositionBenchmark<M extends Dimension, N extends Dimension> extends MatrixBenchmark
+{
+    @Param({"1000x1000", "4000x4000", "100000x10", "1001x999"})
+    public String shape;
+
+    private Matrix<M, N> matrix;
+
+    @Setup
+    public void setUp()
+    {
+        int[] dimensions = dimensions(shape);
+        matrix = random(dimensions[0], dimensions[1]);
+    }
+
+    @Benchmark
+    public Matrix<N, M> transpose()
+    {
+        return matrix.transpose();
+    }
+}
@@ -15,7 +15,24 @@
 //                                                                          //
 package top.java.matrix;
 
+import java.nio.FloatBuffer;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.operations.Activation;
+import top.java.matrix.operations.Arithmetic;
+import top.java.matrix.operations.ElementwiseOperation;
+import top.java.matrix.operations.MatrixElementAccess;
+import top.java.matrix.operations.MatrixMultiplication;
+import top.java.matrix.operations.MatrixReduction;
+import top.java.matrix.operations.MatrixVectorMultiplication;
+import top.java.matrix.operations.Reduction;
+import top.java.matrix.operations.access.DirectElementAccess;
+import top.java.matrix.operations.elementwise.ParallelElementwise;
+import top.java.matrix.operations.multiplication.ParallelMatrixVectorMultiplication;
+import top.java.matrix.operations.reduction.ParallelReduction;
+import top.java.matrix.util.ComputeExecutor;
+import top.java.matrix.util.FloatUnaryOperator;
 import top.java.matrix.util.RawFloatMatrix;
 
 /**
@@ -34,15 +51,355 @@ public abstract class Matrix<ROWS extends Dimension, COLUMNS extends Dimension>
 
     public abstract <DIMENSION extends Dimension> Matrix<ROWS, DIMENSION> times(Matrix<COLUMNS, DIMENSION> rightHandSide);
 
+    /**
+    * Multiplies this matrix with another matrix and stores the result in an existing matrix (overwriting its
+    * previous contents), so that repeated multiplications do not need to allocate new matrices.
+    *
+    * @param rightHandSide the right-hand side matrix
+    * @param destination a writable matrix of the correct dimensions that does not share storage with either operand
+    * @param <DIMENSION> the columns dimension of the result
+    * @return the {@code destination} matrix
+    **/
+    public abstract <DIMENSION extends Dimension> Matrix<ROWS, DIMENSION> timesInto(Matrix<COLUMNS, DIMENSION> rightHandSide,
+        Matrix<ROWS, DIMENSION> destination);
+
+    /**
+    * Multiplies this matrix with a vector (GEMV). Unlike {@link #times(Matrix)}, this uses the matrix-vector
+    * strategy of the matrix (see {@link #vectorMultiplication()}). Implementations may instead use a
+    * {@link top.java.matrix.operations.MatrixMultiplication} that was explicitly registered for the matrix (see
+    * {@link top.java.matrix.internal.AbstractMatrix#times(Vector)}).
+    *
+    * @param vector the vector
+    * @return the product
+    **/
+    public Vector<ROWS> times(Vector<COLUMNS> vector)
+    {
+        return vectorMultiplication().apply(this, vector);
+    }
+
+    /**
+    * Multiplies the transpose of this matrix with a vector, without transposing the matrix.
+    *
+    * @param vector the vector
+    * @return the product
+    **/
+    public Vector<COLUMNS> transposeTimes(Vector<ROWS> vector)
+    {
+        return vectorMultiplication().applyTransposed(this, vector);
+    }
+
+    /**
+    * Multiplies this matrix with another matrix asynchronously, on the shared {@link ComputeExecutor#DEFAULT}.
+    *
+    * @param rightHandSide the right-hand side matrix
+    * @param <DIMENSION> the columns dimension of the result
+    * @return a {@link CompletableFuture} for the result
+    * @see #timesAsync(Matrix, ComputeExecutor)
+    **/
+    public <DIMENSION extends Dimension> CompletableFuture<Matrix<ROWS, DIMENSION>> timesAsync(Matrix<COLUMNS, DIMENSION> rightHandSide)
+    {
+        return timesAsync(rightHandSide, ComputeExecutor.DEFAULT);
+    }
+
+    /**
+    * Multiplies this matrix with another matrix asynchronously, without blocking the calling thread. If the
+    * executor is already at capacity, the returned future fails immediately with a
+    * {@link java.util.concurrent.RejectedExecutionException}; cancelling the future removes the multiplication from
+    * the executor's queue if it has not started yet. The operands must not be modified until the future completes.
+    *
+    * @param rightHandSide the right-hand side matrix
+    * @param executor the {@link ComputeExecutor} that performs the multiplication
+    * @param <DIMENSION> the columns dimension of the result
+    * @return a {@link CompletableFuture} for the result
+    **/
+    public <DIMENSION extends Dimension> CompletableFuture<Matrix<ROWS, DIMENSION>> timesAsync(Matrix<COLUMNS, DIMENSION> rightHandSide,
+        ComputeExecutor executor)
+    {
+        return executor.submit(() -> times(rightHandSide));
+    }
+
     public abstract Matrix<COLUMNS, ROWS> transpose();
 
+    /**
+    * Transposes this matrix into an existing matrix (overwriting its previous contents).
+    *
+    * @param destination a writable matrix of the correct dimensions that does not share storage with this matrix
+    * @return the {@code destination} matrix
+    **/
+    public abstract Matrix<COLUMNS, ROWS> transposeInto(Matrix<COLUMNS, ROWS> destination);
+
+    /**
+    * Transposes this matrix without copying its elements, if the matrix implementation supports it. The returned
+    * matrix shares its storage with this matrix and merely accesses it with a transposed layout (see
+    * {@link #getElementAccess()}). The default implementation falls back to {@link #transpose()}.
+    *
+    * @return the transpose of this matrix, possibly as a view of this matrix
+    **/
+    public Matrix<COLUMNS, ROWS> transposeView()
+    {
+        return transpose();
+    }
+
+    /**
+    * Provides a rectangular block of this matrix. Matrix implementations that support element layouts (see
+    * {@link #getElementAccess()}) return a view that shares its storage with this matrix, so that no elements
+    * are copied and changes to the storage of either matrix are visible in both. The default implementation
+    * copies the elements of the block into a new matrix.
+    *
+    * @param firstRow the index of the first row of the block
+    * @param firstColumn the index of the first column of the block
+    * @param rows the number of rows of the block
+    * @param columns the number of columns of the block
+    * @param <R> the rows dimension of the block
+    * @param <C> the columns dimension of the block
+    * @return the block
+    * @throws IndexOutOfBoundsException if the block exceeds the bounds of this matrix
+    **/
+    public <R extends Dimension, C extends Dimension> Matrix<R, C> subMatrix(int firstRow, int firstColumn, int rows, int columns)
+    {
+        checkBlock(firstRow, firstColumn, rows, columns);
+        float[] values = new float[rows*columns];
+        for (int column = 0; column < columns; column++)
+        {
+            for (int row = 0; row < rows; row++)
+            {
+                values[row + column*rows] = at(firstRow + row, firstColumn + column);
+            }
+        }
+        return factory().create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), values);
+    }
+
+    /**
+    * Provides a single row of this matrix (as a view, if supported; see {@link #subMatrix(int, int, int, int)}).
+    *
+    * @param row the row index
+    * @return a 1-by-{@link #getColumns()} matrix
+    **/
+    public Matrix<One, COLUMNS> row(int row)
+    {
+        return subMatrix(row, 0, 1, getColumns());
+    }
+
+    /**
+    * Provides a single column of this matrix (as a view, if supported; see {@link #subMatrix(int, int, int, int)}).
+    *
+    * @param column the column index
+    * @return a {@link #getRows()}-by-1 matrix
+    **/
+    public Matrix<ROWS, One> column(int column)
+    {
+        return subMatrix(0, column, getRows(), 1);
+    }
+
+    /**
+    * Multiplies this matrix with another matrix, adds a bias vector to each column of the product, and applies an
+    * activation function to each element of the result ({@code activation(this*rightHandSide + bias)}, as in a
+    * dense layer of a neural network). Matrix implementations whose multiplication strategies support fused
+    * epilogues apply the bias and activation while the product is still in the cache. The default implementation
+    * performs separate element-wise operations.
+    *
+    * @param rightHandSide the right-hand side matrix
+    * @param bias a column vector that is added to each column of the product, or {@code null} for no bias
+    * @param activation the activation function (e.g., {@link Activation#RELU})
+    * @param <DIMENSION> the columns dimension of the result
+    * @return the result
+    **/
+    public <DIMENSION extends Dimension> Matrix<ROWS, DIMENSION> times(Matrix<COLUMNS, DIMENSION> rightHandSide,
+        Matrix<ROWS, One> bias, FloatUnaryOperator activation)
+    {
+        Matrix<ROWS, DIMENSION> product = times(rightHandSide);
+        return (bias == null? product:product.plusColumn(bias)).map(activation);
+    }
+
+    /**
+    * Applies a function to each element of this matrix.
+    *
+    * @param function the function (e.g., an {@link Activation})
+    * @return a new matrix containing the results
+    **/
+    public Matrix<ROWS, COLUMNS> map(FloatUnaryOperator function)
+    {
+        return elementwise().map(this, function);
+    }
+
+    public Matrix<ROWS, COLUMNS> plus(Matrix<ROWS, COLUMNS> other)
+    {
+        return elementwise().combine(this, other, Arithmetic.ADD);
+    }
+
+    public Matrix<ROWS, COLUMNS> minus(Matrix<ROWS, COLUMNS> other)
+    {
+        return elementwise().combine(this, other, Arithmetic.SUBTRACT);
+    }
+
+    /**
+    * Computes the element-wise (Hadamard) product of this matrix and another matrix.
+    *
+    * @param other the other matrix
+    * @return a new matrix containing the products of the corresponding elements
+    **/
+    public Matrix<ROWS, COLUMNS> hadamard(Matrix<ROWS, COLUMNS> other)
+    {
+        return elementwise().combine(this, other, Arithmetic.MULTIPLY);
+    }
+
+    public Matrix<ROWS, COLUMNS> scale(float factor)
+    {
+        return map(Arithmetic.MULTIPLY.with(factor));
+    }
+
+    /**
+    * Adds a column vector (e.g., a bias) to each column of this matrix.
+    *
+    * @param column the column vector
+    * @return a new matrix containing the sums
+    **/
+    public Matrix<ROWS, COLUMNS> plusColumn(Matrix<ROWS, One> column)
+    {
+        return elementwise().combineColumn(this, column, Arithmetic.ADD);
+    }
+
+    /**
+    * Reduces all elements of this matrix to a single value.
+    *
+    * @param reduction the {@link Reduction} (e.g., {@link Reduction#SUM})
+    * @return the result of the reduction
+    **/
+    public float reduce(Reduction reduction)
+    {
+        return reduction().reduce(this, reduction);
+    }
+
+    /**
+    * Reduces each column of this matrix to a single value.
+    *
+    * @param reduction the {@link Reduction}
+    * @return a row vector containing the result for each column
+    **/
+    public Matrix<One, COLUMNS> reduceColumns(Reduction reduction)
+    {
+        return reduction().reduceColumns(this, reduction);
+    }
+
+    /**
+    * Reduces each row of this matrix to a single value.
+    *
+    * @param reduction the {@link Reduction}
+    * @return a column vector containing the result for each row
+    **/
+    public Matrix<ROWS, One> reduceRows(Reduction reduction)
+    {
+        return reduction().reduceRows(this, reduction);
+    }
+
     public abstract int getRows();
 
     public abstract int getColumns();
 
     public abstract float[] getValues();
 
+    /**
+    * Provides access to the matrix elements in column-major order without necessarily copying them to the heap.
+    * For matrices that are stored in a {@code float} array, this is simply a wrapper around that array.
+    * The returned buffer is independent of other buffers (i.e., it has its own position and limit), but
+    * it may share its contents with the matrix.
+    *
+    * @return a {@link FloatBuffer} containing the matrix elements
+    **/
+    public abstract FloatBuffer getBuffer();
+
+    /**
+    * Provides access to the matrix elements in the layout in which they are actually stored, as described by
+    * {@link #getElementAccess()}. Unlike {@link #getBuffer()}, this never rearranges the elements. The default
+    * implementation returns {@link #getBuffer()}.
+    *
+    * @return a {@link FloatBuffer} containing the matrix storage
+    **/
+    public FloatBuffer getStorage()
+    {
+        return getBuffer();
+    }
+
+    /**
+    * Provides access to the matrix storage (as described by {@link #getStorage()}) for operations that only read
+    * the elements. The returned buffer must not be modified. Unlike {@link #getStorage()}, this allows matrices that
+    * keep additional copies of their elements (e.g., in the memory of an accelerator device) to retain these copies.
+    * The default implementation returns {@link #getStorage()}.
+    *
+    * @return a {@link FloatBuffer} containing the matrix storage
+    **/
+    public FloatBuffer getStorageForReading()
+    {
+        return getStorage();
+    }
+
+    /**
+    * Provides the layout of the elements in {@link #getStorage()}. The default is contiguous column-major order.
+    *
+    * @return the {@link MatrixElementAccess} of this matrix
+    **/
+    public MatrixElementAccess getElementAccess()
+    {
+        return new DirectElementAccess(factory());
+    }
+
+    /**
+    * Provides the {@link MatrixMultiplication} that is registered for this matrix. Strategies that dispatch to other
+    * strategies (e.g., {@link top.java.matrix.operations.multiplication.AdaptiveMultiplication}) use it to find
+    * multiplications that are specific to the storage format of an operand (see
+    * {@link MatrixMultiplication#isFormatSpecific()}). The default implementation returns {@code null}.
+    *
+    * @return the registered {@link MatrixMultiplication}, or {@code null} if there is none
+    **/
+    public MatrixMultiplication<?, ?, ?> getMultiplication()
+    {
+        return null;
+    }
+
     public abstract float at(int zeroIndexedRow, int zeroIndexedColumn);
 
     public abstract Matrix<ROWS, COLUMNS> using(MatrixOperation... operations);
+
+    /**
+    * Provides the strategy for element-wise operations. The default is a {@link ParallelElementwise} that creates
+    * its results with this matrix's {@link #factory()}.
+    *
+    * @return the {@link ElementwiseOperation}
+    **/
+    protected ElementwiseOperation<ROWS, COLUMNS> elementwise()
+    {
+        return new ParallelElementwise<>(factory());
+    }
+
+    /**
+    * Provides the strategy for reductions. The default is a {@link ParallelReduction} that creates its results with
+    * this matrix's {@link #factory()}.
+    *
+    * @return the {@link MatrixReduction}
+    **/
+    protected MatrixReduction<ROWS, COLUMNS> reduction()
+    {
+        return new ParallelReduction<>(factory());
+    }
+
+    /**
+    * Provides the strategy for matrix-vector and dot products. The default is a
+    * {@link ParallelMatrixVectorMultiplication}.
+    *
+    * @return the {@link MatrixVectorMultiplication}
+    **/
+    protected MatrixVectorMultiplication<ROWS, COLUMNS> vectorMultiplication()
+    {
+        return new ParallelMatrixVectorMultiplication<>(factory());
+    }
+
+    protected void checkBlock(int firstRow, int firstColumn, int rows, int columns)
+    {
+        if (firstRow < 0 || rows < 0 || firstRow > getRows() - rows
+        || firstColumn < 0 || columns < 0 || firstColumn > getColumns() - columns)
+        {
+            throw new IndexOutOfBoundsException(rows + "x" + columns + " block at (" + firstRow + ", " + firstColumn
+                + ") exceeds " + getRows() + "x" + getColumns() + " matrix");
+        }
+    }
 }
@@ -0,0 +1,72 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix;
+
+import top.java.matrix.operations.BatchMultiplication;
+
+/**
+* A {@link MatrixBatch} holds a number of equally-shaped matrices in a single array. The matrices are stored one
+* after the other (each in column-major order), so that the elements of matrix {@code index} start at offset
+* {@code index*getStride()}. Operations on a batch process all matrices in a single pass (e.g., a single kernel
+* launch), so that the per-call overhead is only incurred once per batch and not once per matrix.
+*
+* @param <ROWS> the rows dimension of the matrices in the batch
+* @param <COLUMNS> the columns dimension of the matrices in the batch
+*
+* @author Mirko Raner
+**/
+public abstract class MatrixBatch<ROWS extends Dimension, COLUMNS extends Dimension>
+{
+    /**
+    * The {@link Factory} interface creates new batches from an existing array.
+    **/
+    public static interface Factory
+    {
+        <M extends Dimension, N extends Dimension> MatrixBatch<M, N> create(Dimension rows, Dimension columns, int size, float[] values);
+    }
+
+    public abstract Factory factory();
+
+    /**
+    * Multiplies all matrices of this batch with the corresponding matrices of another batch. If either batch
+    * contains only a single matrix, that matrix is multiplied with every matrix of the other batch.
+    *
+    * @param rightHandSide the right-hand side batch
+    * @param <DIMENSION> the columns dimension of the result matrices
+    * @return a new {@link MatrixBatch} containing the products
+    **/
+    public abstract <DIMENSION extends Dimension> MatrixBatch<ROWS, DIMENSION> times(MatrixBatch<COLUMNS, DIMENSION> rightHandSide);
+
+    public abstract int size();
+
+    public abstract int getRows();
+
+    public abstract int getColumns();
+
+    /**
+    * @return the number of array elements between the first elements of consecutive matrices
+    **/
+    public int getStride()
+    {
+        return getRows()*getColumns();
+    }
+
+    public abstract float[] getValues();
+
+    public abstract Matrix<ROWS, COLUMNS> get(int index);
+
+    public abstract MatrixBatch<ROWS, COLUMNS> using(BatchMultiplication<?, ?, ?> multiplication);
+}
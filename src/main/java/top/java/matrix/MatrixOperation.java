@@ -15,6 +15,8 @@
 //                                                                          //
 package top.java.matrix;
 
+import java.nio.FloatBuffer;
+
 /**
 * {@link MatrixOperation} is the abstract base class for common matrix operations like multiplication or
 * transposition. It is also used for more low-level operations like access to the underlying {@code float}
@@ -48,4 +50,17 @@ public abstract class MatrixOperation
         Class<? extends MatrixOperation> result = (Class<? extends MatrixOperation>)type;
         return result;
     }
+
+    /**
+    * Provides the heap array that backs a buffer returned by {@link Matrix#getBuffer()}, if there is one.
+    *
+    * @param buffer the buffer
+    * @return the backing array, or {@code null} if the buffer is not backed by a writable array that starts
+    * at offset zero (which is also the case for views that are not stored in column-major order)
+    **/
+    protected static float[] array(FloatBuffer buffer)
+    {
+        return buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 && !buffer.isReadOnly()?
+            buffer.array():null;
+    }
 }
@@ -2,7 +2,37 @@ package top.java.matrix;
 
 import top.java.matrix.Dimension.One;
 
+/**
+* A {@link Vector} is a matrix with a single column. Besides all matrix operations, it supports dot products, and
+* products of a matrix and a vector (see {@link Matrix#times(Vector)} and {@link Matrix#transposeTimes(Vector)})
+* are computed by a dedicated {@link top.java.matrix.operations.MatrixVectorMultiplication} strategy instead of a
+* general matrix multiplication.
+*
+* @param <DIMENSION> the dimension (i.e., the number of rows) of the vector
+*
+* @author Mirko Raner
+**/
 public abstract class Vector<DIMENSION extends Dimension> extends Matrix<DIMENSION, One>
 {
-    // Empty
+    public int getSize()
+    {
+        return getRows();
+    }
+
+    @Override
+    public int getColumns()
+    {
+        return 1;
+    }
+
+    /**
+    * Computes the dot product of this vector and another vector.
+    *
+    * @param other the other vector
+    * @return the dot product
+    **/
+    public float dot(Vector<DIMENSION> other)
+    {
+        return vectorMultiplication().dot(this, other);
+    }
 }
@@ -0,0 +1,313 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+import top.java.matrix.Dimension;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixOperation;
+import top.java.matrix.Vector;
+import top.java.matrix.operations.ElementwiseOperation;
+import top.java.matrix.operations.Epilogue;
+import top.java.matrix.operations.MatrixElementAccess;
+import top.java.matrix.operations.MatrixMultiplication;
+import top.java.matrix.operations.MatrixReduction;
+import top.java.matrix.operations.MatrixTransposition;
+import top.java.matrix.operations.MatrixVectorMultiplication;
+import top.java.matrix.operations.access.StridedElementAccess;
+import top.java.matrix.util.FloatUnaryOperator;
+
+/**
+* {@link AbstractMatrix} is the common base class of the {@link Matrix} implementations in this package.
+* It keeps track of the matrix dimensions and of the {@link MatrixOperation}s that are used by the matrix.
+* Subclasses only need to provide the actual storage of the matrix elements.
+*
+* @param <ROWS> the rows dimension of the matrix
+* @param <COLUMNS> the columns dimension of the matrix
+*
+* @author Mirko Raner
+**/
+public abstract class AbstractMatrix<ROWS extends Dimension, COLUMNS extends Dimension> extends Matrix<ROWS, COLUMNS>
+{
+    protected final Dimension rows;
+    protected final Dimension columns;
+
+    private final Map<Class<? extends MatrixOperation>, MatrixOperation> operations = new HashMap<>();
+    private final Class<?> defaultMultiplication;
+
+    /**
+    * Initializes the dimensions and operations of the matrix.
+    *
+    * @param rows the rows dimension
+    * @param columns the columns dimension
+    * @param defaultOperations the default operations of the matrix implementation
+    * @param matrixOperations additional operations that override the default operations of the same type
+    **/
+    protected AbstractMatrix(Dimension rows, Dimension columns, MatrixOperation[] defaultOperations, MatrixOperation[] matrixOperations)
+    {
+        this.rows = rows;
+        this.columns = columns;
+        Stream.of(defaultOperations).forEach(operation -> operations.put(operation.getOperationType(), operation));
+        Stream.of(matrixOperations).forEach(operation -> operations.put(operation.getOperationType(), operation));
+        defaultMultiplication = Stream.of(defaultOperations).filter(MatrixMultiplication.class::isInstance)
+            .map(Object::getClass).findFirst().orElse(null);
+    }
+
+    @Override
+    public <DIMENSION extends Dimension> Matrix<ROWS, DIMENSION> times(Matrix<COLUMNS, DIMENSION> rightHandSide)
+    {
+        @SuppressWarnings("unchecked")
+        MatrixMultiplication<ROWS, DIMENSION, COLUMNS> multiplication = operation(MatrixMultiplication.class);
+        return multiplication.apply(this, rightHandSide);
+    }
+
+    @Override
+    public <DIMENSION extends Dimension> Matrix<ROWS, DIMENSION> timesInto(Matrix<COLUMNS, DIMENSION> rightHandSide,
+        Matrix<ROWS, DIMENSION> destination)
+    {
+        @SuppressWarnings("unchecked")
+        MatrixMultiplication<ROWS, DIMENSION, COLUMNS> multiplication = operation(MatrixMultiplication.class);
+        return multiplication.applyInto(this, rightHandSide, destination);
+    }
+
+    @Override
+    public <DIMENSION extends Dimension> Matrix<ROWS, DIMENSION> times(Matrix<COLUMNS, DIMENSION> rightHandSide,
+        Matrix<ROWS, One> bias, FloatUnaryOperator activation)
+    {
+        @SuppressWarnings("unchecked")
+        MatrixMultiplication<ROWS, DIMENSION, COLUMNS> multiplication = operation(MatrixMultiplication.class);
+        return multiplication.applyFused(this, rightHandSide, new Epilogue(bias, activation));
+    }
+
+    /**
+    * Multiplies this matrix with a vector. If the matrix uses a {@link MatrixMultiplication} of a different type
+    * than the default multiplication of the matrix implementation (e.g., a
+    * {@link top.java.matrix.operations.multiplication.CoalescingMultiplication} that was registered via
+    * {@link #using(MatrixOperation...)}), and no {@link MatrixVectorMultiplication} was registered, the product is
+    * computed by that {@link MatrixMultiplication}, like for {@link #times(Matrix)}; otherwise, it is computed by
+    * the {@link #vectorMultiplication()} strategy.
+    *
+    * @param vector the vector
+    * @return the product
+    **/
+    @Override
+    public Vector<ROWS> times(Vector<COLUMNS> vector)
+    {
+        @SuppressWarnings("unchecked")
+        MatrixMultiplication<ROWS, One, COLUMNS> multiplication = operation(MatrixMultiplication.class);
+        if (multiplication == null || multiplication.getClass() == defaultMultiplication
+        || operations.containsKey(MatrixVectorMultiplication.class))
+        {
+            return super.times(vector);
+        }
+        Matrix<ROWS, One> product = multiplication.apply(this, vector);
+        if (product instanceof Vector)
+        {
+            return (Vector<ROWS>)product;
+        }
+        return new StandardVector<>(rows, product.getValues());
+    }
+
+    @Override
+    public Matrix<COLUMNS, ROWS> transpose()
+    {
+        @SuppressWarnings("unchecked")
+        MatrixTransposition<ROWS, COLUMNS> transposition = operation(MatrixTransposition.class);
+        return transposition.apply(this);
+    }
+
+    @Override
+    public Matrix<COLUMNS, ROWS> transposeInto(Matrix<COLUMNS, ROWS> destination)
+    {
+        @SuppressWarnings("unchecked")
+        MatrixTransposition<ROWS, COLUMNS> transposition = operation(MatrixTransposition.class);
+        return transposition.applyInto(this, destination);
+    }
+
+    @Override
+    public Matrix<COLUMNS, ROWS> transposeView()
+    {
+        return view(columns, rows, getElementAccess().transpose());
+    }
+
+    @Override
+    public <R extends Dimension, C extends Dimension> Matrix<R, C> subMatrix(int firstRow, int firstColumn, int rows, int columns)
+    {
+        checkBlock(firstRow, firstColumn, rows, columns);
+        MatrixElementAccess access = getElementAccess();
+        int offset = access.index(this.rows, this.columns, firstRow, firstColumn);
+        int rowStride = access.rowStride(this.rows, this.columns);
+        int columnStride = access.columnStride(this.rows, this.columns);
+        StridedElementAccess block = new StridedElementAccess(factory(), offset, rowStride, columnStride);
+        return view(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), block);
+    }
+
+    @Override
+    public int getRows()
+    {
+        return rows.getAsInt();
+    }
+
+    @Override
+    public int getColumns()
+    {
+        return columns.getAsInt();
+    }
+
+    /**
+    * Provides access to the matrix elements in column-major order. If the elements are stored in column-major
+    * order, the returned buffer shares its contents with the storage; otherwise, it is a read-only copy.
+    *
+    * @return a {@link FloatBuffer} containing the matrix elements
+    **/
+    @Override
+    public FloatBuffer getBuffer()
+    {
+        MatrixElementAccess access = getElementAccess();
+        if (access.isColumnMajor(rows, columns))
+        {
+            FloatBuffer buffer = getStorage();
+            buffer.limit(rows.getAsInt()*columns.getAsInt());
+            return buffer;
+        }
+        return FloatBuffer.wrap(access.gather(getStorage(), rows, columns)).asReadOnlyBuffer();
+    }
+
+    @Override
+    public abstract FloatBuffer getStorage();
+
+    @Override
+    public MatrixElementAccess getElementAccess()
+    {
+        return operation(MatrixElementAccess.class);
+    }
+
+    @Override
+    public MatrixMultiplication<?, ?, ?> getMultiplication()
+    {
+        return operation(MatrixMultiplication.class);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(rows.getAsInt(), columns.getAsInt(), getBuffer());
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if (other instanceof Matrix)
+        {
+            Matrix<?, ?> otherMatrix = (Matrix<?, ?>)other;
+            if (rows.getAsInt() == otherMatrix.getRows() && columns.getAsInt() == otherMatrix.getColumns())
+            {
+                return otherMatrix.getBuffer().equals(getBuffer());
+            }
+        }
+        return false;
+    }
+
+    /**
+    * Provides the registered {@link ElementwiseOperation}, or the default strategy if none is registered.
+    *
+    * @return the {@link ElementwiseOperation}
+    **/
+    @Override
+    protected ElementwiseOperation<ROWS, COLUMNS> elementwise()
+    {
+        @SuppressWarnings("unchecked")
+        ElementwiseOperation<ROWS, COLUMNS> elementwise = operation(ElementwiseOperation.class);
+        return elementwise != null? elementwise:super.elementwise();
+    }
+
+    /**
+    * Provides the registered {@link MatrixReduction}, or the default strategy if none is registered.
+    *
+    * @return the {@link MatrixReduction}
+    **/
+    @Override
+    protected MatrixReduction<ROWS, COLUMNS> reduction()
+    {
+        @SuppressWarnings("unchecked")
+        MatrixReduction<ROWS, COLUMNS> reduction = operation(MatrixReduction.class);
+        return reduction != null? reduction:super.reduction();
+    }
+
+    /**
+    * Provides the registered {@link MatrixVectorMultiplication}, or the default strategy if none is registered.
+    *
+    * @return the {@link MatrixVectorMultiplication}
+    **/
+    @Override
+    protected MatrixVectorMultiplication<ROWS, COLUMNS> vectorMultiplication()
+    {
+        @SuppressWarnings("unchecked")
+        MatrixVectorMultiplication<ROWS, COLUMNS> multiplication = operation(MatrixVectorMultiplication.class);
+        return multiplication != null? multiplication:super.vectorMultiplication();
+    }
+
+    /**
+    * Creates a matrix of the same type that shares the storage of this matrix but accesses it with a different
+    * layout. All other operations of this matrix are retained.
+    *
+    * @param rows the rows dimension of the view
+    * @param columns the columns dimension of the view
+    * @param access the layout of the view
+    * @param <R> the rows dimension of the view
+    * @param <C> the columns dimension of the view
+    * @return the view
+    **/
+    protected abstract <R extends Dimension, C extends Dimension> Matrix<R, C> view(Dimension rows, Dimension columns,
+        MatrixElementAccess access);
+
+    /**
+    * Provides the operations of this matrix, with some of them replaced.
+    *
+    * @param overrides the replacement operations
+    * @return the operations, for passing them to the constructor of another matrix
+    **/
+    protected MatrixOperation[] operations(MatrixOperation... overrides)
+    {
+        Map<Class<? extends MatrixOperation>, MatrixOperation> result = new HashMap<>(operations);
+        Stream.of(overrides).forEach(operation -> result.put(operation.getOperationType(), operation));
+        return result.values().toArray(new MatrixOperation[result.size()]);
+    }
+
+    /**
+    * Prepends the {@link MatrixElementAccess} of this matrix to a list of operations, so that a matrix created
+    * by {@link #using(MatrixOperation...)} retains the layout of its storage (unless it is explicitly replaced).
+    *
+    * @param operations the operations
+    * @return the operations, preceded by the current element access
+    **/
+    protected MatrixOperation[] withLayout(MatrixOperation... operations)
+    {
+        return Stream.concat(Stream.of(getElementAccess()), Stream.of(operations)).toArray(MatrixOperation[]::new);
+    }
+
+    protected <MO extends MatrixOperation> MO operation(Class<? extends MO> operation)
+    {
+        @SuppressWarnings("unchecked")
+        MO implementation = (MO)operations.get(operation);
+        return implementation;
+    }
+}
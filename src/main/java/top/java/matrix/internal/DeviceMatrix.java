@@ -0,0 +1,462 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.function.Function;
+import top.java.matrix.Dimension;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.MatrixOperation;
+import top.java.matrix.Vector;
+import top.java.matrix.internal.opencl.OpenCLBuffer;
+import top.java.matrix.operations.MatrixElementAccess;
+import top.java.matrix.operations.access.DirectElementAccess;
+import top.java.matrix.operations.elementwise.ParallelElementwise;
+import top.java.matrix.operations.multiplication.BlockedMultiplication;
+import top.java.matrix.operations.multiplication.OpenCLMultiplication;
+import top.java.matrix.operations.reduction.ParallelReduction;
+import top.java.matrix.operations.transposition.BlockedTransposition;
+import top.java.matrix.util.RawFloatMatrix;
+import static java.nio.ByteOrder.nativeOrder;
+
+/**
+* A {@link DeviceMatrix} keeps its elements in the memory of an OpenCL device (managed by an
+* {@link OpenCLMultiplication}) and/or in a direct host buffer, and only transfers them between the two when
+* necessary. The product of two {@link DeviceMatrix}es of the same device is computed directly from their device
+* buffers and remains on the device, so that chained multiplications (e.g., {@code A.times(B).times(C)}) do not
+* copy their intermediate results to the host and back. The elements are copied to the host when they are
+* accessed (e.g., via {@link #at(int, int)}, {@link #getValues()} or {@link #getBuffer()}), and they are copied
+* to the device when the matrix is used as an operand of a device multiplication. {@link #toDevice()} and
+* {@link #toHost()} perform these transfers explicitly.
+* <br>
+* <br>
+* {@link #getStorage()} provides writable access to the host copy of the elements, and therefore discards the
+* device copy (which is transferred again when it is needed). Host operations that only read a matrix (e.g.,
+* {@link #transpose()} or a product with a host matrix) use {@link #getStorageForReading()}, which retains the
+* device copy. Operands that are views with a non-contiguous layout (e.g., {@link #transposeView()} or
+* {@link #subMatrix(int, int, int, int)}), operands of different devices, and all other operations are computed on
+* the host, like for a {@link DirectMatrix}. If OpenCL is not available, the elements simply stay in the direct host
+* buffer and all multiplications use a {@link BlockedMultiplication}.
+* <br>
+* <br>
+* The device memory is released by {@link #close()}; it is not released automatically when a matrix becomes
+* unreachable. The direct host buffer is left to the garbage collector, because buffers that were obtained earlier
+* (e.g., via {@link #getBuffer()}) may still refer to it. Products returned by {@link #times(Matrix)} are new
+* {@link DeviceMatrix}es with their own storage, which are owned by the caller and must be closed as well, including
+* the intermediate results of chained multiplications:
+* <pre>
+* try (DeviceMatrix&lt;M, K&gt; AB = A.times(B); DeviceMatrix&lt;M, N&gt; ABC = AB.times(C))
+* {
+*     ...
+* }
+* </pre>
+* All matrices that were derived from a
+* {@link DeviceMatrix} via {@link #using(MatrixOperation...)} or as views share the same storage and become
+* unusable once any of them is closed. Device buffers cannot be transferred anymore after the
+* {@link OpenCLMultiplication} is closed.
+*
+* @param <ROWS> the rows dimension of the matrix
+* @param <COLUMNS> the columns dimension of the matrix
+*
+* @author Mirko Raner
+**/
+public class DeviceMatrix<ROWS extends Dimension, COLUMNS extends Dimension> extends AbstractMatrix<ROWS, COLUMNS>
+implements AutoCloseable
+{
+    private final Storage storage;
+
+    /**
+    * Creates a new {@link DeviceMatrix} whose elements are initially only stored on the host.
+    *
+    * @param device the {@link OpenCLMultiplication} that manages the device
+    * @param rows the rows dimension
+    * @param columns the columns dimension
+    * @param matrix the matrix elements in column-major order
+    * @param matrixOperation additional matrix operations
+    **/
+    public DeviceMatrix(OpenCLMultiplication<?, ?, ?> device, Dimension rows, Dimension columns, float[] matrix,
+        MatrixOperation... matrixOperation)
+    {
+        this(rows, columns, new Storage(device, FloatBuffer.wrap(matrix)), matrixOperation);
+    }
+
+    private DeviceMatrix(Dimension rows, Dimension columns, Storage storage, MatrixOperation... matrixOperation)
+    {
+        super(rows, columns, defaultOperations(storage.device), matrixOperation);
+        if ((long)rows.getAsInt()*columns.getAsInt() > storage.length)
+        {
+            throw new IllegalArgumentException("Storage too small for " + rows.getAsInt() + "x" + columns.getAsInt() + " matrix");
+        }
+        this.storage = storage;
+    }
+
+    /**
+    * Copies a matrix into a new {@link DeviceMatrix} (on the host; see {@link #toDevice()}).
+    *
+    * @param device the {@link OpenCLMultiplication} that manages the device
+    * @param matrix the matrix
+    * @param <ROWS> the rows dimension of the matrix
+    * @param <COLUMNS> the columns dimension of the matrix
+    * @return the new matrix
+    **/
+    public static <ROWS extends Dimension, COLUMNS extends Dimension> DeviceMatrix<ROWS, COLUMNS> of(OpenCLMultiplication<?, ?, ?> device,
+        Matrix<ROWS, COLUMNS> matrix)
+    {
+        Dimension rows = Dimension.FACTORY.create(matrix.getRows());
+        Dimension columns = Dimension.FACTORY.create(matrix.getColumns());
+        return new DeviceMatrix<>(rows, columns, new Storage(device, matrix.getBuffer()));
+    }
+
+    @Override
+    public Function<RawFloatMatrix, Matrix<?, ?>> constructor()
+    {
+        OpenCLMultiplication<?, ?, ?> device = storage.device;
+        return matrix -> new DeviceMatrix<>(device, Dimension.FACTORY.create(matrix.rows()),
+            Dimension.FACTORY.create(matrix.columns()), matrix.matrix());
+    }
+
+    @Override
+    public MatrixFactory factory()
+    {
+        return factory(storage.device);
+    }
+
+    /**
+    * Multiplies this matrix with another matrix. If both matrices are {@link DeviceMatrix}es of the same device
+    * and OpenCL is available, the operands are transferred to the device (unless they are already there), and
+    * the result is only stored on the device; otherwise, the product is computed on the host. In either case, the
+    * result is a new {@link DeviceMatrix} that is owned by the caller, who is responsible for closing it.
+    *
+    * @param rightHandSide the right-hand side matrix
+    * @param <DIMENSION> the columns dimension of the result
+    * @return the result
+    **/
+    @Override
+    public <DIMENSION extends Dimension> DeviceMatrix<ROWS, DIMENSION> times(Matrix<COLUMNS, DIMENSION> rightHandSide)
+    {
+        if (rightHandSide instanceof DeviceMatrix)
+        {
+            DeviceMatrix<COLUMNS, DIMENSION> right = (DeviceMatrix<COLUMNS, DIMENSION>)rightHandSide;
+            OpenCLBuffer product = multiply(right);
+            if (product != null)
+            {
+                Storage result = new Storage(storage.device, product, getRows()*right.getColumns());
+                return new DeviceMatrix<>(rows, right.columns, result, operations(new DirectElementAccess(factory())));
+            }
+        }
+        Matrix<ROWS, DIMENSION> product = super.times(rightHandSide);
+        if (product instanceof DeviceMatrix)
+        {
+            return (DeviceMatrix<ROWS, DIMENSION>)product;
+        }
+        return of(storage.device, product);
+    }
+
+    /**
+    * Multiplies this matrix with a vector. If the elements of this matrix are currently stored on the device, the
+    * vector is transferred to the device and the product is computed there (see {@link #times(Matrix)}), and only
+    * the result is transferred back; otherwise, the product is computed on the host.
+    *
+    * @param vector the vector
+    * @return the product
+    **/
+    @Override
+    public Vector<ROWS> times(Vector<COLUMNS> vector)
+    {
+        if (isOnDevice())
+        {
+            try (DeviceMatrix<COLUMNS, One> right = of(storage.device, vector);
+                DeviceMatrix<ROWS, One> product = times(right))
+            {
+                return new StandardVector<>(rows, product.getValues());
+            }
+        }
+        return super.times(vector);
+    }
+
+    /**
+    * Makes sure that the elements are stored on the device (this has no effect if OpenCL is not available).
+    *
+    * @return this matrix
+    **/
+    public DeviceMatrix<ROWS, COLUMNS> toDevice()
+    {
+        storage.device();
+        return this;
+    }
+
+    /**
+    * Makes sure that the elements are stored on the host. The device copy (if any) is retained.
+    *
+    * @return this matrix
+    **/
+    public DeviceMatrix<ROWS, COLUMNS> toHost()
+    {
+        storage.host();
+        return this;
+    }
+
+    /**
+    * @return {@code true} if the elements are currently stored on the device
+    **/
+    public boolean isOnDevice()
+    {
+        return storage.isOnDevice();
+    }
+
+    /**
+    * @return {@code true} if the elements are currently stored on the host
+    **/
+    public boolean isOnHost()
+    {
+        return storage.isOnHost();
+    }
+
+    @Override
+    public float[] getValues()
+    {
+        FloatBuffer buffer = getBuffer();
+        float[] values = new float[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+
+    /**
+    * Provides read-only access to the matrix elements in column-major order. The elements are transferred to
+    * the host if necessary, but, unlike {@link #getStorage()}, the device copy is retained.
+    *
+    * @return a {@link FloatBuffer} containing the matrix elements
+    **/
+    @Override
+    public FloatBuffer getBuffer()
+    {
+        MatrixElementAccess access = getElementAccess();
+        FloatBuffer host = storage.host().asReadOnlyBuffer();
+        if (access.isColumnMajor(rows, columns))
+        {
+            host.limit(rows.getAsInt()*columns.getAsInt());
+            return host;
+        }
+        return FloatBuffer.wrap(access.gather(host, rows, columns)).asReadOnlyBuffer();
+    }
+
+    @Override
+    public FloatBuffer getStorage()
+    {
+        return storage.writable().duplicate();
+    }
+
+    /**
+    * Provides read-only access to the host copy of the matrix storage. The elements are transferred to the host if
+    * necessary, but, unlike {@link #getStorage()}, the device copy is retained.
+    *
+    * @return a read-only {@link FloatBuffer} containing the matrix storage
+    **/
+    @Override
+    public FloatBuffer getStorageForReading()
+    {
+        return storage.host().asReadOnlyBuffer();
+    }
+
+    @Override
+    public float at(int row, int column)
+    {
+        MatrixElementAccess access = operation(MatrixElementAccess.class);
+        return access.elementAt(storage.host(), rows, columns, row, column);
+    }
+
+    @Override
+    public Matrix<ROWS, COLUMNS> using(MatrixOperation... operation)
+    {
+        return new DeviceMatrix<>(rows, columns, storage, withLayout(operation));
+    }
+
+    @Override
+    protected <R extends Dimension, C extends Dimension> Matrix<R, C> view(Dimension rows, Dimension columns,
+        MatrixElementAccess access)
+    {
+        return new DeviceMatrix<>(rows, columns, storage, operations(access));
+    }
+
+    /**
+    * Determines whether the memory of this matrix has already been released.
+    *
+    * @return {@code true} if the matrix was closed, {@code false} otherwise
+    **/
+    public boolean isClosed()
+    {
+        return storage.closed;
+    }
+
+    /**
+    * Releases the device memory of this matrix (and all matrices that share its storage) and drops the references
+    * to its host buffer. Closing a matrix more than once has no effect.
+    **/
+    @Override
+    public void close()
+    {
+        storage.close();
+    }
+
+    // Multiplies on the device, if possible; returns null if the product needs to be computed on the host:
+    //
+    private OpenCLBuffer multiply(DeviceMatrix<?, ?> right)
+    {
+        int rows = getRows();
+        int depth = getColumns();
+        int columns = right.getColumns();
+        if (right.storage.device != storage.device || depth != right.getRows()
+        || rows == 0 || depth == 0 || columns == 0 || !isContiguous() || !right.isContiguous())
+        {
+            return null;
+        }
+        OpenCLBuffer A = storage.device();
+        OpenCLBuffer B = right.storage.device();
+        return A == null || B == null? null:storage.device.multiply(A, B, rows, depth, columns);
+    }
+
+    private boolean isContiguous()
+    {
+        MatrixElementAccess access = getElementAccess();
+        return access.isColumnMajor(rows, columns) && access.index(rows, columns, 0, 0) == 0;
+    }
+
+    private static MatrixOperation[] defaultOperations(OpenCLMultiplication<?, ?, ?> device)
+    {
+        MatrixFactory factory = factory(device);
+        return new MatrixOperation[]
+        {
+            new BlockedMultiplication<>(factory),
+            new BlockedTransposition<>(factory),
+            new DirectElementAccess(factory),
+            new ParallelElementwise<>(factory),
+            new ParallelReduction<>(factory)
+        };
+    }
+
+    private static MatrixFactory factory(OpenCLMultiplication<?, ?, ?> device)
+    {
+        return new MatrixFactory()
+        {
+            @Override
+            public <M extends Dimension, N extends Dimension> Matrix<M, N> create(Dimension rows, Dimension columns,
+                float[] columnMajorArray, MatrixOperation... operations)
+            {
+                return new DeviceMatrix<>(device, rows, columns, columnMajorArray, operations);
+            }
+        };
+    }
+
+    /**
+    * The {@link Storage} is shared by all matrices that are derived from the same original {@link DeviceMatrix}.
+    * At any time, the elements are stored on the host, on the device, or both.
+    **/
+    private static class Storage
+    {
+        final OpenCLMultiplication<?, ?, ?> device;
+        final int length;
+        private FloatBuffer host;
+        private OpenCLBuffer buffer;
+        private volatile boolean closed;
+
+        Storage(OpenCLMultiplication<?, ?, ?> device, FloatBuffer values)
+        {
+            this.device = device;
+            this.length = values.remaining();
+            allocate().duplicate().put(values.duplicate());
+        }
+
+        Storage(OpenCLMultiplication<?, ?, ?> device, OpenCLBuffer buffer, int length)
+        {
+            this.device = device;
+            this.length = length;
+            this.buffer = buffer;
+        }
+
+        synchronized FloatBuffer host()
+        {
+            check();
+            if (host == null)
+            {
+                device.download(buffer, allocate());
+            }
+            return host;
+        }
+
+        synchronized OpenCLBuffer device()
+        {
+            check();
+            if (buffer == null)
+            {
+                buffer = device.upload(host);
+            }
+            return buffer;
+        }
+
+        synchronized FloatBuffer writable()
+        {
+            FloatBuffer writable = host();
+            release();
+            return writable;
+        }
+
+        synchronized boolean isOnDevice()
+        {
+            return buffer != null;
+        }
+
+        synchronized boolean isOnHost()
+        {
+            return host != null;
+        }
+
+        synchronized void close()
+        {
+            if (!closed)
+            {
+                closed = true;
+                release();
+                host = null;
+            }
+        }
+
+        private FloatBuffer allocate()
+        {
+            host = ByteBuffer.allocateDirect(Math.multiplyExact(length, Float.BYTES)).order(nativeOrder()).asFloatBuffer();
+            return host;
+        }
+
+        private void release()
+        {
+            if (buffer != null)
+            {
+                buffer.close();
+                buffer = null;
+            }
+        }
+
+        private void check()
+        {
+            if (closed)
+            {
+                throw new IllegalStateException("Matrix was already closed");
+            }
+        }
+    }
+}
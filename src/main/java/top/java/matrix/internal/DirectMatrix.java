@@ -0,0 +1,270 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.function.Function;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.MatrixOperation;
+import top.java.matrix.operations.MatrixElementAccess;
+import top.java.matrix.operations.access.DirectElementAccess;
+import top.java.matrix.operations.elementwise.ParallelElementwise;
+import top.java.matrix.operations.multiplication.AdaptiveMultiplication;
+import top.java.matrix.operations.reduction.ParallelReduction;
+import top.java.matrix.operations.transposition.BlockedTransposition;
+import top.java.matrix.util.RawFloatMatrix;
+import static java.nio.ByteOrder.nativeOrder;
+
+/**
+* The {@link DirectMatrix} class provides a {@link Matrix} implementation that keeps its elements off-heap, in a
+* direct {@link FloatBuffer} (in column-major order). Off-heap storage does not count against the maximum heap
+* size (though it is subject to {@code -XX:MaxDirectMemorySize}), it does not add to garbage collection pressure,
+* and it can be handed to native code without copying. Multiplication strategies that read their operands via
+* {@link Matrix#getBuffer()} (e.g., {@link top.java.matrix.operations.multiplication.BlockedMultiplication}) and
+* element access via {@link #at(int, int)} operate directly on the off-heap data; {@link #getValues()}, however,
+* needs to copy the elements to a new heap array.
+*
+* A closed matrix (see {@link #close()}) cannot be used anymore. All matrices that were derived from a
+* {@link DirectMatrix} via {@link #using(MatrixOperation...)} or as views share the same storage and become unusable
+* once any of them is closed. Closing does not free the off-heap memory explicitly, because buffers that were
+* obtained earlier (via {@link #getBuffer()} or {@link #getStorage()}) and operations that are still running on other
+* threads may still refer to it; the memory is released by the garbage collector once none of them are reachable
+* anymore. Buffers obtained before a matrix was closed remain safe to read, but they are no longer associated with
+* the matrix and should be discarded.
+*
+* @param <ROWS> the rows dimension of the matrix
+* @param <COLUMNS> the columns dimension of the matrix
+*
+* @author Mirko Raner
+**/
+public class DirectMatrix<ROWS extends Dimension, COLUMNS extends Dimension> extends AbstractMatrix<ROWS, COLUMNS>
+implements AutoCloseable
+{
+    private final static AdaptiveMultiplication<?, ?, ?> DEFAULT_MULTIPLICATION =
+        new AdaptiveMultiplication<>(DirectMatrix::new).saveOnExit();
+
+    private final static MatrixOperation[] DEFAULT_OPERATIONS =
+    {
+        DEFAULT_MULTIPLICATION,
+        new BlockedTransposition<>(DirectMatrix::new),
+        new DirectElementAccess(DirectMatrix::new),
+        new ParallelElementwise<>(DirectMatrix::new),
+        new ParallelReduction<>(DirectMatrix::new)
+    };
+
+    private final Storage storage;
+
+    /**
+    * Creates a new {@link DirectMatrix} and copies the contents of a {@link RawFloatMatrix} into it.
+    *
+    * @param matrix the {@link RawFloatMatrix}
+    **/
+    public DirectMatrix(RawFloatMatrix matrix)
+    {
+        this(Dimension.FACTORY.create(matrix.rows()), Dimension.FACTORY.create(matrix.columns()), matrix.matrix());
+    }
+
+    /**
+    * Creates a new {@link DirectMatrix} and copies the contents of a column-major array into it.
+    *
+    * @param rows the rows dimension
+    * @param columns the columns dimension
+    * @param matrix the matrix elements in column-major order
+    * @param matrixOperation additional matrix operations
+    **/
+    public DirectMatrix(Dimension rows, Dimension columns, float[] matrix, MatrixOperation... matrixOperation)
+    {
+        this(rows, columns, allocate(matrix.length), matrixOperation);
+        storage.data().duplicate().put(matrix);
+    }
+
+    /**
+    * Creates a new {@link DirectMatrix} that takes ownership of a direct {@link ByteBuffer}. The buffer's byte order
+    * must already be set correctly.
+    *
+    * @param rows the rows dimension
+    * @param columns the columns dimension
+    * @param buffer the direct buffer containing the matrix elements in column-major order
+    * @param matrixOperation additional matrix operations
+    **/
+    public DirectMatrix(Dimension rows, Dimension columns, ByteBuffer buffer, MatrixOperation... matrixOperation)
+    {
+        this(rows, columns, new Storage(buffer.asFloatBuffer()), matrixOperation);
+    }
+
+    private DirectMatrix(Dimension rows, Dimension columns, Storage storage, MatrixOperation... matrixOperation)
+    {
+        super(rows, columns, DEFAULT_OPERATIONS, matrixOperation);
+        if ((long)rows.getAsInt()*columns.getAsInt() > storage.data().capacity())
+        {
+            throw new IllegalArgumentException("Buffer too small for " + rows.getAsInt() + "x" + columns.getAsInt() + " matrix");
+        }
+        this.storage = storage;
+    }
+
+    /**
+    * Creates a new, zero-initialized {@link DirectMatrix}.
+    *
+    * @param rows the rows dimension
+    * @param columns the columns dimension
+    * @param <ROWS> the rows dimension of the matrix
+    * @param <COLUMNS> the columns dimension of the matrix
+    * @return the new matrix
+    **/
+    public static <ROWS extends Dimension, COLUMNS extends Dimension> DirectMatrix<ROWS, COLUMNS> allocate(Dimension rows, Dimension columns)
+    {
+        return new DirectMatrix<>(rows, columns, allocate(Math.multiplyExact(rows.getAsInt(), columns.getAsInt())));
+    }
+
+    /**
+    * Creates a {@link DirectMatrix} that is backed by an existing {@link FloatBuffer}, starting at the buffer's
+    * current position.
+    *
+    * @param rows the rows dimension
+    * @param columns the columns dimension
+    * @param buffer the buffer containing the matrix elements in column-major order
+    * @param <ROWS> the rows dimension of the matrix
+    * @param <COLUMNS> the columns dimension of the matrix
+    * @return the new matrix
+    **/
+    public static <ROWS extends Dimension, COLUMNS extends Dimension> DirectMatrix<ROWS, COLUMNS> wrap(Dimension rows, Dimension columns, FloatBuffer buffer)
+    {
+        return new DirectMatrix<>(rows, columns, new Storage(buffer.slice()));
+    }
+
+    /**
+    * Returns the {@link AdaptiveMultiplication} that is shared by all {@link DirectMatrix}s (unless they were created
+    * with a different multiplication). Its tuning table is saved when the JVM shuts down, but it can also be
+    * calibrated and saved explicitly.
+    *
+    * @return the default {@link AdaptiveMultiplication}
+    **/
+    public static AdaptiveMultiplication<?, ?, ?> getDefaultMultiplication()
+    {
+        return DEFAULT_MULTIPLICATION;
+    }
+
+    @Override
+    public Function<RawFloatMatrix, Matrix<?, ?>> constructor()
+    {
+        return DirectMatrix::new;
+    }
+
+    @Override
+    public MatrixFactory factory()
+    {
+        return DirectMatrix::new;
+    }
+
+    @Override
+    public float[] getValues()
+    {
+        FloatBuffer buffer = getBuffer();
+        float[] values = new float[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+
+    @Override
+    public FloatBuffer getStorage()
+    {
+        return storage.data().duplicate();
+    }
+
+    @Override
+    public float at(int row, int column)
+    {
+        MatrixElementAccess access = operation(MatrixElementAccess.class);
+        return access.elementAt(storage.data(), rows, columns, row, column);
+    }
+
+    @Override
+    public Matrix<ROWS, COLUMNS> using(MatrixOperation... operation)
+    {
+        return new DirectMatrix<>(rows, columns, storage, withLayout(operation));
+    }
+
+    @Override
+    protected <R extends Dimension, C extends Dimension> Matrix<R, C> view(Dimension rows, Dimension columns,
+        MatrixElementAccess access)
+    {
+        return new DirectMatrix<>(rows, columns, storage, operations(access));
+    }
+
+    /**
+    * Determines whether this matrix has already been closed.
+    *
+    * @return {@code true} if the matrix was closed, {@code false} otherwise
+    **/
+    public boolean isClosed()
+    {
+        return storage.isClosed();
+    }
+
+    /**
+    * Closes this matrix (and all matrices that share its storage) and drops the references to its off-heap memory,
+    * so that the memory can be released as soon as no buffers obtained earlier are reachable anymore. Closing a
+    * matrix more than once has no effect.
+    **/
+    @Override
+    public void close()
+    {
+        storage.close();
+    }
+
+    private static Storage allocate(int elements)
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.multiplyExact(elements, Float.BYTES)).order(nativeOrder());
+        return new Storage(buffer.asFloatBuffer());
+    }
+
+    /**
+    * The {@link Storage} is shared by all matrices that are derived from the same original {@link DirectMatrix}.
+    * The buffer keeps the underlying direct {@link ByteBuffer} reachable until it is closed.
+    **/
+    private static class Storage
+    {
+        private volatile FloatBuffer data;
+
+        Storage(FloatBuffer data)
+        {
+            this.data = data;
+        }
+
+        FloatBuffer data()
+        {
+            FloatBuffer data = this.data;
+            if (data == null)
+            {
+                throw new IllegalStateException("Matrix was already closed");
+            }
+            return data;
+        }
+
+        boolean isClosed()
+        {
+            return data == null;
+        }
+
+        void close()
+        {
+            data = null;
+        }
+    }
+}
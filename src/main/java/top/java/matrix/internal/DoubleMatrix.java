@@ -0,0 +1,247 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.function.Function;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.MatrixOperation;
+import top.java.matrix.operations.MatrixElementAccess;
+import top.java.matrix.operations.access.DirectElementAccess;
+import top.java.matrix.operations.multiplication.DoubleMultiplication;
+import top.java.matrix.operations.transposition.BlockedTransposition;
+import top.java.matrix.util.RawDoubleMatrix;
+import top.java.matrix.util.RawFloatMatrix;
+
+/**
+* The {@link DoubleMatrix} class provides a {@link Matrix} implementation whose elements are stored as
+* {@code double}s, for numerically sensitive computations that would lose too much precision in {@code float}
+* arithmetic. Products that involve a {@link DoubleMatrix} are computed in double precision by
+* {@link DoubleMultiplication} and produce another {@link DoubleMatrix}.
+* <br>
+* <br>
+* The full-precision elements are available through {@link #getDoubleValues()}, {@link #getDoubleStorage()} and
+* {@link #doubleAt(int, int)}. All methods of the {@link Matrix} interface that deal with {@code float}s (e.g.,
+* {@link #getValues()}, {@link #getBuffer()} or {@link #at(int, int)}) provide elements that are narrowed to
+* {@code float}; buffers returned by these methods are copies of the matrix elements.
+*
+* @param <ROWS> the rows dimension of the matrix
+* @param <COLUMNS> the columns dimension of the matrix
+*
+* @author Mirko Raner
+**/
+public class DoubleMatrix<ROWS extends Dimension, COLUMNS extends Dimension> extends AbstractMatrix<ROWS, COLUMNS>
+{
+    private final static MatrixOperation[] DEFAULT_OPERATIONS =
+    {
+        new DoubleMultiplication<>(StandardMatrix::new),
+        new BlockedTransposition<>(StandardMatrix::new),
+        new DirectElementAccess(StandardMatrix::new)
+    };
+
+    private final double[] matrix;
+
+    public DoubleMatrix(RawDoubleMatrix matrix)
+    {
+        this(Dimension.FACTORY.create(matrix.rows()), Dimension.FACTORY.create(matrix.columns()), matrix.matrix());
+    }
+
+    public DoubleMatrix(Dimension rows, Dimension columns, double[] matrix, MatrixOperation... matrixOperation)
+    {
+        super(rows, columns, DEFAULT_OPERATIONS, matrixOperation);
+        this.matrix = matrix;
+    }
+
+    /**
+    * Converts a matrix into a {@link DoubleMatrix}, widening its elements to {@code double}.
+    *
+    * @param matrix the matrix
+    * @param <ROWS> the rows dimension of the matrix
+    * @param <COLUMNS> the columns dimension of the matrix
+    * @return the new {@link DoubleMatrix} (or the original matrix, if it already is a {@link DoubleMatrix})
+    **/
+    public static <ROWS extends Dimension, COLUMNS extends Dimension> DoubleMatrix<ROWS, COLUMNS> of(Matrix<ROWS, COLUMNS> matrix)
+    {
+        if (matrix instanceof DoubleMatrix)
+        {
+            return (DoubleMatrix<ROWS, COLUMNS>)matrix;
+        }
+        Dimension rows = Dimension.FACTORY.create(matrix.getRows());
+        Dimension columns = Dimension.FACTORY.create(matrix.getColumns());
+        return new DoubleMatrix<>(rows, columns, widen(matrix.getValues()));
+    }
+
+    /**
+    * Provides the matrix elements in column-major order. If the elements are stored in column-major order, the
+    * returned array is the storage of the matrix (and must not be modified); otherwise, it is a copy.
+    *
+    * @return the matrix elements
+    **/
+    public double[] getDoubleValues()
+    {
+        MatrixElementAccess access = getElementAccess();
+        if (access.isColumnMajor(rows, columns) && matrix.length == rows.getAsInt()*columns.getAsInt())
+        {
+            return matrix;
+        }
+        int numberOfRows = rows.getAsInt();
+        int numberOfColumns = columns.getAsInt();
+        double[] values = new double[numberOfRows*numberOfColumns];
+        for (int column = 0, index = 0; column < numberOfColumns; column++)
+        {
+            for (int row = 0; row < numberOfRows; row++)
+            {
+                values[index++] = matrix[access.index(rows, columns, row, column)];
+            }
+        }
+        return values;
+    }
+
+    /**
+    * Provides the storage of the matrix, whose elements are arranged according to the matrix's
+    * {@link #getElementAccess() element access}.
+    *
+    * @return a {@link DoubleBuffer} that wraps the storage
+    **/
+    public DoubleBuffer getDoubleStorage()
+    {
+        return DoubleBuffer.wrap(matrix);
+    }
+
+    public double doubleAt(int row, int column)
+    {
+        return matrix[getElementAccess().index(rows, columns, row, column)];
+    }
+
+    @Override
+    public Function<RawFloatMatrix, Matrix<?, ?>> constructor()
+    {
+        return raw -> new DoubleMatrix<>(Dimension.FACTORY.create(raw.rows()), Dimension.FACTORY.create(raw.columns()),
+            widen(raw.matrix()));
+    }
+
+    /**
+    * Provides the factory for single-precision matrices that are derived from this matrix.
+    *
+    * @return the {@link StandardMatrix} factory
+    **/
+    @Override
+    public MatrixFactory factory()
+    {
+        return StandardMatrix::new;
+    }
+
+    @Override
+    public DoubleMatrix<COLUMNS, ROWS> transpose()
+    {
+        int numberOfRows = rows.getAsInt();
+        int numberOfColumns = columns.getAsInt();
+        MatrixElementAccess access = getElementAccess();
+        double[] transposed = new double[numberOfRows*numberOfColumns];
+        for (int row = 0, index = 0; row < numberOfRows; row++)
+        {
+            for (int column = 0; column < numberOfColumns; column++)
+            {
+                transposed[index++] = matrix[access.index(rows, columns, row, column)];
+            }
+        }
+        return new DoubleMatrix<>(columns, rows, transposed, operations(new DirectElementAccess(factory())));
+    }
+
+    @Override
+    public float[] getValues()
+    {
+        return narrow(getDoubleValues());
+    }
+
+    /**
+    * Provides a read-only copy of the storage, narrowed to {@code float}.
+    *
+    * @return a new {@link FloatBuffer} with the same layout as the storage
+    **/
+    @Override
+    public FloatBuffer getStorage()
+    {
+        return FloatBuffer.wrap(narrow(matrix)).asReadOnlyBuffer();
+    }
+
+    @Override
+    public float at(int row, int column)
+    {
+        return (float)doubleAt(row, column);
+    }
+
+    @Override
+    public Matrix<ROWS, COLUMNS> using(MatrixOperation... operation)
+    {
+        return new DoubleMatrix<>(rows, columns, matrix, withLayout(operation));
+    }
+
+    /**
+    * Compares two matrices. A {@link DoubleMatrix} is only equal to another {@link DoubleMatrix} if all elements
+    * are equal in double precision; comparisons with other matrices use the narrowed elements.
+    *
+    * @param other the other matrix
+    * @return {@code true} if the matrices are equal
+    **/
+    @Override
+    public boolean equals(Object other)
+    {
+        if (other instanceof DoubleMatrix)
+        {
+            DoubleMatrix<?, ?> otherMatrix = (DoubleMatrix<?, ?>)other;
+            return rows.getAsInt() == otherMatrix.getRows() && columns.getAsInt() == otherMatrix.getColumns()
+                && DoubleBuffer.wrap(getDoubleValues()).equals(DoubleBuffer.wrap(otherMatrix.getDoubleValues()));
+        }
+        return super.equals(other);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return super.hashCode();
+    }
+
+    @Override
+    protected <R extends Dimension, C extends Dimension> Matrix<R, C> view(Dimension rows, Dimension columns,
+        MatrixElementAccess access)
+    {
+        return new DoubleMatrix<>(rows, columns, matrix, operations(access));
+    }
+
+    private static double[] widen(float[] values)
+    {
+        double[] result = new double[values.length];
+        for (int index = 0; index < values.length; index++)
+        {
+            result[index] = values[index];
+        }
+        return result;
+    }
+
+    private static float[] narrow(double[] values)
+    {
+        float[] result = new float[values.length];
+        for (int index = 0; index < values.length; index++)
+        {
+            result[index] = (float)values[index];
+        }
+        return result;
+    }
+}
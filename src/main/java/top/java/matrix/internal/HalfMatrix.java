@@ -0,0 +1,311 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.nio.FloatBuffer;
+import java.util.function.Function;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.MatrixOperation;
+import top.java.matrix.operations.MatrixElementAccess;
+import top.java.matrix.operations.access.DirectElementAccess;
+import top.java.matrix.operations.multiplication.HalfMultiplication;
+import top.java.matrix.operations.transposition.BlockedTransposition;
+import top.java.matrix.util.RawFloatMatrix;
+import static java.lang.Float.floatToRawIntBits;
+import static java.lang.Float.intBitsToFloat;
+
+/**
+* The {@link HalfMatrix} class provides a {@link Matrix} implementation that stores its elements in 16 bits, which
+* halves the memory footprint (and the memory bandwidth needed to process the matrix) compared to a
+* {@link StandardMatrix}. The elements are stored in one of two {@link Encoding}s: IEEE 754 half precision
+* ({@link Encoding#FP16}), which has more precision but a range of only about &plusmn;65504, or bfloat16
+* ({@link Encoding#BF16}), which has the same range as {@code float} but only 8 significant bits.
+* <br>
+* <br>
+* All computations are performed in single precision: the elements are widened to {@code float} when they are
+* read, and products that involve a {@link HalfMatrix} are computed by {@link HalfMultiplication} and produce a
+* {@link StandardMatrix}. Buffers returned by {@link #getValues()}, {@link #getBuffer()} and {@link #getStorage()}
+* are therefore widened copies of the matrix elements.
+*
+* @param <ROWS> the rows dimension of the matrix
+* @param <COLUMNS> the columns dimension of the matrix
+*
+* @author Mirko Raner
+**/
+public class HalfMatrix<ROWS extends Dimension, COLUMNS extends Dimension> extends AbstractMatrix<ROWS, COLUMNS>
+{
+    /**
+    * The {@link Encoding} of a {@link HalfMatrix} determines how {@code float}s are represented in 16 bits.
+    * Encoding rounds to the nearest representable value (ties to even).
+    **/
+    public static enum Encoding
+    {
+        /** IEEE 754 binary16 (1 sign bit, 5 exponent bits, 10 fraction bits). **/
+        FP16
+        {
+            @Override
+            public float decode(short encoded)
+            {
+                int bits = encoded & 0xFFFF;
+                int sign = (bits & 0x8000) << 16;
+                int exponent = (bits >>> 10) & 0x1F;
+                int mantissa = bits & 0x3FF;
+                if (exponent == 0x1F)
+                {
+                    return intBitsToFloat(sign | 0x7F800000 | mantissa << 13);
+                }
+                if (exponent == 0)
+                {
+                    // Zero or subnormal (mantissa*2^-24):
+                    //
+                    float value = mantissa*0x1p-24f;
+                    return sign == 0? value:-value;
+                }
+                return intBitsToFloat(sign | (exponent + 112) << 23 | mantissa << 13);
+            }
+
+            @Override
+            public short encode(float value)
+            {
+                int bits = floatToRawIntBits(value);
+                int sign = (bits >>> 16) & 0x8000;
+                int magnitude = bits & 0x7FFFFFFF;
+                if (magnitude > 0x7F800000)
+                {
+                    return (short)(sign | 0x7E00 | (magnitude >>> 13) & 0x3FF);
+                }
+                if (magnitude >= 0x477FF000)
+                {
+                    // Infinity, or too large for FP16 (65520 and above round to infinity):
+                    //
+                    return (short)(sign | 0x7C00);
+                }
+                if (magnitude < 0x38800000)
+                {
+                    // Below the smallest normal FP16 number (2^-14), rint rounds ties to even:
+                    //
+                    return (short)(sign | (int)Math.rint(intBitsToFloat(magnitude)*0x1p24));
+                }
+                int rebiased = magnitude - 0x38000000;
+                return (short)(sign | (rebiased + 0xFFF + ((rebiased >>> 13) & 1)) >>> 13);
+            }
+
+            @Override
+            public void decode(short[] source, int offset, float[] target, int length)
+            {
+                for (int index = 0; index < length; index++)
+                {
+                    target[index] = decode(source[offset + index]);
+                }
+            }
+        },
+
+        /** bfloat16 (the upper 16 bits of a {@code float}). **/
+        BF16
+        {
+            @Override
+            public float decode(short encoded)
+            {
+                return intBitsToFloat(encoded << 16);
+            }
+
+            @Override
+            public short encode(float value)
+            {
+                int bits = floatToRawIntBits(value);
+                if ((bits & 0x7FFFFFFF) > 0x7F800000)
+                {
+                    return (short)(bits >>> 16 | 0x40);
+                }
+                return (short)((bits + 0x7FFF + ((bits >>> 16) & 1)) >>> 16);
+            }
+
+            @Override
+            public void decode(short[] source, int offset, float[] target, int length)
+            {
+                for (int index = 0; index < length; index++)
+                {
+                    target[index] = intBitsToFloat(source[offset + index] << 16);
+                }
+            }
+        };
+
+        public abstract float decode(short encoded);
+
+        public abstract short encode(float value);
+
+        /**
+        * Decodes a range of elements. Kernels should prefer this method over decoding elements one by one.
+        *
+        * @param source the encoded elements
+        * @param offset the position of the first element in {@code source}
+        * @param target the array that receives the decoded elements (starting at index zero)
+        * @param length the number of elements
+        **/
+        public abstract void decode(short[] source, int offset, float[] target, int length);
+    }
+
+    private final static MatrixOperation[] DEFAULT_OPERATIONS =
+    {
+        new HalfMultiplication<>(StandardMatrix::new),
+        new BlockedTransposition<>(StandardMatrix::new),
+        new DirectElementAccess(StandardMatrix::new)
+    };
+
+    private final Encoding encoding;
+    private final short[] matrix;
+
+    public HalfMatrix(Dimension rows, Dimension columns, Encoding encoding, short[] matrix, MatrixOperation... matrixOperation)
+    {
+        super(rows, columns, DEFAULT_OPERATIONS, matrixOperation);
+        this.encoding = encoding;
+        this.matrix = matrix;
+    }
+
+    /**
+    * Converts a matrix into a {@link HalfMatrix}. Elements that cannot be represented exactly are rounded.
+    *
+    * @param matrix the matrix
+    * @param encoding the {@link Encoding} of the elements
+    * @param <ROWS> the rows dimension of the matrix
+    * @param <COLUMNS> the columns dimension of the matrix
+    * @return the new {@link HalfMatrix}
+    **/
+    public static <ROWS extends Dimension, COLUMNS extends Dimension> HalfMatrix<ROWS, COLUMNS> of(Matrix<ROWS, COLUMNS> matrix,
+        Encoding encoding)
+    {
+        return of(matrix.getRows(), matrix.getColumns(), matrix.getValues(), encoding);
+    }
+
+    private static <ROWS extends Dimension, COLUMNS extends Dimension> HalfMatrix<ROWS, COLUMNS> of(int rows, int columns,
+        float[] values, Encoding encoding)
+    {
+        short[] encoded = new short[values.length];
+        for (int index = 0; index < values.length; index++)
+        {
+            encoded[index] = encoding.encode(values[index]);
+        }
+        return new HalfMatrix<>(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), encoding, encoded);
+    }
+
+    public Encoding getEncoding()
+    {
+        return encoding;
+    }
+
+    /**
+    * Provides the encoded matrix elements in column-major order. If the elements are stored in column-major
+    * order, the returned array is the storage of the matrix (and must not be modified); otherwise, it is a copy.
+    *
+    * @return the encoded matrix elements
+    **/
+    public short[] getEncodedValues()
+    {
+        MatrixElementAccess access = getElementAccess();
+        if (access.isColumnMajor(rows, columns) && matrix.length == rows.getAsInt()*columns.getAsInt())
+        {
+            return matrix;
+        }
+        int numberOfRows = rows.getAsInt();
+        int numberOfColumns = columns.getAsInt();
+        short[] values = new short[numberOfRows*numberOfColumns];
+        for (int column = 0, index = 0; column < numberOfColumns; column++)
+        {
+            for (int row = 0; row < numberOfRows; row++)
+            {
+                values[index++] = matrix[access.index(rows, columns, row, column)];
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Function<RawFloatMatrix, Matrix<?, ?>> constructor()
+    {
+        return raw -> of(raw.rows(), raw.columns(), raw.matrix(), encoding);
+    }
+
+    /**
+    * Provides the factory for single-precision matrices that are derived from this matrix.
+    *
+    * @return the {@link StandardMatrix} factory
+    **/
+    @Override
+    public MatrixFactory factory()
+    {
+        return StandardMatrix::new;
+    }
+
+    @Override
+    public HalfMatrix<COLUMNS, ROWS> transpose()
+    {
+        int numberOfRows = rows.getAsInt();
+        int numberOfColumns = columns.getAsInt();
+        MatrixElementAccess access = getElementAccess();
+        short[] transposed = new short[numberOfRows*numberOfColumns];
+        for (int row = 0, index = 0; row < numberOfRows; row++)
+        {
+            for (int column = 0; column < numberOfColumns; column++)
+            {
+                transposed[index++] = matrix[access.index(rows, columns, row, column)];
+            }
+        }
+        return new HalfMatrix<>(columns, rows, encoding, transposed, operations(new DirectElementAccess(factory())));
+    }
+
+    @Override
+    public float[] getValues()
+    {
+        short[] encoded = getEncodedValues();
+        float[] values = new float[encoded.length];
+        encoding.decode(encoded, 0, values, encoded.length);
+        return values;
+    }
+
+    /**
+    * Provides a read-only copy of the storage, widened to {@code float}.
+    *
+    * @return a new {@link FloatBuffer} with the same layout as the storage
+    **/
+    @Override
+    public FloatBuffer getStorage()
+    {
+        float[] values = new float[matrix.length];
+        encoding.decode(matrix, 0, values, matrix.length);
+        return FloatBuffer.wrap(values).asReadOnlyBuffer();
+    }
+
+    @Override
+    public float at(int row, int column)
+    {
+        return encoding.decode(matrix[getElementAccess().index(rows, columns, row, column)]);
+    }
+
+    @Override
+    public Matrix<ROWS, COLUMNS> using(MatrixOperation... operation)
+    {
+        return new HalfMatrix<>(rows, columns, encoding, matrix, withLayout(operation));
+    }
+
+    @Override
+    protected <R extends Dimension, C extends Dimension> Matrix<R, C> view(Dimension rows, Dimension columns,
+        MatrixElementAccess access)
+    {
+        return new HalfMatrix<>(rows, columns, encoding, matrix, operations(access));
+    }
+}
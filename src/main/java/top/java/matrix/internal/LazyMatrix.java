@@ -0,0 +1,410 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.MatrixOperation;
+import top.java.matrix.operations.multiplication.BlockedMultiplication;
+import top.java.matrix.util.ComputeExecutor;
+import top.java.matrix.util.RawFloatMatrix;
+
+/**
+* A {@link LazyMatrix} records multiplications and transpositions instead of performing them immediately. The
+* expression is only evaluated when its elements are needed (e.g., by {@link #getValues()} or {@link #at(int, int)}),
+* and the result of the evaluation is cached.
+* <br>
+* <br>
+* Expressions are kept in a normal form: a chain of factors, each of which is an evaluated matrix that is
+* possibly used in transposed form. Transposition of a chain reverses the order of its factors and toggles their
+* transposition (i.e., (AB)<sup>T</sup> = B<sup>T</sup>A<sup>T</sup>), so transpositions never need to be
+* materialized; instead, they are folded into the operand layouts of the multiplications (see
+* {@link BlockedMultiplication#multiply(FloatBuffer, boolean, FloatBuffer, boolean, int, int, int, float[])}).
+* When the chain is evaluated, the order of the multiplications is chosen by dynamic programming such that the
+* total number of scalar multiplications (and, typically, the size of the intermediate results) is minimal.
+* <br>
+* <br>
+* Evaluated results are created with the {@link MatrixFactory} of the first factor of the chain.
+*
+* @param <ROWS> the rows dimension of the matrix
+* @param <COLUMNS> the columns dimension of the matrix
+*
+* @author Mirko Raner
+**/
+public class LazyMatrix<ROWS extends Dimension, COLUMNS extends Dimension> extends Matrix<ROWS, COLUMNS>
+{
+    private final static BlockedMultiplication<?, ?, ?> MULTIPLICATION = new BlockedMultiplication<>(StandardMatrix::new);
+
+    private final List<Factor> factors;
+    private final int[] dimensions;
+    private volatile Matrix<ROWS, COLUMNS> value;
+
+    private LazyMatrix(List<Factor> factors)
+    {
+        this.factors = factors;
+        dimensions = new int[factors.size() + 1];
+        dimensions[0] = factors.get(0).rows();
+        for (int index = 0; index < factors.size(); index++)
+        {
+            if (factors.get(index).rows() != dimensions[index])
+            {
+                throw new IllegalArgumentException("Cannot multiply " + factors.get(index - 1).rows() + "x"
+                    + dimensions[index] + " matrix by " + factors.get(index).rows() + "x" + factors.get(index).columns()
+                    + " matrix");
+            }
+            dimensions[index + 1] = factors.get(index).columns();
+        }
+    }
+
+    /**
+    * Wraps a matrix in a {@link LazyMatrix}.
+    *
+    * @param matrix the matrix
+    * @param <M> the rows dimension of the matrix
+    * @param <N> the columns dimension of the matrix
+    * @return a {@link LazyMatrix} (or the matrix itself, if it is already a {@link LazyMatrix})
+    **/
+    public static <M extends Dimension, N extends Dimension> LazyMatrix<M, N> of(Matrix<M, N> matrix)
+    {
+        if (matrix instanceof LazyMatrix)
+        {
+            return (LazyMatrix<M, N>)matrix;
+        }
+        return new LazyMatrix<>(Collections.singletonList(new Factor(matrix, false)));
+    }
+
+    @Override
+    public Function<RawFloatMatrix, Matrix<?, ?>> constructor()
+    {
+        return factors.get(0).matrix.constructor();
+    }
+
+    @Override
+    public MatrixFactory factory()
+    {
+        return factors.get(0).matrix.factory();
+    }
+
+    @Override
+    public <DIMENSION extends Dimension> LazyMatrix<ROWS, DIMENSION> times(Matrix<COLUMNS, DIMENSION> rightHandSide)
+    {
+        List<Factor> chain = new ArrayList<>(factors);
+        chain.addAll(of(rightHandSide).factors);
+        return new LazyMatrix<>(chain);
+    }
+
+    @Override
+    public <DIMENSION extends Dimension> Matrix<ROWS, DIMENSION> timesInto(Matrix<COLUMNS, DIMENSION> rightHandSide,
+        Matrix<ROWS, DIMENSION> destination)
+    {
+        if (destination.getRows() != getRows() || destination.getColumns() != rightHandSide.getColumns())
+        {
+            throw new IllegalArgumentException("Destination must be a " + getRows() + "x" + rightHandSide.getColumns()
+                + " matrix but is " + destination.getRows() + "x" + destination.getColumns());
+        }
+        if (destination == this || destination == rightHandSide)
+        {
+            throw new IllegalArgumentException("Destination must not be one of the operands");
+        }
+        LazyMatrix<ROWS, DIMENSION> product = times(rightHandSide);
+        FloatBuffer buffer = destination.getBuffer();
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && !buffer.isReadOnly() && product.factors.size() > 1
+            && !product.uses(destination, buffer.array()))
+        {
+            float[] result = buffer.array();
+            Arrays.fill(result, 0, product.getRows()*product.getColumns(), 0);
+            product.evaluateInto(result);
+        }
+        else
+        {
+            Dimension rows = Dimension.FACTORY.create(destination.getRows());
+            Dimension columns = Dimension.FACTORY.create(destination.getColumns());
+            destination.getElementAccess().scatter(product.getBuffer(), destination.getStorage(), rows, columns);
+        }
+        return destination;
+    }
+
+    /**
+    * Multiplies this matrix with another matrix asynchronously. Unlike {@link #times(Matrix)}, the product is
+    * evaluated by the executor, so that the returned matrix is already evaluated when the future completes.
+    *
+    * @param rightHandSide the right-hand side matrix
+    * @param executor the {@link ComputeExecutor} that evaluates the product
+    * @param <DIMENSION> the columns dimension of the result
+    * @return a {@link CompletableFuture} for the result
+    **/
+    @Override
+    public <DIMENSION extends Dimension> CompletableFuture<Matrix<ROWS, DIMENSION>> timesAsync(Matrix<COLUMNS, DIMENSION> rightHandSide,
+        ComputeExecutor executor)
+    {
+        LazyMatrix<ROWS, DIMENSION> product = times(rightHandSide);
+        return executor.submit(() ->
+        {
+            product.evaluate();
+            return product;
+        });
+    }
+
+    @Override
+    public LazyMatrix<COLUMNS, ROWS> transpose()
+    {
+        List<Factor> chain = new ArrayList<>(factors.size());
+        for (int index = factors.size() - 1; index >= 0; index--)
+        {
+            chain.add(factors.get(index).transpose());
+        }
+        return new LazyMatrix<>(chain);
+    }
+
+    @Override
+    public Matrix<COLUMNS, ROWS> transposeInto(Matrix<COLUMNS, ROWS> destination)
+    {
+        return evaluate().transposeInto(destination);
+    }
+
+    @Override
+    public int getRows()
+    {
+        return dimensions[0];
+    }
+
+    @Override
+    public int getColumns()
+    {
+        return dimensions[dimensions.length - 1];
+    }
+
+    @Override
+    public float[] getValues()
+    {
+        return evaluate().getValues();
+    }
+
+    @Override
+    public FloatBuffer getBuffer()
+    {
+        return evaluate().getBuffer();
+    }
+
+    @Override
+    public float at(int row, int column)
+    {
+        if (value == null && factors.size() == 1)
+        {
+            Factor factor = factors.get(0);
+            return factor.transposed? factor.matrix.at(column, row):factor.matrix.at(row, column);
+        }
+        return evaluate().at(row, column);
+    }
+
+    @Override
+    public Matrix<ROWS, COLUMNS> using(MatrixOperation... operations)
+    {
+        return evaluate().using(operations);
+    }
+
+    /**
+    * @return {@code true} if the expression has already been evaluated
+    **/
+    public boolean isEvaluated()
+    {
+        return value != null;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return evaluate().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        return evaluate().equals(other);
+    }
+
+    /**
+    * Describes the evaluation order that was chosen for the chain, e.g., {@code "(0 (1' 2))"} for a chain of
+    * three factors where the second and third factor are multiplied first and the second factor is transposed.
+    *
+    * @return the parenthesized evaluation order
+    **/
+    String plan()
+    {
+        return plan(0, factors.size() - 1, order(dimensions));
+    }
+
+    private Matrix<ROWS, COLUMNS> evaluate()
+    {
+        Matrix<ROWS, COLUMNS> result = value;
+        if (result == null)
+        {
+            synchronized (this)
+            {
+                result = value;
+                if (result == null)
+                {
+                    Factor factor = factors.get(0);
+                    if (factors.size() > 1)
+                    {
+                        float[] elements = new float[getRows()*getColumns()];
+                        evaluateInto(elements);
+                        result = factory().create(Dimension.FACTORY.create(getRows()), Dimension.FACTORY.create(getColumns()), elements);
+                    }
+                    else
+                    {
+                        @SuppressWarnings("unchecked")
+                        Matrix<ROWS, COLUMNS> matrix = (Matrix<ROWS, COLUMNS>)(factor.transposed? factor.matrix.transpose():factor.matrix);
+                        result = matrix;
+                    }
+                    value = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Determines whether a destination is (or shares its storage with) one of the factors of the chain, in which
+    // case the chain must be evaluated into a temporary result before the destination is overwritten:
+    //
+    private boolean uses(Matrix<?, ?> destination, float[] storage)
+    {
+        for (Factor factor: factors)
+        {
+            if (factor.matrix == destination)
+            {
+                return true;
+            }
+            FloatBuffer buffer = factor.matrix.getBuffer();
+            if (buffer.hasArray() && buffer.array() == storage)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Adds the product of the chain to an array that is expected to contain only zeros:
+    //
+    private void evaluateInto(float[] result)
+    {
+        multiply(0, factors.size() - 1, order(dimensions), result);
+    }
+
+    private void multiply(int first, int last, int[][] split, float[] result)
+    {
+        int middle = split[first][last];
+        Factor left = operand(first, middle, split);
+        Factor right = operand(middle + 1, last, split);
+        MULTIPLICATION.multiply(left.matrix.getBuffer(), left.transposed, right.matrix.getBuffer(), right.transposed,
+            dimensions[first], dimensions[middle + 1], dimensions[last + 1], result);
+    }
+
+    private Factor operand(int first, int last, int[][] split)
+    {
+        if (first == last)
+        {
+            return factors.get(first);
+        }
+        float[] product = new float[dimensions[first]*dimensions[last + 1]];
+        multiply(first, last, split, product);
+        Dimension rows = Dimension.FACTORY.create(dimensions[first]);
+        Dimension columns = Dimension.FACTORY.create(dimensions[last + 1]);
+        return new Factor(new StandardMatrix<>(rows, columns, product), false);
+    }
+
+    private String plan(int first, int last, int[][] split)
+    {
+        if (first == last)
+        {
+            return first + (factors.get(first).transposed? "'":"");
+        }
+        int middle = split[first][last];
+        return "(" + plan(first, middle, split) + " " + plan(middle + 1, last, split) + ")";
+    }
+
+    /**
+    * Computes the optimal order of a chain of multiplications (the classic matrix chain ordering problem).
+    *
+    * @param dimensions the dimensions of the chain (factor {@code i} is a {@code dimensions[i]}-by-{@code dimensions[i+1]}
+    * matrix)
+    * @return an array whose element {@code [i][j]} is the index of the last factor of the left subchain when the
+    * factors {@code i} to {@code j} are multiplied
+    **/
+    static int[][] order(int[] dimensions)
+    {
+        int length = dimensions.length - 1;
+        long[][] cost = new long[length][length];
+        int[][] split = new int[length][length];
+        for (int size = 2; size <= length; size++)
+        {
+            for (int first = 0; first + size <= length; first++)
+            {
+                int last = first + size - 1;
+                cost[first][last] = Long.MAX_VALUE;
+                for (int middle = first; middle < last; middle++)
+                {
+                    long current = cost[first][middle] + cost[middle + 1][last]
+                        + (long)dimensions[first]*dimensions[middle + 1]*dimensions[last + 1];
+                    if (current < cost[first][last])
+                    {
+                        cost[first][last] = current;
+                        split[first][last] = middle;
+                    }
+                }
+            }
+        }
+        return split;
+    }
+
+    /**
+    * A {@link Factor} of a multiplication chain.
+    **/
+    private static class Factor
+    {
+        final Matrix<?, ?> matrix;
+        final boolean transposed;
+
+        Factor(Matrix<?, ?> matrix, boolean transposed)
+        {
+            this.matrix = matrix;
+            this.transposed = transposed;
+        }
+
+        int rows()
+        {
+            return transposed? matrix.getColumns():matrix.getRows();
+        }
+
+        int columns()
+        {
+            return transposed? matrix.getRows():matrix.getColumns();
+        }
+
+        Factor transpose()
+        {
+            return new Factor(matrix, !transposed);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.nio.FloatBuffer;
+import java.util.function.Function;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.MatrixOperation;
+import top.java.matrix.operations.MatrixElementAccess;
+import top.java.matrix.operations.access.DirectElementAccess;
+import top.java.matrix.operations.multiplication.QuantizedMultiplication;
+import top.java.matrix.operations.transposition.BlockedTransposition;
+import top.java.matrix.util.RawFloatMatrix;
+
+/**
+* The {@link QuantizedMatrix} class provides a {@link Matrix} implementation that stores its elements as 8-bit
+* integers, which reduces the memory footprint (and the memory bandwidth needed to process the matrix) to a
+* quarter of a {@link StandardMatrix}. Each row (or each column, depending on the quantization {@link Axis}) has
+* its own scale and zero point, and an element {@code q} of row (or column) {@code i} represents the value
+* {@code (q - zeroPoints[i])*scales[i]}. Quantization is asymmetric and always represents zero exactly.
+* <br>
+* <br>
+* Products of a row-quantized matrix and a column-quantized matrix are computed by {@link QuantizedMultiplication}
+* with 32-bit integer accumulation, and the result is dequantized into a {@link StandardMatrix}. Typically,
+* weights are quantized per row and activations per column. All other operations work on the dequantized
+* elements; in particular, buffers returned by {@link #getValues()}, {@link #getBuffer()} and
+* {@link #getStorage()} are dequantized copies, and {@link #subMatrix(int, int, int, int)} produces a dense copy.
+*
+* @param <ROWS> the rows dimension of the matrix
+* @param <COLUMNS> the columns dimension of the matrix
+*
+* @author Mirko Raner
+**/
+public class QuantizedMatrix<ROWS extends Dimension, COLUMNS extends Dimension> extends AbstractMatrix<ROWS, COLUMNS>
+{
+    /**
+    * The {@link Axis} of a {@link QuantizedMatrix} determines whether scales and zero points apply to rows or to
+    * columns.
+    **/
+    public static enum Axis
+    {
+        /** One scale and zero point per row. **/
+        ROWS,
+
+        /** One scale and zero point per column. **/
+        COLUMNS;
+
+        Axis transpose()
+        {
+            return this == ROWS? COLUMNS:ROWS;
+        }
+    }
+
+    private final static MatrixOperation[] DEFAULT_OPERATIONS =
+    {
+        new QuantizedMultiplication<>(StandardMatrix::new),
+        new BlockedTransposition<>(StandardMatrix::new),
+        new DirectElementAccess(StandardMatrix::new)
+    };
+
+    private final Axis axis;
+    private final byte[] matrix;
+    private final float[] scales;
+    private final int[] zeroPoints;
+
+    /**
+    * Creates a new {@link QuantizedMatrix} from existing arrays, which are not copied.
+    *
+    * @param rows the rows dimension
+    * @param columns the columns dimension
+    * @param axis the quantization {@link Axis}
+    * @param matrix the quantized elements (in the layout of the matrix's element access)
+    * @param scales the scales of each row or column
+    * @param zeroPoints the zero points of each row or column (between -128 and 127)
+    * @param matrixOperation additional matrix operations
+    **/
+    public QuantizedMatrix(Dimension rows, Dimension columns, Axis axis, byte[] matrix, float[] scales, int[] zeroPoints,
+        MatrixOperation... matrixOperation)
+    {
+        super(rows, columns, DEFAULT_OPERATIONS, matrixOperation);
+        int count = axis == Axis.ROWS? rows.getAsInt():columns.getAsInt();
+        if (scales.length != count || zeroPoints.length != count)
+        {
+            throw new IllegalArgumentException("Expected " + count + " scales and zero points");
+        }
+        this.axis = axis;
+        this.matrix = matrix;
+        this.scales = scales;
+        this.zeroPoints = zeroPoints;
+    }
+
+    /**
+    * Quantizes a matrix. The range of each row (or column) is extended to include zero and then mapped linearly
+    * onto the 256 values of a {@code byte}.
+    *
+    * @param matrix the matrix
+    * @param axis the quantization {@link Axis}
+    * @param <ROWS> the rows dimension of the matrix
+    * @param <COLUMNS> the columns dimension of the matrix
+    * @return the new {@link QuantizedMatrix}
+    **/
+    public static <ROWS extends Dimension, COLUMNS extends Dimension> QuantizedMatrix<ROWS, COLUMNS> quantize(RawFloatMatrix matrix,
+        Axis axis)
+    {
+        return quantize(matrix.rows(), matrix.columns(), matrix.matrix(), axis);
+    }
+
+    /**
+    * Quantizes a matrix. The range of each row (or column) is extended to include zero and then mapped linearly
+    * onto the 256 values of a {@code byte}.
+    *
+    * @param matrix the matrix
+    * @param axis the quantization {@link Axis}
+    * @param <ROWS> the rows dimension of the matrix
+    * @param <COLUMNS> the columns dimension of the matrix
+    * @return the new {@link QuantizedMatrix}
+    **/
+    public static <ROWS extends Dimension, COLUMNS extends Dimension> QuantizedMatrix<ROWS, COLUMNS> quantize(Matrix<ROWS, COLUMNS> matrix,
+        Axis axis)
+    {
+        if (matrix instanceof QuantizedMatrix && ((QuantizedMatrix<ROWS, COLUMNS>)matrix).axis == axis)
+        {
+            return (QuantizedMatrix<ROWS, COLUMNS>)matrix;
+        }
+        return quantize(matrix.getRows(), matrix.getColumns(), matrix.getValues(), axis);
+    }
+
+    private static <ROWS extends Dimension, COLUMNS extends Dimension> QuantizedMatrix<ROWS, COLUMNS> quantize(int rows,
+        int columns, float[] values, Axis axis)
+    {
+        int count = axis == Axis.ROWS? rows:columns;
+        int length = axis == Axis.ROWS? columns:rows;
+        int outerStride = axis == Axis.ROWS? 1:rows;
+        int innerStride = axis == Axis.ROWS? rows:1;
+        byte[] quantized = new byte[rows*columns];
+        float[] scales = new float[count];
+        int[] zeroPoints = new int[count];
+        for (int outer = 0; outer < count; outer++)
+        {
+            float minimum = 0;
+            float maximum = 0;
+            for (int inner = 0, index = outer*outerStride; inner < length; inner++, index += innerStride)
+            {
+                minimum = Math.min(minimum, values[index]);
+                maximum = Math.max(maximum, values[index]);
+            }
+            float scale = maximum > minimum? (maximum - minimum)/255:1;
+            int zeroPoint = clamp(Math.round(Byte.MIN_VALUE - minimum/scale));
+            for (int inner = 0, index = outer*outerStride; inner < length; inner++, index += innerStride)
+            {
+                quantized[index] = (byte)clamp(Math.round(values[index]/scale) + zeroPoint);
+            }
+            scales[outer] = scale;
+            zeroPoints[outer] = zeroPoint;
+        }
+        return new QuantizedMatrix<>(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), axis, quantized,
+            scales, zeroPoints);
+    }
+
+    /**
+    * Converts this matrix back into a single-precision matrix.
+    *
+    * @return a {@link StandardMatrix} with the dequantized elements
+    **/
+    public Matrix<ROWS, COLUMNS> dequantize()
+    {
+        return factory().create(rows, columns, getValues());
+    }
+
+    public Axis getAxis()
+    {
+        return axis;
+    }
+
+    /**
+    * Provides the scales of the rows or columns. The array is not copied and must not be modified.
+    *
+    * @return the scales
+    **/
+    public float[] getScales()
+    {
+        return scales;
+    }
+
+    /**
+    * Provides the zero points of the rows or columns. The array is not copied and must not be modified.
+    *
+    * @return the zero points
+    **/
+    public int[] getZeroPoints()
+    {
+        return zeroPoints;
+    }
+
+    /**
+    * Provides the quantized matrix elements in column-major order. If the elements are stored in column-major
+    * order, the returned array is the storage of the matrix (and must not be modified); otherwise, it is a copy.
+    *
+    * @return the quantized elements
+    **/
+    public byte[] getQuantizedValues()
+    {
+        MatrixElementAccess access = getElementAccess();
+        if (access.isColumnMajor(rows, columns) && matrix.length == rows.getAsInt()*columns.getAsInt())
+        {
+            return matrix;
+        }
+        int numberOfRows = rows.getAsInt();
+        int numberOfColumns = columns.getAsInt();
+        byte[] values = new byte[numberOfRows*numberOfColumns];
+        for (int column = 0, index = 0; column < numberOfColumns; column++)
+        {
+            for (int row = 0; row < numberOfRows; row++)
+            {
+                values[index++] = matrix[access.index(rows, columns, row, column)];
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Function<RawFloatMatrix, Matrix<?, ?>> constructor()
+    {
+        return raw -> quantize(raw, axis);
+    }
+
+    /**
+    * Provides the factory for single-precision matrices that are derived from this matrix (e.g., products).
+    *
+    * @return the {@link StandardMatrix} factory
+    **/
+    @Override
+    public MatrixFactory factory()
+    {
+        return StandardMatrix::new;
+    }
+
+    @Override
+    public QuantizedMatrix<COLUMNS, ROWS> transpose()
+    {
+        return transposeView();
+    }
+
+    @Override
+    public QuantizedMatrix<COLUMNS, ROWS> transposeView()
+    {
+        MatrixElementAccess access = getElementAccess().transpose();
+        return new QuantizedMatrix<>(columns, rows, axis.transpose(), matrix, scales, zeroPoints, operations(access));
+    }
+
+    @Override
+    public float[] getValues()
+    {
+        MatrixElementAccess access = getElementAccess();
+        int numberOfRows = rows.getAsInt();
+        int numberOfColumns = columns.getAsInt();
+        float[] values = new float[numberOfRows*numberOfColumns];
+        for (int column = 0, index = 0; column < numberOfColumns; column++)
+        {
+            for (int row = 0; row < numberOfRows; row++)
+            {
+                values[index++] = dequantize(matrix[access.index(rows, columns, row, column)], row, column);
+            }
+        }
+        return values;
+    }
+
+    /**
+    * Provides a read-only copy of the storage, with all elements dequantized.
+    *
+    * @return a new {@link FloatBuffer} with the same layout as the storage
+    **/
+    @Override
+    public FloatBuffer getStorage()
+    {
+        MatrixElementAccess access = getElementAccess();
+        float[] values = new float[matrix.length];
+        for (int column = 0; column < columns.getAsInt(); column++)
+        {
+            for (int row = 0; row < rows.getAsInt(); row++)
+            {
+                int index = access.index(rows, columns, row, column);
+                values[index] = dequantize(matrix[index], row, column);
+            }
+        }
+        return FloatBuffer.wrap(values).asReadOnlyBuffer();
+    }
+
+    @Override
+    public float at(int row, int column)
+    {
+        return dequantize(matrix[getElementAccess().index(rows, columns, row, column)], row, column);
+    }
+
+    @Override
+    public Matrix<ROWS, COLUMNS> using(MatrixOperation... operation)
+    {
+        return new QuantizedMatrix<>(rows, columns, axis, matrix, scales, zeroPoints, withLayout(operation));
+    }
+
+    @Override
+    protected <R extends Dimension, C extends Dimension> Matrix<R, C> view(Dimension rows, Dimension columns,
+        MatrixElementAccess access)
+    {
+        // The scales of a view cannot be derived from its layout, so views are dense copies:
+        //
+        float[] storage = new float[matrix.length];
+        getStorage().get(storage);
+        return new StandardMatrix<>(rows, columns, storage, access);
+    }
+
+    private float dequantize(byte quantized, int row, int column)
+    {
+        int position = axis == Axis.ROWS? row:column;
+        return (quantized - zeroPoints[position])*scales[position];
+    }
+
+    private static int clamp(int value)
+    {
+        return Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, value));
+    }
+}
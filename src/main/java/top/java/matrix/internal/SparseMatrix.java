@@ -0,0 +1,342 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.function.Function;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.MatrixOperation;
+import top.java.matrix.operations.MatrixElementAccess;
+import top.java.matrix.operations.access.DirectElementAccess;
+import top.java.matrix.operations.multiplication.SparseMultiplication;
+import top.java.matrix.operations.transposition.BlockedTransposition;
+import top.java.matrix.util.RawFloatMatrix;
+
+/**
+* The {@link SparseMatrix} class provides a {@link Matrix} implementation that only stores the non-zero elements
+* of a matrix, in compressed sparse column ({@link Format#CSC}) or compressed sparse row ({@link Format#CSR})
+* format. In CSC format, the non-zero elements of column {@code c} are stored at the positions
+* {@code pointers[c]} to {@code pointers[c + 1] - 1} of the {@code values} array, and the corresponding positions
+* of the {@code indices} array contain their row indices (in ascending order). CSR format is the same with the
+* roles of rows and columns swapped, which means that the CSC representation of a matrix is also the CSR
+* representation of its transpose; {@link #transpose()} therefore never copies any elements.
+* <br>
+* <br>
+* Multiplications that involve a {@link SparseMatrix} are performed by {@link SparseMultiplication}, which
+* produces a {@link SparseMatrix} for sparse-sparse products and a dense {@link StandardMatrix} otherwise.
+* Operations that require dense storage (e.g., {@link #getValues()}, {@link #getBuffer()} or
+* {@link #subMatrix(int, int, int, int)}) work on a dense copy of the matrix.
+*
+* @param <ROWS> the rows dimension of the matrix
+* @param <COLUMNS> the columns dimension of the matrix
+*
+* @author Mirko Raner
+**/
+public class SparseMatrix<ROWS extends Dimension, COLUMNS extends Dimension> extends AbstractMatrix<ROWS, COLUMNS>
+{
+    /**
+    * The {@link Format} of a {@link SparseMatrix} determines whether the non-zero elements are grouped by column
+    * or by row.
+    **/
+    public static enum Format
+    {
+        /** Compressed sparse columns (matches the column-major order of dense matrices). **/
+        CSC,
+
+        /** Compressed sparse rows. **/
+        CSR;
+
+        Format transpose()
+        {
+            return this == CSC? CSR:CSC;
+        }
+    }
+
+    private final static MatrixOperation[] DEFAULT_OPERATIONS =
+    {
+        new SparseMultiplication<>(StandardMatrix::new),
+        new BlockedTransposition<>(StandardMatrix::new),
+        new DirectElementAccess(StandardMatrix::new)
+    };
+
+    private final Format format;
+    private final int[] pointers;
+    private final int[] indices;
+    private final float[] values;
+
+    /**
+    * Creates a new {@link SparseMatrix} from existing arrays, which are not copied.
+    *
+    * @param rows the rows dimension
+    * @param columns the columns dimension
+    * @param format the {@link Format} of the arrays
+    * @param pointers the start positions of each column (CSC) or row (CSR), followed by the number of non-zeros
+    * @param indices the row (CSC) or column (CSR) indices of the non-zero elements
+    * @param values the non-zero elements
+    * @param matrixOperation additional matrix operations
+    **/
+    public SparseMatrix(Dimension rows, Dimension columns, Format format, int[] pointers, int[] indices, float[] values,
+        MatrixOperation... matrixOperation)
+    {
+        super(rows, columns, DEFAULT_OPERATIONS, matrixOperation);
+        int major = format == Format.CSC? columns.getAsInt():rows.getAsInt();
+        if (pointers.length != major + 1 || indices.length < pointers[major] || values.length < pointers[major])
+        {
+            throw new IllegalArgumentException("Inconsistent " + format + " arrays for " + rows.getAsInt() + "x"
+                + columns.getAsInt() + " matrix");
+        }
+        this.format = format;
+        this.pointers = pointers;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    /**
+    * Converts a dense matrix into a {@link SparseMatrix}, dropping all elements whose magnitude does not exceed
+    * a threshold.
+    *
+    * @param matrix the dense matrix
+    * @param format the {@link Format} of the sparse matrix
+    * @param threshold the largest magnitude that is considered zero (use {@code 0} to only drop actual zeros)
+    * @param <ROWS> the rows dimension of the matrix
+    * @param <COLUMNS> the columns dimension of the matrix
+    * @return the new {@link SparseMatrix}
+    **/
+    public static <ROWS extends Dimension, COLUMNS extends Dimension> SparseMatrix<ROWS, COLUMNS> of(RawFloatMatrix matrix,
+        Format format, float threshold)
+    {
+        return of(matrix.rows(), matrix.columns(), matrix.matrix(), format, threshold);
+    }
+
+    /**
+    * Converts a dense matrix into a {@link SparseMatrix}, dropping all elements whose magnitude does not exceed
+    * a threshold.
+    *
+    * @param matrix the dense matrix
+    * @param format the {@link Format} of the sparse matrix
+    * @param threshold the largest magnitude that is considered zero (use {@code 0} to only drop actual zeros)
+    * @param <ROWS> the rows dimension of the matrix
+    * @param <COLUMNS> the columns dimension of the matrix
+    * @return the new {@link SparseMatrix}
+    **/
+    public static <ROWS extends Dimension, COLUMNS extends Dimension> SparseMatrix<ROWS, COLUMNS> of(Matrix<ROWS, COLUMNS> matrix,
+        Format format, float threshold)
+    {
+        return of(matrix.getRows(), matrix.getColumns(), matrix.getValues(), format, threshold);
+    }
+
+    private static <ROWS extends Dimension, COLUMNS extends Dimension> SparseMatrix<ROWS, COLUMNS> of(int rows, int columns,
+        float[] dense, Format format, float threshold)
+    {
+        int major = format == Format.CSC? columns:rows;
+        int minor = format == Format.CSC? rows:columns;
+        int majorStride = format == Format.CSC? rows:1;
+        int minorStride = format == Format.CSC? 1:rows;
+        int[] pointers = new int[major + 1];
+        for (int outer = 0; outer < major; outer++)
+        {
+            int count = 0;
+            for (int inner = 0, index = outer*majorStride; inner < minor; inner++, index += minorStride)
+            {
+                if (Math.abs(dense[index]) > threshold)
+                {
+                    count++;
+                }
+            }
+            pointers[outer + 1] = pointers[outer] + count;
+        }
+        int[] indices = new int[pointers[major]];
+        float[] values = new float[pointers[major]];
+        for (int outer = 0, position = 0; outer < major; outer++)
+        {
+            for (int inner = 0, index = outer*majorStride; inner < minor; inner++, index += minorStride)
+            {
+                if (Math.abs(dense[index]) > threshold)
+                {
+                    indices[position] = inner;
+                    values[position++] = dense[index];
+                }
+            }
+        }
+        return new SparseMatrix<>(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), format, pointers,
+            indices, values);
+    }
+
+    public Format getFormat()
+    {
+        return format;
+    }
+
+    public int getNonZeros()
+    {
+        return pointers[pointers.length - 1];
+    }
+
+    /**
+    * Provides the start positions of the columns (CSC) or rows (CSR). The array is not copied and must not be
+    * modified.
+    *
+    * @return the pointers array
+    **/
+    public int[] getPointers()
+    {
+        return pointers;
+    }
+
+    /**
+    * Provides the row (CSC) or column (CSR) indices of the non-zero elements. The array is not copied and must
+    * not be modified.
+    *
+    * @return the indices array
+    **/
+    public int[] getIndices()
+    {
+        return indices;
+    }
+
+    /**
+    * Provides the non-zero elements. The array is not copied and must not be modified.
+    *
+    * @return the values array
+    **/
+    public float[] getNonZeroValues()
+    {
+        return values;
+    }
+
+    /**
+    * Converts this matrix to a different {@link Format}. The conversion is a counting sort of the non-zero
+    * elements and takes time proportional to the number of non-zeros plus the number of rows and columns.
+    *
+    * @param target the target format
+    * @return a {@link SparseMatrix} in the target format (this matrix, if it already uses that format)
+    **/
+    public SparseMatrix<ROWS, COLUMNS> toFormat(Format target)
+    {
+        if (target == format)
+        {
+            return this;
+        }
+        int major = pointers.length - 1;
+        int minor = format == Format.CSC? rows.getAsInt():columns.getAsInt();
+        int nonZeros = getNonZeros();
+        int[] targetPointers = new int[minor + 1];
+        for (int position = 0; position < nonZeros; position++)
+        {
+            targetPointers[indices[position] + 1]++;
+        }
+        for (int inner = 0; inner < minor; inner++)
+        {
+            targetPointers[inner + 1] += targetPointers[inner];
+        }
+        int[] next = Arrays.copyOf(targetPointers, minor);
+        int[] targetIndices = new int[nonZeros];
+        float[] targetValues = new float[nonZeros];
+        for (int outer = 0; outer < major; outer++)
+        {
+            for (int position = pointers[outer]; position < pointers[outer + 1]; position++)
+            {
+                int destination = next[indices[position]]++;
+                targetIndices[destination] = outer;
+                targetValues[destination] = values[position];
+            }
+        }
+        return new SparseMatrix<>(rows, columns, target, targetPointers, targetIndices, targetValues, operations());
+    }
+
+    @Override
+    public Function<RawFloatMatrix, Matrix<?, ?>> constructor()
+    {
+        return matrix -> of(matrix, Format.CSC, 0);
+    }
+
+    /**
+    * Provides the factory for dense matrices that are derived from this matrix (e.g., products with dense
+    * matrices).
+    *
+    * @return the {@link StandardMatrix} factory
+    **/
+    @Override
+    public MatrixFactory factory()
+    {
+        return StandardMatrix::new;
+    }
+
+    @Override
+    public SparseMatrix<COLUMNS, ROWS> transpose()
+    {
+        return transposeView();
+    }
+
+    @Override
+    public SparseMatrix<COLUMNS, ROWS> transposeView()
+    {
+        return new SparseMatrix<>(columns, rows, format.transpose(), pointers, indices, values, operations());
+    }
+
+    @Override
+    public float[] getValues()
+    {
+        int numberOfRows = rows.getAsInt();
+        float[] dense = new float[numberOfRows*columns.getAsInt()];
+        for (int outer = 0; outer < pointers.length - 1; outer++)
+        {
+            for (int position = pointers[outer]; position < pointers[outer + 1]; position++)
+            {
+                int index = format == Format.CSC? indices[position] + outer*numberOfRows:outer + indices[position]*numberOfRows;
+                dense[index] = values[position];
+            }
+        }
+        return dense;
+    }
+
+    /**
+    * Provides a read-only dense copy of the matrix elements. A {@link SparseMatrix} therefore cannot be used as the
+    * destination of {@link #timesInto(Matrix, Matrix)} or {@link #transposeInto(Matrix)}.
+    *
+    * @return a new {@link FloatBuffer} with the matrix elements in column-major order
+    **/
+    @Override
+    public FloatBuffer getStorage()
+    {
+        return FloatBuffer.wrap(getValues()).asReadOnlyBuffer();
+    }
+
+    @Override
+    public float at(int row, int column)
+    {
+        int outer = format == Format.CSC? column:row;
+        int inner = format == Format.CSC? row:column;
+        int position = Arrays.binarySearch(indices, pointers[outer], pointers[outer + 1], inner);
+        return position < 0? 0:values[position];
+    }
+
+    @Override
+    public Matrix<ROWS, COLUMNS> using(MatrixOperation... operation)
+    {
+        return new SparseMatrix<>(rows, columns, format, pointers, indices, values, operation);
+    }
+
+    @Override
+    protected <R extends Dimension, C extends Dimension> Matrix<R, C> view(Dimension rows, Dimension columns,
+        MatrixElementAccess access)
+    {
+        return new StandardMatrix<>(rows, columns, getValues(), access);
+    }
+}
@@ -15,20 +15,19 @@
 //                                                                          //
 package top.java.matrix.internal;
 
+import java.nio.FloatBuffer;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
 import java.util.function.Function;
-import java.util.stream.Stream;
 import top.java.matrix.Dimension;
 import top.java.matrix.Matrix;
 import top.java.matrix.MatrixFactory;
 import top.java.matrix.MatrixOperation;
 import top.java.matrix.operations.MatrixElementAccess;
-import top.java.matrix.operations.MatrixMultiplication;
 import top.java.matrix.operations.access.DirectElementAccess;
-import top.java.matrix.operations.multiplication.BasicMultiplication;
+import top.java.matrix.operations.elementwise.ParallelElementwise;
+import top.java.matrix.operations.multiplication.AdaptiveMultiplication;
+import top.java.matrix.operations.reduction.ParallelReduction;
+import top.java.matrix.operations.transposition.BlockedTransposition;
 import top.java.matrix.util.RawFloatMatrix;
 
 /**
@@ -39,31 +38,47 @@ import top.java.matrix.util.RawFloatMatrix;
 *
 * @author Mirko Raner
 **/
-public class StandardMatrix<ROWS extends Dimension, COLUMNS extends Dimension> extends Matrix<ROWS, COLUMNS>
+public class StandardMatrix<ROWS extends Dimension, COLUMNS extends Dimension> extends AbstractMatrix<ROWS, COLUMNS>
 {
-    private final Dimension rows;
-    private final Dimension columns;
+    /**
+    * The default multiplication is shared by all matrices, so that all multiplications contribute to (and
+    * benefit from) the same tuning table.
+    **/
+    private final static AdaptiveMultiplication<?, ?, ?> DEFAULT_MULTIPLICATION =
+        new AdaptiveMultiplication<>(StandardMatrix::new).saveOnExit();
+
+    private final static MatrixOperation[] DEFAULT_OPERATIONS =
+    {
+        DEFAULT_MULTIPLICATION,
+        new BlockedTransposition<>(StandardMatrix::new),
+        new DirectElementAccess(StandardMatrix::new),
+        new ParallelElementwise<>(StandardMatrix::new),
+        new ParallelReduction<>(StandardMatrix::new)
+    };
+
     private final float[] matrix;
 
-    private final Map<Class<? extends MatrixOperation>, MatrixOperation> operations = new HashMap<>();
+    public StandardMatrix(RawFloatMatrix matrix)
     {
-        operations.put(MatrixMultiplication.class, new BasicMultiplication<>(StandardMatrix::new));
-        operations.put(MatrixElementAccess.class, new DirectElementAccess(StandardMatrix::new));
+        this(Dimension.FACTORY.create(matrix.rows()), Dimension.FACTORY.create(matrix.columns()), matrix.matrix());
     }
 
-    public StandardMatrix(RawFloatMatrix matrix)
+    public StandardMatrix(Dimension rows, Dimension columns, float[] matrix, MatrixOperation... matrixOperation)
     {
-        rows = Dimension.FACTORY.create(matrix.rows());
-        columns = Dimension.FACTORY.create(matrix.columns());
-        this.matrix = matrix.matrix();
+        super(rows, columns, DEFAULT_OPERATIONS, matrixOperation);
+        this.matrix = matrix;
     }
 
-    public StandardMatrix(Dimension rows, Dimension columns, float[] matrix, MatrixOperation[] matrixOperation)
+    /**
+    * Returns the {@link AdaptiveMultiplication} that is shared by all {@link StandardMatrix}s (unless they were created
+    * with a different multiplication). Its tuning table is saved when the JVM shuts down, but it can also be
+    * calibrated and saved explicitly.
+    *
+    * @return the default {@link AdaptiveMultiplication}
+    **/
+    public static AdaptiveMultiplication<?, ?, ?> getDefaultMultiplication()
     {
-        this.rows = rows;
-        this.columns = columns;
-        this.matrix = matrix;
-        Stream.of(matrixOperation).forEach(operation -> operations.put(operation.getOperationType(), operation));
+        return DEFAULT_MULTIPLICATION;
     }
 
     @Override
@@ -79,46 +94,23 @@ public class StandardMatrix<ROWS extends Dimension, COLUMNS extends Dimension> e
     }
 
     @Override
-    public <DIMENSION extends Dimension> Matrix<ROWS, DIMENSION> times(Matrix<COLUMNS, DIMENSION> rightHandSide)
-    {
-        @SuppressWarnings("unchecked")
-        MatrixMultiplication<ROWS, DIMENSION, COLUMNS> multiplication = operation(MatrixMultiplication.class);
-        return multiplication.apply(this, rightHandSide);
-    }
-
-    @Override
-    public Matrix<COLUMNS, ROWS> transpose()
+    public float[] getValues()
     {
-        int numberOfRows = rows.getAsInt();
-        int numberOfColumns = columns.getAsInt();
-        float[] transpose = new float[numberOfRows*numberOfColumns];
-        for (int column = 0; column < numberOfColumns; column++)
+        MatrixElementAccess access = getElementAccess();
+        if (access.isColumnMajor(rows, columns))
         {
-            for (int row = 0; row < numberOfRows; row++)
-            {
-                transpose[column + row*numberOfColumns] = matrix[row + column*numberOfRows];
-            }
+            // Column-major prefix views (e.g., the first column) share the array but only cover part of it:
+            //
+            int size = rows.getAsInt()*columns.getAsInt();
+            return matrix.length == size? matrix:Arrays.copyOf(matrix, size);
         }
-        return factory().create(columns, rows, transpose);
-    }
-
-    @Override
-    public int getRows()
-    {
-        return rows.getAsInt();
+        return access.gather(getStorage(), rows, columns);
     }
 
     @Override
-    public int getColumns()
+    public FloatBuffer getStorage()
     {
-        return columns.getAsInt();
-    }
-
-    @Override
-    public float[] getValues()
-    {
-        // TODO: this needs to take access strategy into account
-        return matrix;
+        return FloatBuffer.wrap(matrix);
     }
 
     @Override
@@ -131,35 +123,13 @@ public class StandardMatrix<ROWS extends Dimension, COLUMNS extends Dimension> e
     @Override
     public Matrix<ROWS, COLUMNS> using(MatrixOperation... operation)
     {
-        return factory().create(rows, columns, matrix, operation);
-    }
-
-    @Override
-    public int hashCode()
-    {
-        // TODO: this needs to take access strategy into account
-        return Objects.hash(rows, columns, Arrays.hashCode(matrix));
+        return factory().create(rows, columns, matrix, withLayout(operation));
     }
 
     @Override
-    public boolean equals(Object other)
-    {
-        // TODO: this needs to take access strategy into account
-        if (other instanceof Matrix)
-        {
-            Matrix<?, ?> otherMatrix = (Matrix<?, ?>)other;
-            if (rows.getAsInt() == otherMatrix.getRows() && columns.getAsInt() == otherMatrix.getColumns())
-            {
-                return Arrays.equals(otherMatrix.getValues(), matrix);
-            }
-        }
-        return false;
-    }
-
-    private <MO extends MatrixOperation> MO operation(Class<? extends MO> operation)
+    protected <R extends Dimension, C extends Dimension> Matrix<R, C> view(Dimension rows, Dimension columns,
+        MatrixElementAccess access)
     {
-        @SuppressWarnings("unchecked")
-        MO implementation = (MO)operations.get(operation);
-        return implementation;
+        return new StandardMatrix<>(rows, columns, matrix, operations(access));
     }
 }
@@ -0,0 +1,148 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.util.Arrays;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixBatch;
+import top.java.matrix.operations.BatchMultiplication;
+import top.java.matrix.operations.multiplication.ForkJoinBatchMultiplication;
+
+/**
+* The {@link StandardMatrixBatch} class provides a basic {@link MatrixBatch} implementation that is backed
+* by a single {@code float} array. Individual matrices are returned as {@link StandardMatrix}es.
+*
+* @param <ROWS> the rows dimension of the matrices in the batch
+* @param <COLUMNS> the columns dimension of the matrices in the batch
+*
+* @author Mirko Raner
+**/
+public class StandardMatrixBatch<ROWS extends Dimension, COLUMNS extends Dimension> extends MatrixBatch<ROWS, COLUMNS>
+{
+    private final static BatchMultiplication<?, ?, ?> DEFAULT_MULTIPLICATION =
+        new ForkJoinBatchMultiplication<>(StandardMatrixBatch::new);
+
+    private final Dimension rows;
+    private final Dimension columns;
+    private final int size;
+    private final float[] values;
+    private final BatchMultiplication<?, ?, ?> multiplication;
+
+    public StandardMatrixBatch(Dimension rows, Dimension columns, int size, float[] values)
+    {
+        this(rows, columns, size, values, DEFAULT_MULTIPLICATION);
+    }
+
+    public StandardMatrixBatch(Dimension rows, Dimension columns, int size, float[] values, BatchMultiplication<?, ?, ?> multiplication)
+    {
+        if (values.length != (long)size*rows.getAsInt()*columns.getAsInt())
+        {
+            throw new IllegalArgumentException("Expected " + size + " matrices of " + rows.getAsInt() + "x"
+                + columns.getAsInt() + " elements but got " + values.length + " elements");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.size = size;
+        this.values = values;
+        this.multiplication = multiplication;
+    }
+
+    /**
+    * Copies a number of equally-shaped matrices into a new batch.
+    *
+    * @param matrices the matrices
+    * @param <M> the rows dimension of the matrices
+    * @param <N> the columns dimension of the matrices
+    * @return a new {@link StandardMatrixBatch}
+    **/
+    @SafeVarargs
+    public static <M extends Dimension, N extends Dimension> StandardMatrixBatch<M, N> of(Matrix<M, N>... matrices)
+    {
+        if (matrices.length == 0)
+        {
+            throw new IllegalArgumentException("Batch must contain at least one matrix");
+        }
+        int rows = matrices[0].getRows();
+        int columns = matrices[0].getColumns();
+        int stride = rows*columns;
+        float[] values = new float[matrices.length*stride];
+        for (int index = 0; index < matrices.length; index++)
+        {
+            if (matrices[index].getRows() != rows || matrices[index].getColumns() != columns)
+            {
+                throw new IllegalArgumentException("All matrices of a batch must have the same dimensions");
+            }
+            matrices[index].getBuffer().get(values, index*stride, stride);
+        }
+        return new StandardMatrixBatch<>(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), matrices.length, values);
+    }
+
+    @Override
+    public Factory factory()
+    {
+        return StandardMatrixBatch::new;
+    }
+
+    @Override
+    public <DIMENSION extends Dimension> MatrixBatch<ROWS, DIMENSION> times(MatrixBatch<COLUMNS, DIMENSION> rightHandSide)
+    {
+        @SuppressWarnings("unchecked")
+        BatchMultiplication<ROWS, DIMENSION, COLUMNS> implementation = (BatchMultiplication<ROWS, DIMENSION, COLUMNS>)multiplication;
+        return implementation.apply(this, rightHandSide);
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public int getRows()
+    {
+        return rows.getAsInt();
+    }
+
+    @Override
+    public int getColumns()
+    {
+        return columns.getAsInt();
+    }
+
+    @Override
+    public float[] getValues()
+    {
+        return values;
+    }
+
+    @Override
+    public Matrix<ROWS, COLUMNS> get(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index " + index + " is outside of batch of size " + size);
+        }
+        int stride = getStride();
+        return new StandardMatrix<>(rows, columns, Arrays.copyOfRange(values, index*stride, index*stride + stride));
+    }
+
+    @Override
+    public MatrixBatch<ROWS, COLUMNS> using(BatchMultiplication<?, ?, ?> multiplication)
+    {
+        return new StandardMatrixBatch<>(rows, columns, size, values, multiplication);
+    }
+}
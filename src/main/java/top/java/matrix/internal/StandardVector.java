@@ -0,0 +1,200 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.nio.FloatBuffer;
+import java.util.function.Function;
+import top.java.matrix.Dimension;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.MatrixOperation;
+import top.java.matrix.Vector;
+import top.java.matrix.operations.ElementwiseOperation;
+import top.java.matrix.operations.MatrixElementAccess;
+import top.java.matrix.operations.MatrixMultiplication;
+import top.java.matrix.operations.MatrixReduction;
+import top.java.matrix.operations.MatrixVectorMultiplication;
+import top.java.matrix.util.RawFloatMatrix;
+
+/**
+* The {@link StandardVector} class provides a basic {@link Vector} implementation that is backed by a {@code float}
+* array. All matrix operations are delegated to a single-column {@link StandardMatrix} that shares the array, and
+* therefore also produce {@link StandardMatrix} results.
+*
+* @param <DIMENSION> the dimension of the vector
+*
+* @author Mirko Raner
+**/
+public class StandardVector<DIMENSION extends Dimension> extends Vector<DIMENSION>
+{
+    private final static Dimension ONE = Dimension.FACTORY.create(1);
+
+    private final StandardMatrix<DIMENSION, One> matrix;
+
+    public StandardVector(float... vector)
+    {
+        this(Dimension.FACTORY.create(vector.length), vector);
+    }
+
+    public StandardVector(Dimension size, float[] vector, MatrixOperation... matrixOperation)
+    {
+        this(new StandardMatrix<>(size, ONE, vector, matrixOperation));
+    }
+
+    private StandardVector(StandardMatrix<DIMENSION, One> matrix)
+    {
+        this.matrix = matrix;
+    }
+
+    @Override
+    public Function<RawFloatMatrix, Matrix<?, ?>> constructor()
+    {
+        return matrix.constructor();
+    }
+
+    @Override
+    public MatrixFactory factory()
+    {
+        return matrix.factory();
+    }
+
+    @Override
+    public <D extends Dimension> Matrix<DIMENSION, D> times(Matrix<One, D> rightHandSide)
+    {
+        return matrix.times(rightHandSide);
+    }
+
+    @Override
+    public Vector<DIMENSION> times(Vector<One> vector)
+    {
+        return matrix.times(vector);
+    }
+
+    @Override
+    public <D extends Dimension> Matrix<DIMENSION, D> timesInto(Matrix<One, D> rightHandSide, Matrix<DIMENSION, D> destination)
+    {
+        return matrix.timesInto(rightHandSide, destination);
+    }
+
+    @Override
+    public Matrix<One, DIMENSION> transpose()
+    {
+        return matrix.transpose();
+    }
+
+    @Override
+    public Matrix<One, DIMENSION> transposeInto(Matrix<One, DIMENSION> destination)
+    {
+        return matrix.transposeInto(destination);
+    }
+
+    @Override
+    public Matrix<One, DIMENSION> transposeView()
+    {
+        return matrix.transposeView();
+    }
+
+    @Override
+    public <R extends Dimension, C extends Dimension> Matrix<R, C> subMatrix(int firstRow, int firstColumn, int rows, int columns)
+    {
+        return matrix.subMatrix(firstRow, firstColumn, rows, columns);
+    }
+
+    @Override
+    public int getRows()
+    {
+        return matrix.getRows();
+    }
+
+    @Override
+    public float[] getValues()
+    {
+        return matrix.getValues();
+    }
+
+    @Override
+    public FloatBuffer getBuffer()
+    {
+        return matrix.getBuffer();
+    }
+
+    @Override
+    public FloatBuffer getStorage()
+    {
+        return matrix.getStorage();
+    }
+
+    @Override
+    public FloatBuffer getStorageForReading()
+    {
+        return matrix.getStorageForReading();
+    }
+
+    @Override
+    public MatrixElementAccess getElementAccess()
+    {
+        return matrix.getElementAccess();
+    }
+
+    @Override
+    public MatrixMultiplication<?, ?, ?> getMultiplication()
+    {
+        return matrix.getMultiplication();
+    }
+
+    @Override
+    public float at(int row, int column)
+    {
+        return matrix.at(row, column);
+    }
+
+    @Override
+    public StandardVector<DIMENSION> using(MatrixOperation... operations)
+    {
+        return new StandardVector<>((StandardMatrix<DIMENSION, One>)matrix.using(operations));
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return matrix.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        return matrix.equals(other);
+    }
+
+    @Override
+    protected ElementwiseOperation<DIMENSION, One> elementwise()
+    {
+        return matrix.elementwise();
+    }
+
+    @Override
+    protected MatrixReduction<DIMENSION, One> reduction()
+    {
+        return matrix.reduction();
+    }
+
+    @Override
+    protected MatrixVectorMultiplication<DIMENSION, One> vectorMultiplication()
+    {
+        return matrix.vectorMultiplication();
+    }
+}
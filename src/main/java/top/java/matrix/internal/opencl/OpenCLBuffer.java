@@ -0,0 +1,67 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal.opencl;
+
+import com.ochafik.lang.jnaerator.runtime.NativeSize;
+import com.sun.jna.Memory;
+import top.java.matrix.internal.opencl.jna.OpenCLLibrary.cl_mem;
+
+/**
+* An {@link OpenCLBuffer} is a persistent device buffer of an {@link OpenCLContext}, together with a host staging
+* area of the same size. Transfers between a Java array and the device go through the staging area, so that they
+* can be enqueued asynchronously. A buffer can be reused for any number of transfers of up to
+* {@link #getCapacity()} elements.
+*
+* @author Mirko Raner
+**/
+public class OpenCLBuffer implements AutoCloseable
+{
+    final OpenCLContext context;
+    final cl_mem memory;
+    final Memory host;
+    private final int capacity;
+
+    OpenCLBuffer(OpenCLContext context, cl_mem memory, int capacity)
+    {
+        this.context = context;
+        this.memory = memory;
+        this.capacity = capacity;
+        this.host = new Memory(Math.max(capacity, 1)*(long)Float.BYTES);
+    }
+
+    /**
+    * @return the capacity of the buffer (in {@code float} elements)
+    **/
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    NativeSize bytes(int length)
+    {
+        if (length > capacity)
+        {
+            throw new IndexOutOfBoundsException(length + " elements exceed buffer capacity of " + capacity);
+        }
+        return new NativeSize((long)length*Float.BYTES);
+    }
+
+    @Override
+    public void close()
+    {
+        context.release(this);
+    }
+}
@@ -0,0 +1,455 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal.opencl;
+
+import com.ochafik.lang.jnaerator.runtime.NativeSize;
+import com.ochafik.lang.jnaerator.runtime.NativeSizeByReference;
+import com.sun.jna.Function;
+import com.sun.jna.Library;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import top.java.matrix.internal.opencl.jna.OpenCLLibrary;
+import top.java.matrix.internal.opencl.jna.OpenCLLibrary.cl_command_queue;
+import top.java.matrix.internal.opencl.jna.OpenCLLibrary.cl_context;
+import top.java.matrix.internal.opencl.jna.OpenCLLibrary.cl_device_id;
+import top.java.matrix.internal.opencl.jna.OpenCLLibrary.cl_event;
+import top.java.matrix.internal.opencl.jna.OpenCLLibrary.cl_kernel;
+import top.java.matrix.internal.opencl.jna.OpenCLLibrary.cl_mem;
+import top.java.matrix.internal.opencl.jna.OpenCLLibrary.cl_platform_id;
+import top.java.matrix.internal.opencl.jna.OpenCLLibrary.cl_program;
+import static top.java.matrix.internal.opencl.jna.OpenCLLibrary.CL_DEVICE_LOCAL_MEM_SIZE;
+import static top.java.matrix.internal.opencl.jna.OpenCLLibrary.CL_DEVICE_MAX_WORK_GROUP_SIZE;
+import static top.java.matrix.internal.opencl.jna.OpenCLLibrary.CL_DEVICE_NAME;
+import static top.java.matrix.internal.opencl.jna.OpenCLLibrary.CL_DEVICE_NOT_FOUND;
+import static top.java.matrix.internal.opencl.jna.OpenCLLibrary.CL_DEVICE_TYPE_ALL;
+import static top.java.matrix.internal.opencl.jna.OpenCLLibrary.CL_DEVICE_TYPE_GPU;
+import static top.java.matrix.internal.opencl.jna.OpenCLLibrary.CL_FALSE;
+import static top.java.matrix.internal.opencl.jna.OpenCLLibrary.CL_MEM_READ_WRITE;
+import static top.java.matrix.internal.opencl.jna.OpenCLLibrary.CL_PROGRAM_BUILD_LOG;
+import static top.java.matrix.internal.opencl.jna.OpenCLLibrary.CL_SUCCESS;
+
+/**
+* An {@link OpenCLContext} manages an OpenCL context and an (in-order) command queue for a single device, using the
+* JNA bindings that are generated from {@code cl.h}. It compiles and caches programs, creates kernels and
+* persistent {@link OpenCLBuffer}s, and enqueues transfers and kernel executions asynchronously. Each enqueued
+* command returns a {@code cl_event} that can be passed to subsequent commands and is eventually released by
+* {@link #await(cl_event...)}.
+* <br>
+* <br>
+* {@link #create()} prefers a GPU and otherwise uses the first device of any type (e.g., a CPU device of a runtime
+* like PoCL). If no OpenCL runtime library, platform or device is found, it throws an {@link OpenCLException}, so
+* that callers can fall back to a Java implementation.
+*
+* @author Mirko Raner
+**/
+public class OpenCLContext implements AutoCloseable
+{
+    private final OpenCLLibrary library;
+    private final cl_device_id device;
+    private final cl_context context;
+    private final cl_command_queue queue;
+    private final Map<String, cl_program> programs = new HashMap<>();
+
+    private OpenCLContext(OpenCLLibrary library, cl_device_id device)
+    {
+        this.library = library;
+        this.device = device;
+        IntBuffer status = status();
+        context = library.clCreateContext(null, 1, reference(device.getPointer()), null, null, status);
+        check(status.get(0), "clCreateContext");
+        queue = library.clCreateCommandQueue(context, device, 0, status);
+        if (status.get(0) != CL_SUCCESS)
+        {
+            library.clReleaseContext(context);
+            check(status.get(0), "clCreateCommandQueue");
+        }
+    }
+
+    /**
+    * Creates a context for the best available OpenCL device.
+    *
+    * @return the new {@link OpenCLContext}
+    * @throws OpenCLException if no OpenCL runtime, platform or device is available
+    **/
+    public static OpenCLContext create()
+    {
+        OpenCLLibrary library = library();
+        IntByReference count = new IntByReference();
+        int status = library.clGetPlatformIDs(0, null, count);
+        if (status == OpenCLException.PLATFORM_NOT_FOUND || status == CL_SUCCESS && count.getValue() == 0)
+        {
+            throw new OpenCLException("No OpenCL platform found", OpenCLException.PLATFORM_NOT_FOUND);
+        }
+        check(status, "clGetPlatformIDs");
+        PointerByReference platforms = array(count.getValue());
+        check(library.clGetPlatformIDs(count.getValue(), platforms, count), "clGetPlatformIDs");
+        for (long type: new long[] {CL_DEVICE_TYPE_GPU, CL_DEVICE_TYPE_ALL})
+        {
+            for (Pointer platform: platforms.getPointer().getPointerArray(0, count.getValue()))
+            {
+                PointerByReference device = new PointerByReference();
+                status = library.clGetDeviceIDs(new cl_platform_id(platform), type, 1, device, null);
+                if (status == CL_SUCCESS)
+                {
+                    return new OpenCLContext(library, new cl_device_id(device.getValue()));
+                }
+                if (status != CL_DEVICE_NOT_FOUND)
+                {
+                    check(status, "clGetDeviceIDs");
+                }
+            }
+        }
+        throw new OpenCLException("No OpenCL device found", CL_DEVICE_NOT_FOUND);
+    }
+
+    public String getDeviceName()
+    {
+        Memory name = deviceInfo(CL_DEVICE_NAME);
+        return name.getString(0);
+    }
+
+    public long getMaxWorkGroupSize()
+    {
+        Memory size = deviceInfo(CL_DEVICE_MAX_WORK_GROUP_SIZE);
+        return NativeSize.SIZE == Long.BYTES? size.getLong(0):size.getInt(0);
+    }
+
+    /**
+    * @return the size of the device's local memory (in bytes)
+    **/
+    public long getLocalMemorySize()
+    {
+        return deviceInfo(CL_DEVICE_LOCAL_MEM_SIZE).getLong(0);
+    }
+
+    /**
+    * Creates a kernel. Programs are compiled only once for each combination of source and build options.
+    *
+    * @param source the OpenCL C source code of the program
+    * @param options the build options (e.g., preprocessor definitions)
+    * @param name the name of the kernel function
+    * @return the new kernel (which needs to be released via {@link #release(cl_kernel)})
+    * @throws OpenCLException if the program could not be built (the message contains the build log)
+    **/
+    public cl_kernel createKernel(String source, String options, String name)
+    {
+        cl_program program = program(source, options);
+        IntBuffer status = status();
+        cl_kernel kernel = library.clCreateKernel(program, name, status);
+        check(status.get(0), "clCreateKernel");
+        return kernel;
+    }
+
+    /**
+    * Creates a persistent device buffer.
+    *
+    * @param capacity the capacity of the buffer (in {@code float} elements)
+    * @return the new {@link OpenCLBuffer}
+    **/
+    public OpenCLBuffer createBuffer(int capacity)
+    {
+        IntBuffer status = status();
+        NativeSize size = new NativeSize(Math.max(capacity, 1)*(long)Float.BYTES);
+        cl_mem memory = library.clCreateBuffer(context, CL_MEM_READ_WRITE, size, null, status);
+        check(status.get(0), "clCreateBuffer");
+        return new OpenCLBuffer(this, memory, capacity);
+    }
+
+    public void setArgument(cl_kernel kernel, int index, int value)
+    {
+        check(library.clSetKernelArg(kernel, index, new NativeSize(Integer.BYTES), new IntByReference(value).getPointer()),
+            "clSetKernelArg");
+    }
+
+    public void setArgument(cl_kernel kernel, int index, OpenCLBuffer buffer)
+    {
+        Pointer memory = reference(buffer.memory.getPointer()).getPointer();
+        check(library.clSetKernelArg(kernel, index, new NativeSize(Native.POINTER_SIZE), memory), "clSetKernelArg");
+    }
+
+    /**
+    * Enqueues a (non-blocking) transfer from a Java array to a device buffer.
+    *
+    * @param buffer the target buffer
+    * @param values the source array
+    * @param length the number of elements to transfer
+    * @param waitFor the events that need to complete before the transfer starts
+    * @return the event of the transfer
+    **/
+    public cl_event write(OpenCLBuffer buffer, float[] values, int length, cl_event... waitFor)
+    {
+        NativeSize bytes = buffer.bytes(length);
+        buffer.host.write(0, values, 0, length);
+        return enqueueWrite(buffer, bytes, waitFor);
+    }
+
+    /**
+    * Enqueues a (non-blocking) transfer from a {@link FloatBuffer} to a device buffer. The elements are copied to
+    * the host staging area of the device buffer before the method returns.
+    *
+    * @param buffer the target buffer
+    * @param values the source buffer (from its position to its limit; the position is not changed)
+    * @param waitFor the events that need to complete before the transfer starts
+    * @return the event of the transfer
+    **/
+    public cl_event write(OpenCLBuffer buffer, FloatBuffer values, cl_event... waitFor)
+    {
+        NativeSize bytes = buffer.bytes(values.remaining());
+        staging(buffer, values.remaining()).put(values.duplicate());
+        return enqueueWrite(buffer, bytes, waitFor);
+    }
+
+    private cl_event enqueueWrite(OpenCLBuffer buffer, NativeSize bytes, cl_event... waitFor)
+    {
+        PointerByReference event = new PointerByReference();
+        check(library.clEnqueueWriteBuffer(queue, buffer.memory, CL_FALSE, new NativeSize(0), bytes, buffer.host,
+            waitFor.length, events(waitFor), event), "clEnqueueWriteBuffer");
+        return new cl_event(event.getValue());
+    }
+
+    /**
+    * Enqueues a (non-blocking) kernel execution over a two-dimensional range.
+    *
+    * @param kernel the kernel
+    * @param global the global work size in each dimension
+    * @param local the work group size in each dimension
+    * @param waitFor the events that need to complete before the execution starts
+    * @return the event of the kernel execution
+    **/
+    public cl_event execute(cl_kernel kernel, long[] global, long[] local, cl_event... waitFor)
+    {
+        PointerByReference event = new PointerByReference();
+        check(library.clEnqueueNDRangeKernel(queue, kernel, global.length, null, sizes(global), sizes(local),
+            waitFor.length, events(waitFor), event), "clEnqueueNDRangeKernel");
+        return new cl_event(event.getValue());
+    }
+
+    /**
+    * Enqueues a (non-blocking) transfer from a device buffer to its host staging area. After the returned event
+    * is complete, the data can be copied via {@link #read(OpenCLBuffer, float[], int)}.
+    *
+    * @param buffer the source buffer
+    * @param length the number of elements to transfer
+    * @param waitFor the events that need to complete before the transfer starts
+    * @return the event of the transfer
+    **/
+    public cl_event enqueueRead(OpenCLBuffer buffer, int length, cl_event... waitFor)
+    {
+        NativeSize bytes = buffer.bytes(length);
+        PointerByReference event = new PointerByReference();
+        check(library.clEnqueueReadBuffer(queue, buffer.memory, CL_FALSE, new NativeSize(0), bytes, buffer.host,
+            waitFor.length, events(waitFor), event), "clEnqueueReadBuffer");
+        return new cl_event(event.getValue());
+    }
+
+    /**
+    * Copies data from the host staging area of a buffer into a Java array.
+    *
+    * @param buffer the buffer
+    * @param target the target array
+    * @param length the number of elements
+    **/
+    public void read(OpenCLBuffer buffer, float[] target, int length)
+    {
+        buffer.bytes(length);
+        buffer.host.read(0, target, 0, length);
+    }
+
+    /**
+    * Copies data from the host staging area of a buffer into a {@link FloatBuffer}.
+    *
+    * @param buffer the buffer
+    * @param target the target buffer (from its position to its limit; the position is not changed)
+    **/
+    public void read(OpenCLBuffer buffer, FloatBuffer target)
+    {
+        buffer.bytes(target.remaining());
+        target.duplicate().put(staging(buffer, target.remaining()));
+    }
+
+    /**
+    * Waits for the completion of events and releases them.
+    *
+    * @param events the events
+    **/
+    public void await(cl_event... events)
+    {
+        try
+        {
+            if (events.length > 0)
+            {
+                check(library.clWaitForEvents(events.length, events(events)), "clWaitForEvents");
+            }
+        }
+        finally
+        {
+            for (cl_event event: events)
+            {
+                library.clReleaseEvent(event);
+            }
+        }
+    }
+
+    public void release(cl_kernel kernel)
+    {
+        library.clReleaseKernel(kernel);
+    }
+
+    void release(OpenCLBuffer buffer)
+    {
+        library.clReleaseMemObject(buffer.memory);
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        library.clFinish(queue);
+        programs.values().forEach(library::clReleaseProgram);
+        programs.clear();
+        library.clReleaseCommandQueue(queue);
+        library.clReleaseContext(context);
+    }
+
+    private synchronized cl_program program(String source, String options)
+    {
+        String key = options + '\n' + source;
+        cl_program program = programs.get(key);
+        if (program == null)
+        {
+            IntBuffer status = status();
+            program = library.clCreateProgramWithSource(context, 1, new String[] {source}, null, status);
+            check(status.get(0), "clCreateProgramWithSource");
+            int built = library.clBuildProgram(program, 1, reference(device.getPointer()), options, null, null);
+            if (built != CL_SUCCESS)
+            {
+                String log = buildLog(program);
+                library.clReleaseProgram(program);
+                throw new OpenCLException("Building OpenCL program failed:\n" + log, built);
+            }
+            programs.put(key, program);
+        }
+        return program;
+    }
+
+    private String buildLog(cl_program program)
+    {
+        NativeSizeByReference size = new NativeSizeByReference();
+        library.clGetProgramBuildInfo(program, device, CL_PROGRAM_BUILD_LOG, new NativeSize(0), null, size);
+        long length = size.getValue().longValue();
+        if (length == 0)
+        {
+            return "";
+        }
+        Memory log = new Memory(length);
+        library.clGetProgramBuildInfo(program, device, CL_PROGRAM_BUILD_LOG, new NativeSize(length), log, null);
+        return log.getString(0);
+    }
+
+    private Memory deviceInfo(int parameter)
+    {
+        NativeSizeByReference size = new NativeSizeByReference();
+        check(library.clGetDeviceInfo(device, parameter, new NativeSize(0), null, size), "clGetDeviceInfo");
+        Memory value = new Memory(Math.max(size.getValue().longValue(), Long.BYTES));
+        value.clear();
+        check(library.clGetDeviceInfo(device, parameter, size.getValue(), value, null), "clGetDeviceInfo");
+        return value;
+    }
+
+    // The bindings are generated as a StdCallLibrary (cl.h declares __stdcall for Windows), but JNA rejects the
+    // stdcall convention on other platforms, so the library is loaded with an explicit calling convention:
+    //
+    private static OpenCLLibrary library()
+    {
+        int convention = Platform.isWindows()? Function.ALT_CONVENTION:Function.C_CONVENTION;
+        Map<String, Object> options = Collections.singletonMap(Library.OPTION_CALLING_CONVENTION, convention);
+        try
+        {
+            return (OpenCLLibrary)Native.loadLibrary(OpenCLLibrary.JNA_LIBRARY_NAME, OpenCLLibrary.class, options);
+        }
+        catch (LinkageError | IllegalArgumentException error)
+        {
+            throw new OpenCLException("No OpenCL runtime library found", error);
+        }
+    }
+
+    private static void check(int status, String function)
+    {
+        if (status != CL_SUCCESS)
+        {
+            throw new OpenCLException(function + " failed", status);
+        }
+    }
+
+    private static FloatBuffer staging(OpenCLBuffer buffer, int length)
+    {
+        return buffer.host.getByteBuffer(0, (long)length*Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    private static IntBuffer status()
+    {
+        return ByteBuffer.allocateDirect(Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    private static PointerByReference reference(Pointer pointer)
+    {
+        return new PointerByReference(pointer);
+    }
+
+    // A PointerByReference only has room for a single pointer; arrays of handles are passed through a
+    // PointerByReference that is backed by a larger block of native memory:
+    //
+    private static PointerByReference array(int length)
+    {
+        PointerByReference array = new PointerByReference();
+        array.setPointer(new Memory(Math.max(length, 1)*(long)Native.POINTER_SIZE));
+        return array;
+    }
+
+    private static PointerByReference events(cl_event... events)
+    {
+        if (events.length == 0)
+        {
+            return null;
+        }
+        PointerByReference array = array(events.length);
+        for (int index = 0; index < events.length; index++)
+        {
+            array.getPointer().setPointer((long)index*Native.POINTER_SIZE, events[index].getPointer());
+        }
+        return array;
+    }
+
+    private static NativeSize[] sizes(long[] values)
+    {
+        NativeSize[] sizes = new NativeSize[values.length];
+        for (int index = 0; index < values.length; index++)
+        {
+            sizes[index] = new NativeSize(values[index]);
+        }
+        return sizes;
+    }
+}
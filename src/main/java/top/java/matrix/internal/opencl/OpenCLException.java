@@ -0,0 +1,55 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal.opencl;
+
+/**
+* An {@link OpenCLException} indicates that an OpenCL call failed, or that no OpenCL runtime or platform is
+* available.
+*
+* @author Mirko Raner
+**/
+public class OpenCLException extends RuntimeException
+{
+    private final static long serialVersionUID = -2409467151583962358L;
+
+    /**
+    * The error code that is reported if no OpenCL runtime library or no OpenCL platform was found
+    * ({@code CL_PLATFORM_NOT_FOUND_KHR}).
+    **/
+    public final static int PLATFORM_NOT_FOUND = -1001;
+
+    private final int errorCode;
+
+    public OpenCLException(String message, int errorCode)
+    {
+        super(message + " (error " + errorCode + ")");
+        this.errorCode = errorCode;
+    }
+
+    public OpenCLException(String message, Throwable cause)
+    {
+        super(message, cause);
+        this.errorCode = PLATFORM_NOT_FOUND;
+    }
+
+    /**
+    * @return the OpenCL error code (e.g., {@code CL_OUT_OF_RESOURCES})
+    **/
+    public int getErrorCode()
+    {
+        return errorCode;
+    }
+}
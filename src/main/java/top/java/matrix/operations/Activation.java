@@ -0,0 +1,100 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations;
+
+import top.java.matrix.util.FloatUnaryOperator;
+
+/**
+* {@link Activation} provides common activation functions. Each function overrides the bulk method of
+* {@link FloatUnaryOperator} with a dedicated loop, so that applying it to a whole matrix does not involve a
+* virtual call per element.
+*
+* @author Mirko Raner
+**/
+public enum Activation implements FloatUnaryOperator
+{
+    IDENTITY
+    {
+        @Override
+        public float applyAsFloat(float value)
+        {
+            return value;
+        }
+
+        @Override
+        public void applyAsFloat(float[] source, int sourceIndex, float[] target, int targetIndex, int length)
+        {
+            if (source != target || sourceIndex != targetIndex)
+            {
+                System.arraycopy(source, sourceIndex, target, targetIndex, length);
+            }
+        }
+    },
+
+    RELU
+    {
+        @Override
+        public float applyAsFloat(float value)
+        {
+            return value > 0? value:0;
+        }
+
+        @Override
+        public void applyAsFloat(float[] source, int sourceIndex, float[] target, int targetIndex, int length)
+        {
+            for (int index = 0; index < length; index++)
+            {
+                target[targetIndex + index] = Math.max(source[sourceIndex + index], 0F);
+            }
+        }
+    },
+
+    SIGMOID
+    {
+        @Override
+        public float applyAsFloat(float value)
+        {
+            return (float)(1/(1 + Math.exp(-value)));
+        }
+
+        @Override
+        public void applyAsFloat(float[] source, int sourceIndex, float[] target, int targetIndex, int length)
+        {
+            for (int index = 0; index < length; index++)
+            {
+                target[targetIndex + index] = (float)(1/(1 + Math.exp(-source[sourceIndex + index])));
+            }
+        }
+    },
+
+    TANH
+    {
+        @Override
+        public float applyAsFloat(float value)
+        {
+            return (float)Math.tanh(value);
+        }
+
+        @Override
+        public void applyAsFloat(float[] source, int sourceIndex, float[] target, int targetIndex, int length)
+        {
+            for (int index = 0; index < length; index++)
+            {
+                target[targetIndex + index] = (float)Math.tanh(source[sourceIndex + index]);
+            }
+        }
+    };
+}
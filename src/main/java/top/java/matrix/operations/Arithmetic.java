@@ -0,0 +1,166 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations;
+
+import top.java.matrix.util.FloatBinaryOperator;
+import top.java.matrix.util.FloatUnaryOperator;
+
+/**
+* {@link Arithmetic} provides the basic element-wise arithmetic operations. Each operation overrides the bulk
+* methods of {@link FloatBinaryOperator} with dedicated loops, which are simple enough to be vectorized by the
+* JIT compiler.
+*
+* @author Mirko Raner
+**/
+public enum Arithmetic implements FloatBinaryOperator
+{
+    ADD
+    {
+        @Override
+        public float applyAsFloat(float left, float right)
+        {
+            return left + right;
+        }
+
+        @Override
+        public void applyAsFloat(float[] left, int leftIndex, float[] right, int rightIndex, float[] target,
+            int targetIndex, int length)
+        {
+            for (int index = 0; index < length; index++)
+            {
+                target[targetIndex + index] = left[leftIndex + index] + right[rightIndex + index];
+            }
+        }
+
+        @Override
+        public void applyAsFloat(float[] left, int leftIndex, float right, float[] target, int targetIndex, int length)
+        {
+            for (int index = 0; index < length; index++)
+            {
+                target[targetIndex + index] = left[leftIndex + index] + right;
+            }
+        }
+    },
+
+    SUBTRACT
+    {
+        @Override
+        public float applyAsFloat(float left, float right)
+        {
+            return left - right;
+        }
+
+        @Override
+        public void applyAsFloat(float[] left, int leftIndex, float[] right, int rightIndex, float[] target,
+            int targetIndex, int length)
+        {
+            for (int index = 0; index < length; index++)
+            {
+                target[targetIndex + index] = left[leftIndex + index] - right[rightIndex + index];
+            }
+        }
+
+        @Override
+        public void applyAsFloat(float[] left, int leftIndex, float right, float[] target, int targetIndex, int length)
+        {
+            for (int index = 0; index < length; index++)
+            {
+                target[targetIndex + index] = left[leftIndex + index] - right;
+            }
+        }
+    },
+
+    MULTIPLY
+    {
+        @Override
+        public float applyAsFloat(float left, float right)
+        {
+            return left*right;
+        }
+
+        @Override
+        public void applyAsFloat(float[] left, int leftIndex, float[] right, int rightIndex, float[] target,
+            int targetIndex, int length)
+        {
+            for (int index = 0; index < length; index++)
+            {
+                target[targetIndex + index] = left[leftIndex + index]*right[rightIndex + index];
+            }
+        }
+
+        @Override
+        public void applyAsFloat(float[] left, int leftIndex, float right, float[] target, int targetIndex, int length)
+        {
+            for (int index = 0; index < length; index++)
+            {
+                target[targetIndex + index] = left[leftIndex + index]*right;
+            }
+        }
+    },
+
+    DIVIDE
+    {
+        @Override
+        public float applyAsFloat(float left, float right)
+        {
+            return left/right;
+        }
+    },
+
+    MINIMUM
+    {
+        @Override
+        public float applyAsFloat(float left, float right)
+        {
+            return Math.min(left, right);
+        }
+    },
+
+    MAXIMUM
+    {
+        @Override
+        public float applyAsFloat(float left, float right)
+        {
+            return Math.max(left, right);
+        }
+    };
+
+    /**
+    * Fixes the right operand of this operation, e.g., {@code MULTIPLY.with(2)} doubles its operand. The resulting
+    * function uses the bulk methods of this operation.
+    *
+    * @param right the right operand
+    * @return a {@link FloatUnaryOperator} that applies this operation to its operand and {@code right}
+    **/
+    public FloatUnaryOperator with(float right)
+    {
+        Arithmetic operation = this;
+        return new FloatUnaryOperator()
+        {
+            @Override
+            public float applyAsFloat(float value)
+            {
+                return operation.applyAsFloat(value, right);
+            }
+
+            @Override
+            public void applyAsFloat(float[] source, int sourceIndex, float[] target, int targetIndex, int length)
+            {
+                operation.applyAsFloat(source, sourceIndex, right, target, targetIndex, length);
+            }
+        };
+    }
+}
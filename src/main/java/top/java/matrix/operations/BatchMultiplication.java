@@ -0,0 +1,58 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations;
+
+import java.util.function.BiFunction;
+import top.java.matrix.Dimension;
+import top.java.matrix.MatrixBatch;
+
+/**
+* {@link BatchMultiplication} is the base class for operations that multiply whole {@link MatrixBatch}es.
+*
+* @author Mirko Raner
+**/
+public abstract class BatchMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+implements BiFunction<MatrixBatch<M, K>, MatrixBatch<K, N>, MatrixBatch<M, N>>
+{
+    protected final MatrixBatch.Factory factory;
+
+    protected BatchMultiplication(MatrixBatch.Factory factory)
+    {
+        this.factory = factory;
+    }
+
+    /**
+    * Determines the number of products of a batch multiplication. Batches of equal size are multiplied
+    * pairwise; a batch of size one is multiplied with every matrix of the other batch.
+    *
+    * @param left the left-hand side batch
+    * @param right the right-hand side batch
+    * @return the size of the result batch
+    **/
+    protected static int size(MatrixBatch<?, ?> left, MatrixBatch<?, ?> right)
+    {
+        if (left.getColumns() != right.getRows())
+        {
+            throw new IllegalArgumentException("Cannot multiply " + left.getRows() + "x" + left.getColumns()
+                + " matrices by " + right.getRows() + "x" + right.getColumns() + " matrices");
+        }
+        if (left.size() != right.size() && left.size() != 1 && right.size() != 1)
+        {
+            throw new IllegalArgumentException("Batch sizes " + left.size() + " and " + right.size() + " do not match");
+        }
+        return left.size() == 1? right.size():left.size();
+    }
+}
@@ -0,0 +1,141 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations;
+
+import top.java.matrix.Dimension;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.MatrixOperation;
+import top.java.matrix.util.FloatBinaryOperator;
+import top.java.matrix.util.FloatUnaryOperator;
+
+/**
+* {@link ElementwiseOperation} is the base class of all strategies for element-wise operations, i.e., operations
+* that compute each element of the result from the corresponding elements of the operands. Binary operations can
+* also broadcast a single column (e.g., a bias vector) or a single row across a matrix. Unlike multiplications,
+* element-wise operations may write their result into one of their operands.
+*
+* @param <M> the rows dimension of the operands
+* @param <N> the columns dimension of the operands
+*
+* @author Mirko Raner
+**/
+public abstract class ElementwiseOperation<M extends Dimension, N extends Dimension> extends MatrixOperation
+{
+    protected ElementwiseOperation(MatrixFactory factory)
+    {
+        super(factory);
+    }
+
+    /**
+    * Applies a function to each element of a matrix.
+    *
+    * @param matrix the matrix
+    * @param function the function
+    * @return a new matrix containing the results
+    **/
+    public abstract Matrix<M, N> map(Matrix<M, N> matrix, FloatUnaryOperator function);
+
+    /**
+    * Applies a function to the corresponding elements of two matrices.
+    *
+    * @param left the matrix that provides the left operands
+    * @param right the matrix that provides the right operands
+    * @param function the function
+    * @return a new matrix containing the results
+    **/
+    public abstract Matrix<M, N> combine(Matrix<M, N> left, Matrix<M, N> right, FloatBinaryOperator function);
+
+    /**
+    * Applies a function to each element of a matrix and the element in the same row of a column vector.
+    *
+    * @param left the matrix that provides the left operands
+    * @param column the column vector that provides the right operands
+    * @param function the function
+    * @return a new matrix containing the results
+    **/
+    public abstract Matrix<M, N> combineColumn(Matrix<M, N> left, Matrix<M, One> column, FloatBinaryOperator function);
+
+    /**
+    * Applies a function to each element of a matrix and the element in the same column of a row vector.
+    *
+    * @param left the matrix that provides the left operands
+    * @param row the row vector that provides the right operands
+    * @param function the function
+    * @return a new matrix containing the results
+    **/
+    public abstract Matrix<M, N> combineRow(Matrix<M, N> left, Matrix<One, N> row, FloatBinaryOperator function);
+
+    /**
+    * Applies a function to each element of a matrix and stores the results in an existing matrix, which may be
+    * the operand itself. The default implementation copies the result of {@link #map(Matrix, FloatUnaryOperator)}
+    * into the destination's storage.
+    *
+    * @param matrix the matrix
+    * @param function the function
+    * @param destination a writable matrix of the same dimensions
+    * @return the {@code destination} matrix
+    **/
+    public Matrix<M, N> mapInto(Matrix<M, N> matrix, FloatUnaryOperator function, Matrix<M, N> destination)
+    {
+        checkShape(matrix, destination);
+        return store(map(matrix, function), destination);
+    }
+
+    /**
+    * Applies a function to the corresponding elements of two matrices and stores the results in an existing
+    * matrix, which may be one of the operands. The default implementation copies the result of
+    * {@link #combine(Matrix, Matrix, FloatBinaryOperator)} into the destination's storage.
+    *
+    * @param left the matrix that provides the left operands
+    * @param right the matrix that provides the right operands
+    * @param function the function
+    * @param destination a writable matrix of the same dimensions
+    * @return the {@code destination} matrix
+    **/
+    public Matrix<M, N> combineInto(Matrix<M, N> left, Matrix<M, N> right, FloatBinaryOperator function,
+        Matrix<M, N> destination)
+    {
+        checkShape(left, right);
+        checkShape(left, destination);
+        return store(combine(left, right, function), destination);
+    }
+
+    /**
+    * Verifies that two matrices have the same dimensions.
+    *
+    * @param matrix the first matrix
+    * @param other the second matrix
+    * @throws IllegalArgumentException if the dimensions differ
+    **/
+    protected static void checkShape(Matrix<?, ?> matrix, Matrix<?, ?> other)
+    {
+        if (matrix.getRows() != other.getRows() || matrix.getColumns() != other.getColumns())
+        {
+            throw new IllegalArgumentException("Expected a " + matrix.getRows() + "x" + matrix.getColumns()
+                + " matrix but got " + other.getRows() + "x" + other.getColumns());
+        }
+    }
+
+    private static <M extends Dimension, N extends Dimension> Matrix<M, N> store(Matrix<M, N> result, Matrix<M, N> destination)
+    {
+        Dimension rows = Dimension.FACTORY.create(destination.getRows());
+        Dimension columns = Dimension.FACTORY.create(destination.getColumns());
+        destination.getElementAccess().scatter(result.getBuffer(), destination.getStorage(), rows, columns);
+        return destination;
+    }
+}
@@ -0,0 +1,85 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations;
+
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.util.FloatUnaryOperator;
+
+/**
+* An {@link Epilogue} is applied to the result of a multiplication: it adds a bias vector to each column and then
+* applies an activation function, as in a dense layer of a neural network ({@code activation(A*B + bias)}).
+* Multiplication strategies that support fused epilogues (see
+* {@link MatrixMultiplication#applyFused(Matrix, Matrix, Epilogue)}) apply the epilogue to each section of the
+* result while it is still in the cache, instead of making separate passes over the whole result.
+*
+* @author Mirko Raner
+**/
+public class Epilogue
+{
+    private final float[] bias;
+    private final FloatUnaryOperator activation;
+
+    /**
+    * Creates a new {@link Epilogue}.
+    *
+    * @param bias a column vector that is added to each column of the product, or {@code null} for no bias
+    * @param activation the activation function (e.g., an {@link Activation})
+    **/
+    public Epilogue(Matrix<?, One> bias, FloatUnaryOperator activation)
+    {
+        this.bias = bias == null? null:bias.getValues();
+        this.activation = activation;
+    }
+
+    /**
+    * Verifies that the bias vector (if any) matches the number of rows of the result.
+    *
+    * @param rows the number of rows of the result
+    * @throws IllegalArgumentException if the bias vector has the wrong length
+    **/
+    public void check(int rows)
+    {
+        if (bias != null && bias.length != rows)
+        {
+            throw new IllegalArgumentException("Bias must have " + rows + " rows but has " + bias.length);
+        }
+    }
+
+    /**
+    * Applies the epilogue to a rectangular section of a column-major result.
+    *
+    * @param C the result
+    * @param rows the number of rows of the result
+    * @param firstRow the first row of the section
+    * @param lastRow the row after the last row of the section
+    * @param firstColumn the first column of the section
+    * @param lastColumn the column after the last column of the section
+    **/
+    public void apply(float[] C, int rows, int firstRow, int lastRow, int firstColumn, int lastColumn)
+    {
+        int length = lastRow - firstRow;
+        for (int column = firstColumn; column < lastColumn; column++)
+        {
+            int start = firstRow + column*rows;
+            if (bias != null)
+            {
+                Arithmetic.ADD.applyAsFloat(C, start, bias, firstRow, C, start, length);
+            }
+            activation.applyAsFloat(C, start, C, start, length);
+        }
+    }
+}
@@ -1,24 +1,20 @@
-//                                                                          //
-// Copyright 2017 Mirko Raner                                               //
-//                                                                          //
-// Licensed under the Apache License, Version 2.0 (the "License");          //
-// you may not use this file except in compliance with the License.         //
-// You may obtain a copy of the License at                                  //
-//                                                                          //
-//     http://www.apache.org/licenses/LICENSE-2.0                           //
-//                                                                          //
-// Unless required by applicable law or agreed to in writing, software      //
-// distributed under the License is distributed on an "AS IS" BASIS,        //
-// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
-// See the License for the specific language governing permissions and      //
-// limitations under the License.                                           //
-//                                                                          //
 package top.java.matrix.operations;
 
+import java.nio.FloatBuffer;
 import top.java.matrix.Dimension;
 import top.java.matrix.MatrixFactory;
 import top.java.matrix.MatrixOperation;
 
+/**
+* {@link MatrixElementAccess} determines the layout of the matrix elements in storage (see
+* {@link top.java.matrix.Matrix#getStorage()}). The element ({@code row}, {@code column}) of a
+* {@code rows}-by-{@code columns} matrix is located at the storage index
+* {@code offset() + row*rowStride(rows, columns) + column*columnStride(rows, columns)}.
+* Since the layout of a matrix's transpose is simply the layout with swapped strides, transposed (and other
+* strided) views of a matrix can share the matrix's storage without copying any elements.
+*
+* @author Mirko Raner
+**/
 public abstract class MatrixElementAccess extends MatrixOperation
 {
     protected MatrixElementAccess(MatrixFactory factory)
@@ -26,5 +22,106 @@ public abstract class MatrixElementAccess extends MatrixOperation
         super(factory);
     }
 
-    public abstract float elementAt(float[] matrix, Dimension rows, Dimension columns, int row, int column);
+    public abstract int rowStride(Dimension rows, Dimension columns);
+
+    public abstract int columnStride(Dimension rows, Dimension columns);
+
+    public int offset()
+    {
+        return 0;
+    }
+
+    /**
+    * Provides the layout of the transposed matrix, i.e., the layout that a {@code columns}-by-{@code rows} view
+    * of the same storage needs to use in order to represent the transpose of the matrix.
+    *
+    * @return the transposed {@link MatrixElementAccess}
+    **/
+    public abstract MatrixElementAccess transpose();
+
+    public int index(Dimension rows, Dimension columns, int row, int column)
+    {
+        return offset() + row*rowStride(rows, columns) + column*columnStride(rows, columns);
+    }
+
+    /**
+    * Determines whether the matrix elements are stored contiguously in column-major order, starting at index zero
+    * (which is the order of {@link top.java.matrix.Matrix#getBuffer()} and {@link top.java.matrix.Matrix#getValues()}).
+    *
+    * @param rows the rows dimension
+    * @param columns the columns dimension
+    * @return {@code true} if the storage can be used without rearranging the elements
+    **/
+    public boolean isColumnMajor(Dimension rows, Dimension columns)
+    {
+        return offset() == 0
+            && (rows.getAsInt() <= 1 || rowStride(rows, columns) == 1)
+            && (columns.getAsInt() <= 1 || columnStride(rows, columns) == rows.getAsInt());
+    }
+
+    public float elementAt(float[] matrix, Dimension rows, Dimension columns, int row, int column)
+    {
+        return matrix[index(rows, columns, row, column)];
+    }
+
+    public float elementAt(FloatBuffer matrix, Dimension rows, Dimension columns, int row, int column)
+    {
+        return matrix.get(index(rows, columns, row, column));
+    }
+
+    /**
+    * Copies the matrix elements from storage into a new array, in column-major order.
+    *
+    * @param matrix the storage
+    * @param rows the rows dimension
+    * @param columns the columns dimension
+    * @return a new array containing the matrix elements in column-major order
+    **/
+    public float[] gather(FloatBuffer matrix, Dimension rows, Dimension columns)
+    {
+        int numberOfRows = rows.getAsInt();
+        int numberOfColumns = columns.getAsInt();
+        int rowStride = rowStride(rows, columns);
+        int columnStride = columnStride(rows, columns);
+        float[] values = new float[numberOfRows*numberOfColumns];
+        for (int column = 0, index = 0; column < numberOfColumns; column++)
+        {
+            int source = offset() + column*columnStride;
+            for (int row = 0; row < numberOfRows; row++, source += rowStride)
+            {
+                values[index++] = matrix.get(source);
+            }
+        }
+        return values;
+    }
+
+    /**
+    * Copies matrix elements that are given in column-major order into storage (the inverse of
+    * {@link #gather(FloatBuffer, Dimension, Dimension)}).
+    *
+    * @param values the matrix elements in column-major order (starting at the buffer's position)
+    * @param matrix the storage
+    * @param rows the rows dimension
+    * @param columns the columns dimension
+    **/
+    public void scatter(FloatBuffer values, FloatBuffer matrix, Dimension rows, Dimension columns)
+    {
+        if (isColumnMajor(rows, columns))
+        {
+            matrix.duplicate().put(values.duplicate());
+            return;
+        }
+        int numberOfRows = rows.getAsInt();
+        int numberOfColumns = columns.getAsInt();
+        int rowStride = rowStride(rows, columns);
+        int columnStride = columnStride(rows, columns);
+        for (int column = 0, index = values.position(); column < numberOfColumns; column++)
+        {
+            int target = offset() + column*columnStride;
+            for (int row = 0; row < numberOfRows; row++, target += rowStride)
+            {
+                matrix.put(target, values.get(index++));
+            }
+        }
+    }
 }
@@ -21,6 +21,13 @@ import top.java.matrix.Matrix;
 import top.java.matrix.MatrixFactory;
 import top.java.matrix.MatrixOperation;
 
+/**
+* {@link MatrixMultiplication} is the base class of all matrix multiplication strategies. Besides computing a
+* new result matrix via {@link #apply(Matrix, Matrix)}, every strategy can write its result into caller-supplied
+* storage via {@link #applyInto(Matrix, Matrix, Matrix)}.
+*
+* @author Mirko Raner
+**/
 public abstract class MatrixMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
 extends MatrixOperation implements BiFunction<Matrix<M, K>, Matrix<K, N>, Matrix<M, N>>
 {
@@ -28,4 +35,82 @@ extends MatrixOperation implements BiFunction<Matrix<M, K>, Matrix<K, N>, Matrix
     {
         super(factory);
     }
+
+    /**
+    * Multiplies two matrices and stores the result in an existing matrix, whose previous contents are overwritten.
+    * The destination may be a view of a larger matrix (e.g., a {@link Matrix#subMatrix(int, int, int, int)
+    * sub-matrix}), but its storage must be writable and must not overlap with either operand. Strategies that
+    * can write directly into the destination override this method to avoid allocating a temporary result; the
+    * default implementation simply copies the result of {@link #apply(Matrix, Matrix)} into the destination's
+    * storage, according to the destination's layout.
+    *
+    * @param left the left-hand side matrix
+    * @param right the right-hand side matrix
+    * @param destination the matrix that receives the result
+    * @return the {@code destination} matrix
+    **/
+    public Matrix<M, N> applyInto(Matrix<M, K> left, Matrix<K, N> right, Matrix<M, N> destination)
+    {
+        checkDestination(left, right, destination);
+        Dimension rows = Dimension.FACTORY.create(destination.getRows());
+        Dimension columns = Dimension.FACTORY.create(destination.getColumns());
+        destination.getElementAccess().scatter(apply(left, right).getBuffer(), destination.getStorage(), rows, columns);
+        return destination;
+    }
+
+    /**
+    * Multiplies two matrices and applies an {@link Epilogue} (bias and activation) to the product. The default
+    * implementation applies the epilogue in a separate pass over the result of {@link #apply(Matrix, Matrix)};
+    * strategies that compute the result in sections override this method and apply the epilogue to each section
+    * as soon as it is complete.
+    *
+    * @param left the left-hand side matrix
+    * @param right the right-hand side matrix
+    * @param epilogue the {@link Epilogue}
+    * @return the result matrix
+    **/
+    public Matrix<M, N> applyFused(Matrix<M, K> left, Matrix<K, N> right, Epilogue epilogue)
+    {
+        epilogue.check(left.getRows());
+        Matrix<M, N> product = apply(left, right);
+        int rows = product.getRows();
+        int columns = product.getColumns();
+        float[] values = product.getValues();
+        epilogue.apply(values, rows, 0, rows, 0, columns);
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), values);
+    }
+
+    /**
+    * Determines whether this multiplication is specific to the storage format of the matrices that register it
+    * (e.g., sparse or half-precision matrices). Strategies that dispatch to other strategies (like
+    * {@link top.java.matrix.operations.multiplication.AdaptiveMultiplication}) always defer to a format-specific
+    * multiplication of either operand, instead of choosing a general-purpose strategy. The default is {@code false}.
+    *
+    * @return {@code true} if the multiplication is format-specific, {@code false} otherwise
+    **/
+    public boolean isFormatSpecific()
+    {
+        return false;
+    }
+
+    /**
+    * Verifies that a destination matrix has the correct dimensions for a product and is not one of the operands.
+    *
+    * @param left the left-hand side matrix
+    * @param right the right-hand side matrix
+    * @param destination the matrix that receives the result
+    * @throws IllegalArgumentException if the destination is not suitable
+    **/
+    protected static void checkDestination(Matrix<?, ?> left, Matrix<?, ?> right, Matrix<?, ?> destination)
+    {
+        if (destination.getRows() != left.getRows() || destination.getColumns() != right.getColumns())
+        {
+            throw new IllegalArgumentException("Destination must be a " + left.getRows() + "x" + right.getColumns()
+                + " matrix but is " + destination.getRows() + "x" + destination.getColumns());
+        }
+        if (destination == left || destination == right)
+        {
+            throw new IllegalArgumentException("Destination must not be one of the operands");
+        }
+    }
 }
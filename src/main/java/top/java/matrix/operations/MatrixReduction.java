@@ -0,0 +1,66 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations;
+
+import top.java.matrix.Dimension;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.MatrixOperation;
+
+/**
+* {@link MatrixReduction} is the base class of all strategies for reducing a matrix, or each of its rows or
+* columns, to a single value (see {@link Reduction}).
+*
+* @param <M> the rows dimension of the matrix
+* @param <N> the columns dimension of the matrix
+*
+* @author Mirko Raner
+**/
+public abstract class MatrixReduction<M extends Dimension, N extends Dimension> extends MatrixOperation
+{
+    protected MatrixReduction(MatrixFactory factory)
+    {
+        super(factory);
+    }
+
+    /**
+    * Reduces all elements of a matrix.
+    *
+    * @param matrix the matrix
+    * @param reduction the {@link Reduction}
+    * @return the result of the reduction
+    **/
+    public abstract float reduce(Matrix<M, N> matrix, Reduction reduction);
+
+    /**
+    * Reduces each column of a matrix.
+    *
+    * @param matrix the matrix
+    * @param reduction the {@link Reduction}
+    * @return a row vector containing the result for each column
+    **/
+    public abstract Matrix<One, N> reduceColumns(Matrix<M, N> matrix, Reduction reduction);
+
+    /**
+    * Reduces each row of a matrix.
+    *
+    * @param matrix the matrix
+    * @param reduction the {@link Reduction}
+    * @return a column vector containing the result for each row
+    **/
+    public abstract Matrix<M, One> reduceRows(Matrix<M, N> matrix, Reduction reduction);
+}
@@ -0,0 +1,77 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations;
+
+import java.util.function.Function;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.MatrixOperation;
+
+/**
+* {@link MatrixTransposition} is the base class of all matrix transposition strategies. Besides computing a new
+* transposed matrix via {@link #apply(Object)}, every strategy can write the transpose into caller-supplied storage
+* via {@link #applyInto(Matrix, Matrix)}.
+*
+* @author Mirko Raner
+**/
+public abstract class MatrixTransposition<M extends Dimension, N extends Dimension>
+extends MatrixOperation implements Function<Matrix<M, N>, Matrix<N, M>>
+{
+    protected MatrixTransposition(MatrixFactory factory)
+    {
+        super(factory);
+    }
+
+    /**
+    * Transposes a matrix into an existing matrix, whose previous contents are overwritten. The destination may be
+    * a view of a larger matrix, but its storage must be writable and must not overlap with the transposed matrix.
+    * The default implementation copies the result of {@link #apply(Object)} into the destination's storage,
+    * according to the destination's layout.
+    *
+    * @param matrix the matrix to be transposed
+    * @param destination the matrix that receives the transpose
+    * @return the {@code destination} matrix
+    **/
+    public Matrix<N, M> applyInto(Matrix<M, N> matrix, Matrix<N, M> destination)
+    {
+        checkDestination(matrix, destination);
+        Dimension rows = Dimension.FACTORY.create(destination.getRows());
+        Dimension columns = Dimension.FACTORY.create(destination.getColumns());
+        destination.getElementAccess().scatter(apply(matrix).getBuffer(), destination.getStorage(), rows, columns);
+        return destination;
+    }
+
+    /**
+    * Verifies that a destination matrix has the correct dimensions for a transpose and is not the matrix itself.
+    *
+    * @param matrix the matrix to be transposed
+    * @param destination the matrix that receives the transpose
+    * @throws IllegalArgumentException if the destination is not suitable
+    **/
+    protected static void checkDestination(Matrix<?, ?> matrix, Matrix<?, ?> destination)
+    {
+        if (destination.getRows() != matrix.getColumns() || destination.getColumns() != matrix.getRows())
+        {
+            throw new IllegalArgumentException("Destination must be a " + matrix.getColumns() + "x" + matrix.getRows()
+                + " matrix but is " + destination.getRows() + "x" + destination.getColumns());
+        }
+        if (destination == matrix)
+        {
+            throw new IllegalArgumentException("Destination must not be the matrix itself");
+        }
+    }
+}
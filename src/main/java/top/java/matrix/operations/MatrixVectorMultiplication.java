@@ -0,0 +1,77 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations;
+
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.MatrixOperation;
+import top.java.matrix.Vector;
+
+/**
+* {@link MatrixVectorMultiplication} is the base class of all strategies for matrix-vector products (GEMV) and
+* dot products. Unlike a general {@link MatrixMultiplication}, these operations read each matrix element exactly
+* once, so they are limited by memory bandwidth rather than by arithmetic, and strategies are expected to read
+* the matrix storage in its natural order.
+*
+* @param <M> the rows dimension of the matrix
+* @param <K> the columns dimension of the matrix
+*
+* @author Mirko Raner
+**/
+public abstract class MatrixVectorMultiplication<M extends Dimension, K extends Dimension> extends MatrixOperation
+{
+    protected MatrixVectorMultiplication(MatrixFactory factory)
+    {
+        super(factory);
+    }
+
+    /**
+    * Multiplies a matrix with a vector.
+    *
+    * @param matrix the matrix
+    * @param vector the vector
+    * @return the product
+    **/
+    public abstract Vector<M> apply(Matrix<M, K> matrix, Vector<K> vector);
+
+    /**
+    * Multiplies the transpose of a matrix with a vector, without transposing the matrix.
+    *
+    * @param matrix the matrix
+    * @param vector the vector
+    * @return the product
+    **/
+    public abstract Vector<K> applyTransposed(Matrix<M, K> matrix, Vector<M> vector);
+
+    /**
+    * Computes the dot product of two vectors.
+    *
+    * @param left the left vector
+    * @param right the right vector
+    * @param <D> the dimension of the vectors
+    * @return the dot product
+    **/
+    public abstract <D extends Dimension> float dot(Vector<D> left, Vector<D> right);
+
+    protected static void checkSize(int expected, int actual)
+    {
+        if (expected != actual)
+        {
+            throw new IllegalArgumentException("Expected vector of size " + expected + " but got size " + actual);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations;
+
+/**
+* {@link Reduction} describes how the elements of a matrix (or of its rows or columns) are combined into a single
+* value. Partial results are accumulated in double precision and converted to {@code float} only at the end, so
+* that sums and norms of large matrices do not lose precision.
+*
+* @author Mirko Raner
+**/
+public enum Reduction
+{
+    SUM
+    {
+        @Override
+        public double accumulate(double accumulator, float[] values, int index, int length)
+        {
+            for (int end = index + length; index < end; index++)
+            {
+                accumulator += values[index];
+            }
+            return accumulator;
+        }
+
+        @Override
+        public void accumulate(double[] accumulators, float[] values, int index, int length)
+        {
+            for (int element = 0; element < length; element++)
+            {
+                accumulators[element] += values[index + element];
+            }
+        }
+
+        @Override
+        public double combine(double left, double right)
+        {
+            return left + right;
+        }
+    },
+
+    MINIMUM
+    {
+        @Override
+        public double identity()
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        @Override
+        public double accumulate(double accumulator, float[] values, int index, int length)
+        {
+            float minimum = (float)accumulator;
+            for (int end = index + length; index < end; index++)
+            {
+                minimum = Math.min(minimum, values[index]);
+            }
+            return minimum;
+        }
+
+        @Override
+        public void accumulate(double[] accumulators, float[] values, int index, int length)
+        {
+            for (int element = 0; element < length; element++)
+            {
+                accumulators[element] = Math.min(accumulators[element], values[index + element]);
+            }
+        }
+
+        @Override
+        public double combine(double left, double right)
+        {
+            return Math.min(left, right);
+        }
+    },
+
+    MAXIMUM
+    {
+        @Override
+        public double identity()
+        {
+            return Double.NEGATIVE_INFINITY;
+        }
+
+        @Override
+        public double accumulate(double accumulator, float[] values, int index, int length)
+        {
+            float maximum = (float)accumulator;
+            for (int end = index + length; index < end; index++)
+            {
+                maximum = Math.max(maximum, values[index]);
+            }
+            return maximum;
+        }
+
+        @Override
+        public void accumulate(double[] accumulators, float[] values, int index, int length)
+        {
+            for (int element = 0; element < length; element++)
+            {
+                accumulators[element] = Math.max(accumulators[element], values[index + element]);
+            }
+        }
+
+        @Override
+        public double combine(double left, double right)
+        {
+            return Math.max(left, right);
+        }
+    },
+
+    /**
+    * The Euclidean norm (i.e., the Frobenius norm when reducing the whole matrix).
+    **/
+    NORM
+    {
+        @Override
+        public double accumulate(double accumulator, float[] values, int index, int length)
+        {
+            for (int end = index + length; index < end; index++)
+            {
+                accumulator += (double)values[index]*values[index];
+            }
+            return accumulator;
+        }
+
+        @Override
+        public void accumulate(double[] accumulators, float[] values, int index, int length)
+        {
+            for (int element = 0; element < length; element++)
+            {
+                float value = values[index + element];
+                accumulators[element] += (double)value*value;
+            }
+        }
+
+        @Override
+        public double combine(double left, double right)
+        {
+            return left + right;
+        }
+
+        @Override
+        public float finish(double accumulator)
+        {
+            return (float)Math.sqrt(accumulator);
+        }
+    };
+
+    /**
+    * Provides the initial value of an accumulator.
+    *
+    * @return the result of reducing zero elements
+    **/
+    public double identity()
+    {
+        return 0;
+    }
+
+    /**
+    * Adds a range of elements to an accumulator.
+    *
+    * @param accumulator the accumulator
+    * @param values the elements
+    * @param index the index of the first element
+    * @param length the number of elements
+    * @return the new value of the accumulator
+    **/
+    public abstract double accumulate(double accumulator, float[] values, int index, int length);
+
+    /**
+    * Adds a range of elements to an equally long range of accumulators (one element per accumulator).
+    *
+    * @param accumulators the accumulators (starting at index zero)
+    * @param values the elements
+    * @param index the index of the first element
+    * @param length the number of elements (and accumulators)
+    **/
+    public abstract void accumulate(double[] accumulators, float[] values, int index, int length);
+
+    /**
+    * Combines two partial results.
+    *
+    * @param left the first partial result
+    * @param right the second partial result
+    * @return the combined result
+    **/
+    public abstract double combine(double left, double right);
+
+    /**
+    * Converts an accumulator into the final result.
+    *
+    * @param accumulator the accumulator
+    * @return the result of the reduction
+    **/
+    public float finish(double accumulator)
+    {
+        return (float)accumulator;
+    }
+}
@@ -1,9 +1,16 @@
 package top.java.matrix.operations.access;
 
+import java.nio.FloatBuffer;
 import top.java.matrix.Dimension;
 import top.java.matrix.MatrixFactory;
 import top.java.matrix.operations.MatrixElementAccess;
 
+/**
+* {@link DirectElementAccess} accesses matrix elements that are stored contiguously in column-major order.
+* This is the default layout of all matrices.
+*
+* @author Mirko Raner
+**/
 public class DirectElementAccess extends MatrixElementAccess
 {
     public DirectElementAccess(MatrixFactory factory)
@@ -11,9 +18,39 @@ public class DirectElementAccess extends MatrixElementAccess
         super(factory);
     }
 
+    @Override
+    public int rowStride(Dimension rows, Dimension columns)
+    {
+        return 1;
+    }
+
+    @Override
+    public int columnStride(Dimension rows, Dimension columns)
+    {
+        return rows.getAsInt();
+    }
+
+    @Override
+    public MatrixElementAccess transpose()
+    {
+        return new RowMajorElementAccess(factory);
+    }
+
+    @Override
+    public boolean isColumnMajor(Dimension rows, Dimension columns)
+    {
+        return true;
+    }
+
     @Override
     public float elementAt(float[] matrix, Dimension rows, Dimension columns, int row, int column)
     {
         return matrix[row + column*rows.getAsInt()];
     }
+
+    @Override
+    public float elementAt(FloatBuffer matrix, Dimension rows, Dimension columns, int row, int column)
+    {
+        return matrix.get(row + column*rows.getAsInt());
+    }
 }
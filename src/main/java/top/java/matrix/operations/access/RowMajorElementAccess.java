@@ -0,0 +1,50 @@
+package top.java.matrix.operations.access;
+
+import java.nio.FloatBuffer;
+import top.java.matrix.Dimension;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.operations.MatrixElementAccess;
+
+/**
+* {@link RowMajorElementAccess} accesses matrix elements that are stored contiguously in row-major order.
+* This is also the layout of a transposed view of a column-major matrix.
+*
+* @author Mirko Raner
+**/
+public class RowMajorElementAccess extends MatrixElementAccess
+{
+    public RowMajorElementAccess(MatrixFactory factory)
+    {
+        super(factory);
+    }
+
+    @Override
+    public int rowStride(Dimension rows, Dimension columns)
+    {
+        return columns.getAsInt();
+    }
+
+    @Override
+    public int columnStride(Dimension rows, Dimension columns)
+    {
+        return 1;
+    }
+
+    @Override
+    public MatrixElementAccess transpose()
+    {
+        return new DirectElementAccess(factory);
+    }
+
+    @Override
+    public float elementAt(float[] matrix, Dimension rows, Dimension columns, int row, int column)
+    {
+        return matrix[row*columns.getAsInt() + column];
+    }
+
+    @Override
+    public float elementAt(FloatBuffer matrix, Dimension rows, Dimension columns, int row, int column)
+    {
+        return matrix.get(row*columns.getAsInt() + column);
+    }
+}
@@ -0,0 +1,63 @@
+package top.java.matrix.operations.access;
+
+import top.java.matrix.Dimension;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.operations.MatrixElementAccess;
+
+/**
+* {@link StridedElementAccess} accesses matrix elements with a fixed offset and fixed strides, independent of the
+* matrix dimensions. This is the layout of views that cover only part of another matrix's storage (for example,
+* a sub-matrix or a single row or column).
+*
+* @author Mirko Raner
+**/
+public class StridedElementAccess extends MatrixElementAccess
+{
+    private final int offset;
+    private final int rowStride;
+    private final int columnStride;
+
+    /**
+    * Creates a new {@link StridedElementAccess}.
+    *
+    * @param factory the matrix factory
+    * @param offset the storage index of the element (0, 0)
+    * @param rowStride the distance between the storage indices of two vertically adjacent elements
+    * @param columnStride the distance between the storage indices of two horizontally adjacent elements
+    **/
+    public StridedElementAccess(MatrixFactory factory, int offset, int rowStride, int columnStride)
+    {
+        super(factory);
+        if (offset < 0 || rowStride < 0 || columnStride < 0)
+        {
+            throw new IllegalArgumentException("Offset and strides must not be negative");
+        }
+        this.offset = offset;
+        this.rowStride = rowStride;
+        this.columnStride = columnStride;
+    }
+
+    @Override
+    public int rowStride(Dimension rows, Dimension columns)
+    {
+        return rowStride;
+    }
+
+    @Override
+    public int columnStride(Dimension rows, Dimension columns)
+    {
+        return columnStride;
+    }
+
+    @Override
+    public int offset()
+    {
+        return offset;
+    }
+
+    @Override
+    public MatrixElementAccess transpose()
+    {
+        return new StridedElementAccess(factory, offset, columnStride, rowStride);
+    }
+}
@@ -0,0 +1,211 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.elementwise;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import top.java.matrix.Dimension;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.operations.ElementwiseOperation;
+import top.java.matrix.util.FloatBinaryOperator;
+import top.java.matrix.util.FloatUnaryOperator;
+
+/**
+* {@link ParallelElementwise} performs element-wise operations on the column-major elements of the operands,
+* splitting large matrices into ranges of columns that are processed in parallel by a {@link ForkJoinPool}.
+* Each range is processed by a single call of the bulk methods of {@link FloatUnaryOperator} or
+* {@link FloatBinaryOperator}, so functions with specialized bulk loops (e.g.,
+* {@link top.java.matrix.operations.Activation} or {@link top.java.matrix.operations.Arithmetic}) are applied
+* without a virtual call per element. Results are written directly into destinations that are stored in
+* heap arrays in column-major order (including the operands themselves).
+*
+* @param <M> the rows dimension of the operands
+* @param <N> the columns dimension of the operands
+*
+* @author Mirko Raner
+**/
+public class ParallelElementwise<M extends Dimension, N extends Dimension> extends ElementwiseOperation<M, N>
+{
+    /**
+    * The number of elements below which a range of columns is not split any further.
+    **/
+    public final static int SEQUENTIAL_THRESHOLD = 1 << 15;
+
+    private final ForkJoinPool pool;
+
+    public ParallelElementwise(MatrixFactory factory)
+    {
+        this(factory, ForkJoinPool.commonPool());
+    }
+
+    public ParallelElementwise(MatrixFactory factory, ForkJoinPool pool)
+    {
+        super(factory);
+        this.pool = pool;
+    }
+
+    @Override
+    public Matrix<M, N> map(Matrix<M, N> matrix, FloatUnaryOperator function)
+    {
+        float[] result = new float[matrix.getRows()*matrix.getColumns()];
+        map(matrix, function, result);
+        return create(matrix, result);
+    }
+
+    @Override
+    public Matrix<M, N> combine(Matrix<M, N> left, Matrix<M, N> right, FloatBinaryOperator function)
+    {
+        checkShape(left, right);
+        float[] result = new float[left.getRows()*left.getColumns()];
+        combine(left, right, function, result);
+        return create(left, result);
+    }
+
+    @Override
+    public Matrix<M, N> combineColumn(Matrix<M, N> left, Matrix<M, One> column, FloatBinaryOperator function)
+    {
+        checkShape(left.column(0), column);
+        float[] A = left.getValues();
+        float[] B = column.getValues();
+        int rows = left.getRows();
+        float[] result = new float[A.length];
+        parallel(rows, left.getColumns(), (first, last) ->
+        {
+            for (int x = first; x < last; x++)
+            {
+                function.applyAsFloat(A, x*rows, B, 0, result, x*rows, rows);
+            }
+        });
+        return create(left, result);
+    }
+
+    @Override
+    public Matrix<M, N> combineRow(Matrix<M, N> left, Matrix<One, N> row, FloatBinaryOperator function)
+    {
+        checkShape(left.row(0), row);
+        float[] A = left.getValues();
+        float[] B = row.getValues();
+        int rows = left.getRows();
+        float[] result = new float[A.length];
+        parallel(rows, left.getColumns(), (first, last) ->
+        {
+            for (int x = first; x < last; x++)
+            {
+                function.applyAsFloat(A, x*rows, B[x], result, x*rows, rows);
+            }
+        });
+        return create(left, result);
+    }
+
+    @Override
+    public Matrix<M, N> mapInto(Matrix<M, N> matrix, FloatUnaryOperator function, Matrix<M, N> destination)
+    {
+        checkShape(matrix, destination);
+        float[] result = array(destination.getBuffer());
+        if (result == null)
+        {
+            return super.mapInto(matrix, function, destination);
+        }
+        map(matrix, function, result);
+        return destination;
+    }
+
+    @Override
+    public Matrix<M, N> combineInto(Matrix<M, N> left, Matrix<M, N> right, FloatBinaryOperator function,
+        Matrix<M, N> destination)
+    {
+        checkShape(left, right);
+        checkShape(left, destination);
+        float[] result = array(destination.getBuffer());
+        if (result == null)
+        {
+            return super.combineInto(left, right, function, destination);
+        }
+        combine(left, right, function, result);
+        return destination;
+    }
+
+    private void map(Matrix<M, N> matrix, FloatUnaryOperator function, float[] result)
+    {
+        float[] A = matrix.getValues();
+        int rows = matrix.getRows();
+        parallel(rows, matrix.getColumns(), (first, last) ->
+            function.applyAsFloat(A, first*rows, result, first*rows, (last - first)*rows));
+    }
+
+    private void combine(Matrix<M, N> left, Matrix<M, N> right, FloatBinaryOperator function, float[] result)
+    {
+        float[] A = left.getValues();
+        float[] B = right.getValues();
+        int rows = left.getRows();
+        parallel(rows, left.getColumns(), (first, last) ->
+            function.applyAsFloat(A, first*rows, B, first*rows, result, first*rows, (last - first)*rows));
+    }
+
+    private Matrix<M, N> create(Matrix<M, N> shape, float[] values)
+    {
+        return factory.create(Dimension.FACTORY.create(shape.getRows()), Dimension.FACTORY.create(shape.getColumns()), values);
+    }
+
+    private void parallel(int rows, int columns, ColumnRange body)
+    {
+        if (columns > 0)
+        {
+            pool.invoke(new Columns(body, rows, 0, columns));
+        }
+    }
+
+    /**
+    * A {@link ColumnRange} processes the columns from {@code first} (inclusive) to {@code last} (exclusive).
+    **/
+    @FunctionalInterface
+    private static interface ColumnRange
+    {
+        void accept(int first, int last);
+    }
+
+    private static class Columns extends RecursiveAction
+    {
+        private final static long serialVersionUID = 4520731894853526093L;
+
+        private final ColumnRange body;
+        private final int rows;
+        private final int first;
+        private final int last;
+
+        Columns(ColumnRange body, int rows, int first, int last)
+        {
+            this.body = body;
+            this.rows = rows;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (last - first > 1 && (long)(last - first)*rows > SEQUENTIAL_THRESHOLD)
+            {
+                int split = (first + last) >>> 1;
+                invokeAll(new Columns(body, rows, first, split), new Columns(body, rows, split, last));
+                return;
+            }
+            body.accept(first, last);
+        }
+    }
+}
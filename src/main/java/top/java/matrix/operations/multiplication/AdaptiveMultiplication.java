@@ -0,0 +1,537 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import com.aparapi.device.Device;
+import com.aparapi.internal.exception.AparapiException;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.internal.opencl.OpenCLException;
+import top.java.matrix.operations.Epilogue;
+import top.java.matrix.operations.MatrixMultiplication;
+
+/**
+* {@link AdaptiveMultiplication} is a {@link MatrixMultiplication} that dispatches to one of several registered
+* multiplication strategies, depending on the shape of the operands. Tiny multiplications always use the scalar
+* {@link BasicMultiplication}. For all other multiplications, the strategy is chosen from a tuning table that
+* is keyed by the rounded logarithm of each dimension. The tuning table is populated by explicit calibration
+* (see {@link #calibrate(int, int, int)}) and by the timings of all multiplications performed so far. The table is
+* persisted in a properties file by {@link #calibrate(int, int, int)}, {@link #save()} and {@link #close()}, or at
+* JVM shutdown if requested via {@link #saveOnExit()} (but never during a multiplication), so that later JVM runs
+* can start with the best known strategy; entries that other instances have written to the same file in the
+* meantime are retained. Shapes that are not in the tuning table use {@link BlockedMultiplication} (or a tiled GPU kernel if a GPU is available), except
+* for matrix-vector products (with a single-column right operand), which use {@link VectorMultiplication}.
+*
+* If the registered multiplication of either operand (see {@link Matrix#getMultiplication()}) is specific to its
+* storage format (see {@link MatrixMultiplication#isFormatSpecific()}), that multiplication is always used, and the
+* left operand's takes precedence. This is how, e.g., products with a sparse operand are performed by
+* {@link SparseMultiplication}, and products with a double-precision, half-precision or quantized operand by
+* {@link DoubleMultiplication}, {@link HalfMultiplication} or {@link QuantizedMultiplication}.
+*
+* Strategies that are a poor fit for a particular shape (e.g., {@link TiledFastMultiplication} with dimensions that
+* would require too much padding) are never selected for that shape, and strategies whose native backend fails
+* (e.g., because no OpenCL runtime is installed) are permanently excluded after their first failure. All other
+* failures, in particular those caused by invalid arguments, are propagated unchanged and do not affect the
+* selection of strategies.
+*
+* By default, the tuning table is stored in the file specified by the {@value #TUNING_TABLE_PROPERTY} system
+* property, or in {@code ~/.top.java.matrix/tuning.properties} if the property is not set.
+*
+* @author Mirko Raner
+**/
+public class AdaptiveMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+extends MatrixMultiplication<M, N, K> implements AutoCloseable
+{
+    public final static String TUNING_TABLE_PROPERTY = "top.java.matrix.tuning";
+
+    public final static String SCALAR = "basic";
+    public final static String BLOCKED = "blocked";
+    public final static String VECTOR = "gemv";
+
+    /**
+    * Multiplications with at most this many scalar multiplications are always performed by the scalar strategy.
+    **/
+    public final static long SCALAR_LIMIT = 32*32*32;
+
+    private final static int CALIBRATION_RUNS = 3;
+
+    // Instances that share a tuning table file must not replace the file concurrently:
+    //
+    private final static Object SAVE_LOCK = new Object();
+
+    private final Map<String, MatrixMultiplication<M, N, K>> strategies = new LinkedHashMap<>();
+    private final Set<String> disabled = ConcurrentHashMap.newKeySet();
+    private final Map<String, Double> timings = new ConcurrentHashMap<>();
+    private final Properties table = new Properties();
+    private final Path tableFile;
+    private volatile Boolean gpu;
+
+    /**
+    * Creates a new {@link AdaptiveMultiplication} with the default strategies and the default tuning table.
+    *
+    * @param factory the {@link MatrixFactory} for creating result matrices
+    **/
+    public AdaptiveMultiplication(MatrixFactory factory)
+    {
+        this(factory, defaultTableFile());
+        register("fast", new FastMultiplication<>(factory));
+        register("tiled-5", new TiledFastMultiplication<>(factory, 5));
+        register("tiled-10", new TiledFastMultiplication<>(factory, 10));
+        register("tiled-16", new TiledFastMultiplication<>(factory, 16));
+        register("register-4x4", new RegisterBlockedMultiplication<>(factory, RegisterBlockedMultiplication.Block.FOUR_BY_FOUR));
+        register("register-8x1", new RegisterBlockedMultiplication<>(factory, RegisterBlockedMultiplication.Block.EIGHT_BY_ONE));
+    }
+
+    /**
+    * Creates a new {@link AdaptiveMultiplication} that only knows the {@link #SCALAR} and {@link #BLOCKED}
+    * strategies; additional strategies can be added via {@link #register(String, MatrixMultiplication)}.
+    *
+    * @param factory the {@link MatrixFactory} for creating result matrices
+    * @param tableFile the file that stores the tuning table, or {@code null} if the table should not be persisted
+    **/
+    public AdaptiveMultiplication(MatrixFactory factory, Path tableFile)
+    {
+        super(factory);
+        this.tableFile = tableFile;
+        register(SCALAR, new BasicMultiplication<>(factory));
+        register(BLOCKED, new BlockedMultiplication<>(factory));
+        register(VECTOR, new VectorMultiplication<>(factory));
+        if (tableFile != null && Files.isReadable(tableFile))
+        {
+            try (InputStream stream = Files.newInputStream(tableFile))
+            {
+                table.load(stream);
+            }
+            catch (IOException | IllegalArgumentException exception)
+            {
+                // A corrupted tuning table is not fatal; the table will simply be rebuilt
+            }
+        }
+    }
+
+    /**
+    * Registers an additional multiplication strategy.
+    *
+    * @param name the name of the strategy (as used in the tuning table)
+    * @param strategy the {@link MatrixMultiplication} strategy
+    * @return this {@link AdaptiveMultiplication}, for chaining
+    **/
+    public AdaptiveMultiplication<M, N, K> register(String name, MatrixMultiplication<M, N, K> strategy)
+    {
+        strategies.put(name, strategy);
+        return this;
+    }
+
+    /**
+    * Arranges for the tuning table to be written to its file when the JVM shuts down. This is intended for shared
+    * instances that are never closed (e.g., the default multiplication of
+    * {@link top.java.matrix.internal.StandardMatrix}), so that the timings of all multiplications they performed
+    * benefit later JVM runs.
+    *
+    * @return this {@link AdaptiveMultiplication}, for chaining
+    **/
+    public AdaptiveMultiplication<M, N, K> saveOnExit()
+    {
+        if (tableFile != null)
+        {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::persist, "Saving " + tableFile));
+        }
+        return this;
+    }
+
+    /**
+    * Writes the tuning table to its file and closes all registered strategies that hold resources (e.g., pooled
+    * GPU kernels).
+    **/
+    @Override
+    public void close()
+    {
+        persist();
+        for (MatrixMultiplication<M, N, K> strategy: strategies.values())
+        {
+            if (strategy instanceof AutoCloseable)
+            {
+                try
+                {
+                    ((AutoCloseable)strategy).close();
+                }
+                catch (Exception exception)
+                {
+                    throw new IllegalStateException(exception);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+    {
+        return multiply(left, right, null, null);
+    }
+
+    @Override
+    public Matrix<M, N> applyInto(Matrix<M, K> left, Matrix<K, N> right, Matrix<M, N> destination)
+    {
+        checkDestination(left, right, destination);
+        return multiply(left, right, destination, null);
+    }
+
+    @Override
+    public Matrix<M, N> applyFused(Matrix<M, K> left, Matrix<K, N> right, Epilogue epilogue)
+    {
+        epilogue.check(left.getRows());
+        return multiply(left, right, null, epilogue);
+    }
+
+    /**
+    * Determines the strategy that will be used for a multiplication of the given shape.
+    *
+    * @param rows the number of rows of the left matrix
+    * @param depth the number of columns of the left matrix (and rows of the right matrix)
+    * @param columns the number of columns of the right matrix
+    * @return the name of the selected strategy
+    **/
+    public String select(int rows, int depth, int columns)
+    {
+        if ((long)rows*depth*columns <= SCALAR_LIMIT)
+        {
+            return SCALAR;
+        }
+        String tuned = table.getProperty(bucket(rows, depth, columns));
+        if (tuned != null && applicable(tuned, rows, depth, columns))
+        {
+            return tuned;
+        }
+        if (columns == 1 && applicable(VECTOR, rows, depth, columns))
+        {
+            return VECTOR;
+        }
+        if (gpuAvailable())
+        {
+            for (String name: new String[] {"tiled-16", "tiled-10", "tiled-5", "fast"})
+            {
+                if (applicable(name, rows, depth, columns))
+                {
+                    return name;
+                }
+            }
+        }
+        return BLOCKED;
+    }
+
+    /**
+    * Measures all applicable strategies for a particular shape (using random matrices) and records the fastest
+    * one in the tuning table. Note that calibration can take a long time if some strategies are very slow for the
+    * given shape (e.g., GPU strategies that fall back to a Java thread pool).
+    *
+    * @param rows the number of rows of the left matrix
+    * @param depth the number of columns of the left matrix (and rows of the right matrix)
+    * @param columns the number of columns of the right matrix
+    * @return the name of the fastest strategy
+    **/
+    public String calibrate(int rows, int depth, int columns)
+    {
+        Matrix<M, K> left = random(rows, depth);
+        Matrix<K, N> right = random(depth, columns);
+        for (String name: strategies.keySet())
+        {
+            if (applicable(name, rows, depth, columns))
+            {
+                try
+                {
+                    strategies.get(name).apply(left, right);
+                    long best = Long.MAX_VALUE;
+                    for (int run = 0; run < CALIBRATION_RUNS; run++)
+                    {
+                        long start = System.nanoTime();
+                        strategies.get(name).apply(left, right);
+                        best = Math.min(best, System.nanoTime() - start);
+                    }
+                    timings.put(name + '@' + bucket(rows, depth, columns), (double)best/operations(rows, depth, columns));
+                }
+                catch (RuntimeException | LinkageError failure)
+                {
+                    // A strategy that cannot multiply valid operands is not timed for this shape, but it is only
+                    // excluded altogether if its backend is unavailable:
+                    //
+                    if (backendFailure(failure))
+                    {
+                        disabled.add(name);
+                    }
+                }
+            }
+        }
+        String best = update(rows, depth, columns);
+        persist();
+        return best;
+    }
+
+    /**
+    * Writes the tuning table to its file. The entries of this instance are merged with the current contents of the
+    * file, so that entries for other shapes that were written by other instances (or other JVMs) are retained.
+    *
+    * @throws IOException if the tuning table could not be written
+    **/
+    public void save() throws IOException
+    {
+        if (tableFile == null)
+        {
+            return;
+        }
+        synchronized (SAVE_LOCK)
+        {
+            Properties merged = new Properties();
+            if (Files.isReadable(tableFile))
+            {
+                try (InputStream stream = Files.newInputStream(tableFile))
+                {
+                    merged.load(stream);
+                }
+                catch (IllegalArgumentException corrupted)
+                {
+                    // A corrupted tuning table is simply replaced
+                }
+            }
+            merged.putAll(table);
+            Path directory = tableFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, tableFile.getFileName().toString(), ".tmp");
+            try
+            {
+                try (OutputStream stream = Files.newOutputStream(temporary))
+                {
+                    merged.store(stream, "top.java.matrix multiplication tuning table");
+                }
+                Files.move(temporary, tableFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            finally
+            {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    private Matrix<M, N> multiply(Matrix<M, K> left, Matrix<K, N> right, Matrix<M, N> destination, Epilogue epilogue)
+    {
+        if (left.getColumns() != right.getRows())
+        {
+            throw new IllegalArgumentException("Cannot multiply " + left.getRows() + "x" + left.getColumns()
+                + " matrix by " + right.getRows() + "x" + right.getColumns() + " matrix");
+        }
+        MatrixMultiplication<M, N, K> specific = formatSpecific(left);
+        if (specific == null)
+        {
+            specific = formatSpecific(right);
+        }
+        if (specific != null)
+        {
+            return run(specific, left, right, destination, epilogue);
+        }
+        int rows = left.getRows();
+        int depth = left.getColumns();
+        int columns = right.getColumns();
+        String name = select(rows, depth, columns);
+        try
+        {
+            return measure(name, left, right, destination, epilogue);
+        }
+        catch (RuntimeException | LinkageError failure)
+        {
+            if (SCALAR.equals(name) || BLOCKED.equals(name) || !backendFailure(failure))
+            {
+                throw failure;
+            }
+            disabled.add(name);
+            return multiply(left, right, destination, epilogue);
+        }
+    }
+
+    private Matrix<M, N> measure(String name, Matrix<M, K> left, Matrix<K, N> right, Matrix<M, N> destination,
+        Epilogue epilogue)
+    {
+        long start = System.nanoTime();
+        Matrix<M, N> result = run(strategies.get(name), left, right, destination, epilogue);
+        long time = System.nanoTime() - start;
+        int rows = left.getRows();
+        int depth = left.getColumns();
+        int columns = right.getColumns();
+        if (!SCALAR.equals(name) || (long)rows*depth*columns > SCALAR_LIMIT)
+        {
+            // Average the time per scalar multiplication, giving more weight to recent measurements:
+            //
+            double current = (double)time/operations(rows, depth, columns);
+            timings.merge(name + '@' + bucket(rows, depth, columns), current, (old, now) -> (3*old + now)/4);
+            update(rows, depth, columns);
+        }
+        return result;
+    }
+
+    // An operand's own multiplication is only used if it is specific to the operand's storage format:
+    //
+    private MatrixMultiplication<M, N, K> formatSpecific(Matrix<?, ?> operand)
+    {
+        @SuppressWarnings("unchecked")
+        MatrixMultiplication<M, N, K> multiplication = (MatrixMultiplication<M, N, K>)operand.getMultiplication();
+        return multiplication != null && multiplication.isFormatSpecific()? multiplication:null;
+    }
+
+    // Performs a multiplication with a particular strategy; a destination and an epilogue are never used together:
+    //
+    private Matrix<M, N> run(MatrixMultiplication<M, N, K> strategy, Matrix<M, K> left, Matrix<K, N> right,
+        Matrix<M, N> destination, Epilogue epilogue)
+    {
+        if (epilogue != null)
+        {
+            return strategy.applyFused(left, right, epilogue);
+        }
+        return destination == null? strategy.apply(left, right):strategy.applyInto(left, right, destination);
+    }
+
+    private String update(int rows, int depth, int columns)
+    {
+        String bucket = bucket(rows, depth, columns);
+        String best = null;
+        double bestTiming = Double.MAX_VALUE;
+        for (String name: strategies.keySet())
+        {
+            Double timing = timings.get(name + '@' + bucket);
+            if (timing != null && timing < bestTiming && !disabled.contains(name))
+            {
+                best = name;
+                bestTiming = timing;
+            }
+        }
+        if (best != null)
+        {
+            table.setProperty(bucket, best);
+        }
+        return best;
+    }
+
+    private void persist()
+    {
+        try
+        {
+            save();
+        }
+        catch (IOException exception)
+        {
+            // Failure to persist the tuning table only affects the performance of future JVM runs
+        }
+    }
+
+    // Only failures of a native backend (e.g., a missing OpenCL runtime or an Aparapi kernel that cannot be
+    // compiled) exclude a strategy; the cause chain is searched because backends may wrap such failures:
+    //
+    private static boolean backendFailure(Throwable failure)
+    {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause())
+        {
+            if (cause instanceof LinkageError || cause instanceof OpenCLException || cause instanceof AparapiException)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean applicable(String name, int rows, int depth, int columns)
+    {
+        MatrixMultiplication<M, N, K> strategy = strategies.get(name);
+        if (strategy == null || disabled.contains(name))
+        {
+            return false;
+        }
+        if (strategy instanceof TiledFastMultiplication)
+        {
+            return ((TiledFastMultiplication<M, N, K>)strategy).supports(rows, depth, columns);
+        }
+        if (strategy instanceof VectorMultiplication)
+        {
+            return columns == 1;
+        }
+        return true;
+    }
+
+    // Device.best() is only deprecated in favor of Aparapi's internal KernelManager API:
+    //
+    @SuppressWarnings("deprecation")
+    private boolean gpuAvailable()
+    {
+        if (gpu == null)
+        {
+            try
+            {
+                gpu = Device.best().getType() == Device.TYPE.GPU;
+            }
+            catch (RuntimeException | LinkageError noOpenCL)
+            {
+                gpu = false;
+            }
+        }
+        return gpu;
+    }
+
+    private <R extends Dimension, C extends Dimension> Matrix<R, C> random(int rows, int columns)
+    {
+        Random random = new Random(rows*31 + columns);
+        float[] values = new float[rows*columns];
+        for (int index = 0; index < values.length; index++)
+        {
+            values[index] = random.nextFloat();
+        }
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), values);
+    }
+
+    private static String bucket(int rows, int depth, int columns)
+    {
+        return log2(rows) + "." + log2(depth) + "." + log2(columns);
+    }
+
+    private static int log2(int value)
+    {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(value - 1, 0));
+    }
+
+    private static double operations(int rows, int depth, int columns)
+    {
+        return Math.max(1D, (double)rows*depth*columns);
+    }
+
+    private static Path defaultTableFile()
+    {
+        String property = System.getProperty(TUNING_TABLE_PROPERTY);
+        if (property != null)
+        {
+            return property.isEmpty()? null:Paths.get(property);
+        }
+        return Paths.get(System.getProperty("user.home"), ".top.java.matrix", "tuning.properties");
+    }
+}
@@ -15,23 +15,53 @@
 //                                                                          //
 package top.java.matrix.operations.multiplication;
 
+import java.util.Arrays;
 import top.java.matrix.Dimension;
 import top.java.matrix.Matrix;
 import top.java.matrix.MatrixFactory;
 import top.java.matrix.operations.MatrixMultiplication;
 
 /**
-* Basic matrix multiplication coded in plain Java. Dead slow but easy to understand and
-* very straightforward.
+* Basic matrix multiplication coded in plain Java. Easy to understand and very straightforward.
+* <br>
+* <br>
+* The inner loop runs over the raw column-major arrays and computes one column of the result as a sequence of
+* scaled column additions ({@code C[:,x] += A[:,z]*B[z,x]}). All accesses in this loop are sequential and free of
+* loop-carried dependencies, which allows the JIT compiler to translate it into SIMD instructions (SSE, AVX2 or
+* AVX-512, depending on the host). Products are accumulated in {@code float} by default; for ill-conditioned
+* inputs, {@link Accumulation#DOUBLE} or {@link Accumulation#COMPENSATED} (Kahan) summation can be selected.
 *
 * @author Mirko Raner
 **/
 public class BasicMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
 extends MatrixMultiplication<M, N, K>
 {
+    /**
+    * The {@link Accumulation} determines how the partial sums of the dot products are accumulated.
+    **/
+    public static enum Accumulation
+    {
+        /** Accumulates in {@code float} (fastest). **/
+        FLOAT,
+
+        /** Accumulates in {@code double} and rounds to {@code float} once at the end. **/
+        DOUBLE,
+
+        /** Accumulates in {@code float} with Kahan compensation of the rounding error. **/
+        COMPENSATED
+    }
+
+    private final Accumulation accumulation;
+
     public BasicMultiplication(MatrixFactory factory)
+    {
+        this(factory, Accumulation.FLOAT);
+    }
+
+    public BasicMultiplication(MatrixFactory factory, Accumulation accumulation)
     {
         super(factory);
+        this.accumulation = accumulation;
     }
 
     @Override
@@ -39,7 +69,8 @@ extends MatrixMultiplication<M, N, K>
     {
         int rows = left.getRows();
         int columns = left.getColumns();
-        float[] matrix = left.getValues();
+        float[] A = left.getValues();
+        float[] B = right.getValues();
 
         // Multiplication example:
         //
@@ -53,19 +84,103 @@ extends MatrixMultiplication<M, N, K>
         //                  ⎣x y⎦
         //
         int dimension = right.getColumns();
-        float[] result = new float[rows*dimension];
+        float[] C = new float[rows*dimension];
+        multiply(A, B, C, rows, columns, dimension);
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(dimension), C);
+    }
+
+    @Override
+    public Matrix<M, N> applyInto(Matrix<M, K> left, Matrix<K, N> right, Matrix<M, N> destination)
+    {
+        checkDestination(left, right, destination);
+        float[] C = array(destination.getBuffer());
+        if (C == null)
+        {
+            return super.applyInto(left, right, destination);
+        }
+        int rows = left.getRows();
+        int dimension = right.getColumns();
+        Arrays.fill(C, 0, rows*dimension, 0);
+        multiply(left.getValues(), right.getValues(), C, rows, left.getColumns(), dimension);
+        return destination;
+    }
+
+    // Adds the product to C, which is expected to contain only zeros:
+    //
+    private void multiply(float[] A, float[] B, float[] C, int rows, int columns, int dimension)
+    {
+        switch (accumulation)
+        {
+            case DOUBLE:
+                multiplyDouble(A, B, C, rows, columns, dimension);
+                break;
+            case COMPENSATED:
+                multiplyCompensated(A, B, C, rows, columns, dimension);
+                break;
+            default:
+                multiplyFloat(A, B, C, rows, columns, dimension);
+        }
+    }
+
+    private static void multiplyFloat(float[] A, float[] B, float[] C, int rows, int columns, int dimension)
+    {
         for (int x = 0; x < dimension; x++) // columns
         {
-            for (int y = 0; y < rows; y++) // rows
+            int target = x*rows;
+            for (int z = 0; z < columns; z++)
+            {
+                float b = B[z + x*columns];
+                int source = z*rows;
+                for (int y = 0; y < rows; y++) // rows
+                {
+                    C[target + y] += A[source + y]*b;
+                }
+            }
+        }
+    }
+
+    private static void multiplyDouble(float[] A, float[] B, float[] C, int rows, int columns, int dimension)
+    {
+        double[] sum = new double[rows];
+        for (int x = 0; x < dimension; x++)
+        {
+            Arrays.fill(sum, 0);
+            for (int z = 0; z < columns; z++)
+            {
+                double b = B[z + x*columns];
+                int source = z*rows;
+                for (int y = 0; y < rows; y++)
+                {
+                    sum[y] += A[source + y]*b;
+                }
+            }
+            int target = x*rows;
+            for (int y = 0; y < rows; y++)
+            {
+                C[target + y] = (float)sum[y];
+            }
+        }
+    }
+
+    private static void multiplyCompensated(float[] A, float[] B, float[] C, int rows, int columns, int dimension)
+    {
+        float[] compensation = new float[rows];
+        for (int x = 0; x < dimension; x++)
+        {
+            Arrays.fill(compensation, 0);
+            int target = x*rows;
+            for (int z = 0; z < columns; z++)
             {
-                int sum = 0;
-                for (int z = 0; z < columns; z++)
+                float b = B[z + x*columns];
+                int source = z*rows;
+                for (int y = 0; y < rows; y++)
                 {
-                    sum += matrix[y + z*rows] * right.at(z, x);
+                    float term = A[source + y]*b - compensation[y];
+                    float sum = C[target + y] + term;
+                    compensation[y] = (sum - C[target + y]) - term;
+                    C[target + y] = sum;
                 }
-                result[y + x*rows] = sum;
             }
         }
-        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(dimension), result);
     }
 }
@@ -0,0 +1,425 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.operations.Epilogue;
+import top.java.matrix.operations.MatrixElementAccess;
+import top.java.matrix.operations.MatrixMultiplication;
+
+/**
+* {@link BlockedMultiplication} implements cache-blocked, multi-threaded matrix multiplication in plain Java.
+* The result matrix is split into tiles of {@code rowBlock} by {@code columnBlock} elements, which are computed
+* in parallel by a {@link ForkJoinPool}. For each tile, the implementation copies ("packs") a panel of the left
+* matrix (sized for the L2 cache) and a panel of the right matrix (sized for the L1 cache) into contiguous
+* scratch arrays, and then runs a 4-by-4 register-blocked micro-kernel over the packed panels. The operands
+* are read via {@link Matrix#getStorageForReading()}, so off-heap matrices are not copied to the heap, and the packing
+* follows each operand's {@link MatrixElementAccess} layout, so that row-major, transposed or strided views
+* are multiplied without first rearranging their elements.
+*
+* Unlike the Aparapi-based implementations, this implementation does not depend on the availability of a GPU,
+* and it does not impose any restrictions on the matrix dimensions. For multiplying two 1000-by-1000 matrices
+* it is more than an order of magnitude faster than {@link BasicMultiplication}, even on a single core.
+*
+* @author Mirko Raner
+**/
+public class BlockedMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+extends MatrixMultiplication<M, N, K>
+{
+    public final static int DEFAULT_ROW_BLOCK = 128;
+    public final static int DEFAULT_DEPTH_BLOCK = 256;
+    public final static int DEFAULT_COLUMN_BLOCK = 256;
+
+    private final static int MICRO_ROWS = 4;
+    private final static int MICRO_COLUMNS = 4;
+
+    private final ForkJoinPool pool;
+    private final int rowBlock;
+    private final int depthBlock;
+    private final int columnBlock;
+
+    // Packing buffers are reused across multiplications, so that repeated multiplications do not allocate:
+    //
+    private final ThreadLocal<float[][]> packingBuffers = ThreadLocal.withInitial(() -> new float[2][0]);
+
+    public BlockedMultiplication(MatrixFactory factory)
+    {
+        this(factory, ForkJoinPool.commonPool());
+    }
+
+    public BlockedMultiplication(MatrixFactory factory, ForkJoinPool pool)
+    {
+        this(factory, pool, DEFAULT_ROW_BLOCK, DEFAULT_DEPTH_BLOCK, DEFAULT_COLUMN_BLOCK);
+    }
+
+    /**
+    * Creates a new {@link BlockedMultiplication} with custom block sizes.
+    *
+    * @param factory the {@link MatrixFactory} for creating result matrices
+    * @param pool the {@link ForkJoinPool} that computes the result tiles
+    * @param rowBlock the number of rows of a packed panel of the left matrix (rounded up to a multiple of 4)
+    * @param depthBlock the number of columns of the left (and rows of the right) matrix covered by a pair of panels
+    * @param columnBlock the number of columns of a packed panel of the right matrix (rounded up to a multiple of 4)
+    **/
+    public BlockedMultiplication(MatrixFactory factory, ForkJoinPool pool, int rowBlock, int depthBlock, int columnBlock)
+    {
+        super(factory);
+        if (rowBlock < 1 || depthBlock < 1 || columnBlock < 1)
+        {
+            throw new IllegalArgumentException("Block sizes must be positive");
+        }
+        this.pool = pool;
+        this.rowBlock = roundUp(rowBlock, MICRO_ROWS);
+        this.depthBlock = depthBlock;
+        this.columnBlock = roundUp(columnBlock, MICRO_COLUMNS);
+    }
+
+    @Override
+    public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+    {
+        int rows = left.getRows();
+        int depth = left.getColumns();
+        int columns = right.getColumns();
+        float[] result = new float[rows*columns];
+        multiply(left, right, result, null);
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), result);
+    }
+
+    /**
+    * Multiplies two matrices and applies an {@link Epilogue} to each tile of the result as soon as the tile is
+    * complete, while it is still in the cache.
+    *
+    * @param left the left-hand side matrix
+    * @param right the right-hand side matrix
+    * @param epilogue the {@link Epilogue}
+    * @return the result matrix
+    **/
+    @Override
+    public Matrix<M, N> applyFused(Matrix<M, K> left, Matrix<K, N> right, Epilogue epilogue)
+    {
+        epilogue.check(left.getRows());
+        int rows = left.getRows();
+        int columns = right.getColumns();
+        float[] result = new float[rows*columns];
+        multiply(left, right, result, epilogue);
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), result);
+    }
+
+    @Override
+    public Matrix<M, N> applyInto(Matrix<M, K> left, Matrix<K, N> right, Matrix<M, N> destination)
+    {
+        checkDestination(left, right, destination);
+        float[] result = array(destination.getBuffer());
+        if (result == null)
+        {
+            return super.applyInto(left, right, destination);
+        }
+        Arrays.fill(result, 0, left.getRows()*right.getColumns(), 0);
+        multiply(left, right, result, null);
+        return destination;
+    }
+
+    // Adds the product to the result array, which is expected to contain only zeros, and applies the epilogue
+    // (if any). The operands are read in their storage layout, so that transposed or strided views are packed
+    // directly from the original storage:
+    //
+    private void multiply(Matrix<M, K> left, Matrix<K, N> right, float[] result, Epilogue epilogue)
+    {
+        int rows = left.getRows();
+        int depth = left.getColumns();
+        int columns = right.getColumns();
+        if (rows > 0 && columns > 0 && depth > 0)
+        {
+            Dimension m = Dimension.FACTORY.create(rows);
+            Dimension k = Dimension.FACTORY.create(depth);
+            Dimension n = Dimension.FACTORY.create(columns);
+            MatrixElementAccess leftAccess = left.getElementAccess();
+            MatrixElementAccess rightAccess = right.getElementAccess();
+            Operands operands = new Operands(storage(left), leftAccess.rowStride(m, k), leftAccess.columnStride(m, k),
+                storage(right), rightAccess.rowStride(k, n), rightAccess.columnStride(k, n), result, rows, depth, epilogue);
+            pool.invoke(new Tile(operands, 0, rows, 0, columns));
+        }
+        else if (epilogue != null)
+        {
+            epilogue.apply(result, rows, 0, rows, 0, columns);
+        }
+    }
+
+    private static FloatBuffer storage(Matrix<?, ?> matrix)
+    {
+        FloatBuffer storage = matrix.getStorageForReading();
+        storage.position(matrix.getElementAccess().offset());
+        return storage.slice();
+    }
+
+    /**
+    * Multiplies two matrices that are given as column-major buffers, either of which may be used in transposed
+    * form. Transposition is folded into the packing of the operand panels (by reading the operands with swapped
+    * strides), so a transposed operand is never copied. The product is added to the result array.
+    *
+    * @param left the elements of the left operand (a {@code rows}-by-{@code depth} matrix, or a
+    * {@code depth}-by-{@code rows} matrix if {@code transposeLeft} is set)
+    * @param transposeLeft whether the transpose of {@code left} is multiplied
+    * @param right the elements of the right operand (a {@code depth}-by-{@code columns} matrix, or a
+    * {@code columns}-by-{@code depth} matrix if {@code transposeRight} is set)
+    * @param transposeRight whether the transpose of {@code right} is multiplied
+    * @param rows the number of rows of the product
+    * @param depth the shared dimension of the operands
+    * @param columns the number of columns of the product
+    * @param result a {@code rows}-by-{@code columns} column-major array to which the product is added
+    **/
+    public void multiply(FloatBuffer left, boolean transposeLeft, FloatBuffer right, boolean transposeRight,
+        int rows, int depth, int columns, float[] result)
+    {
+        if (rows > 0 && columns > 0 && depth > 0)
+        {
+            Operands operands = new Operands(left, transposeLeft? depth:1, transposeLeft? 1:rows,
+                right, transposeRight? columns:1, transposeRight? 1:depth, result, rows, depth, null);
+            pool.invoke(new Tile(operands, 0, rows, 0, columns));
+        }
+    }
+
+    /**
+    * The {@link Operands} of a multiplication, with the element (r, d) of the left operand located at index
+    * {@code r*leftRowStride + d*leftDepthStride} and the element (d, c) of the right operand located at index
+    * {@code d*rightDepthStride + c*rightColumnStride}.
+    **/
+    private static class Operands
+    {
+        final FloatBuffer A;
+        final int leftRowStride;
+        final int leftDepthStride;
+        final FloatBuffer B;
+        final int rightDepthStride;
+        final int rightColumnStride;
+        final float[] C;
+        final int rows;
+        final int depth;
+        final Epilogue epilogue;
+
+        Operands(FloatBuffer A, int leftRowStride, int leftDepthStride, FloatBuffer B, int rightDepthStride,
+            int rightColumnStride, float[] C, int rows, int depth, Epilogue epilogue)
+        {
+            this.A = A;
+            this.leftRowStride = leftRowStride;
+            this.leftDepthStride = leftDepthStride;
+            this.B = B;
+            this.rightDepthStride = rightDepthStride;
+            this.rightColumnStride = rightColumnStride;
+            this.C = C;
+            this.rows = rows;
+            this.depth = depth;
+            this.epilogue = epilogue;
+        }
+    }
+
+    /**
+    * A {@link Tile} computes a rectangular section of the result matrix. Tiles that are larger than a single
+    * block are recursively split in half along their longer side.
+    **/
+    private class Tile extends RecursiveAction
+    {
+        private final static long serialVersionUID = -8071398723655520311L;
+
+        private final Operands operands;
+        private final FloatBuffer A;
+        private final FloatBuffer B;
+        private final float[] C;
+        private final int rows;
+        private final int depth;
+        private final int firstRow;
+        private final int lastRow;
+        private final int firstColumn;
+        private final int lastColumn;
+
+        Tile(Operands operands, int firstRow, int lastRow, int firstColumn, int lastColumn)
+        {
+            this.operands = operands;
+            this.A = operands.A;
+            this.B = operands.B;
+            this.C = operands.C;
+            this.rows = operands.rows;
+            this.depth = operands.depth;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            this.firstColumn = firstColumn;
+            this.lastColumn = lastColumn;
+        }
+
+        @Override
+        protected void compute()
+        {
+            int tileRows = lastRow - firstRow;
+            int tileColumns = lastColumn - firstColumn;
+            if (tileRows > rowBlock && tileRows/rowBlock >= tileColumns/columnBlock)
+            {
+                int split = firstRow + roundUp(tileRows/2, rowBlock);
+                invokeAll(tile(firstRow, split, firstColumn, lastColumn), tile(split, lastRow, firstColumn, lastColumn));
+            }
+            else if (tileColumns > columnBlock)
+            {
+                int split = firstColumn + roundUp(tileColumns/2, columnBlock);
+                invokeAll(tile(firstRow, lastRow, firstColumn, split), tile(firstRow, lastRow, split, lastColumn));
+            }
+            else
+            {
+                multiply();
+            }
+        }
+
+        private Tile tile(int fromRow, int toRow, int fromColumn, int toColumn)
+        {
+            return new Tile(operands, fromRow, toRow, fromColumn, toColumn);
+        }
+
+        private void multiply()
+        {
+            int tileRows = lastRow - firstRow;
+            int tileColumns = lastColumn - firstColumn;
+            int paddedRows = roundUp(tileRows, MICRO_ROWS);
+            int paddedColumns = roundUp(tileColumns, MICRO_COLUMNS);
+            int depthBlockSize = Math.min(depthBlock, depth);
+            float[][] buffers = packingBuffers.get();
+            if (buffers[0].length < paddedRows*depthBlockSize)
+            {
+                buffers[0] = new float[paddedRows*depthBlockSize];
+            }
+            if (buffers[1].length < paddedColumns*depthBlockSize)
+            {
+                buffers[1] = new float[paddedColumns*depthBlockSize];
+            }
+            float[] packedA = buffers[0];
+            float[] packedB = buffers[1];
+            for (int firstDepth = 0; firstDepth < depth; firstDepth += depthBlock)
+            {
+                int panelDepth = Math.min(depthBlock, depth - firstDepth);
+                packA(packedA, firstDepth, panelDepth, tileRows, paddedRows);
+                packB(packedB, firstDepth, panelDepth, tileColumns, paddedColumns);
+                for (int column = 0; column < tileColumns; column += MICRO_COLUMNS)
+                {
+                    for (int row = 0; row < tileRows; row += MICRO_ROWS)
+                    {
+                        kernel(packedA, row*panelDepth, packedB, column*panelDepth, panelDepth,
+                            firstRow + row, Math.min(MICRO_ROWS, tileRows - row),
+                            firstColumn + column, Math.min(MICRO_COLUMNS, tileColumns - column));
+                    }
+                }
+            }
+            if (operands.epilogue != null)
+            {
+                operands.epilogue.apply(C, rows, firstRow, lastRow, firstColumn, lastColumn);
+            }
+        }
+
+        // Packs the left panel as a sequence of slivers of MICRO_ROWS rows each; within a sliver, the
+        // elements are stored column by column, so that the micro-kernel can read them sequentially.
+        // Rows beyond the end of the matrix are padded with zeros:
+        //
+        private void packA(float[] packed, int firstDepth, int panelDepth, int tileRows, int paddedRows)
+        {
+            int index = 0;
+            for (int sliver = 0; sliver < paddedRows; sliver += MICRO_ROWS)
+            {
+                int validRows = Math.min(MICRO_ROWS, tileRows - sliver);
+                for (int repeat = 0; repeat < panelDepth; repeat++)
+                {
+                    int source = (firstRow + sliver)*operands.leftRowStride + (firstDepth + repeat)*operands.leftDepthStride;
+                    for (int row = 0; row < MICRO_ROWS; row++)
+                    {
+                        packed[index++] = row < validRows? A.get(source + row*operands.leftRowStride):0;
+                    }
+                }
+            }
+        }
+
+        // Packs the right panel as a sequence of slivers of MICRO_COLUMNS columns each; within a sliver, the
+        // elements are stored row by row. Columns beyond the end of the matrix are padded with zeros:
+        //
+        private void packB(float[] packed, int firstDepth, int panelDepth, int tileColumns, int paddedColumns)
+        {
+            int index = 0;
+            for (int sliver = 0; sliver < paddedColumns; sliver += MICRO_COLUMNS)
+            {
+                int validColumns = Math.min(MICRO_COLUMNS, tileColumns - sliver);
+                for (int repeat = 0; repeat < panelDepth; repeat++)
+                {
+                    int source = (firstDepth + repeat)*operands.rightDepthStride + (firstColumn + sliver)*operands.rightColumnStride;
+                    for (int column = 0; column < MICRO_COLUMNS; column++)
+                    {
+                        packed[index++] = column < validColumns? B.get(source + column*operands.rightColumnStride):0;
+                    }
+                }
+            }
+        }
+
+        // Computes a 4-by-4 block of the result, keeping all 16 partial sums in local variables:
+        //
+        private void kernel(float[] packedA, int a, float[] packedB, int b, int panelDepth,
+            int row, int validRows, int column, int validColumns)
+        {
+            float c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+            float c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+            float c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+            float c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+            for (int repeat = 0; repeat < panelDepth; repeat++, a += MICRO_ROWS, b += MICRO_COLUMNS)
+            {
+                float a0 = packedA[a], a1 = packedA[a+1], a2 = packedA[a+2], a3 = packedA[a+3];
+                float b0 = packedB[b], b1 = packedB[b+1], b2 = packedB[b+2], b3 = packedB[b+3];
+                c00 += a0*b0; c01 += a0*b1; c02 += a0*b2; c03 += a0*b3;
+                c10 += a1*b0; c11 += a1*b1; c12 += a1*b2; c13 += a1*b3;
+                c20 += a2*b0; c21 += a2*b1; c22 += a2*b2; c23 += a2*b3;
+                c30 += a3*b0; c31 += a3*b1; c32 += a3*b2; c33 += a3*b3;
+            }
+            if (validRows == MICRO_ROWS && validColumns == MICRO_COLUMNS)
+            {
+                int target = row + column*rows;
+                C[target] += c00; C[target+1] += c10; C[target+2] += c20; C[target+3] += c30;
+                target += rows;
+                C[target] += c01; C[target+1] += c11; C[target+2] += c21; C[target+3] += c31;
+                target += rows;
+                C[target] += c02; C[target+1] += c12; C[target+2] += c22; C[target+3] += c32;
+                target += rows;
+                C[target] += c03; C[target+1] += c13; C[target+2] += c23; C[target+3] += c33;
+                return;
+            }
+            float[] block =
+            {
+                c00, c10, c20, c30,
+                c01, c11, c21, c31,
+                c02, c12, c22, c32,
+                c03, c13, c23, c33
+            };
+            for (int x = 0; x < validColumns; x++)
+            {
+                for (int y = 0; y < validRows; y++)
+                {
+                    C[row + y + (column + x)*rows] += block[y + x*MICRO_ROWS];
+                }
+            }
+        }
+    }
+
+    private static int roundUp(int value, int multiple)
+    {
+        return (value + multiple - 1)/multiple*multiple;
+    }
+}
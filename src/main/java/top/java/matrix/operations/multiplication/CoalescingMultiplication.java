@@ -0,0 +1,263 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.operations.MatrixMultiplication;
+
+/**
+* {@link CoalescingMultiplication} combines concurrent multiplications that share the same left operand (e.g., the
+* weight matrix of a model that is served by many threads) into a single multiplication. Each right operand with
+* fewer than {@code maximumColumns} columns (typically a single input vector) joins a batch for its left operand;
+* the right operands of a batch are concatenated column-wise (which, in column-major order, simply places them one
+* after the other), multiplied by the delegate strategy in a single call, and the columns of the product are
+* split up again among the callers. A wide, memory-bound matrix-vector product thereby turns into a matrix-matrix
+* product that reads the left operand only once per batch.
+* <br>
+* <br>
+* The first caller of a batch waits until the batch reaches {@code maximumColumns} columns or until
+* {@code maximumDelay} has passed, whichever happens first, and then performs the multiplication on its own thread;
+* all other callers of the batch simply wait for the result. The additional latency of each multiplication is
+* therefore bounded by the maximum delay. Right operands that are already wide enough are multiplied directly.
+* <br>
+* <br>
+* Left operands are matched by identity, so all callers need to use the same {@link Matrix} instance, e.g.:
+* <pre>
+* Matrix&lt;M, K&gt; weights = matrix.using(new CoalescingMultiplication&lt;&gt;(StandardMatrix::new));
+* ... // in each serving thread:
+* Matrix&lt;M, One&gt; output = weights.times(input);
+* </pre>
+* This also applies to inputs that are {@link top.java.matrix.Vector}s, because matrices that use an explicitly
+* registered {@link MatrixMultiplication} compute products with vectors by that multiplication, too (unless a
+* {@link top.java.matrix.operations.MatrixVectorMultiplication} is registered as well; see
+* {@link top.java.matrix.internal.AbstractMatrix#times(top.java.matrix.Vector)}).
+*
+* @author Mirko Raner
+**/
+public class CoalescingMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+extends MatrixMultiplication<M, N, K>
+{
+    public final static int DEFAULT_MAXIMUM_COLUMNS = 64;
+    public final static long DEFAULT_MAXIMUM_DELAY_MICROSECONDS = 500;
+
+    private final MatrixMultiplication<M, N, K> delegate;
+    private final int maximumColumns;
+    private final long maximumDelay;
+    private final Map<Matrix<?, ?>, Batch> open = new IdentityHashMap<>();
+    private final AtomicLong batches = new AtomicLong();
+
+    public CoalescingMultiplication(MatrixFactory factory)
+    {
+        this(factory, new BlockedMultiplication<>(factory), DEFAULT_MAXIMUM_COLUMNS, DEFAULT_MAXIMUM_DELAY_MICROSECONDS,
+            TimeUnit.MICROSECONDS);
+    }
+
+    /**
+    * Creates a new {@link CoalescingMultiplication}.
+    *
+    * @param factory the {@link MatrixFactory} for creating result matrices
+    * @param delegate the strategy that multiplies the combined operands
+    * @param maximumColumns the number of combined columns at which a batch is multiplied without further delay
+    * @param maximumDelay the maximum time that the first caller of a batch waits for further callers
+    * @param unit the {@link TimeUnit} of the maximum delay
+    **/
+    public CoalescingMultiplication(MatrixFactory factory, MatrixMultiplication<M, N, K> delegate, int maximumColumns,
+        long maximumDelay, TimeUnit unit)
+    {
+        super(factory);
+        if (maximumColumns < 1 || maximumDelay < 0)
+        {
+            throw new IllegalArgumentException("Maximum columns must be positive and maximum delay must not be negative");
+        }
+        this.delegate = delegate;
+        this.maximumColumns = maximumColumns;
+        this.maximumDelay = unit.toNanos(maximumDelay);
+    }
+
+    /**
+    * @return the number of multiplications that were performed by the delegate strategy so far
+    **/
+    public long getBatches()
+    {
+        return batches.get();
+    }
+
+    @Override
+    public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+    {
+        if (right.getColumns() >= maximumColumns || right.getColumns() == 0 || right.getRows() != left.getColumns())
+        {
+            batches.incrementAndGet();
+            return delegate.apply(left, right);
+        }
+        Batch batch;
+        int offset;
+        synchronized (this)
+        {
+            batch = open.get(left);
+            if (batch != null && batch.columns + right.getColumns() > maximumColumns)
+            {
+                close(batch);
+                batch = null;
+            }
+            if (batch == null)
+            {
+                batch = new Batch(left);
+                open.put(left, batch);
+            }
+            offset = batch.add(right);
+            if (batch.columns == maximumColumns)
+            {
+                close(batch);
+            }
+        }
+        if (offset == 0)
+        {
+            execute(batch);
+        }
+        float[] product;
+        try
+        {
+            product = batch.result.join();
+        }
+        catch (CompletionException exception)
+        {
+            if (exception.getCause() instanceof Error)
+            {
+                throw (Error)exception.getCause();
+            }
+            throw exception.getCause() instanceof RuntimeException? (RuntimeException)exception.getCause():exception;
+        }
+        int rows = left.getRows();
+        int columns = right.getColumns();
+        float[] values = batch.operands.size() == 1? product:Arrays.copyOfRange(product, offset*rows, (offset + columns)*rows);
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), values);
+    }
+
+    // Waits (as the first caller of the batch) until the batch is full or the maximum delay has passed, and then
+    // multiplies the combined operands:
+    //
+    private void execute(Batch batch)
+    {
+        synchronized (this)
+        {
+            long deadline = System.nanoTime() + maximumDelay;
+            boolean interrupted = false;
+            for (long remaining = maximumDelay; !batch.closed && remaining > 0; remaining = deadline - System.nanoTime())
+            {
+                try
+                {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+                catch (InterruptedException interruption)
+                {
+                    interrupted = true;
+                    break;
+                }
+            }
+            close(batch);
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try
+        {
+            batches.incrementAndGet();
+            batch.result.complete(multiply(batch));
+        }
+        catch (RuntimeException | Error exception)
+        {
+            batch.result.completeExceptionally(exception);
+        }
+    }
+
+    private float[] multiply(Batch batch)
+    {
+        @SuppressWarnings("unchecked")
+        Matrix<M, K> left = (Matrix<M, K>)batch.left;
+        Matrix<K, N> right;
+        if (batch.operands.size() == 1)
+        {
+            @SuppressWarnings("unchecked")
+            Matrix<K, N> operand = (Matrix<K, N>)batch.operands.get(0);
+            right = operand;
+        }
+        else
+        {
+            int depth = left.getColumns();
+            float[] values = new float[depth*batch.columns];
+            int position = 0;
+            for (Matrix<?, ?> operand: batch.operands)
+            {
+                int length = depth*operand.getColumns();
+                operand.getBuffer().get(values, position, length);
+                position += length;
+            }
+            right = factory.create(Dimension.FACTORY.create(depth), Dimension.FACTORY.create(batch.columns), values);
+        }
+        return delegate.apply(left, right).getValues();
+    }
+
+    // Must be called while holding the lock:
+    //
+    private void close(Batch batch)
+    {
+        if (!batch.closed)
+        {
+            batch.closed = true;
+            open.remove(batch.left, batch);
+            notifyAll();
+        }
+    }
+
+    /**
+    * A {@link Batch} collects the right operands of concurrent multiplications with the same left operand. Its
+    * mutable state is guarded by the enclosing {@link CoalescingMultiplication}.
+    **/
+    private static class Batch
+    {
+        final Matrix<?, ?> left;
+        final List<Matrix<?, ?>> operands = new ArrayList<>();
+        final CompletableFuture<float[]> result = new CompletableFuture<>();
+        int columns;
+        boolean closed;
+
+        Batch(Matrix<?, ?> left)
+        {
+            this.left = left;
+        }
+
+        int add(Matrix<?, ?> right)
+        {
+            int offset = columns;
+            operands.add(right);
+            columns += right.getColumns();
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.internal.DoubleMatrix;
+import top.java.matrix.operations.MatrixElementAccess;
+import top.java.matrix.operations.MatrixMultiplication;
+
+/**
+* {@link DoubleMultiplication} multiplies matrices of which at least one is a {@link DoubleMatrix}. The product is
+* computed in double precision (single-precision operands are widened) and returned as a {@link DoubleMatrix}.
+* The columns of the result are computed in parallel in a {@link ForkJoinPool}; each column is accumulated as a
+* sequence of scaled columns of the left operand, so that all inner loops have unit stride.
+* <br>
+* <br>
+* Products of two single-precision matrices are delegated to {@link BlockedMultiplication}.
+*
+* @author Mirko Raner
+**/
+public class DoubleMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+extends MatrixMultiplication<M, N, K>
+{
+    /**
+    * The approximate number of multiply-add operations below which a range of columns is not split any further.
+    **/
+    public final static int SEQUENTIAL_THRESHOLD = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final MatrixMultiplication<M, N, K> single;
+
+    public DoubleMultiplication(MatrixFactory factory)
+    {
+        this(factory, ForkJoinPool.commonPool());
+    }
+
+    public DoubleMultiplication(MatrixFactory factory, ForkJoinPool pool)
+    {
+        super(factory);
+        this.pool = pool;
+        this.single = new BlockedMultiplication<>(factory, pool);
+    }
+
+    @Override
+    public boolean isFormatSpecific()
+    {
+        return true;
+    }
+
+    @Override
+    public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+    {
+        if (!(left instanceof DoubleMatrix || right instanceof DoubleMatrix))
+        {
+            return single.apply(left, right);
+        }
+        int rows = left.getRows();
+        int columns = right.getColumns();
+        double[] result = new double[rows*columns];
+        multiply(left, right, result);
+        return new DoubleMatrix<>(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), result);
+    }
+
+    /**
+    * Multiplies two matrices and stores the result in an existing matrix. If the destination is a
+    * {@link DoubleMatrix}, the result is stored in double precision; otherwise, it is narrowed to {@code float}.
+    *
+    * @param left the left-hand side matrix
+    * @param right the right-hand side matrix
+    * @param destination the matrix that receives the result
+    * @return the {@code destination} matrix
+    **/
+    @Override
+    public Matrix<M, N> applyInto(Matrix<M, K> left, Matrix<K, N> right, Matrix<M, N> destination)
+    {
+        checkDestination(left, right, destination);
+        if (!(destination instanceof DoubleMatrix))
+        {
+            return left instanceof DoubleMatrix || right instanceof DoubleMatrix?
+                super.applyInto(left, right, destination):single.applyInto(left, right, destination);
+        }
+        DoubleMatrix<M, N> target = (DoubleMatrix<M, N>)destination;
+        int rows = target.getRows();
+        int columns = target.getColumns();
+        double[] storage = target.getDoubleStorage().array();
+        Dimension rowDimension = Dimension.FACTORY.create(rows);
+        Dimension columnDimension = Dimension.FACTORY.create(columns);
+        MatrixElementAccess access = target.getElementAccess();
+        if (access.isColumnMajor(rowDimension, columnDimension))
+        {
+            Arrays.fill(storage, 0, rows*columns, 0);
+            multiply(left, right, storage);
+            return destination;
+        }
+        double[] result = new double[rows*columns];
+        multiply(left, right, result);
+        for (int column = 0, index = 0; column < columns; column++)
+        {
+            for (int row = 0; row < rows; row++)
+            {
+                storage[access.index(rowDimension, columnDimension, row, column)] = result[index++];
+            }
+        }
+        return destination;
+    }
+
+    // Adds the product of two matrices to the result array, which is expected to contain only zeros:
+    //
+    private void multiply(Matrix<M, K> left, Matrix<K, N> right, double[] C)
+    {
+        int rows = left.getRows();
+        int depth = left.getColumns();
+        int columns = right.getColumns();
+        if (rows > 0 && depth > 0 && columns > 0)
+        {
+            double[] A = DoubleMatrix.of(left).getDoubleValues();
+            double[] B = DoubleMatrix.of(right).getDoubleValues();
+            pool.invoke(new Columns(A, B, C, rows, depth, 0, columns));
+        }
+    }
+
+    private static class Columns extends RecursiveAction
+    {
+        private final static long serialVersionUID = 2925853287470924306L;
+
+        private final double[] A;
+        private final double[] B;
+        private final double[] C;
+        private final int rows;
+        private final int depth;
+        private final int first;
+        private final int last;
+
+        Columns(double[] A, double[] B, double[] C, int rows, int depth, int first, int last)
+        {
+            this.A = A;
+            this.B = B;
+            this.C = C;
+            this.rows = rows;
+            this.depth = depth;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (last - first > 1 && (long)(last - first)*rows*depth > SEQUENTIAL_THRESHOLD)
+            {
+                int split = (first + last) >>> 1;
+                invokeAll(new Columns(A, B, C, rows, depth, first, split), new Columns(A, B, C, rows, depth, split, last));
+                return;
+            }
+
+            // C[:,x] += A[:,z]*B[z,x]:
+            //
+            for (int x = first; x < last; x++)
+            {
+                int target = x*rows;
+                for (int z = 0; z < depth; z++)
+                {
+                    double b = B[z + x*depth];
+                    if (b != 0)
+                    {
+                        for (int y = 0, source = z*rows; y < rows; y++)
+                        {
+                            C[target + y] += A[source + y]*b;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import com.aparapi.Kernel;
+import com.aparapi.Range;
+import top.java.matrix.Dimension;
+import top.java.matrix.MatrixBatch;
+import top.java.matrix.operations.BatchMultiplication;
+
+/**
+* {@link FastBatchMultiplication} implements GPU-accelerated multiplication of whole {@link MatrixBatch}es.
+* All elements of all result matrices are computed by a single kernel launch (one work item per result element),
+* so that the cost of preparing and launching the kernel and of transferring the data is only incurred once per
+* batch. This makes GPU acceleration worthwhile even for matrices that are much too small to benefit from it
+* individually.
+*
+* @author Mirko Raner
+**/
+public class FastBatchMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+extends BatchMultiplication<M, N, K>
+{
+    public FastBatchMultiplication(MatrixBatch.Factory factory)
+    {
+        super(factory);
+    }
+
+    @Override
+    public MatrixBatch<M, N> apply(MatrixBatch<M, K> left, MatrixBatch<K, N> right)
+    {
+        int size = size(left, right);
+        int numberOfRows = left.getRows();
+        int targetNumberOfColumns = right.getColumns();
+        BatchKernel kernel = new BatchKernel();
+        kernel.numberOfRows = numberOfRows;
+        kernel.numberOfColumns = left.getColumns();
+        kernel.resultStride = numberOfRows*targetNumberOfColumns;
+        kernel.leftStride = left.size() == 1? 0:left.getStride();
+        kernel.rightStride = right.size() == 1? 0:right.getStride();
+        kernel.A = left.getValues();
+        kernel.B = right.getValues();
+        kernel.C = new float[size*kernel.resultStride];
+        float[] C = kernel.C;
+        try
+        {
+            if (C.length > 0)
+            {
+                kernel.execute(Range.create(C.length));
+            }
+        }
+        finally
+        {
+            kernel.dispose();
+        }
+        return factory.create(Dimension.FACTORY.create(numberOfRows), Dimension.FACTORY.create(targetNumberOfColumns), size, C);
+    }
+
+    static class BatchKernel extends Kernel
+    {
+        float[] A;
+        float[] B;
+        float[] C;
+        int numberOfRows;
+        int numberOfColumns;
+        int resultStride;
+        int leftStride;
+        int rightStride;
+
+        @Override
+        public void run()
+        {
+            int id = getGlobalId(0);
+            int index = id/resultStride;
+            int element = id - index*resultStride;
+            int row = element%numberOfRows;
+            int column = element/numberOfRows;
+            int a = index*leftStride + row;
+            int b = index*rightStride + column*numberOfColumns;
+            float value = 0;
+            for (int repeat = 0; repeat < numberOfColumns; repeat++)
+            {
+                value += A[a + repeat*numberOfRows] * B[b + repeat];
+            }
+            C[id] = value;
+        }
+    }
+}
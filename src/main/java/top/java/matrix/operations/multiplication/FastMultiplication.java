@@ -15,7 +15,6 @@
 //                                                                          //
 package top.java.matrix.operations.multiplication;
 
-import com.aparapi.Kernel;
 import com.aparapi.Range;
 import top.java.matrix.Dimension;
 import top.java.matrix.Matrix;
@@ -24,13 +23,16 @@ import top.java.matrix.operations.MatrixMultiplication;
 
 /**
 * {@link FastMultiplication} implements GPU-accelerated matrix multiplication but in the most naive way,
-* without exploiting the GPU's full parallelization capabilities.
+* without exploiting the GPU's full parallelization capabilities. Kernels are kept in a {@link KernelPool}
+* and reused for subsequent multiplications of the same shape; closing the operation disposes them.
 *
 * @author Mirko Raner
 **/
 public class FastMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
-extends MatrixMultiplication<M, N, K>
+extends MatrixMultiplication<M, N, K> implements AutoCloseable
 {
+    private final KernelPool<FastKernel> pool = new KernelPool<>();
+
     public FastMultiplication(MatrixFactory factory)
     {
         super(factory);
@@ -41,27 +43,48 @@ extends MatrixMultiplication<M, N, K>
     {
         int numberOfRows = left.getRows();
         int numberOfColumns = left.getColumns();
-        int targetNumberOfRows = right.getRows();
         int targetNumberOfColumns = right.getColumns();
         final float[] A = left.getValues();
         final float[] B = right.getValues();
-        final float[] C = new float[numberOfRows*targetNumberOfColumns];
-        Kernel kernel = new Kernel()
+        String key = MultiplicationKernel.key(numberOfRows, numberOfColumns, targetNumberOfColumns);
+        float[] C = pool.execute(key, FastKernel::new,
+            kernel -> kernel.multiply(A, B, numberOfRows, numberOfColumns, targetNumberOfColumns));
+        return factory.create(Dimension.FACTORY.create(numberOfRows), Dimension.FACTORY.create(targetNumberOfColumns), C);
+    }
+
+    /**
+    * @return the {@link KernelPool} of this operation (e.g., for accessing its statistics)
+    **/
+    public KernelPool<?> getKernelPool()
+    {
+        return pool;
+    }
+
+    @Override
+    public void close()
+    {
+        pool.close();
+    }
+
+    static class FastKernel extends MultiplicationKernel
+    {
+        @Override
+        public void run()
         {
-            @Override
-            public void run()
+            int row = getGlobalId(0);
+            int column = getGlobalId(1);
+            float value = 0;
+            for (int repeat = 0; repeat < numberOfColumns; repeat++)
             {
-                int row = getGlobalId(0);
-                int column = getGlobalId(1);
-                int value = 0;
-                for (int repeat = 0; repeat < numberOfColumns; repeat++)
-                {
-                    value += A[row + repeat*numberOfRows] * B[repeat + column*targetNumberOfRows];
-                }
-                C[row + column*numberOfRows] = value;
+                value += A[row + repeat*numberOfRows] * B[repeat + column*targetNumberOfRows];
             }
-         };
-         kernel.execute(Range.create2D(numberOfRows, targetNumberOfColumns));
-         return factory.create(Dimension.FACTORY.create(numberOfRows), Dimension.FACTORY.create(targetNumberOfColumns), C);
+            C[row + column*numberOfRows] = value;
+        }
+
+        @Override
+        Range range(int rows, int columns)
+        {
+            return Range.create2D(rows, columns);
+        }
     }
 }
@@ -0,0 +1,141 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import top.java.matrix.Dimension;
+import top.java.matrix.MatrixBatch;
+import top.java.matrix.operations.BatchMultiplication;
+
+/**
+* {@link ForkJoinBatchMultiplication} multiplies all matrices of a batch in a single fork-join pass. The batch is
+* recursively split into ranges of matrices until a range is small enough to be computed by a single task; each
+* matrix product is computed with the same vectorizable column-update loop as {@link BasicMultiplication}. No
+* intermediate objects are created per matrix, and all results are written directly into one result array.
+*
+* @author Mirko Raner
+**/
+public class ForkJoinBatchMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+extends BatchMultiplication<M, N, K>
+{
+    /**
+    * The approximate number of multiply-add operations below which a range of matrices is not split any further.
+    **/
+    public final static int SEQUENTIAL_THRESHOLD = 1 << 16;
+
+    private final ForkJoinPool pool;
+
+    public ForkJoinBatchMultiplication(MatrixBatch.Factory factory)
+    {
+        this(factory, ForkJoinPool.commonPool());
+    }
+
+    public ForkJoinBatchMultiplication(MatrixBatch.Factory factory, ForkJoinPool pool)
+    {
+        super(factory);
+        this.pool = pool;
+    }
+
+    @Override
+    public MatrixBatch<M, N> apply(MatrixBatch<M, K> left, MatrixBatch<K, N> right)
+    {
+        int size = size(left, right);
+        int rows = left.getRows();
+        int depth = left.getColumns();
+        int columns = right.getColumns();
+        float[] result = new float[size*rows*columns];
+        if (size > 0 && rows > 0 && columns > 0)
+        {
+            pool.invoke(new Range(left, right, result, 0, size));
+        }
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), size, result);
+    }
+
+    private static class Range extends RecursiveAction
+    {
+        private final static long serialVersionUID = 4526937203128306385L;
+
+        private final float[] A;
+        private final float[] B;
+        private final float[] C;
+        private final int rows;
+        private final int depth;
+        private final int columns;
+        private final int leftStride;
+        private final int rightStride;
+        private final int first;
+        private final int last;
+
+        Range(MatrixBatch<?, ?> left, MatrixBatch<?, ?> right, float[] C, int first, int last)
+        {
+            this(left.getValues(), right.getValues(), C, left.getRows(), left.getColumns(), right.getColumns(),
+                left.size() == 1? 0:left.getStride(), right.size() == 1? 0:right.getStride(), first, last);
+        }
+
+        private Range(float[] A, float[] B, float[] C, int rows, int depth, int columns, int leftStride, int rightStride,
+            int first, int last)
+        {
+            this.A = A;
+            this.B = B;
+            this.C = C;
+            this.rows = rows;
+            this.depth = depth;
+            this.columns = columns;
+            this.leftStride = leftStride;
+            this.rightStride = rightStride;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (last - first > 1 && (long)(last - first)*rows*depth*columns > SEQUENTIAL_THRESHOLD)
+            {
+                int split = (first + last) >>> 1;
+                invokeAll(range(first, split), range(split, last));
+                return;
+            }
+            for (int index = first; index < last; index++)
+            {
+                multiply(index*leftStride, index*rightStride, index*rows*columns);
+            }
+        }
+
+        private Range range(int from, int to)
+        {
+            return new Range(A, B, C, rows, depth, columns, leftStride, rightStride, from, to);
+        }
+
+        private void multiply(int a, int b, int c)
+        {
+            for (int x = 0; x < columns; x++)
+            {
+                int target = c + x*rows;
+                for (int z = 0; z < depth; z++)
+                {
+                    float value = B[b + z + x*depth];
+                    int source = a + z*rows;
+                    for (int y = 0; y < rows; y++)
+                    {
+                        C[target + y] += A[source + y]*value;
+                    }
+                }
+            }
+        }
+    }
+}
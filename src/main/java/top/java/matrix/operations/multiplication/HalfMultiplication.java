@@ -0,0 +1,230 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.internal.HalfMatrix;
+import top.java.matrix.internal.HalfMatrix.Encoding;
+import top.java.matrix.operations.MatrixMultiplication;
+
+/**
+* {@link HalfMultiplication} multiplies matrices of which at least one is a {@link HalfMatrix}. The operands stay
+* in their 16-bit encoding and are widened to {@code float} inside the kernel, and the product is accumulated in
+* single precision. The result columns are computed in parallel, in blocks of up to {@link #BLOCK_COLUMNS}
+* columns; within a block, each column of the left operand is decoded only once and then added (scaled) to all
+* result columns of the block, so the cost of decoding is small compared to the cost of the multiply-adds.
+* <br>
+* <br>
+* Products of two single-precision matrices are delegated to {@link BlockedMultiplication}.
+*
+* @author Mirko Raner
+**/
+public class HalfMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+extends MatrixMultiplication<M, N, K>
+{
+    /**
+    * The maximum number of result columns that share a decoded column of the left operand.
+    **/
+    public final static int BLOCK_COLUMNS = 64;
+
+    /**
+    * The approximate number of multiply-add operations below which a range of column blocks is not split any
+    * further.
+    **/
+    public final static int SEQUENTIAL_THRESHOLD = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final MatrixMultiplication<M, N, K> single;
+
+    public HalfMultiplication(MatrixFactory factory)
+    {
+        this(factory, ForkJoinPool.commonPool());
+    }
+
+    public HalfMultiplication(MatrixFactory factory, ForkJoinPool pool)
+    {
+        super(factory);
+        this.pool = pool;
+        this.single = new BlockedMultiplication<>(factory, pool);
+    }
+
+    @Override
+    public boolean isFormatSpecific()
+    {
+        return true;
+    }
+
+    @Override
+    public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+    {
+        if (!(left instanceof HalfMatrix || right instanceof HalfMatrix))
+        {
+            return single.apply(left, right);
+        }
+        int rows = left.getRows();
+        int columns = right.getColumns();
+        float[] result = new float[rows*columns];
+        multiply(left, right, result);
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), result);
+    }
+
+    @Override
+    public Matrix<M, N> applyInto(Matrix<M, K> left, Matrix<K, N> right, Matrix<M, N> destination)
+    {
+        checkDestination(left, right, destination);
+        float[] result = array(destination.getBuffer());
+        if (!(left instanceof HalfMatrix || right instanceof HalfMatrix))
+        {
+            return single.applyInto(left, right, destination);
+        }
+        if (result == null)
+        {
+            return super.applyInto(left, right, destination);
+        }
+        Arrays.fill(result, 0, left.getRows()*right.getColumns(), 0);
+        multiply(left, right, result);
+        return destination;
+    }
+
+    // Adds the product of two matrices to the result array, which is expected to contain only zeros:
+    //
+    private void multiply(Matrix<M, K> left, Matrix<K, N> right, float[] C)
+    {
+        int rows = left.getRows();
+        int depth = left.getColumns();
+        int columns = right.getColumns();
+        if (rows > 0 && depth > 0 && columns > 0)
+        {
+            Operand A = new Operand(left);
+            Operand B = new Operand(right);
+            int blocks = (columns + BLOCK_COLUMNS - 1)/BLOCK_COLUMNS;
+            pool.invoke(new Blocks(A, B, C, rows, depth, columns, 0, blocks));
+        }
+    }
+
+    /**
+    * An {@link Operand} holds the elements of a matrix in column-major order, either encoded (for a
+    * {@link HalfMatrix}) or as {@code float}s.
+    **/
+    private static class Operand
+    {
+        final Encoding encoding;
+        final short[] encoded;
+        final float[] values;
+
+        Operand(Matrix<?, ?> matrix)
+        {
+            if (matrix instanceof HalfMatrix)
+            {
+                HalfMatrix<?, ?> half = (HalfMatrix<?, ?>)matrix;
+                encoding = half.getEncoding();
+                encoded = half.getEncodedValues();
+                values = null;
+            }
+            else
+            {
+                encoding = null;
+                encoded = null;
+                values = matrix.getValues();
+            }
+        }
+
+        float get(int index)
+        {
+            return encoding == null? values[index]:encoding.decode(encoded[index]);
+        }
+
+        float[] column(int offset, int length, float[] buffer)
+        {
+            if (encoding == null)
+            {
+                System.arraycopy(values, offset, buffer, 0, length);
+            }
+            else
+            {
+                encoding.decode(encoded, offset, buffer, length);
+            }
+            return buffer;
+        }
+    }
+
+    private static class Blocks extends RecursiveAction
+    {
+        private final static long serialVersionUID = -3119738475271398614L;
+
+        private final Operand A;
+        private final Operand B;
+        private final float[] C;
+        private final int rows;
+        private final int depth;
+        private final int columns;
+        private final int first;
+        private final int last;
+
+        Blocks(Operand A, Operand B, float[] C, int rows, int depth, int columns, int first, int last)
+        {
+            this.A = A;
+            this.B = B;
+            this.C = C;
+            this.rows = rows;
+            this.depth = depth;
+            this.columns = columns;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (last - first > 1 && (long)(last - first)*BLOCK_COLUMNS*rows*depth > SEQUENTIAL_THRESHOLD)
+            {
+                int split = (first + last) >>> 1;
+                invokeAll(new Blocks(A, B, C, rows, depth, columns, first, split),
+                    new Blocks(A, B, C, rows, depth, columns, split, last));
+                return;
+            }
+            float[] column = new float[rows];
+            for (int block = first; block < last; block++)
+            {
+                int firstColumn = block*BLOCK_COLUMNS;
+                int lastColumn = Math.min(columns, firstColumn + BLOCK_COLUMNS);
+
+                // C[:,x] += A[:,z]*B[z,x], for all columns x of the block, with A[:,z] decoded only once:
+                //
+                for (int z = 0; z < depth; z++)
+                {
+                    A.column(z*rows, rows, column);
+                    for (int x = firstColumn; x < lastColumn; x++)
+                    {
+                        float b = B.get(z + x*depth);
+                        if (b != 0)
+                        {
+                            for (int y = 0, target = x*rows; y < rows; y++)
+                            {
+                                C[target + y] += column[y]*b;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
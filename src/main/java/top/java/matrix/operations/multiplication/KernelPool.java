@@ -0,0 +1,217 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import com.aparapi.Kernel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+* A {@link KernelPool} keeps long-lived Aparapi {@link Kernel}s for reuse. Creating a new {@link Kernel} for every
+* operation forces Aparapi to repeat the bytecode analysis and the OpenCL (or Java thread pool) setup each time;
+* a pooled kernel only incurs this cost on its first execution. Kernels are pooled by a key (typically the shape
+* of the operation), so that device buffers of matching sizes can be reused as well. Kernels that are in use are
+* not shared between threads.
+* <br>
+* <br>
+* The pool holds at most {@code capacity} idle kernels; when that limit is exceeded, the least recently used
+* idle kernel is disposed. Closing the pool disposes all idle kernels, as well as all kernels that are returned
+* to the pool after it was closed.
+* <br>
+* <br>
+* The pool also keeps separate statistics for the first execution of each kernel (which includes the one-time
+* setup and compilation) and for all subsequent executions.
+*
+* @param <KERNEL> the type of the pooled kernels
+*
+* @author Mirko Raner
+**/
+public class KernelPool<KERNEL extends Kernel> implements AutoCloseable
+{
+    public final static int DEFAULT_CAPACITY = 8;
+
+    private final int capacity;
+    private final Map<String, Deque<KERNEL>> idle = new LinkedHashMap<>(16, 0.75F, true);
+    private int idleKernels;
+    private boolean closed;
+    private long kernelsCreated;
+    private long firstExecutionNanos;
+    private long executions;
+    private long executionNanos;
+
+    public KernelPool()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public KernelPool(int capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    /**
+    * Executes an action with a pooled kernel. If no idle kernel is available for the given key, a new kernel
+    * is created. The kernel is returned to the pool after the action completes.
+    *
+    * @param key the pool key
+    * @param supplier creates a new kernel if necessary
+    * @param action the action to be performed with the kernel
+    * @param <RESULT> the result type of the action
+    * @return the result of the action
+    **/
+    public <RESULT> RESULT execute(String key, Supplier<KERNEL> supplier, Function<KERNEL, RESULT> action)
+    {
+        KERNEL kernel = acquire(key);
+        boolean first = kernel == null;
+        if (first)
+        {
+            kernel = supplier.get();
+        }
+        long start = System.nanoTime();
+        try
+        {
+            return action.apply(kernel);
+        }
+        finally
+        {
+            long nanos = System.nanoTime() - start;
+            synchronized (this)
+            {
+                if (first)
+                {
+                    kernelsCreated++;
+                    firstExecutionNanos += nanos;
+                }
+                else
+                {
+                    executions++;
+                    executionNanos += nanos;
+                }
+            }
+            release(key, kernel);
+        }
+    }
+
+    /**
+    * @return the total number of kernels that were created by this pool
+    **/
+    public synchronized long getKernelsCreated()
+    {
+        return kernelsCreated;
+    }
+
+    /**
+    * @return the total time (in nanoseconds) of all first executions of newly created kernels, including
+    * bytecode analysis, compilation and device setup
+    **/
+    public synchronized long getFirstExecutionNanos()
+    {
+        return firstExecutionNanos;
+    }
+
+    /**
+    * @return the number of executions with kernels that had already been used before
+    **/
+    public synchronized long getExecutions()
+    {
+        return executions;
+    }
+
+    /**
+    * @return the total time (in nanoseconds) of all executions with kernels that had already been used before
+    **/
+    public synchronized long getExecutionNanos()
+    {
+        return executionNanos;
+    }
+
+    @Override
+    public void close()
+    {
+        Deque<KERNEL> disposable = new ArrayDeque<>();
+        synchronized (this)
+        {
+            closed = true;
+            idle.values().forEach(disposable::addAll);
+            idle.clear();
+            idleKernels = 0;
+        }
+        disposable.forEach(Kernel::dispose);
+    }
+
+    private synchronized KERNEL acquire(String key)
+    {
+        Deque<KERNEL> kernels = idle.get(key);
+        if (kernels == null || kernels.isEmpty())
+        {
+            return null;
+        }
+        idleKernels--;
+        return kernels.pop();
+    }
+
+    private void release(String key, KERNEL kernel)
+    {
+        KERNEL evicted = null;
+        synchronized (this)
+        {
+            if (closed)
+            {
+                evicted = kernel;
+            }
+            else
+            {
+                idle.computeIfAbsent(key, any -> new ArrayDeque<>()).push(kernel);
+                if (++idleKernels > capacity)
+                {
+                    evicted = evict();
+                }
+            }
+        }
+        if (evicted != null)
+        {
+            evicted.dispose();
+        }
+    }
+
+    // Removes an idle kernel from the least recently used key:
+    //
+    private KERNEL evict()
+    {
+        Iterator<Deque<KERNEL>> iterator = idle.values().iterator();
+        while (iterator.hasNext())
+        {
+            Deque<KERNEL> kernels = iterator.next();
+            if (!kernels.isEmpty())
+            {
+                KERNEL kernel = kernels.removeLast();
+                if (kernels.isEmpty())
+                {
+                    iterator.remove();
+                }
+                idleKernels--;
+                return kernel;
+            }
+            iterator.remove();
+        }
+        return null;
+    }
+}
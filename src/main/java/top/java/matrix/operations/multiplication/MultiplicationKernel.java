@@ -0,0 +1,89 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import com.aparapi.Kernel;
+import com.aparapi.Range;
+
+/**
+* {@link MultiplicationKernel} is the common base class of the reusable Aparapi kernels for matrix multiplication.
+* The operands and dimensions are passed in fields (rather than captured by an anonymous class), so that the same
+* kernel instance can be executed over and over. Data transfers are explicit: the operands are put to the device
+* before and the result is read back after each execution. The result array is retained between executions of the
+* same shape, so that its device buffer is reused as well; callers receive a copy of it.
+*
+* @author Mirko Raner
+**/
+abstract class MultiplicationKernel extends Kernel
+{
+    float[] A;
+    float[] B;
+    float[] C;
+    int numberOfRows;
+    int numberOfColumns;
+    int targetNumberOfRows;
+    int targetNumberOfColumns;
+
+    MultiplicationKernel()
+    {
+        setExplicit(true);
+    }
+
+    /**
+    * Multiplies two column-major matrices.
+    *
+    * @param A the elements of the left matrix
+    * @param B the elements of the right matrix
+    * @param rows the number of rows of the left matrix
+    * @param depth the number of columns of the left matrix (and rows of the right matrix)
+    * @param columns the number of columns of the right matrix
+    * @return the elements of the result matrix (in a new array)
+    **/
+    float[] multiply(float[] A, float[] B, int rows, int depth, int columns)
+    {
+        this.A = A;
+        this.B = B;
+        if (C == null || C.length != rows*columns)
+        {
+            C = new float[rows*columns];
+        }
+        numberOfRows = rows;
+        numberOfColumns = depth;
+        targetNumberOfRows = depth;
+        targetNumberOfColumns = columns;
+        try
+        {
+            put(A).put(B);
+            execute(range(rows, columns));
+            get(C);
+            return C.clone();
+        }
+        finally
+        {
+            // Do not keep the operands reachable while the kernel is idle (every execution overwrites all elements
+            // of the result, so the result array can be reused):
+            //
+            this.A = this.B = null;
+        }
+    }
+
+    abstract Range range(int rows, int columns);
+
+    static String key(int rows, int depth, int columns)
+    {
+        return rows + "x" + depth + "x" + columns;
+    }
+}
@@ -0,0 +1,326 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.FloatBuffer;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.internal.opencl.OpenCLBuffer;
+import top.java.matrix.internal.opencl.OpenCLContext;
+import top.java.matrix.internal.opencl.OpenCLException;
+import top.java.matrix.internal.opencl.jna.OpenCLLibrary.cl_event;
+import top.java.matrix.internal.opencl.jna.OpenCLLibrary.cl_kernel;
+import top.java.matrix.operations.MatrixMultiplication;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static top.java.matrix.internal.opencl.jna.OpenCLLibrary.CL_INVALID_CONTEXT;
+import static top.java.matrix.internal.opencl.jna.OpenCLLibrary.CL_INVALID_WORK_GROUP_SIZE;
+
+/**
+* {@link OpenCLMultiplication} implements GPU-accelerated matrix multiplication directly on top of the OpenCL API
+* (via the JNA bindings generated from {@code cl.h}), without Aparapi's bytecode translation. It uses a hand-written
+* GEMM kernel ({@code sgemm.cl}) that combines local-memory tiling with register blocking and supports arbitrary
+* matrix shapes. The OpenCL context, command queue, compiled program and kernel, and the device buffers for both
+* operands and the result are created once and reused for all subsequent multiplications (buffers only grow when a
+* larger multiplication comes along). The transfers and the kernel execution of each multiplication are enqueued
+* asynchronously and chained by events, and the calling thread only waits for the final read.
+* <br>
+* <br>
+* The tile size is chosen for the device, such that both tiles fit into local memory and a work group does not
+* exceed the maximum work group size. The OpenCL context is created on first use; if no OpenCL runtime, platform
+* or device is available (or the kernel cannot be built), all multiplications are delegated to a fallback strategy
+* (by default, {@link BlockedMultiplication}). Any CPU runtime (e.g., PoCL) is sufficient for the OpenCL code path.
+* Multiplications are serialized, because the device buffers are shared.
+*
+* @author Mirko Raner
+**/
+public class OpenCLMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+extends MatrixMultiplication<M, N, K> implements AutoCloseable
+{
+    /**
+    * The number of result elements that are computed by each work item.
+    **/
+    public final static int WORK_PER_THREAD = 8;
+
+    private final static int[] TILE_SIZES = {32, 16, 8};
+    private final static String SOURCE = source("/top/java/matrix/internal/opencl/sgemm.cl");
+
+    private final MatrixMultiplication<M, N, K> fallback;
+    private OpenCLContext context;
+    private OpenCLException unavailable;
+    private cl_kernel kernel;
+    private int tileSize;
+    private OpenCLBuffer bufferA;
+    private OpenCLBuffer bufferB;
+    private OpenCLBuffer bufferC;
+
+    public OpenCLMultiplication(MatrixFactory factory)
+    {
+        this(factory, new BlockedMultiplication<>(factory));
+    }
+
+    /**
+    * Creates a new {@link OpenCLMultiplication}.
+    *
+    * @param factory the {@link MatrixFactory} for creating result matrices
+    * @param fallback the strategy that is used if OpenCL is not available
+    **/
+    public OpenCLMultiplication(MatrixFactory factory, MatrixMultiplication<M, N, K> fallback)
+    {
+        super(factory);
+        this.fallback = fallback;
+    }
+
+    /**
+    * Determines whether multiplications are performed with OpenCL (this may create the OpenCL context).
+    *
+    * @return {@code true} if OpenCL is available, {@code false} if the fallback strategy is used
+    **/
+    public synchronized boolean isAvailable()
+    {
+        return context() != null;
+    }
+
+    /**
+    * @return the reason why OpenCL is not available, or {@code null} if it is available or was not yet initialized
+    **/
+    public synchronized OpenCLException getUnavailableReason()
+    {
+        return unavailable;
+    }
+
+    /**
+    * @return the tile size that was chosen for the device, or 0 if OpenCL is not available
+    **/
+    public synchronized int getTileSize()
+    {
+        return tileSize;
+    }
+
+    @Override
+    public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+    {
+        int rows = left.getRows();
+        int depth = left.getColumns();
+        int columns = right.getColumns();
+        Dimension resultRows = Dimension.FACTORY.create(rows);
+        Dimension resultColumns = Dimension.FACTORY.create(columns);
+        if (rows == 0 || depth == 0 || columns == 0)
+        {
+            return factory.create(resultRows, resultColumns, new float[rows*columns]);
+        }
+        float[] C = multiply(left.getValues(), right.getValues(), rows, depth, columns);
+        if (C == null)
+        {
+            return fallback.apply(left, right);
+        }
+        return factory.create(resultRows, resultColumns, C);
+    }
+
+    /**
+    * Copies elements to a new device buffer, so that they can be used as an operand of
+    * {@link #multiply(OpenCLBuffer, OpenCLBuffer, int, int, int)} any number of times without further transfers.
+    * The caller owns the returned buffer and is responsible for closing it.
+    *
+    * @param values the elements (from the buffer's position to its limit)
+    * @return the device buffer, or {@code null} if OpenCL is not available
+    **/
+    public synchronized OpenCLBuffer upload(FloatBuffer values)
+    {
+        OpenCLContext context = context();
+        if (context == null || !values.hasRemaining())
+        {
+            return null;
+        }
+        OpenCLBuffer buffer = context.createBuffer(values.remaining());
+        context.await(context.write(buffer, values));
+        return buffer;
+    }
+
+    /**
+    * Copies elements from a device buffer that was created by this operation.
+    *
+    * @param buffer the device buffer
+    * @param target the target buffer (from its position to its limit)
+    * @throws OpenCLException if this operation was already closed
+    **/
+    public synchronized void download(OpenCLBuffer buffer, FloatBuffer target)
+    {
+        if (context == null)
+        {
+            throw new OpenCLException("Operation was closed", CL_INVALID_CONTEXT);
+        }
+        context.await(context.enqueueRead(buffer, target.remaining()));
+        context.read(buffer, target);
+    }
+
+    /**
+    * Multiplies two matrices that are already stored in device buffers (in column-major order) and keeps the
+    * result on the device. No data is transferred between the host and the device.
+    *
+    * @param A the device buffer of the left matrix
+    * @param B the device buffer of the right matrix
+    * @param rows the number of rows of the left matrix
+    * @param depth the number of columns of the left matrix (and rows of the right matrix)
+    * @param columns the number of columns of the right matrix
+    * @return a new device buffer containing the result (owned by the caller), or {@code null} if OpenCL is not
+    * available
+    **/
+    public synchronized OpenCLBuffer multiply(OpenCLBuffer A, OpenCLBuffer B, int rows, int depth, int columns)
+    {
+        OpenCLContext context = context();
+        if (context == null)
+        {
+            return null;
+        }
+        OpenCLBuffer C = context.createBuffer(rows*columns);
+        context.await(execute(A, B, C, rows, depth, columns));
+        return C;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (context != null)
+        {
+            for (OpenCLBuffer buffer: new OpenCLBuffer[] {bufferA, bufferB, bufferC})
+            {
+                if (buffer != null)
+                {
+                    buffer.close();
+                }
+            }
+            context.release(kernel);
+            context.close();
+            context = null;
+        }
+        unavailable = new OpenCLException("Operation was closed", CL_INVALID_CONTEXT);
+    }
+
+    private synchronized float[] multiply(float[] A, float[] B, int rows, int depth, int columns)
+    {
+        OpenCLContext context = context();
+        if (context == null)
+        {
+            return null;
+        }
+        bufferA = ensureCapacity(bufferA, rows*depth);
+        bufferB = ensureCapacity(bufferB, depth*columns);
+        bufferC = ensureCapacity(bufferC, rows*columns);
+        cl_event writeA = context.write(bufferA, A, rows*depth);
+        cl_event writeB = context.write(bufferB, B, depth*columns);
+        cl_event execute = execute(bufferA, bufferB, bufferC, rows, depth, columns, writeA, writeB);
+        cl_event read = context.enqueueRead(bufferC, rows*columns, execute);
+        context.await(writeA, writeB, execute, read);
+        float[] C = new float[rows*columns];
+        context.read(bufferC, C, C.length);
+        return C;
+    }
+
+    private cl_event execute(OpenCLBuffer A, OpenCLBuffer B, OpenCLBuffer C, int rows, int depth, int columns,
+        cl_event... waitFor)
+    {
+        context.setArgument(kernel, 0, rows);
+        context.setArgument(kernel, 1, columns);
+        context.setArgument(kernel, 2, depth);
+        context.setArgument(kernel, 3, A);
+        context.setArgument(kernel, 4, B);
+        context.setArgument(kernel, 5, C);
+        long[] global = {pad(rows), pad(columns)/WORK_PER_THREAD};
+        long[] local = {tileSize, tileSize/WORK_PER_THREAD};
+        return context.execute(kernel, global, local, waitFor);
+    }
+
+    private OpenCLContext context()
+    {
+        if (context == null && unavailable == null)
+        {
+            OpenCLContext created = null;
+            try
+            {
+                created = OpenCLContext.create();
+                tileSize = tileSize(created);
+                String options = "-D TS=" + tileSize + " -D WPT=" + WORK_PER_THREAD;
+                kernel = created.createKernel(SOURCE, options, "sgemm");
+                context = created;
+            }
+            catch (OpenCLException exception)
+            {
+                unavailable = exception;
+                tileSize = 0;
+                if (created != null)
+                {
+                    created.close();
+                }
+            }
+        }
+        return context;
+    }
+
+    private OpenCLBuffer ensureCapacity(OpenCLBuffer buffer, int capacity)
+    {
+        if (buffer != null && buffer.getCapacity() >= capacity)
+        {
+            return buffer;
+        }
+        if (buffer != null)
+        {
+            buffer.close();
+        }
+        return context.createBuffer(capacity);
+    }
+
+    private long pad(int size)
+    {
+        return (size + tileSize - 1L)/tileSize*tileSize;
+    }
+
+    private static int tileSize(OpenCLContext context)
+    {
+        long workGroupSize = context.getMaxWorkGroupSize();
+        long localMemory = context.getLocalMemorySize();
+        for (int tileSize: TILE_SIZES)
+        {
+            if (tileSize*tileSize/WORK_PER_THREAD <= workGroupSize && 2L*tileSize*tileSize*Float.BYTES <= localMemory)
+            {
+                return tileSize;
+            }
+        }
+        throw new OpenCLException("Device is not suitable for tiled multiplication", CL_INVALID_WORK_GROUP_SIZE);
+    }
+
+    private static String source(String resource)
+    {
+        try (InputStream stream = OpenCLMultiplication.class.getResourceAsStream(resource))
+        {
+            ByteArrayOutputStream source = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read; (read = stream.read(buffer)) > 0;)
+            {
+                source.write(buffer, 0, read);
+            }
+            return new String(source.toByteArray(), UTF_8);
+        }
+        catch (IOException exception)
+        {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.Vector;
+import top.java.matrix.internal.StandardVector;
+import top.java.matrix.operations.MatrixElementAccess;
+import top.java.matrix.operations.MatrixVectorMultiplication;
+
+/**
+* {@link ParallelMatrixVectorMultiplication} computes matrix-vector products in a {@link ForkJoinPool}, by splitting
+* the result vector into ranges of elements. The matrix is read in its storage layout (so transposed and strided
+* views are never copied), and the loop order is chosen such that the innermost loop always has unit stride:
+* <ul>
+*   <li>If the rows of the (possibly transposed) matrix are adjacent in storage (e.g., {@code A x} for a
+*       column-major matrix), each range accumulates the scaled columns of the matrix ("axpy"), in panels of
+*       {@link #PANEL_SIZE} result elements that stay in the L1 cache while the columns stream through.</li>
+*   <li>If the columns are adjacent (e.g., {@code A}<sup>{@code T}</sup>{@code x} for a column-major matrix), each
+*       result element is the dot product of a contiguous column with the vector, so no range ever writes to the
+*       accumulators of another range.</li>
+* </ul>
+* Both inner loops are simple enough to be vectorized (or, for dot products, unrolled into independent
+* accumulators) by the JIT compiler. Matrices whose storage is not a heap array (e.g., off-heap matrices) are read
+* directly from their buffer, which is copied to a small scratch array one panel of a column (or row) at a time.
+* Results are {@link StandardVector}s.
+*
+* @param <M> the rows dimension of the matrix
+* @param <K> the columns dimension of the matrix
+*
+* @author Mirko Raner
+**/
+public class ParallelMatrixVectorMultiplication<M extends Dimension, K extends Dimension>
+extends MatrixVectorMultiplication<M, K>
+{
+    /**
+    * The number of matrix elements below which a range is not split any further.
+    **/
+    public final static int SEQUENTIAL_THRESHOLD = 1 << 15;
+
+    /**
+    * The number of result elements that are accumulated together while the columns of the matrix are streamed.
+    **/
+    public final static int PANEL_SIZE = 1024;
+
+    private final ForkJoinPool pool;
+
+    public ParallelMatrixVectorMultiplication(MatrixFactory factory)
+    {
+        this(factory, ForkJoinPool.commonPool());
+    }
+
+    public ParallelMatrixVectorMultiplication(MatrixFactory factory, ForkJoinPool pool)
+    {
+        super(factory);
+        this.pool = pool;
+    }
+
+    @Override
+    public Vector<M> apply(Matrix<M, K> matrix, Vector<K> vector)
+    {
+        checkSize(matrix.getColumns(), vector.getSize());
+        float[] result = new float[matrix.getRows()];
+        multiply(matrix, false, vector.getValues(), result);
+        return new StandardVector<>(Dimension.FACTORY.create(result.length), result);
+    }
+
+    @Override
+    public Vector<K> applyTransposed(Matrix<M, K> matrix, Vector<M> vector)
+    {
+        checkSize(matrix.getRows(), vector.getSize());
+        float[] result = new float[matrix.getColumns()];
+        multiply(matrix, true, vector.getValues(), result);
+        return new StandardVector<>(Dimension.FACTORY.create(result.length), result);
+    }
+
+    @Override
+    public <D extends Dimension> float dot(Vector<D> left, Vector<D> right)
+    {
+        checkSize(left.getSize(), right.getSize());
+        return pool.invoke(new Dot(left.getValues(), right.getValues(), 0, left.getSize()));
+    }
+
+    /**
+    * Multiplies a matrix (or its transpose) with a vector and adds the product to a result array.
+    *
+    * @param matrix the matrix
+    * @param transposed whether the transpose of the matrix is multiplied
+    * @param vector the elements of the vector
+    * @param result the array to which the product is added
+    **/
+    public void multiply(Matrix<?, ?> matrix, boolean transposed, float[] vector, float[] result)
+    {
+        Dimension rows = Dimension.FACTORY.create(matrix.getRows());
+        Dimension columns = Dimension.FACTORY.create(matrix.getColumns());
+        MatrixElementAccess access = matrix.getElementAccess();
+        int rowStride = access.rowStride(rows, columns);
+        int columnStride = access.columnStride(rows, columns);
+        int offset = access.offset();
+        FloatBuffer storage = matrix.getStorageForReading().duplicate();
+        float[] elements = null;
+        if (storage.hasArray())
+        {
+            elements = storage.array();
+            offset += storage.arrayOffset();
+        }
+        storage.clear();
+        Operands operands = transposed?
+            new Operands(elements, storage, offset, columnStride, rowStride, rows.getAsInt(), vector, result):
+            new Operands(elements, storage, offset, rowStride, columnStride, columns.getAsInt(), vector, result);
+        if (result.length > 0 && operands.depth > 0)
+        {
+            pool.invoke(new Range(operands, 0, result.length));
+        }
+    }
+
+    // Computes the dot product of a strided sequence of elements and a contiguous sequence of elements:
+    //
+    static float dot(float[] A, int index, int stride, float[] x, int first, int length)
+    {
+        if (stride != 1)
+        {
+            float sum = 0;
+            for (int z = 0; z < length; z++)
+            {
+                sum += A[index + z*stride]*x[first + z];
+            }
+            return sum;
+        }
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int z = 0;
+        for (; z + 3 < length; z += 4)
+        {
+            sum0 += A[index + z]*x[first + z];
+            sum1 += A[index + z + 1]*x[first + z + 1];
+            sum2 += A[index + z + 2]*x[first + z + 2];
+            sum3 += A[index + z + 3]*x[first + z + 3];
+        }
+        for (; z < length; z++)
+        {
+            sum0 += A[index + z]*x[first + z];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+    * The {@link Operands} of a matrix-vector product, where element ({@code y}, {@code z}) of the (possibly
+    * transposed) matrix is located at {@code offset + y*rowStride + z*columnStride} of its storage (which is
+    * either the array {@code A} or, if there is no backing array, the buffer {@code storage}).
+    **/
+    private static class Operands
+    {
+        final float[] A;
+        final FloatBuffer storage;
+        final int offset;
+        final int rowStride;
+        final int columnStride;
+        final int depth;
+        final float[] x;
+        final float[] result;
+
+        Operands(float[] A, FloatBuffer storage, int offset, int rowStride, int columnStride, int depth, float[] x,
+            float[] result)
+        {
+            this.A = A;
+            this.storage = storage;
+            this.offset = offset;
+            this.rowStride = rowStride;
+            this.columnStride = columnStride;
+            this.depth = depth;
+            this.x = x;
+            this.result = result;
+        }
+    }
+
+    private static class Range extends RecursiveAction
+    {
+        private final static long serialVersionUID = -3527608937530318473L;
+
+        private final Operands operands;
+        private final int first;
+        private final int last;
+
+        Range(Operands operands, int first, int last)
+        {
+            this.operands = operands;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (last - first > 1 && (long)(last - first)*operands.depth > SEQUENTIAL_THRESHOLD)
+            {
+                int split = (first + last) >>> 1;
+                invokeAll(new Range(operands, first, split), new Range(operands, split, last));
+                return;
+            }
+            if (operands.A == null)
+            {
+                computeFromBuffer();
+                return;
+            }
+            float[] A = operands.A;
+            float[] x = operands.x;
+            float[] result = operands.result;
+            int depth = operands.depth;
+            if (operands.rowStride == 1)
+            {
+                for (int panel = first; panel < last; panel += PANEL_SIZE)
+                {
+                    int end = Math.min(last, panel + PANEL_SIZE);
+                    for (int z = 0; z < depth; z++)
+                    {
+                        float value = x[z];
+                        int column = operands.offset + z*operands.columnStride;
+                        for (int y = panel; y < end; y++)
+                        {
+                            result[y] += A[column + y]*value;
+                        }
+                    }
+                }
+            }
+            else
+            {
+                for (int y = first; y < last; y++)
+                {
+                    result[y] += dot(A, operands.offset + y*operands.rowStride, operands.columnStride, x, 0, depth);
+                }
+            }
+        }
+
+        // Same loops as for array storage, but contiguous runs of elements are read in panels:
+        //
+        private void computeFromBuffer()
+        {
+            FloatBuffer A = operands.storage.duplicate();
+            float[] panel = new float[PANEL_SIZE];
+            float[] x = operands.x;
+            float[] result = operands.result;
+            int depth = operands.depth;
+            if (operands.rowStride == 1)
+            {
+                for (int start = first; start < last; start += PANEL_SIZE)
+                {
+                    int length = Math.min(last - start, PANEL_SIZE);
+                    for (int z = 0; z < depth; z++)
+                    {
+                        float value = x[z];
+                        A.position(operands.offset + z*operands.columnStride + start);
+                        A.get(panel, 0, length);
+                        for (int y = 0; y < length; y++)
+                        {
+                            result[start + y] += panel[y]*value;
+                        }
+                    }
+                }
+            }
+            else if (operands.columnStride == 1)
+            {
+                for (int y = first; y < last; y++)
+                {
+                    float sum = 0;
+                    for (int start = 0; start < depth; start += PANEL_SIZE)
+                    {
+                        int length = Math.min(depth - start, PANEL_SIZE);
+                        A.position(operands.offset + y*operands.rowStride + start);
+                        A.get(panel, 0, length);
+                        sum += dot(panel, 0, 1, x, start, length);
+                    }
+                    result[y] += sum;
+                }
+            }
+            else
+            {
+                for (int y = first; y < last; y++)
+                {
+                    int index = operands.offset + y*operands.rowStride;
+                    float sum = 0;
+                    for (int z = 0; z < depth; z++)
+                    {
+                        sum += A.get(index + z*operands.columnStride)*x[z];
+                    }
+                    result[y] += sum;
+                }
+            }
+        }
+    }
+
+    private static class Dot extends RecursiveTask<Float>
+    {
+        private final static long serialVersionUID = 2083361094765734186L;
+
+        private final float[] left;
+        private final float[] right;
+        private final int first;
+        private final int last;
+
+        Dot(float[] left, float[] right, int first, int last)
+        {
+            this.left = left;
+            this.right = right;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected Float compute()
+        {
+            if (last - first > SEQUENTIAL_THRESHOLD)
+            {
+                int split = (first + last) >>> 1;
+                Dot upper = new Dot(left, right, split, last);
+                upper.fork();
+                float lower = new Dot(left, right, first, split).compute();
+                return lower + upper.join();
+            }
+            return dot(left, first, 1, right, first, last - first);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.internal.QuantizedMatrix;
+import top.java.matrix.internal.QuantizedMatrix.Axis;
+import top.java.matrix.operations.MatrixMultiplication;
+
+/**
+* {@link QuantizedMultiplication} multiplies matrices of which at least one is a {@link QuantizedMatrix}. If the
+* left operand is quantized per row and the right operand per column, the product of the 8-bit elements is
+* accumulated in 32-bit integers, and the scales and zero points are applied only once per result element:
+* <pre>
+* C[y,x] = sA[y]*sB[x]*(&Sigma;qA[y,z]*qB[z,x] - zB[x]*&Sigma;qA[y,z] - zA[y]*&Sigma;qB[z,x] + depth*zA[y]*zB[x])
+* </pre>
+* A single-precision operand is quantized on the fly (per row on the left, per column on the right), so that a
+* quantized weight matrix can be multiplied directly with single-precision activations. Operands that are
+* quantized along the other axis are dequantized, and the product is computed by {@link BlockedMultiplication}.
+* The result is always a dequantized single-precision matrix.
+* <br>
+* <br>
+* The integer products are computed by a 4-by-4 register-blocked micro-kernel over packed operands. Pairs of
+* elements of the right operand are packed into a single {@code long}, so that each multiplication computes two
+* products (the two 32-bit halves of the sums are separated exactly afterwards). Result columns are computed in
+* parallel in a {@link ForkJoinPool}. The integer results are exact for inner dimensions of up to 2<sup>15</sup>.
+*
+* @author Mirko Raner
+**/
+public class QuantizedMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+extends MatrixMultiplication<M, N, K>
+{
+    /**
+    * The approximate number of multiply-add operations below which a range of columns is not split any further.
+    **/
+    public final static int SEQUENTIAL_THRESHOLD = 1 << 16;
+
+    /**
+    * The number of result columns whose quantized inputs are kept in cache while the rows of the left operand
+    * are streamed past them.
+    **/
+    public final static int PANEL_COLUMNS = 64;
+
+    private final static int MICRO = 4;
+
+    private final ForkJoinPool pool;
+    private final MatrixMultiplication<M, N, K> dense;
+
+    public QuantizedMultiplication(MatrixFactory factory)
+    {
+        this(factory, ForkJoinPool.commonPool());
+    }
+
+    public QuantizedMultiplication(MatrixFactory factory, ForkJoinPool pool)
+    {
+        super(factory);
+        this.pool = pool;
+        this.dense = new BlockedMultiplication<>(factory, pool);
+    }
+
+    @Override
+    public boolean isFormatSpecific()
+    {
+        return true;
+    }
+
+    @Override
+    public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+    {
+        if (!quantized(left, right))
+        {
+            return dense.apply(dequantize(left), dequantize(right));
+        }
+        int rows = left.getRows();
+        int columns = right.getColumns();
+        float[] result = new float[rows*columns];
+        multiply(QuantizedMatrix.quantize(left, Axis.ROWS), QuantizedMatrix.quantize(right, Axis.COLUMNS), result);
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), result);
+    }
+
+    @Override
+    public Matrix<M, N> applyInto(Matrix<M, K> left, Matrix<K, N> right, Matrix<M, N> destination)
+    {
+        checkDestination(left, right, destination);
+        float[] result = array(destination.getBuffer());
+        if (!quantized(left, right))
+        {
+            return dense.applyInto(dequantize(left), dequantize(right), destination);
+        }
+        if (result == null)
+        {
+            return super.applyInto(left, right, destination);
+        }
+        multiply(QuantizedMatrix.quantize(left, Axis.ROWS), QuantizedMatrix.quantize(right, Axis.COLUMNS), result);
+        return destination;
+    }
+
+    // Determines whether the product can be computed in integer arithmetic, i.e., whether there is at least one
+    // quantized operand and no operand is quantized along the wrong axis:
+    //
+    private static boolean quantized(Matrix<?, ?> left, Matrix<?, ?> right)
+    {
+        boolean leftQuantized = left instanceof QuantizedMatrix;
+        boolean rightQuantized = right instanceof QuantizedMatrix;
+        return (leftQuantized || rightQuantized)
+            && (!leftQuantized || ((QuantizedMatrix<?, ?>)left).getAxis() == Axis.ROWS)
+            && (!rightQuantized || ((QuantizedMatrix<?, ?>)right).getAxis() == Axis.COLUMNS);
+    }
+
+    private static <R extends Dimension, C extends Dimension> Matrix<R, C> dequantize(Matrix<R, C> matrix)
+    {
+        return matrix instanceof QuantizedMatrix? ((QuantizedMatrix<R, C>)matrix).dequantize():matrix;
+    }
+
+    // Stores the product in the result array:
+    //
+    private void multiply(QuantizedMatrix<M, K> left, QuantizedMatrix<K, N> right, float[] C)
+    {
+        int rows = left.getRows();
+        int depth = left.getColumns();
+        int columns = right.getColumns();
+        if (rows == 0 || columns == 0)
+        {
+            return;
+        }
+
+        // Both operands are packed into slivers of four rows (or columns) with interleaved elements, so that the
+        // micro-kernel reads both operands sequentially; the last sliver is padded with zeros.
+        //
+        byte[] A = new byte[roundUp(rows)*depth];
+        byte[] columnMajor = left.getQuantizedValues();
+        int[] rowSums = new int[rows];
+        for (int z = 0, index = 0; z < depth; z++)
+        {
+            for (int y = 0; y < rows; y++)
+            {
+                A[(y & -MICRO)*depth + z*MICRO + (y & MICRO - 1)] = columnMajor[index];
+                rowSums[y] += columnMajor[index++];
+            }
+        }
+        // Two columns of B share a long (in the lower and upper 32 bits), so that a single long multiplication
+        // computes two products; as the sums of each half fit into an int, they can be separated exactly:
+        //
+        long[] B = new long[roundUp(columns)/2*depth];
+        columnMajor = right.getQuantizedValues();
+        int[] columnSums = new int[columns];
+        for (int x = 0, index = 0; x < columns; x++)
+        {
+            for (int z = 0; z < depth; z++)
+            {
+                int position = (x & -MICRO)/2*depth + z*MICRO/2 + (x & MICRO - 1)/2;
+                long element = columnMajor[index];
+                B[position] += (x & 1) == 0? element:element << 32;
+                columnSums[x] += columnMajor[index++];
+            }
+        }
+        Operands operands = new Operands(left, right, A, B, C, rowSums, columnSums);
+        pool.invoke(new Columns(operands, 0, roundUp(columns)/MICRO));
+    }
+
+    private static int roundUp(int value)
+    {
+        return (value + MICRO - 1) & -MICRO;
+    }
+
+    private static class Operands
+    {
+        final byte[] A;
+        final long[] B;
+        final float[] C;
+        final int rows;
+        final int depth;
+        final int columns;
+        final float[] leftScales;
+        final int[] leftZeroPoints;
+        final float[] rightScales;
+        final int[] rightZeroPoints;
+        final int[] rowSums;
+        final int[] columnSums;
+
+        Operands(QuantizedMatrix<?, ?> left, QuantizedMatrix<?, ?> right, byte[] A, long[] B, float[] C, int[] rowSums,
+            int[] columnSums)
+        {
+            this.A = A;
+            this.B = B;
+            this.C = C;
+            this.rows = left.getRows();
+            this.depth = left.getColumns();
+            this.columns = right.getColumns();
+            this.leftScales = left.getScales();
+            this.leftZeroPoints = left.getZeroPoints();
+            this.rightScales = right.getScales();
+            this.rightZeroPoints = right.getZeroPoints();
+            this.rowSums = rowSums;
+            this.columnSums = columnSums;
+        }
+
+        float result(int y, int x, int dot)
+        {
+            int zA = leftZeroPoints[y];
+            int zB = rightZeroPoints[x];
+            int sum = dot - zB*rowSums[y] - zA*columnSums[x] + depth*zA*zB;
+            return leftScales[y]*rightScales[x]*sum;
+        }
+    }
+
+    /**
+    * {@link Columns} computes a range of slivers of four result columns.
+    **/
+    private static class Columns extends RecursiveAction
+    {
+        private final static long serialVersionUID = 7311457640584279637L;
+
+        private final Operands operands;
+        private final int first;
+        private final int last;
+
+        Columns(Operands operands, int first, int last)
+        {
+            this.operands = operands;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute()
+        {
+            int rows = operands.rows;
+            int depth = operands.depth;
+            if (last - first > 1 && (long)(last - first)*MICRO*rows*depth > SEQUENTIAL_THRESHOLD)
+            {
+                int split = (first + last) >>> 1;
+                invokeAll(new Columns(operands, first, split), new Columns(operands, split, last));
+                return;
+            }
+
+            // Panels of columns of B stay in cache while all slivers of A are streamed past them:
+            //
+            int panelSlivers = PANEL_COLUMNS/MICRO;
+            for (int panel = first; panel < last; panel += panelSlivers)
+            {
+                int end = Math.min(last, panel + panelSlivers);
+                for (int row = 0; row < rows; row += MICRO)
+                {
+                    for (int sliver = panel; sliver < end; sliver++)
+                    {
+                        kernel(row, sliver*MICRO);
+                    }
+                }
+            }
+        }
+
+        // Computes a 4-by-4 block of the result, keeping all 16 partial sums in eight long variables:
+        //
+        private void kernel(int row, int column)
+        {
+            byte[] A = operands.A;
+            long[] B = operands.B;
+            int depth = operands.depth;
+            long c0_01 = 0, c0_23 = 0;
+            long c1_01 = 0, c1_23 = 0;
+            long c2_01 = 0, c2_23 = 0;
+            long c3_01 = 0, c3_23 = 0;
+            for (int a = row*depth, b = column/2*depth, end = a + MICRO*depth; a < end; a += MICRO, b += MICRO/2)
+            {
+                long a0 = A[a], a1 = A[a+1], a2 = A[a+2], a3 = A[a+3];
+                long b01 = B[b], b23 = B[b+1];
+                c0_01 += a0*b01; c0_23 += a0*b23;
+                c1_01 += a1*b01; c1_23 += a1*b23;
+                c2_01 += a2*b01; c2_23 += a2*b23;
+                c3_01 += a3*b01; c3_23 += a3*b23;
+            }
+            int[] block =
+            {
+                low(c0_01), low(c1_01), low(c2_01), low(c3_01),
+                high(c0_01), high(c1_01), high(c2_01), high(c3_01),
+                low(c0_23), low(c1_23), low(c2_23), low(c3_23),
+                high(c0_23), high(c1_23), high(c2_23), high(c3_23)
+            };
+            int validRows = Math.min(MICRO, operands.rows - row);
+            int validColumns = Math.min(MICRO, operands.columns - column);
+            for (int x = 0; x < validColumns; x++)
+            {
+                for (int y = 0; y < validRows; y++)
+                {
+                    operands.C[row + y + (column + x)*operands.rows] = operands.result(row + y, column + x, block[y + x*MICRO]);
+                }
+            }
+        }
+
+        private static int low(long sums)
+        {
+            return (int)sums;
+        }
+
+        private static int high(long sums)
+        {
+            return (int)((sums - (int)sums) >> 32);
+        }
+    }
+}
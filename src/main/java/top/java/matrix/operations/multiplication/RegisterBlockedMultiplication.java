@@ -0,0 +1,360 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import com.aparapi.Range;
+import java.util.function.Supplier;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.operations.MatrixMultiplication;
+
+/**
+* {@link RegisterBlockedMultiplication} implements GPU-accelerated matrix multiplication where each work item
+* computes a small block of the result (instead of a single element, as in {@link FastMultiplication} and
+* {@link TiledFastMultiplication}). The partial sums of the block are kept in private variables (i.e., registers),
+* and the loop over the shared dimension is unrolled across the block, so that every element loaded from the
+* left matrix is used for all columns of the block and every element loaded from the right matrix for all rows
+* of the block. The rows of a block are adjacent in the column-major left matrix, so the loads of each step are
+* contiguous and can be combined into vector loads by the OpenCL compiler. This increases the arithmetic
+* intensity by a factor of <i>rows</i>&times;<i>columns</i>/(<i>rows</i>+<i>columns</i>), which also benefits
+* Aparapi's Java thread pool fallback (fewer work items, and fewer loads per multiplication).
+*
+* The block shape is chosen per operation (see {@link Block}). The range of work items is padded to a multiple of the
+* work group size. Blocks at the ragged edges of the result (and in the padded part of the range) are handled by
+* clamping the indices of the loads (the redundant results are computed, but not stored), so that the inner loop
+* remains free of branches.
+*
+* Kernels are kept in a {@link KernelPool} and reused for subsequent multiplications of the same shape; closing the
+* operation disposes them.
+*
+* @author Mirko Raner
+**/
+public class RegisterBlockedMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+extends MatrixMultiplication<M, N, K> implements AutoCloseable
+{
+    /**
+    * The supported block shapes (rows by columns of the result block that is computed by a single work item).
+    **/
+    public static enum Block
+    {
+        TWO_BY_TWO(2, 2, Kernel2x2::new),
+        FOUR_BY_FOUR(4, 4, Kernel4x4::new),
+        EIGHT_BY_ONE(8, 1, Kernel8x1::new);
+
+        final int rows;
+        final int columns;
+        final Supplier<MultiplicationKernel> kernel;
+
+        private Block(int rows, int columns, Supplier<MultiplicationKernel> kernel)
+        {
+            this.rows = rows;
+            this.columns = columns;
+            this.kernel = kernel;
+        }
+
+        public int getRows()
+        {
+            return rows;
+        }
+
+        public int getColumns()
+        {
+            return columns;
+        }
+    }
+
+    public final static Block DEFAULT_BLOCK = Block.FOUR_BY_FOUR;
+
+    private final Block block;
+    private final KernelPool<MultiplicationKernel> pool = new KernelPool<>();
+
+    public RegisterBlockedMultiplication(MatrixFactory factory)
+    {
+        this(factory, DEFAULT_BLOCK);
+    }
+
+    public RegisterBlockedMultiplication(MatrixFactory factory, Block block)
+    {
+        super(factory);
+        this.block = block;
+    }
+
+    /**
+    * @return the block shape of this operation
+    **/
+    public Block getBlock()
+    {
+        return block;
+    }
+
+    @Override
+    public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+    {
+        int numberOfRows = left.getRows();
+        int numberOfColumns = left.getColumns();
+        int targetNumberOfColumns = right.getColumns();
+        Dimension rows = Dimension.FACTORY.create(numberOfRows);
+        Dimension columns = Dimension.FACTORY.create(targetNumberOfColumns);
+        if (numberOfRows == 0 || numberOfColumns == 0 || targetNumberOfColumns == 0)
+        {
+            return factory.create(rows, columns, new float[numberOfRows*targetNumberOfColumns]);
+        }
+        final float[] A = left.getValues();
+        final float[] B = right.getValues();
+        String key = MultiplicationKernel.key(numberOfRows, numberOfColumns, targetNumberOfColumns);
+        float[] C = pool.execute(key, block.kernel,
+            kernel -> kernel.multiply(A, B, numberOfRows, numberOfColumns, targetNumberOfColumns));
+        return factory.create(rows, columns, C);
+    }
+
+    /**
+    * @return the {@link KernelPool} of this operation (e.g., for accessing its statistics)
+    **/
+    public KernelPool<?> getKernelPool()
+    {
+        return pool;
+    }
+
+    @Override
+    public void close()
+    {
+        pool.close();
+    }
+
+    /**
+    * {@link BlockKernel} is the common base class of the register-blocked kernels. Each work item computes a block
+    * of {@code BLOCK_ROWS} by {@code BLOCK_COLUMNS} result elements.
+    **/
+    abstract static class BlockKernel extends MultiplicationKernel
+    {
+        final static int GROUP_SIZE = 8;
+
+        final int BLOCK_ROWS;
+        final int BLOCK_COLUMNS;
+
+        BlockKernel(int blockRows, int blockColumns)
+        {
+            BLOCK_ROWS = blockRows;
+            BLOCK_COLUMNS = blockColumns;
+        }
+
+        // Stores a result element unless it lies outside of the result matrix (which also applies to all elements of
+        // the work items in the padded part of the range):
+        //
+        void store(int row, int column, float value)
+        {
+            if (row < numberOfRows && column < targetNumberOfColumns)
+            {
+                C[column*numberOfRows + row] = value;
+            }
+        }
+
+        @Override
+        Range range(int rows, int columns)
+        {
+            return Range.create2D(pad(rows, BLOCK_ROWS), pad(columns, BLOCK_COLUMNS), GROUP_SIZE, GROUP_SIZE);
+        }
+
+        // Determines the number of work items for a dimension, rounded up to a multiple of the work group size:
+        //
+        private static int pad(int size, int blockSize)
+        {
+            int items = (size + blockSize - 1)/blockSize;
+            return (items + GROUP_SIZE - 1)/GROUP_SIZE*GROUP_SIZE;
+        }
+    }
+
+    static class Kernel2x2 extends BlockKernel
+    {
+        Kernel2x2()
+        {
+            super(2, 2);
+        }
+
+        @Override
+        public void run()
+        {
+            int row = getGlobalId(0)*2;
+            int column = getGlobalId(1)*2;
+            int lastRow = numberOfRows - 1;
+            int lastColumn = targetNumberOfColumns - 1;
+            int row0 = min(row, lastRow);
+            int row1 = min(row + 1, lastRow);
+            int b0 = min(column, lastColumn)*numberOfColumns;
+            int b1 = min(column + 1, lastColumn)*numberOfColumns;
+            float c00 = 0;
+            float c10 = 0;
+            float c01 = 0;
+            float c11 = 0;
+            for (int repeat = 0; repeat < numberOfColumns; repeat++)
+            {
+                int a = repeat*numberOfRows;
+                float a0 = A[a + row0];
+                float a1 = A[a + row1];
+                float x0 = B[b0 + repeat];
+                float x1 = B[b1 + repeat];
+                c00 += a0*x0;
+                c10 += a1*x0;
+                c01 += a0*x1;
+                c11 += a1*x1;
+            }
+            store(row, column, c00);
+            store(row + 1, column, c10);
+            store(row, column + 1, c01);
+            store(row + 1, column + 1, c11);
+        }
+    }
+
+    static class Kernel4x4 extends BlockKernel
+    {
+        Kernel4x4()
+        {
+            super(4, 4);
+        }
+
+        @Override
+        public void run()
+        {
+            int row = getGlobalId(0)*4;
+            int column = getGlobalId(1)*4;
+            int lastRow = numberOfRows - 1;
+            int lastColumn = targetNumberOfColumns - 1;
+            int row0 = min(row, lastRow);
+            int row1 = min(row + 1, lastRow);
+            int row2 = min(row + 2, lastRow);
+            int row3 = min(row + 3, lastRow);
+            int b0 = min(column, lastColumn)*numberOfColumns;
+            int b1 = min(column + 1, lastColumn)*numberOfColumns;
+            int b2 = min(column + 2, lastColumn)*numberOfColumns;
+            int b3 = min(column + 3, lastColumn)*numberOfColumns;
+            float c00 = 0;
+            float c10 = 0;
+            float c20 = 0;
+            float c30 = 0;
+            float c01 = 0;
+            float c11 = 0;
+            float c21 = 0;
+            float c31 = 0;
+            float c02 = 0;
+            float c12 = 0;
+            float c22 = 0;
+            float c32 = 0;
+            float c03 = 0;
+            float c13 = 0;
+            float c23 = 0;
+            float c33 = 0;
+            for (int repeat = 0; repeat < numberOfColumns; repeat++)
+            {
+                int a = repeat*numberOfRows;
+                float a0 = A[a + row0];
+                float a1 = A[a + row1];
+                float a2 = A[a + row2];
+                float a3 = A[a + row3];
+                float x = B[b0 + repeat];
+                c00 += a0*x;
+                c10 += a1*x;
+                c20 += a2*x;
+                c30 += a3*x;
+                x = B[b1 + repeat];
+                c01 += a0*x;
+                c11 += a1*x;
+                c21 += a2*x;
+                c31 += a3*x;
+                x = B[b2 + repeat];
+                c02 += a0*x;
+                c12 += a1*x;
+                c22 += a2*x;
+                c32 += a3*x;
+                x = B[b3 + repeat];
+                c03 += a0*x;
+                c13 += a1*x;
+                c23 += a2*x;
+                c33 += a3*x;
+            }
+            store(row, column, c00);
+            store(row + 1, column, c10);
+            store(row + 2, column, c20);
+            store(row + 3, column, c30);
+            store(row, column + 1, c01);
+            store(row + 1, column + 1, c11);
+            store(row + 2, column + 1, c21);
+            store(row + 3, column + 1, c31);
+            store(row, column + 2, c02);
+            store(row + 1, column + 2, c12);
+            store(row + 2, column + 2, c22);
+            store(row + 3, column + 2, c32);
+            store(row, column + 3, c03);
+            store(row + 1, column + 3, c13);
+            store(row + 2, column + 3, c23);
+            store(row + 3, column + 3, c33);
+        }
+    }
+
+    static class Kernel8x1 extends BlockKernel
+    {
+        Kernel8x1()
+        {
+            super(8, 1);
+        }
+
+        @Override
+        public void run()
+        {
+            int row = getGlobalId(0)*8;
+            int column = getGlobalId(1);
+            int lastRow = numberOfRows - 1;
+            int row0 = min(row, lastRow);
+            int row1 = min(row + 1, lastRow);
+            int row2 = min(row + 2, lastRow);
+            int row3 = min(row + 3, lastRow);
+            int row4 = min(row + 4, lastRow);
+            int row5 = min(row + 5, lastRow);
+            int row6 = min(row + 6, lastRow);
+            int row7 = min(row + 7, lastRow);
+            int b = min(column, targetNumberOfColumns - 1)*numberOfColumns;
+            float c0 = 0;
+            float c1 = 0;
+            float c2 = 0;
+            float c3 = 0;
+            float c4 = 0;
+            float c5 = 0;
+            float c6 = 0;
+            float c7 = 0;
+            for (int repeat = 0; repeat < numberOfColumns; repeat++)
+            {
+                int a = repeat*numberOfRows;
+                float x = B[b + repeat];
+                c0 += A[a + row0]*x;
+                c1 += A[a + row1]*x;
+                c2 += A[a + row2]*x;
+                c3 += A[a + row3]*x;
+                c4 += A[a + row4]*x;
+                c5 += A[a + row5]*x;
+                c6 += A[a + row6]*x;
+                c7 += A[a + row7]*x;
+            }
+            store(row, column, c0);
+            store(row + 1, column, c1);
+            store(row + 2, column, c2);
+            store(row + 3, column, c3);
+            store(row + 4, column, c4);
+            store(row + 5, column, c5);
+            store(row + 6, column, c6);
+            store(row + 7, column, c7);
+        }
+    }
+}
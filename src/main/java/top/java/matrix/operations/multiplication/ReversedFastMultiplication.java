@@ -15,7 +15,6 @@
 //                                                                          //
 package top.java.matrix.operations.multiplication;
 
-import com.aparapi.Kernel;
 import com.aparapi.Range;
 import top.java.matrix.Dimension;
 import top.java.matrix.Matrix;
@@ -27,13 +26,16 @@ import top.java.matrix.operations.MatrixMultiplication;
 * (i.e., target columns first, then target rows). This performs the same function as the regular {@link FastMultiplication},
 * but due to the less sequential memory access it is about 2.5x slower (though it is still about 3x faster than naive matrix
 * multiplication). Therefore, in practice, there is very little reason to use {@link ReversedFastMultiplication}, and it
-* mainly serves as a reference implementation for performance comparisons.
+* mainly serves as a reference implementation for performance comparisons. Like {@link FastMultiplication}, it reuses
+* pooled kernels.
 *
 * @author Mirko Raner
 **/
 public class ReversedFastMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
-extends MatrixMultiplication<M, N, K>
+extends MatrixMultiplication<M, N, K> implements AutoCloseable
 {
+    private final KernelPool<ReversedFastKernel> pool = new KernelPool<>();
+
     public ReversedFastMultiplication(MatrixFactory factory)
     {
         super(factory);
@@ -44,26 +46,48 @@ extends MatrixMultiplication<M, N, K>
     {
         int numberOfRows = left.getRows();
         int numberOfColumns = left.getColumns();
-        int targetNumberOfRows = right.getRows();
         int targetNumberOfColumns = right.getColumns();
         final float[] A = left.getValues();
         final float[] B = right.getValues();
-        final float[] C = new float[numberOfRows*targetNumberOfColumns];
-        Kernel kernel = new Kernel()
+        String key = MultiplicationKernel.key(numberOfRows, numberOfColumns, targetNumberOfColumns);
+        float[] C = pool.execute(key, ReversedFastKernel::new,
+            kernel -> kernel.multiply(A, B, numberOfRows, numberOfColumns, targetNumberOfColumns));
+        return factory.create(Dimension.FACTORY.create(numberOfRows), Dimension.FACTORY.create(targetNumberOfColumns), C);
+    }
+
+    /**
+    * @return the {@link KernelPool} of this operation (e.g., for accessing its statistics)
+    **/
+    public KernelPool<?> getKernelPool()
+    {
+        return pool;
+    }
+
+    @Override
+    public void close()
+    {
+        pool.close();
+    }
+
+    static class ReversedFastKernel extends MultiplicationKernel
+    {
+        @Override
+        public void run()
         {
-            @Override
-            public void run() {
-                int row = getGlobalId(1);
-                int column = getGlobalId(0);
-                int value = 0;
-                for (int repeat = 0; repeat < numberOfColumns; repeat++)
-                {
-                    value += A[row + repeat*numberOfRows] * B[repeat + column*targetNumberOfRows];
-                }
-                C[row + column*numberOfRows] = value;
+            int row = getGlobalId(1);
+            int column = getGlobalId(0);
+            float value = 0;
+            for (int repeat = 0; repeat < numberOfColumns; repeat++)
+            {
+                value += A[row + repeat*numberOfRows] * B[repeat + column*targetNumberOfRows];
             }
-         };
-         kernel.execute(Range.create2D(targetNumberOfColumns, numberOfRows));
-         return factory.create(Dimension.FACTORY.create(numberOfRows), Dimension.FACTORY.create(targetNumberOfColumns), C);
+            C[row + column*numberOfRows] = value;
+        }
+
+        @Override
+        Range range(int rows, int columns)
+        {
+            return Range.create2D(columns, rows);
+        }
     }
 }
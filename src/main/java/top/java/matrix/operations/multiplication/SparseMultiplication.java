@@ -0,0 +1,310 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.internal.SparseMatrix;
+import top.java.matrix.internal.SparseMatrix.Format;
+import top.java.matrix.operations.MatrixMultiplication;
+
+/**
+* {@link SparseMultiplication} multiplies matrices of which at least one is a {@link SparseMatrix}. Only the
+* non-zero elements of the sparse operands are visited, so the cost of a multiplication is proportional to the
+* number of non-zeros rather than to the full size of the operands. The columns (or rows) of the result are
+* computed in parallel in a {@link ForkJoinPool}:
+* <ul>
+* <li>sparse x dense adds scaled sparse columns (CSC) or computes sparse dot products (CSR)</li>
+* <li>dense x sparse adds scaled dense columns for each non-zero of the right operand (which is converted to CSC
+* if necessary)</li>
+* <li>sparse x sparse uses Gustavson's algorithm with a dense accumulator per result column and produces a
+* {@link SparseMatrix} in CSC format</li>
+* </ul>
+* Products of two dense matrices are delegated to {@link BlockedMultiplication}.
+*
+* @author Mirko Raner
+**/
+public class SparseMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+extends MatrixMultiplication<M, N, K>
+{
+    /**
+    * The approximate number of multiply-add operations below which a range of columns is not split any further.
+    **/
+    public final static int SEQUENTIAL_THRESHOLD = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final MatrixMultiplication<M, N, K> dense;
+
+    public SparseMultiplication(MatrixFactory factory)
+    {
+        this(factory, ForkJoinPool.commonPool());
+    }
+
+    public SparseMultiplication(MatrixFactory factory, ForkJoinPool pool)
+    {
+        super(factory);
+        this.pool = pool;
+        this.dense = new BlockedMultiplication<>(factory, pool);
+    }
+
+    @Override
+    public boolean isFormatSpecific()
+    {
+        return true;
+    }
+
+    @Override
+    public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+    {
+        if (left instanceof SparseMatrix && right instanceof SparseMatrix)
+        {
+            return multiply((SparseMatrix<M, K>)left, (SparseMatrix<K, N>)right);
+        }
+        if (!(left instanceof SparseMatrix || right instanceof SparseMatrix))
+        {
+            return dense.apply(left, right);
+        }
+        int rows = left.getRows();
+        int columns = right.getColumns();
+        float[] result = new float[rows*columns];
+        multiply(left, right, result);
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), result);
+    }
+
+    @Override
+    public Matrix<M, N> applyInto(Matrix<M, K> left, Matrix<K, N> right, Matrix<M, N> destination)
+    {
+        checkDestination(left, right, destination);
+        float[] result = array(destination.getBuffer());
+        if (result == null || (left instanceof SparseMatrix) == (right instanceof SparseMatrix))
+        {
+            return super.applyInto(left, right, destination);
+        }
+        Arrays.fill(result, 0, left.getRows()*right.getColumns(), 0);
+        multiply(left, right, result);
+        return destination;
+    }
+
+    // Adds the product of a sparse and a dense matrix to the result array, which is expected to contain only zeros:
+    //
+    private void multiply(Matrix<M, K> left, Matrix<K, N> right, float[] C)
+    {
+        int rows = left.getRows();
+        int depth = left.getColumns();
+        int columns = right.getColumns();
+        if (rows == 0 || depth == 0 || columns == 0)
+        {
+            return;
+        }
+        if (left instanceof SparseMatrix)
+        {
+            SparseMatrix<M, K> sparse = (SparseMatrix<M, K>)left;
+            int[] pointers = sparse.getPointers();
+            int[] indices = sparse.getIndices();
+            float[] values = sparse.getNonZeroValues();
+            float[] B = right.getValues();
+            if (sparse.getFormat() == Format.CSC)
+            {
+                // C[:,x] += A[:,z]*B[z,x], visiting only the non-zeros of A[:,z]:
+                //
+                parallel(columns, sparse.getNonZeros(), x ->
+                {
+                    int target = x*rows;
+                    for (int z = 0; z < depth; z++)
+                    {
+                        float b = B[z + x*depth];
+                        if (b != 0)
+                        {
+                            for (int position = pointers[z]; position < pointers[z + 1]; position++)
+                            {
+                                C[target + indices[position]] += values[position]*b;
+                            }
+                        }
+                    }
+                });
+            }
+            else
+            {
+                // C[y,x] = A[y,:]*B[:,x], visiting only the non-zeros of A[y,:]:
+                //
+                parallel(rows, (long)sparse.getNonZeros()*columns/rows, y ->
+                {
+                    for (int x = 0; x < columns; x++)
+                    {
+                        int source = x*depth;
+                        float sum = 0;
+                        for (int position = pointers[y]; position < pointers[y + 1]; position++)
+                        {
+                            sum += values[position]*B[source + indices[position]];
+                        }
+                        C[y + x*rows] = sum;
+                    }
+                });
+            }
+        }
+        else
+        {
+            // C[:,x] += A[:,z]*B[z,x] for all non-zeros B[z,x] of column x:
+            //
+            SparseMatrix<K, N> sparse = ((SparseMatrix<K, N>)right).toFormat(Format.CSC);
+            int[] pointers = sparse.getPointers();
+            int[] indices = sparse.getIndices();
+            float[] values = sparse.getNonZeroValues();
+            float[] A = left.getValues();
+            parallel(columns, (long)sparse.getNonZeros()*rows/columns, x ->
+            {
+                int target = x*rows;
+                for (int position = pointers[x]; position < pointers[x + 1]; position++)
+                {
+                    int source = indices[position]*rows;
+                    float b = values[position];
+                    for (int y = 0; y < rows; y++)
+                    {
+                        C[target + y] += A[source + y]*b;
+                    }
+                }
+            });
+        }
+    }
+
+    private Matrix<M, N> multiply(SparseMatrix<M, K> left, SparseMatrix<K, N> right)
+    {
+        SparseMatrix<M, K> A = left.toFormat(Format.CSC);
+        SparseMatrix<K, N> B = right.toFormat(Format.CSC);
+        int rows = A.getRows();
+        int columns = B.getColumns();
+        int[][] resultIndices = new int[columns][];
+        float[][] resultValues = new float[columns][];
+        ThreadLocal<Accumulator> accumulators = ThreadLocal.withInitial(() -> new Accumulator(rows));
+        long work = (long)B.getNonZeros()*Math.max(1, A.getNonZeros()/Math.max(1, A.getColumns()))/Math.max(1, columns);
+        parallel(columns, work, x -> accumulators.get().column(A, B, x, resultIndices, resultValues));
+        int[] pointers = new int[columns + 1];
+        for (int x = 0; x < columns; x++)
+        {
+            pointers[x + 1] = pointers[x] + resultIndices[x].length;
+        }
+        int[] indices = new int[pointers[columns]];
+        float[] values = new float[pointers[columns]];
+        for (int x = 0; x < columns; x++)
+        {
+            System.arraycopy(resultIndices[x], 0, indices, pointers[x], resultIndices[x].length);
+            System.arraycopy(resultValues[x], 0, values, pointers[x], resultValues[x].length);
+        }
+        return new SparseMatrix<>(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), Format.CSC,
+            pointers, indices, values);
+    }
+
+    private void parallel(int count, long workPerIndex, IntConsumer body)
+    {
+        if (count > 0)
+        {
+            pool.invoke(new Range(body, Math.max(1, workPerIndex), 0, count));
+        }
+    }
+
+    /**
+    * The {@link Accumulator} is the per-thread workspace of Gustavson's algorithm. It collects the scaled
+    * columns of the left operand that contribute to a single column of the result in a dense array.
+    **/
+    private static class Accumulator
+    {
+        private final float[] sums;
+        private final boolean[] occupied;
+        private final int[] touched;
+
+        Accumulator(int rows)
+        {
+            sums = new float[rows];
+            occupied = new boolean[rows];
+            touched = new int[rows];
+        }
+
+        void column(SparseMatrix<?, ?> A, SparseMatrix<?, ?> B, int x, int[][] resultIndices, float[][] resultValues)
+        {
+            int[] leftPointers = A.getPointers();
+            int[] leftIndices = A.getIndices();
+            float[] leftValues = A.getNonZeroValues();
+            int[] rightPointers = B.getPointers();
+            int[] rightIndices = B.getIndices();
+            float[] rightValues = B.getNonZeroValues();
+            int count = 0;
+            for (int position = rightPointers[x]; position < rightPointers[x + 1]; position++)
+            {
+                int z = rightIndices[position];
+                float b = rightValues[position];
+                for (int source = leftPointers[z]; source < leftPointers[z + 1]; source++)
+                {
+                    int row = leftIndices[source];
+                    if (!occupied[row])
+                    {
+                        occupied[row] = true;
+                        sums[row] = 0;
+                        touched[count++] = row;
+                    }
+                    sums[row] += leftValues[source]*b;
+                }
+            }
+            Arrays.sort(touched, 0, count);
+            int[] indices = Arrays.copyOf(touched, count);
+            float[] values = new float[count];
+            for (int index = 0; index < count; index++)
+            {
+                values[index] = sums[indices[index]];
+                occupied[indices[index]] = false;
+            }
+            resultIndices[x] = indices;
+            resultValues[x] = values;
+        }
+    }
+
+    private static class Range extends RecursiveAction
+    {
+        private final static long serialVersionUID = -6405870815316326917L;
+
+        private final IntConsumer body;
+        private final long workPerIndex;
+        private final int first;
+        private final int last;
+
+        Range(IntConsumer body, long workPerIndex, int first, int last)
+        {
+            this.body = body;
+            this.workPerIndex = workPerIndex;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (last - first > 1 && (last - first)*workPerIndex > SEQUENTIAL_THRESHOLD)
+            {
+                int split = (first + last) >>> 1;
+                invokeAll(new Range(body, workPerIndex, first, split), new Range(body, workPerIndex, split, last));
+                return;
+            }
+            for (int index = first; index < last; index++)
+            {
+                body.accept(index);
+            }
+        }
+    }
+}
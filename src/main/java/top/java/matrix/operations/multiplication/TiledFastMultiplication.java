@@ -15,8 +15,9 @@
 //                                                                          //
 package top.java.matrix.operations.multiplication;
 
-import com.aparapi.Kernel;
 import com.aparapi.Range;
+import com.aparapi.device.Device;
+import com.aparapi.device.OpenCLDevice;
 import top.java.matrix.Dimension;
 import top.java.matrix.Matrix;
 import top.java.matrix.MatrixFactory;
@@ -24,16 +25,23 @@ import top.java.matrix.operations.MatrixMultiplication;
 
 /**
 * {@link TiledFastMultiplication} implements GPU-accelerated matrix multiplication that uses tiling to make better
-* use of local GPU memory. The tile size needs to be chosen manually and all matrix dimensions need to be a multiple
-* of the tile size. Also, the tile size needs to be chosen in such a fashion that it does not exceed the GPUs
-* available local memory. If no tile size is specified, the implementation will use {@link #DEFAULT_TILE_SIZE}.
-* For matrices with dimensions that are incompatible with the tile size, the implementation will fall back
-* to the regular {@link FastMultiplication} algorithm.
+* use of local GPU memory. Matrices of arbitrary (including rectangular) shapes are supported: the range of work
+* items is padded to the next multiple of the tile size, and the tiles at the ragged edges are masked, i.e., their
+* out-of-bounds elements are loaded as zeros and the corresponding results are not stored. The input and output
+* arrays themselves are never padded or copied.
+*
+* The tile size needs to be chosen in such a fashion that two tiles fit into the GPU's local memory and that a
+* tile does not exceed the maximum work group size. If no tile size is specified, the implementation chooses the
+* largest suitable tile size for the best available OpenCL device (see {@link #tileSize(Device)}), or
+* {@link #DEFAULT_TILE_SIZE} if no OpenCL device is available.
 *
 * For multiplying two 1000-by-1000 matrices with a tile size of 10 on a CPU with Intel HD Graphics 6000, this
 * implementation is about 35 times faster than the naive, CPU-based implementation. With a tile size of 5 the
-* speed increase is about half of that. So far, tile sizes of 5 and 10 are the only tile sizes that have been
-* used successfully for 1000-by-1000 matrix multiplication.
+* speed increase is about half of that.
+*
+* Kernels are kept in a {@link KernelPool} and reused for subsequent multiplications of the same shape (each
+* {@link TiledFastMultiplication} has its own pool, so the tile size is fixed per pool); closing the operation
+* disposes them.
 *
 * <B>NOTE:</B> for a tile size of 1 (i.e., 1-by-1 tiles) this implementation will become extremely slow
 * (in fact, slower than the naive implementation on the CPU).
@@ -41,76 +49,215 @@ import top.java.matrix.operations.MatrixMultiplication;
 * @author Mirko Raner
 **/
 public class TiledFastMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
-extends MatrixMultiplication<M, N, K>
+extends MatrixMultiplication<M, N, K> implements AutoCloseable
 {
     public final static int DEFAULT_TILE_SIZE = 10;
 
-    private int tileSize;
+    /**
+    * The largest tile size that is chosen automatically (larger tiles do not improve the reuse of local memory
+    * enough to make up for the additional padding at the edges).
+    **/
+    public final static int MAXIMUM_TILE_SIZE = 32;
+
+    /**
+    * The maximum fraction of additional (padded) work for which {@link #supports(int, int, int)} still
+    * recommends the tiled kernel.
+    **/
+    public final static double MAXIMUM_PADDING = 0.25;
+
+    private final int tileSize;
+    private final KernelPool<TiledKernel> pool = new KernelPool<>();
 
     public TiledFastMultiplication(MatrixFactory factory)
     {
-        this(factory, DEFAULT_TILE_SIZE);
+        this(factory, defaultTileSize());
     }
 
     public TiledFastMultiplication(MatrixFactory factory, int tileSize)
     {
         super(factory);
+        if (tileSize < 1)
+        {
+            throw new IllegalArgumentException("Tile size must be positive");
+        }
         this.tileSize = tileSize;
     }
 
+    /**
+    * Determines the largest tile size for which two square tiles of {@code float}s fit into the local memory of
+    * a device, and for which a tile does not exceed the device's maximum work group size (or work item sizes).
+    *
+    * @param device the {@link Device}
+    * @return the tile size (at most {@link #MAXIMUM_TILE_SIZE}), or {@link #DEFAULT_TILE_SIZE} if the device is
+    * not an OpenCL device
+    **/
+    public static int tileSize(Device device)
+    {
+        if (!(device instanceof OpenCLDevice))
+        {
+            return DEFAULT_TILE_SIZE;
+        }
+        OpenCLDevice openCL = (OpenCLDevice)device;
+        int[] itemSizes = openCL.getMaxWorkItemSize();
+        long elements = Math.min(openCL.getLocalMemSize()/(2*Float.BYTES), openCL.getMaxWorkGroupSize());
+        int tileSize = (int)Math.min(Math.sqrt(elements), MAXIMUM_TILE_SIZE);
+        if (itemSizes != null && itemSizes.length > 1)
+        {
+            tileSize = Math.min(tileSize, Math.min(itemSizes[0], itemSizes[1]));
+        }
+        return Math.max(tileSize, 1);
+    }
+
+    /**
+    * @return the tile size of this operation
+    **/
+    public int getTileSize()
+    {
+        return tileSize;
+    }
+
+    /**
+    * Determines whether a multiplication of the given shape is a good fit for tiling, i.e., whether padding the
+    * dimensions to multiples of the tile size adds at most {@link #MAXIMUM_PADDING} to the total work.
+    * Multiplications of all other shapes are still computed correctly, but less efficiently.
+    *
+    * @param rows the number of rows of the left matrix
+    * @param depth the number of columns of the left matrix (and rows of the right matrix)
+    * @param columns the number of columns of the right matrix
+    * @return {@code true} if the padding overhead is acceptable, {@code false} otherwise
+    **/
+    public boolean supports(int rows, int depth, int columns)
+    {
+        double padded = (double)pad(rows)*pad(depth)*pad(columns);
+        return padded <= (1 + MAXIMUM_PADDING)*rows*depth*columns;
+    }
+
     @Override
     public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
     {
         int numberOfRows = left.getRows();
         int numberOfColumns = left.getColumns();
         int targetNumberOfColumns = right.getColumns();
-        if (numberOfRows % tileSize + numberOfColumns % tileSize + targetNumberOfColumns % tileSize > 0)
+        Dimension rows = Dimension.FACTORY.create(numberOfRows);
+        Dimension columns = Dimension.FACTORY.create(targetNumberOfColumns);
+        if (numberOfRows == 0 || numberOfColumns == 0 || targetNumberOfColumns == 0)
         {
-            return new FastMultiplication<M, N, K>(factory).apply(left, right);
+            return factory.create(rows, columns, new float[numberOfRows*targetNumberOfColumns]);
         }
         final float[] A = left.getValues();
         final float[] B = right.getValues();
-        final float[] C = new float[numberOfRows*targetNumberOfColumns];
-        final int TILE_SIZE = tileSize;
-        Kernel kernel = new Kernel()
+        String key = MultiplicationKernel.key(numberOfRows, numberOfColumns, targetNumberOfColumns);
+        float[] C = pool.execute(key, () -> new TiledKernel(tileSize),
+            kernel -> kernel.multiply(A, B, numberOfRows, numberOfColumns, targetNumberOfColumns));
+        return factory.create(rows, columns, C);
+    }
+
+    /**
+    * @return the {@link KernelPool} of this operation (e.g., for accessing its statistics)
+    **/
+    public KernelPool<?> getKernelPool()
+    {
+        return pool;
+    }
+
+    @Override
+    public void close()
+    {
+        pool.close();
+    }
+
+    private long pad(int size)
+    {
+        return (size + tileSize - 1L)/tileSize*tileSize;
+    }
+
+    // Device.best() is only deprecated in favor of Aparapi's internal KernelManager API:
+    //
+    @SuppressWarnings("deprecation")
+    private static int defaultTileSize()
+    {
+        try
+        {
+            return tileSize(Device.best());
+        }
+        catch (RuntimeException | LinkageError noOpenCL)
         {
-            @Local final float[] tileA = new float[TILE_SIZE*TILE_SIZE];
-            @Local final float[] tileB = new float[TILE_SIZE*TILE_SIZE];
+            return DEFAULT_TILE_SIZE;
+        }
+    }
+
+    static class TiledKernel extends MultiplicationKernel
+    {
+        final int TILE_SIZE;
+        @Local final float[] tileA;
+        @Local final float[] tileB;
 
-            @Override
-            public void run()
+        TiledKernel(int tileSize)
+        {
+            TILE_SIZE = tileSize;
+            tileA = new float[TILE_SIZE*TILE_SIZE];
+            tileB = new float[TILE_SIZE*TILE_SIZE];
+        }
+
+        @Override
+        public void run()
+        {
+            @Constant int numberOfTiles = (numberOfColumns + TILE_SIZE - 1)/TILE_SIZE;
+            int row = getGlobalId(0);
+            int column = getGlobalId(1);
+            int localRow = getLocalId(0);
+            int localColumn = getLocalId(1);
+            float value = 0;
+
+            for (int tile = 0; tile < numberOfTiles; tile++)
             {
-                @Constant int numberOfTiles = numberOfColumns/TILE_SIZE;
-                int row = getGlobalId(0);
-                int column = getGlobalId(1);
-                int localRow = getLocalId(0);
-                int localColumn = getLocalId(1);
-                float value = 0;
-
-                for (int tile = 0; tile < numberOfTiles; tile++)
+                @Constant int tiledRow = TILE_SIZE*tile + localRow;
+                @Constant int tiledColumn = TILE_SIZE*tile + localColumn;
+
+                // Work items outside the matrices (in the padded part of the range) load zeros, but they still
+                // need to participate in loading the tiles and in the barriers:
+                //
+                float a = 0;
+                float b = 0;
+                if (row < numberOfRows && tiledColumn < numberOfColumns)
+                {
+                    a = A[tiledColumn*numberOfRows + row];
+                }
+                if (tiledRow < numberOfColumns && column < targetNumberOfColumns)
+                {
+                    b = B[column*numberOfColumns + tiledRow];
+                }
+                tileA[localColumn*TILE_SIZE + localRow] = a;
+                tileB[localColumn*TILE_SIZE + localRow] = b;
+
+                // Ensure that the entire tile is loaded before starting the computation:
+                //
+                localBarrier();
+
+                for (int repeat = 0; repeat < TILE_SIZE; repeat++)
                 {
-                    @Constant int tiledRow = TILE_SIZE*tile + localRow;
-                    @Constant int tiledColumn = TILE_SIZE*tile + localColumn;
-                    tileA[localColumn*TILE_SIZE + localRow] = A[tiledColumn*numberOfRows + row];
-                    tileB[localColumn*TILE_SIZE + localRow] = B[column*numberOfColumns + tiledRow];
-
-                    // Ensure that the entire tile is loaded before starting the computation:
-                    //
-                    localBarrier();
-
-                    for (int repeat = 0; repeat < TILE_SIZE; repeat++)
-                    {
-                        value += tileA[repeat*TILE_SIZE + localRow] * tileB[localColumn*TILE_SIZE + repeat];
-                    }
-
-                    // Make sure all computations are finished before loading the next tile:
-                    //
-                    localBarrier();
+                    value += tileA[repeat*TILE_SIZE + localRow] * tileB[localColumn*TILE_SIZE + repeat];
                 }
+
+                // Make sure all computations are finished before loading the next tile:
+                //
+                localBarrier();
+            }
+            if (row < numberOfRows && column < targetNumberOfColumns)
+            {
                 C[column*numberOfRows + row] = value;
             }
-        };
-        kernel.execute(Range.create2D(numberOfRows, targetNumberOfColumns, TILE_SIZE, TILE_SIZE));
-        return factory.create(Dimension.FACTORY.create(numberOfRows), Dimension.FACTORY.create(targetNumberOfColumns), C);
+        }
+
+        @Override
+        Range range(int rows, int columns)
+        {
+            return Range.create2D(pad(rows), pad(columns), TILE_SIZE, TILE_SIZE);
+        }
+
+        private int pad(int size)
+        {
+            return (size + TILE_SIZE - 1)/TILE_SIZE*TILE_SIZE;
+        }
     }
 }
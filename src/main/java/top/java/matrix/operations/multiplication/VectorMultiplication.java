@@ -0,0 +1,81 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.operations.MatrixMultiplication;
+
+/**
+* {@link VectorMultiplication} is a {@link MatrixMultiplication} for right-hand side matrices with a single column,
+* which computes the product as a matrix-vector product (see {@link ParallelMatrixVectorMultiplication}) instead
+* of a general matrix multiplication. It allows code that represents vectors as single-column matrices to benefit
+* from the GEMV path (e.g., via {@link AdaptiveMultiplication}).
+*
+* @author Mirko Raner
+**/
+public class VectorMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+extends MatrixMultiplication<M, N, K>
+{
+    private final ParallelMatrixVectorMultiplication<M, K> multiplication;
+
+    public VectorMultiplication(MatrixFactory factory)
+    {
+        this(factory, ForkJoinPool.commonPool());
+    }
+
+    public VectorMultiplication(MatrixFactory factory, ForkJoinPool pool)
+    {
+        super(factory);
+        multiplication = new ParallelMatrixVectorMultiplication<>(factory, pool);
+    }
+
+    @Override
+    public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+    {
+        check(left, right);
+        float[] result = new float[left.getRows()];
+        multiplication.multiply(left, false, right.getValues(), result);
+        return factory.create(Dimension.FACTORY.create(result.length), Dimension.FACTORY.create(1), result);
+    }
+
+    @Override
+    public Matrix<M, N> applyInto(Matrix<M, K> left, Matrix<K, N> right, Matrix<M, N> destination)
+    {
+        checkDestination(left, right, destination);
+        float[] result = array(destination.getBuffer());
+        if (result == null)
+        {
+            return super.applyInto(left, right, destination);
+        }
+        check(left, right);
+        Arrays.fill(result, 0, left.getRows(), 0);
+        multiplication.multiply(left, false, right.getValues(), result);
+        return destination;
+    }
+
+    private static void check(Matrix<?, ?> left, Matrix<?, ?> right)
+    {
+        if (right.getColumns() != 1 || left.getColumns() != right.getRows())
+        {
+            throw new IllegalArgumentException("Cannot multiply " + left.getRows() + "x" + left.getColumns()
+                + " matrix by " + right.getRows() + "x" + right.getColumns() + " matrix as a matrix-vector product");
+        }
+    }
+}
@@ -0,0 +1,186 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.reduction;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import top.java.matrix.Dimension;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.operations.MatrixReduction;
+import top.java.matrix.operations.Reduction;
+
+/**
+* {@link ParallelReduction} reduces the column-major elements of a matrix in parallel, in a {@link ForkJoinPool}.
+* Reductions of the whole matrix and of individual columns run over contiguous ranges of elements; reductions of
+* individual rows split the matrix into ranges of rows and accumulate each column of a range into an array of
+* accumulators, so that all loops have unit stride.
+*
+* @param <M> the rows dimension of the matrix
+* @param <N> the columns dimension of the matrix
+*
+* @author Mirko Raner
+**/
+public class ParallelReduction<M extends Dimension, N extends Dimension> extends MatrixReduction<M, N>
+{
+    /**
+    * The number of elements below which a range is not split any further.
+    **/
+    public final static int SEQUENTIAL_THRESHOLD = 1 << 15;
+
+    private final ForkJoinPool pool;
+
+    public ParallelReduction(MatrixFactory factory)
+    {
+        this(factory, ForkJoinPool.commonPool());
+    }
+
+    public ParallelReduction(MatrixFactory factory, ForkJoinPool pool)
+    {
+        super(factory);
+        this.pool = pool;
+    }
+
+    @Override
+    public float reduce(Matrix<M, N> matrix, Reduction reduction)
+    {
+        float[] values = matrix.getValues();
+        return reduction.finish(pool.invoke(new Range(reduction, values, 0, values.length)));
+    }
+
+    @Override
+    public Matrix<One, N> reduceColumns(Matrix<M, N> matrix, Reduction reduction)
+    {
+        float[] values = matrix.getValues();
+        int rows = matrix.getRows();
+        int columns = matrix.getColumns();
+        float[] result = new float[columns];
+        pool.invoke(new Partition(columns, rows, (first, last) ->
+        {
+            for (int x = first; x < last; x++)
+            {
+                result[x] = reduction.finish(reduction.accumulate(reduction.identity(), values, x*rows, rows));
+            }
+        }));
+        return factory.create(Dimension.FACTORY.create(1), Dimension.FACTORY.create(columns), result);
+    }
+
+    @Override
+    public Matrix<M, One> reduceRows(Matrix<M, N> matrix, Reduction reduction)
+    {
+        float[] values = matrix.getValues();
+        int rows = matrix.getRows();
+        int columns = matrix.getColumns();
+        float[] result = new float[rows];
+        pool.invoke(new Partition(rows, columns, (first, last) ->
+        {
+            double[] accumulators = new double[last - first];
+            Arrays.fill(accumulators, reduction.identity());
+            for (int x = 0; x < columns; x++)
+            {
+                reduction.accumulate(accumulators, values, first + x*rows, last - first);
+            }
+            for (int y = first; y < last; y++)
+            {
+                result[y] = reduction.finish(accumulators[y - first]);
+            }
+        }));
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(1), result);
+    }
+
+    private static class Range extends RecursiveTask<Double>
+    {
+        private final static long serialVersionUID = -2466180553297372805L;
+
+        private final Reduction reduction;
+        private final float[] values;
+        private final int first;
+        private final int last;
+
+        Range(Reduction reduction, float[] values, int first, int last)
+        {
+            this.reduction = reduction;
+            this.values = values;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected Double compute()
+        {
+            if (last - first > SEQUENTIAL_THRESHOLD)
+            {
+                int split = (first + last) >>> 1;
+                Range right = new Range(reduction, values, split, last);
+                right.fork();
+                double left = new Range(reduction, values, first, split).compute();
+                return reduction.combine(left, right.join());
+            }
+            return reduction.accumulate(reduction.identity(), values, first, last - first);
+        }
+    }
+
+    /**
+    * A {@link Partition} splits a range of indices (of rows or columns) into parts that each cover at least
+    * {@link #SEQUENTIAL_THRESHOLD} elements.
+    **/
+    private static class Partition extends RecursiveAction
+    {
+        private final static long serialVersionUID = 6815011307016580493L;
+
+        private final int first;
+        private final int last;
+        private final int elementsPerIndex;
+        private final IndexRange body;
+
+        Partition(int count, int elementsPerIndex, IndexRange body)
+        {
+            this(0, count, elementsPerIndex, body);
+        }
+
+        Partition(int first, int last, int elementsPerIndex, IndexRange body)
+        {
+            this.first = first;
+            this.last = last;
+            this.elementsPerIndex = elementsPerIndex;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (last - first > 1 && (long)(last - first)*elementsPerIndex > SEQUENTIAL_THRESHOLD)
+            {
+                int split = (first + last) >>> 1;
+                invokeAll(new Partition(first, split, elementsPerIndex, body), new Partition(split, last, elementsPerIndex, body));
+                return;
+            }
+            if (last > first)
+            {
+                body.accept(first, last);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private static interface IndexRange
+    {
+        void accept(int first, int last);
+    }
+}
@@ -0,0 +1,71 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.transposition;
+
+import java.nio.FloatBuffer;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.operations.MatrixTransposition;
+
+/**
+* Basic matrix transposition coded in plain Java. Reads the matrix sequentially, but writes the transpose with
+* a stride of one full column, which becomes very cache-unfriendly for large matrices.
+*
+* @author Mirko Raner
+**/
+public class BasicTransposition<M extends Dimension, N extends Dimension> extends MatrixTransposition<M, N>
+{
+    public BasicTransposition(MatrixFactory factory)
+    {
+        super(factory);
+    }
+
+    @Override
+    public Matrix<N, M> apply(Matrix<M, N> matrix)
+    {
+        float[] transpose = new float[matrix.getRows()*matrix.getColumns()];
+        transpose(matrix, FloatBuffer.wrap(transpose));
+        return factory.create(Dimension.FACTORY.create(matrix.getColumns()), Dimension.FACTORY.create(matrix.getRows()), transpose);
+    }
+
+    @Override
+    public Matrix<N, M> applyInto(Matrix<M, N> matrix, Matrix<N, M> destination)
+    {
+        checkDestination(matrix, destination);
+        FloatBuffer buffer = destination.getBuffer();
+        if (buffer.isReadOnly())
+        {
+            return super.applyInto(matrix, destination);
+        }
+        transpose(matrix, buffer);
+        return destination;
+    }
+
+    private void transpose(Matrix<M, N> matrix, FloatBuffer transpose)
+    {
+        int numberOfRows = matrix.getRows();
+        int numberOfColumns = matrix.getColumns();
+        FloatBuffer elements = matrix.getBuffer();
+        for (int column = 0; column < numberOfColumns; column++)
+        {
+            for (int row = 0; row < numberOfRows; row++)
+            {
+                transpose.put(column + row*numberOfColumns, elements.get(row + column*numberOfRows));
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.transposition;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.operations.MatrixElementAccess;
+import top.java.matrix.operations.MatrixTransposition;
+
+/**
+* {@link BlockedTransposition} is a cache-oblivious matrix transposition. The matrix is recursively split along
+* its longer side until the remaining blocks are at most {@code blockSize} x {@code blockSize} elements, so that
+* at every level of the memory hierarchy both the rows that are read and the columns that are written stay in
+* cache, without the need to tune the block size for a particular cache. Sufficiently large halves are
+* transposed in parallel in a {@link ForkJoinPool}.
+* <br>
+* <br>
+* Square matrices can also be transposed in place via {@link #applyInPlace(Matrix)}, which swaps mirrored blocks
+* across the diagonal using the same recursive decomposition. Both variants access the matrix storage according
+* to the matrix's {@link MatrixElementAccess} layout, so views are transposed without gathering their elements.
+*
+* @author Mirko Raner
+**/
+public class BlockedTransposition<M extends Dimension, N extends Dimension> extends MatrixTransposition<M, N>
+{
+    public final static int DEFAULT_BLOCK_SIZE = 32;
+
+    /**
+    * Blocks with fewer elements than this are always transposed by the current thread.
+    **/
+    public final static int SEQUENTIAL_THRESHOLD = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final int blockSize;
+
+    public BlockedTransposition(MatrixFactory factory)
+    {
+        this(factory, ForkJoinPool.commonPool(), DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+    * Creates a new {@link BlockedTransposition}.
+    *
+    * @param factory the factory for result matrices
+    * @param pool the pool that executes parallel transpositions
+    * @param blockSize the maximum width and height of blocks that are transposed without further splitting
+    **/
+    public BlockedTransposition(MatrixFactory factory, ForkJoinPool pool, int blockSize)
+    {
+        super(factory);
+        if (blockSize < 1)
+        {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.pool = pool;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public Matrix<N, M> apply(Matrix<M, N> matrix)
+    {
+        float[] transpose = new float[matrix.getRows()*matrix.getColumns()];
+        transpose(matrix, FloatBuffer.wrap(transpose));
+        return factory.create(Dimension.FACTORY.create(matrix.getColumns()), Dimension.FACTORY.create(matrix.getRows()), transpose);
+    }
+
+    @Override
+    public Matrix<N, M> applyInto(Matrix<M, N> matrix, Matrix<N, M> destination)
+    {
+        checkDestination(matrix, destination);
+        FloatBuffer buffer = destination.getBuffer();
+        if (buffer.isReadOnly())
+        {
+            return super.applyInto(matrix, destination);
+        }
+        transpose(matrix, buffer);
+        return destination;
+    }
+
+    /**
+    * Transposes a square matrix in place, i.e., overwrites the matrix's storage (as returned by
+    * {@link Matrix#getStorage()}) with its transpose. Any other matrices that share the same storage will observe
+    * the change as well.
+    *
+    * @param matrix the square matrix to be transposed
+    * @return the {@code matrix} itself, now containing its transpose
+    * @throws IllegalArgumentException if the matrix is not square
+    **/
+    public <S extends Dimension> Matrix<S, S> applyInPlace(Matrix<S, S> matrix)
+    {
+        if (matrix.getRows() != matrix.getColumns())
+        {
+            throw new IllegalArgumentException("In-place transposition requires a square matrix but got "
+                + matrix.getRows() + "x" + matrix.getColumns());
+        }
+        int size = matrix.getRows();
+        Dimension dimension = Dimension.FACTORY.create(size);
+        MatrixElementAccess access = matrix.getElementAccess();
+        int rowStride = access.rowStride(dimension, dimension);
+        int columnStride = access.columnStride(dimension, dimension);
+        pool.invoke(new InPlace(slice(matrix.getStorage(), matrix), rowStride, columnStride, 0, size, 0, size));
+        return matrix;
+    }
+
+    private void transpose(Matrix<M, N> matrix, FloatBuffer transpose)
+    {
+        int rows = matrix.getRows();
+        int columns = matrix.getColumns();
+        MatrixElementAccess access = matrix.getElementAccess();
+        Dimension rowDimension = Dimension.FACTORY.create(rows);
+        Dimension columnDimension = Dimension.FACTORY.create(columns);
+        int rowStride = access.rowStride(rowDimension, columnDimension);
+        int columnStride = access.columnStride(rowDimension, columnDimension);
+        pool.invoke(new OutOfPlace(slice(matrix.getStorageForReading(), matrix), rowStride, columnStride, transpose, columns, 0, rows, 0, columns));
+    }
+
+    private static FloatBuffer slice(FloatBuffer storage, Matrix<?, ?> matrix)
+    {
+        storage.position(matrix.getElementAccess().offset());
+        return storage.slice();
+    }
+
+    /**
+    * Transposes the block {@code [firstRow, lastRow) x [firstColumn, lastColumn)} of a matrix, whose element
+    * (r, c) is stored at index {@code r*rowStride + c*columnStride}, into a column-major {@code columns x rows}
+    * matrix.
+    **/
+    private class OutOfPlace extends RecursiveAction
+    {
+        private final static long serialVersionUID = 7426518803417163952L;
+
+        private final FloatBuffer source;
+        private final int rowStride;
+        private final int columnStride;
+        private final FloatBuffer target;
+        private final int columns;
+        private final int firstRow;
+        private final int lastRow;
+        private final int firstColumn;
+        private final int lastColumn;
+
+        OutOfPlace(FloatBuffer source, int rowStride, int columnStride, FloatBuffer target, int columns,
+            int firstRow, int lastRow, int firstColumn, int lastColumn)
+        {
+            this.source = source;
+            this.rowStride = rowStride;
+            this.columnStride = columnStride;
+            this.target = target;
+            this.columns = columns;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            this.firstColumn = firstColumn;
+            this.lastColumn = lastColumn;
+        }
+
+        @Override
+        protected void compute()
+        {
+            int height = lastRow - firstRow;
+            int width = lastColumn - firstColumn;
+            if (height <= blockSize && width <= blockSize)
+            {
+                for (int row = firstRow; row < lastRow; row++)
+                {
+                    for (int column = firstColumn; column < lastColumn; column++)
+                    {
+                        target.put(column + row*columns, source.get(row*rowStride + column*columnStride));
+                    }
+                }
+                return;
+            }
+            OutOfPlace first;
+            OutOfPlace second;
+            if (height >= width)
+            {
+                int middle = firstRow + height/2;
+                first = new OutOfPlace(source, rowStride, columnStride, target, columns, firstRow, middle, firstColumn, lastColumn);
+                second = new OutOfPlace(source, rowStride, columnStride, target, columns, middle, lastRow, firstColumn, lastColumn);
+            }
+            else
+            {
+                int middle = firstColumn + width/2;
+                first = new OutOfPlace(source, rowStride, columnStride, target, columns, firstRow, lastRow, firstColumn, middle);
+                second = new OutOfPlace(source, rowStride, columnStride, target, columns, firstRow, lastRow, middle, lastColumn);
+            }
+            if ((long)height*width < SEQUENTIAL_THRESHOLD)
+            {
+                first.compute();
+                second.compute();
+            }
+            else
+            {
+                invokeAll(first, second);
+            }
+        }
+    }
+
+    /**
+    * Transposes a square matrix in place. If the block {@code [firstRow, lastRow) x [firstColumn, lastColumn)}
+    * lies on the diagonal it is transposed within itself, otherwise it is swapped with its mirror image across
+    * the diagonal.
+    **/
+    private class InPlace extends RecursiveAction
+    {
+        private final static long serialVersionUID = -2217650487419032731L;
+
+        private final FloatBuffer matrix;
+        private final int rowStride;
+        private final int columnStride;
+        private final int firstRow;
+        private final int lastRow;
+        private final int firstColumn;
+        private final int lastColumn;
+
+        InPlace(FloatBuffer matrix, int rowStride, int columnStride, int firstRow, int lastRow, int firstColumn, int lastColumn)
+        {
+            this.matrix = matrix;
+            this.rowStride = rowStride;
+            this.columnStride = columnStride;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            this.firstColumn = firstColumn;
+            this.lastColumn = lastColumn;
+        }
+
+        @Override
+        protected void compute()
+        {
+            int height = lastRow - firstRow;
+            int width = lastColumn - firstColumn;
+            boolean diagonal = firstRow == firstColumn;
+            if (height <= blockSize && width <= blockSize)
+            {
+                for (int column = firstColumn; column < lastColumn; column++)
+                {
+                    // Diagonal blocks only swap the elements below the diagonal with those above it:
+                    //
+                    for (int row = diagonal? column + 1:firstRow; row < lastRow; row++)
+                    {
+                        int index = row*rowStride + column*columnStride;
+                        int mirror = column*rowStride + row*columnStride;
+                        float element = matrix.get(index);
+                        matrix.put(index, matrix.get(mirror));
+                        matrix.put(mirror, element);
+                    }
+                }
+                return;
+            }
+            List<InPlace> blocks;
+            if (diagonal)
+            {
+                // The upper-left and lower-right quadrants are diagonal blocks themselves; the lower-left
+                // quadrant is swapped with the upper-right one:
+                //
+                int middle = firstRow + height/2;
+                blocks = Arrays.asList
+                (
+                    new InPlace(matrix, rowStride, columnStride, firstRow, middle, firstColumn, middle),
+                    new InPlace(matrix, rowStride, columnStride, middle, lastRow, middle, lastColumn),
+                    new InPlace(matrix, rowStride, columnStride, middle, lastRow, firstColumn, middle)
+                );
+            }
+            else if (height >= width)
+            {
+                int middle = firstRow + height/2;
+                blocks = Arrays.asList
+                (
+                    new InPlace(matrix, rowStride, columnStride, firstRow, middle, firstColumn, lastColumn),
+                    new InPlace(matrix, rowStride, columnStride, middle, lastRow, firstColumn, lastColumn)
+                );
+            }
+            else
+            {
+                int middle = firstColumn + width/2;
+                blocks = Arrays.asList
+                (
+                    new InPlace(matrix, rowStride, columnStride, firstRow, lastRow, firstColumn, middle),
+                    new InPlace(matrix, rowStride, columnStride, firstRow, lastRow, middle, lastColumn)
+                );
+            }
+            if ((long)height*width < SEQUENTIAL_THRESHOLD)
+            {
+                for (InPlace block: blocks)
+                {
+                    block.compute();
+                }
+            }
+            else
+            {
+                invokeAll(blocks);
+            }
+        }
+    }
+}
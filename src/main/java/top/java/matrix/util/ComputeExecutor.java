@@ -0,0 +1,226 @@
+package top.java.matrix.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+* A {@link ComputeExecutor} runs matrix computations asynchronously on a small, dedicated pool of daemon threads,
+* so that the threads that request the computations (e.g., the event loop of a server) are never blocked by them.
+* The number of computations that are running or waiting is bounded: if the capacity is exhausted, further
+* submissions fail immediately with a {@link RejectedExecutionException} (as back pressure), instead of queuing
+* an unbounded amount of work or blocking the caller.
+* <br>
+* <br>
+* Cancelling a returned future removes a computation that has not started yet from the queue (and frees its
+* capacity); a computation that is already running is interrupted, but most multiplication strategies do not
+* check for interrupts and run to completion, in which case the result is discarded.
+* <br>
+* <br>
+* Most multiplication strategies parallelize each computation internally, so the {@link #DEFAULT} executor only
+* uses {@link #DEFAULT_THREADS} threads, each of which simply runs whole computations. The executor does not split
+* computations into separate transfer and compute stages, so transfers to or from a GPU are not explicitly
+* overlapped with other computations; they only overlap to the extent that two computations happen to run at the
+* same time.
+*
+* @author Mirko Raner
+**/
+public class ComputeExecutor implements AutoCloseable
+{
+    public final static int DEFAULT_THREADS = 2;
+    public final static int DEFAULT_CAPACITY = 64;
+
+    private final static AtomicInteger POOLS = new AtomicInteger();
+
+    /**
+    * The shared executor that is used by {@link top.java.matrix.Matrix#timesAsync(top.java.matrix.Matrix)}.
+    **/
+    public final static ComputeExecutor DEFAULT = new ComputeExecutor(DEFAULT_THREADS, DEFAULT_CAPACITY);
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore capacity;
+
+    /**
+    * Creates a new {@link ComputeExecutor}.
+    *
+    * @param threads the number of computations that can run concurrently
+    * @param capacity the maximum number of computations that are running or waiting
+    **/
+    public ComputeExecutor(int threads, int capacity)
+    {
+        if (threads < 1 || capacity < 1)
+        {
+            throw new IllegalArgumentException("Threads and capacity must be positive");
+        }
+        this.capacity = new Semaphore(capacity);
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            threadFactory("matrix-compute-" + POOLS.incrementAndGet() + "-"));
+    }
+
+    /**
+    * Submits a computation.
+    *
+    * @param computation the computation
+    * @param <T> the type of the result
+    * @return a {@link CompletableFuture} for the result, which is completed exceptionally with a
+    * {@link RejectedExecutionException} if the capacity of the executor is exhausted or the executor was closed
+    **/
+    public <T> CompletableFuture<T> submit(Supplier<T> computation)
+    {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!capacity.tryAcquire())
+        {
+            future.completeExceptionally(new RejectedExecutionException("Capacity of compute executor is exhausted"));
+            return future;
+        }
+        Task<T> task = new Task<>(computation, future);
+        try
+        {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException exception)
+        {
+            task.release();
+            future.completeExceptionally(exception);
+            return future;
+        }
+        future.whenComplete((result, throwable) ->
+        {
+            if (future.isCancelled())
+            {
+                task.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+    * @return the number of further computations that can currently be submitted
+    **/
+    public int getAvailableCapacity()
+    {
+        return capacity.availablePermits();
+    }
+
+    /**
+    * Shuts the executor down. Computations that have not started yet are completed exceptionally with a
+    * {@link RejectedExecutionException}, and running computations are interrupted.
+    **/
+    @Override
+    public void close()
+    {
+        for (Runnable runnable: executor.shutdownNow())
+        {
+            Task<?> task = (Task<?>)runnable;
+            task.release();
+            task.future.completeExceptionally(new RejectedExecutionException("Compute executor was closed"));
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix)
+    {
+        AtomicInteger threads = new AtomicInteger();
+        return runnable ->
+        {
+            Thread thread = new Thread(runnable, prefix + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private class Task<T> implements Runnable
+    {
+        final Supplier<T> computation;
+        final CompletableFuture<T> future;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private Thread thread;
+
+        Task(Supplier<T> computation, CompletableFuture<T> future)
+        {
+            this.computation = computation;
+            this.future = future;
+        }
+
+        // The capacity is released before the future is completed, so that dependent stages can immediately
+        // submit further computations:
+        //
+        @Override
+        public void run()
+        {
+            if (!start())
+            {
+                release();
+                return;
+            }
+            T result = null;
+            Throwable failure = null;
+            try
+            {
+                result = computation.get();
+            }
+            catch (Throwable throwable)
+            {
+                failure = throwable;
+            }
+            finally
+            {
+                finish();
+                release();
+            }
+            if (failure != null)
+            {
+                future.completeExceptionally(failure);
+            }
+            else
+            {
+                future.complete(result);
+            }
+        }
+
+        synchronized void cancel()
+        {
+            if (executor.remove(this))
+            {
+                release();
+            }
+            else if (thread != null)
+            {
+                thread.interrupt();
+            }
+        }
+
+        void release()
+        {
+            if (released.compareAndSet(false, true))
+            {
+                capacity.release();
+            }
+        }
+
+        private synchronized boolean start()
+        {
+            if (future.isDone())
+            {
+                return false;
+            }
+            thread = Thread.currentThread();
+            return true;
+        }
+
+        // Clears the thread (and any interrupt that was meant for this task), so that a late cancellation does not
+        // interrupt the next task on the same thread:
+        //
+        private synchronized void finish()
+        {
+            thread = null;
+            Thread.interrupted();
+        }
+    }
+}
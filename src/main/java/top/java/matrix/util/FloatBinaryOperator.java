@@ -0,0 +1,52 @@
+package top.java.matrix.util;
+
+/**
+* A {@link FloatBinaryOperator} is a function of two single-precision values. Besides the scalar
+* {@link #applyAsFloat(float, float)} method, it provides bulk methods for ranges of arrays, which
+* implementations (e.g., {@link top.java.matrix.operations.Arithmetic}) can override with specialized loops.
+*
+* @author Mirko Raner
+**/
+@FunctionalInterface
+public interface FloatBinaryOperator
+{
+    float applyAsFloat(float left, float right);
+
+    /**
+    * Applies the function to corresponding elements of two ranges.
+    *
+    * @param left the left operands
+    * @param leftIndex the index of the first left operand
+    * @param right the right operands
+    * @param rightIndex the index of the first right operand
+    * @param target the target array (which may be the same as either operand array)
+    * @param targetIndex the index of the first target element
+    * @param length the number of elements
+    **/
+    default void applyAsFloat(float[] left, int leftIndex, float[] right, int rightIndex, float[] target, int targetIndex,
+        int length)
+    {
+        for (int index = 0; index < length; index++)
+        {
+            target[targetIndex + index] = applyAsFloat(left[leftIndex + index], right[rightIndex + index]);
+        }
+    }
+
+    /**
+    * Applies the function to a range of elements and a single right operand.
+    *
+    * @param left the left operands
+    * @param leftIndex the index of the first left operand
+    * @param right the right operand
+    * @param target the target array (which may be the same as the operand array)
+    * @param targetIndex the index of the first target element
+    * @param length the number of elements
+    **/
+    default void applyAsFloat(float[] left, int leftIndex, float right, float[] target, int targetIndex, int length)
+    {
+        for (int index = 0; index < length; index++)
+        {
+            target[targetIndex + index] = applyAsFloat(left[leftIndex + index], right);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package top.java.matrix.util;
+
+/**
+* A {@link FloatUnaryOperator} is a function on single-precision values. Besides the scalar
+* {@link #applyAsFloat(float)} method, it provides a bulk method for ranges of arrays, which implementations
+* (e.g., {@link top.java.matrix.operations.Activation}) can override with specialized loops.
+*
+* @author Mirko Raner
+**/
+@FunctionalInterface
+public interface FloatUnaryOperator
+{
+    float applyAsFloat(float value);
+
+    /**
+    * Applies the function to a range of elements.
+    *
+    * @param source the source array
+    * @param sourceIndex the index of the first source element
+    * @param target the target array (which may be the same as the source array)
+    * @param targetIndex the index of the first target element
+    * @param length the number of elements
+    **/
+    default void applyAsFloat(float[] source, int sourceIndex, float[] target, int targetIndex, int length)
+    {
+        for (int index = 0; index < length; index++)
+        {
+            target[targetIndex + index] = applyAsFloat(source[sourceIndex + index]);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package top.java.matrix.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import top.java.matrix.util.OctaveFloatBinaryReader.Header;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+* {@link OctaveFloatBinaryBlockReader} reads Octave files in {@code -float-binary} format block by block, so
+* that matrices that do not fit into memory (or exceed the 2 GB limit of a single buffer) can be processed
+* with a fixed memory footprint. File positions are computed as {@code long}s, and data is transferred through
+* a single bounded buffer of {@code chunkSize} bytes.
+* <br>
+* <br>
+* Octave stores matrices in column-major order, so reading blocks of columns is a single sequential read,
+* whereas reading blocks of rows requires one (shorter) read per column.
+*
+* @author Mirko Raner
+**/
+public class OctaveFloatBinaryBlockReader implements AutoCloseable
+{
+    public final static int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final Header header;
+    private final ByteBuffer chunk;
+
+    public OctaveFloatBinaryBlockReader(Path path) throws IOException
+    {
+        this(path, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+    * Opens a matrix file for block-wise reading.
+    *
+    * @param path the file path
+    * @param chunkSize the size (in bytes) of the transfer buffer (rounded down to a multiple of 4)
+    * @throws IOException if the file could not be read or is not in the expected format
+    **/
+    public OctaveFloatBinaryBlockReader(Path path, int chunkSize) throws IOException
+    {
+        if (chunkSize < Float.BYTES)
+        {
+            throw new IllegalArgumentException("Chunk size must be at least " + Float.BYTES + " bytes");
+        }
+        channel = FileChannel.open(path, READ);
+        try
+        {
+            header = new OctaveFloatBinaryReader().readHeader(channel);
+        }
+        catch (IOException | RuntimeException exception)
+        {
+            channel.close();
+            throw exception;
+        }
+        chunk = ByteBuffer.allocateDirect(chunkSize/Float.BYTES*Float.BYTES).order(LITTLE_ENDIAN);
+    }
+
+    public int getRows()
+    {
+        return header.rows;
+    }
+
+    public int getColumns()
+    {
+        return header.columns;
+    }
+
+    /**
+    * Reads a block of consecutive columns.
+    *
+    * @param firstColumn the index of the first column of the block
+    * @param count the number of columns in the block
+    * @return a {@link RawFloatMatrix} with {@link #getRows()} rows and {@code count} columns
+    * @throws IOException if the file could not be read
+    **/
+    public RawFloatMatrix readColumns(int firstColumn, int count) throws IOException
+    {
+        checkRange(firstColumn, count, header.columns);
+        float[] values = new float[size(header.rows, count)];
+        read(header.offset + (long)firstColumn*header.rows*Float.BYTES, values, 0, values.length);
+        return RawFloatMatrix.FACTORY.create(header.rows, count, values);
+    }
+
+    /**
+    * Reads a block of consecutive rows.
+    *
+    * @param firstRow the index of the first row of the block
+    * @param count the number of rows in the block
+    * @return a {@link RawFloatMatrix} with {@code count} rows and {@link #getColumns()} columns
+    * @throws IOException if the file could not be read
+    **/
+    public RawFloatMatrix readRows(int firstRow, int count) throws IOException
+    {
+        checkRange(firstRow, count, header.rows);
+        float[] values = new float[size(count, header.columns)];
+        for (int column = 0; column < header.columns; column++)
+        {
+            long position = header.offset + ((long)column*header.rows + firstRow)*Float.BYTES;
+            read(position, values, column*count, count);
+        }
+        return RawFloatMatrix.FACTORY.create(count, header.columns, values);
+    }
+
+    /**
+    * Iterates over the matrix in blocks of {@code blockColumns} columns (the last block may be narrower).
+    * I/O errors during iteration are reported as {@link UncheckedIOException}s.
+    *
+    * @param blockColumns the number of columns per block
+    * @return an {@link Iterable} of column blocks
+    **/
+    public Iterable<RawFloatMatrix> columnBlocks(int blockColumns)
+    {
+        return () -> new BlockIterator(blockColumns, header.columns)
+        {
+            @Override
+            RawFloatMatrix read(int first, int count) throws IOException
+            {
+                return readColumns(first, count);
+            }
+        };
+    }
+
+    /**
+    * Iterates over the matrix in blocks of {@code blockRows} rows (the last block may be shorter).
+    * I/O errors during iteration are reported as {@link UncheckedIOException}s.
+    *
+    * @param blockRows the number of rows per block
+    * @return an {@link Iterable} of row blocks
+    **/
+    public Iterable<RawFloatMatrix> rowBlocks(int blockRows)
+    {
+        return () -> new BlockIterator(blockRows, header.rows)
+        {
+            @Override
+            RawFloatMatrix read(int first, int count) throws IOException
+            {
+                return readRows(first, count);
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    private void read(long position, float[] target, int index, int length) throws IOException
+    {
+        while (length > 0)
+        {
+            int floats = Math.min(length, chunk.capacity()/Float.BYTES);
+            chunk.clear().limit(floats*Float.BYTES);
+            while (chunk.hasRemaining())
+            {
+                if (channel.read(chunk, position + chunk.position()) < 0)
+                {
+                    throw new EOFException();
+                }
+            }
+            chunk.flip();
+            chunk.asFloatBuffer().get(target, index, floats);
+            position += floats*Float.BYTES;
+            index += floats;
+            length -= floats;
+        }
+    }
+
+    private static void checkRange(int first, int count, int limit)
+    {
+        if (first < 0 || count < 0 || first > limit - count)
+        {
+            throw new IndexOutOfBoundsException("Block [" + first + ", " + ((long)first + count) + ") exceeds " + limit);
+        }
+    }
+
+    private static int size(int rows, int columns)
+    {
+        long size = (long)rows*columns;
+        if (size > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException(rows + "x" + columns + " block is too large for a single array");
+        }
+        return (int)size;
+    }
+
+    private abstract static class BlockIterator implements Iterator<RawFloatMatrix>
+    {
+        private final int blockSize;
+        private final int limit;
+        private int next;
+
+        BlockIterator(int blockSize, int limit)
+        {
+            if (blockSize < 1)
+            {
+                throw new IllegalArgumentException("Block size must be positive");
+            }
+            this.blockSize = blockSize;
+            this.limit = limit;
+        }
+
+        abstract RawFloatMatrix read(int first, int count) throws IOException;
+
+        @Override
+        public boolean hasNext()
+        {
+            return next < limit;
+        }
+
+        @Override
+        public RawFloatMatrix next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            int count = Math.min(blockSize, limit - next);
+            try
+            {
+                return read(next, count);
+            }
+            catch (IOException exception)
+            {
+                throw new UncheckedIOException(exception);
+            }
+            finally
+            {
+                next += count;
+            }
+        }
+    }
+}
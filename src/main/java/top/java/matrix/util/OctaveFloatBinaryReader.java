@@ -1,69 +1,131 @@
 package top.java.matrix.util;
 
-import java.io.DataInput;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import top.java.matrix.Dimension;
+import top.java.matrix.internal.DirectMatrix;
 import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardOpenOption.READ;
 
 /**
-* {@link OctaveFloatBinaryReader} is a simple reader for Octave files in {@code -float-binary} format.
+* {@link OctaveFloatBinaryReader} is a simple reader for Octave files in {@code -float-binary} format. It can also
+* read double-precision matrices that were saved in {@code -binary} format (see
+* {@link #readDoubleBinaryMatrix(Path)}).
 *
 * @author Mirko Raner
 **/
 public class OctaveFloatBinaryReader
 {
+    private final static byte FLOAT = 6;
+    private final static byte DOUBLE = 7;
+
     public RawFloatMatrix readFloatBinaryMatrix(Path path) throws IOException
     {
-        int rows, columns, offset;
-        try (DataInputStream data = new DataInputStream(new FileInputStream(path.toFile())))
+        try (FileChannel channel = FileChannel.open(path, READ))
         {
-            offset = 38;
-            byte[] identifier = new byte[9];
-            data.readFully(identifier);
-            expect(identifier).toBe("Octave-1-");
-            byte endianness = data.readByte();
-            expect(endianness).toBe('L');
-            expect(data.readByte()).toBe(0);
-            int length = readLittleEndianInteger(data);
-            data.skip(length);
-            data.skip(5);
-            offset += length;
-            expect(data.readByte()).toBe(0xFF);
-            length = readLittleEndianInteger(data);
-            offset += length;
-            byte[] typeName = new byte[length];
-            data.readFully(typeName);
-            expect(typeName).toBe("matrix");
-            byte dimensions = (byte)-readLittleEndianInteger(data);
-            expect(dimensions).toBe(2);
-            rows = readLittleEndianInteger(data);
-            columns = readLittleEndianInteger(data);
+            Header header = readHeader(channel);
+            FloatBuffer floatBuffer = channel.map(READ_ONLY, header.offset, header.size()).order(LITTLE_ENDIAN).asFloatBuffer();
+            float[] array = new float[header.rows*header.columns];
+            floatBuffer.get(array);
+            return RawFloatMatrix.FACTORY.create(header.rows, header.columns, array);
         }
-        try (FileChannel channel = (FileChannel)Files.newByteChannel(path, READ))
+    }
+
+    /**
+    * Reads a double-precision matrix from an Octave file in {@code -binary} format. The elements are transferred
+    * from the mapped file into a {@code double} array in bulk, without any boxing or narrowing.
+    *
+    * @param path the file path
+    * @return a {@link RawDoubleMatrix} containing the matrix
+    * @throws IOException if the file could not be read or does not contain a double-precision matrix
+    **/
+    public RawDoubleMatrix readDoubleBinaryMatrix(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, READ))
         {
-            ByteBuffer matrixMap = channel.map(READ_ONLY, offset, rows*columns*4).order(LITTLE_ENDIAN);
-            FloatBuffer floatBuffer = matrixMap.asFloatBuffer();
-            float[] array = new float[rows*columns];
-            floatBuffer.get(array);
-            return RawFloatMatrix.FACTORY.create(rows, columns, array);
+            Header header = readHeader(channel, DOUBLE);
+            DoubleBuffer doubleBuffer = channel.map(READ_ONLY, header.offset, header.size()).order(LITTLE_ENDIAN).asDoubleBuffer();
+            double[] array = new double[header.rows*header.columns];
+            doubleBuffer.get(array);
+            return RawDoubleMatrix.FACTORY.create(header.rows, header.columns, array);
+        }
+    }
+
+    /**
+    * Maps a matrix file into memory without copying its contents to the heap. The returned matrix is backed
+    * directly by the read-only mapped file region; pages are only loaded from disk when they are accessed.
+    * Closing the returned matrix unmaps the file.
+    *
+    * @param path the file path
+    * @param <M> the rows dimension of the matrix
+    * @param <N> the columns dimension of the matrix
+    * @return a {@link DirectMatrix} backed by the mapped file
+    * @throws IOException if the file could not be read or is not in the expected format
+    **/
+    public <M extends Dimension, N extends Dimension> DirectMatrix<M, N> mapFloatBinaryMatrix(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, READ))
+        {
+            Header header = readHeader(channel);
+            ByteBuffer buffer = channel.map(READ_ONLY, header.offset, header.size()).order(LITTLE_ENDIAN);
+            return new DirectMatrix<>(Dimension.FACTORY.create(header.rows), Dimension.FACTORY.create(header.columns), buffer);
         }
     }
 
-    private int readLittleEndianInteger(DataInput input) throws IOException
+    Header readHeader(FileChannel channel) throws IOException
+    {
+        return readHeader(channel, FLOAT);
+    }
+
+    private Header readHeader(FileChannel channel, byte type) throws IOException
     {
-        byte[] bytes = new byte[4];
-        input.readFully(bytes);
-        return ByteBuffer.wrap(bytes).order(LITTLE_ENDIAN).getInt(); 
+        ByteBuffer buffer = read(channel, 0, 15);
+        expect(bytes(buffer, 9)).toBe("Octave-1-");
+        expect(buffer.get()).toBe('L');
+        expect(buffer.get()).toBe(0);
+        int length = buffer.getInt();
+        long position = 15 + length + 5;
+        buffer = read(channel, position, 5);
+        expect(buffer.get()).toBe(0xFF);
+        length = buffer.getInt();
+        position += 5;
+        buffer = read(channel, position, length + 13);
+        expect(bytes(buffer, length)).toBe("matrix");
+        byte dimensions = (byte)-buffer.getInt();
+        expect(dimensions).toBe(2);
+        int rows = buffer.getInt();
+        int columns = buffer.getInt();
+        expect(buffer.get()).toBe(type);
+        return new Header(rows, columns, position + length + 13, type == DOUBLE? Double.BYTES:Float.BYTES);
+    }
+
+    private ByteBuffer read(FileChannel channel, long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(LITTLE_ENDIAN);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private byte[] bytes(ByteBuffer buffer, int length)
+    {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
     }
 
     private Expectation expect(byte... actual)
@@ -71,6 +133,32 @@ public class OctaveFloatBinaryReader
         return new Expectation(actual);
     }
 
+    static class Header
+    {
+        final int rows;
+        final int columns;
+        final long offset;
+        final int elementSize;
+
+        Header(int rows, int columns, long offset, int elementSize)
+        {
+            this.rows = rows;
+            this.columns = columns;
+            this.offset = offset;
+            this.elementSize = elementSize;
+        }
+
+        int size() throws IOException
+        {
+            long size = (long)rows*columns*elementSize;
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new IOException(rows + "x" + columns + " matrix is too large for a single buffer");
+            }
+            return (int)size;
+        }
+    }
+
     private static class Expectation
     {
         byte[] actual;
@@ -0,0 +1,189 @@
+package top.java.matrix.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import top.java.matrix.Matrix;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+* {@link OctaveFloatBinaryWriter} writes Octave files in {@code -float-binary} format. The file header is written
+* when the writer is opened, and the matrix contents can then be written block by block (in any order), so that
+* results that do not fit into memory can be produced with a fixed memory footprint. File positions are computed
+* as {@code long}s, and data is transferred through a single bounded buffer of {@code chunkSize} bytes.
+* Elements that are never written are zero.
+*
+* @author Mirko Raner
+**/
+public class OctaveFloatBinaryWriter implements AutoCloseable
+{
+    public final static String DEFAULT_NAME = "matrix";
+
+    private final static byte FLOAT = 6;
+
+    private final FileChannel channel;
+    private final ByteBuffer chunk;
+    private final int rows;
+    private final int columns;
+    private final long offset;
+
+    public OctaveFloatBinaryWriter(Path path, int rows, int columns) throws IOException
+    {
+        this(path, DEFAULT_NAME, rows, columns, OctaveFloatBinaryBlockReader.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+    * Creates (or overwrites) a matrix file and writes its header.
+    *
+    * @param path the file path
+    * @param name the Octave variable name of the matrix
+    * @param rows the number of rows of the matrix
+    * @param columns the number of columns of the matrix
+    * @param chunkSize the size (in bytes) of the transfer buffer (rounded down to a multiple of 4)
+    * @throws IOException if the file could not be written
+    **/
+    public OctaveFloatBinaryWriter(Path path, String name, int rows, int columns, int chunkSize) throws IOException
+    {
+        if (rows < 0 || columns < 0)
+        {
+            throw new IllegalArgumentException("Dimensions must not be negative");
+        }
+        if (chunkSize < Float.BYTES)
+        {
+            throw new IllegalArgumentException("Chunk size must be at least " + Float.BYTES + " bytes");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING);
+        try
+        {
+            offset = writeHeader(name);
+            long end = offset + (long)rows*columns*Float.BYTES;
+            if (end > offset)
+            {
+                // Extend the file to its final size up front, so that blocks can be written in any order:
+                //
+                channel.write(ByteBuffer.allocate(1), end - 1);
+            }
+        }
+        catch (IOException | RuntimeException exception)
+        {
+            channel.close();
+            throw exception;
+        }
+        chunk = ByteBuffer.allocateDirect(chunkSize/Float.BYTES*Float.BYTES).order(LITTLE_ENDIAN);
+    }
+
+    /**
+    * Writes a complete matrix to a file.
+    *
+    * @param path the file path
+    * @param matrix the matrix
+    * @throws IOException if the file could not be written
+    **/
+    public static void writeFloatBinaryMatrix(Path path, Matrix<?, ?> matrix) throws IOException
+    {
+        try (OctaveFloatBinaryWriter writer = new OctaveFloatBinaryWriter(path, matrix.getRows(), matrix.getColumns()))
+        {
+            writer.writeColumns(0, matrix);
+        }
+    }
+
+    /**
+    * Writes a block of consecutive columns.
+    *
+    * @param firstColumn the index of the first column of the block
+    * @param block a matrix with the same number of rows as the file
+    * @throws IOException if the file could not be written
+    **/
+    public void writeColumns(int firstColumn, Matrix<?, ?> block) throws IOException
+    {
+        if (block.getRows() != rows)
+        {
+            throw new IllegalArgumentException("Expected " + rows + " rows but got " + block.getRows());
+        }
+        checkRange(firstColumn, block.getColumns(), columns);
+        write(offset + (long)firstColumn*rows*Float.BYTES, block.getBuffer());
+    }
+
+    /**
+    * Writes a block of consecutive rows.
+    *
+    * @param firstRow the index of the first row of the block
+    * @param block a matrix with the same number of columns as the file
+    * @throws IOException if the file could not be written
+    **/
+    public void writeRows(int firstRow, Matrix<?, ?> block) throws IOException
+    {
+        if (block.getColumns() != columns)
+        {
+            throw new IllegalArgumentException("Expected " + columns + " columns but got " + block.getColumns());
+        }
+        int count = block.getRows();
+        checkRange(firstRow, count, rows);
+        FloatBuffer buffer = block.getBuffer();
+        for (int column = 0; column < columns; column++)
+        {
+            buffer.limit(column*count + count).position(column*count);
+            write(offset + ((long)column*rows + firstRow)*Float.BYTES, buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    private long writeHeader(String name) throws IOException
+    {
+        byte[] variable = name.getBytes(UTF_8);
+        byte[] type = "matrix".getBytes(UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(38 + variable.length + type.length).order(LITTLE_ENDIAN);
+        header.put("Octave-1-L".getBytes(UTF_8)).put((byte)0);
+        header.putInt(variable.length).put(variable);
+        header.putInt(0).put((byte)0);
+        header.put((byte)0xFF).putInt(type.length).put(type);
+        header.putInt(-2).putInt(rows).putInt(columns);
+        header.put(FLOAT);
+        header.flip();
+        while (header.hasRemaining())
+        {
+            channel.write(header, header.position());
+        }
+        return header.limit();
+    }
+
+    private void write(long position, FloatBuffer source) throws IOException
+    {
+        while (source.hasRemaining())
+        {
+            int floats = Math.min(source.remaining(), chunk.capacity()/Float.BYTES);
+            chunk.clear();
+            FloatBuffer slice = source.duplicate();
+            slice.limit(slice.position() + floats);
+            chunk.asFloatBuffer().put(slice);
+            chunk.limit(floats*Float.BYTES);
+            while (chunk.hasRemaining())
+            {
+                channel.write(chunk, position + chunk.position());
+            }
+            source.position(source.position() + floats);
+            position += floats*Float.BYTES;
+        }
+    }
+
+    private static void checkRange(int first, int count, int limit)
+    {
+        if (first < 0 || first > limit - count)
+        {
+            throw new IndexOutOfBoundsException("Block [" + first + ", " + ((long)first + count) + ") exceeds " + limit);
+        }
+    }
+}
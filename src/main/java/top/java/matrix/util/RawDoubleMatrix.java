@@ -0,0 +1,19 @@
+package top.java.matrix.util;
+
+import pro.projo.triples.Factory;
+import static pro.projo.Projo.creates;
+
+/**
+* The {@link RawDoubleMatrix} describes raw data for {@code double} matrices.
+*
+* @author Mirko Raner
+**/
+public interface RawDoubleMatrix
+{
+    int rows();
+    int columns();
+    double[] matrix();
+
+    Factory<RawDoubleMatrix, Integer, Integer, double[]> FACTORY = creates(RawDoubleMatrix.class)
+        .with(RawDoubleMatrix::rows, RawDoubleMatrix::columns, RawDoubleMatrix::matrix);
+}
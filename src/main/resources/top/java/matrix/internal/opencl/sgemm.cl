@@ -0,0 +1,76 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+
+// Single-precision matrix multiplication C = A*B for column-major matrices (A is M-by-K, B is K-by-N), in the
+// style of the CLBlast/"myGEMM" kernels: each work group computes a TS-by-TS tile of C, staging TS-by-TS tiles of
+// A and B in local memory, and each work item computes WPT elements of a row of the tile (spaced TS/WPT columns
+// apart), keeping their partial sums in registers. Arbitrary matrix dimensions are supported by loading zeros for
+// out-of-bounds elements and masking the final stores; the global range is padded to whole tiles by the caller.
+//
+// The tile size TS and the work per thread WPT are defined via build options (TS needs to be a multiple of WPT).
+//
+#define RTS (TS/WPT)
+
+__kernel void sgemm(const int M, const int N, const int K,
+                    const __global float* A, const __global float* B, __global float* C)
+{
+    const int row = get_local_id(0);
+    const int column = get_local_id(1);
+    const int globalRow = TS*get_group_id(0) + row;
+    const int globalColumn = TS*get_group_id(1) + column;
+
+    __local float tileA[TS][TS];
+    __local float tileB[TS][TS];
+
+    float sum[WPT];
+    for (int w = 0; w < WPT; w++)
+    {
+        sum[w] = 0.0f;
+    }
+
+    const int tiles = (K + TS - 1)/TS;
+    for (int tile = 0; tile < tiles; tile++)
+    {
+        for (int w = 0; w < WPT; w++)
+        {
+            const int tiledRow = TS*tile + row;
+            const int tiledColumn = TS*tile + column + w*RTS;
+            const int targetColumn = globalColumn + w*RTS;
+            tileA[column + w*RTS][row] = globalRow < M && tiledColumn < K? A[tiledColumn*M + globalRow]:0.0f;
+            tileB[column + w*RTS][row] = tiledRow < K && targetColumn < N? B[targetColumn*K + tiledRow]:0.0f;
+        }
+        barrier(CLK_LOCAL_MEM_FENCE);
+
+        for (int k = 0; k < TS; k++)
+        {
+            const float a = tileA[k][row];
+            for (int w = 0; w < WPT; w++)
+            {
+                sum[w] += a*tileB[column + w*RTS][k];
+            }
+        }
+        barrier(CLK_LOCAL_MEM_FENCE);
+    }
+
+    for (int w = 0; w < WPT; w++)
+    {
+        const int targetColumn = globalColumn + w*RTS;
+        if (globalRow < M && targetColumn < N)
+        {
+            C[targetColumn*M + globalRow] = sum[w];
+        }
+    }
+}
@@ -19,6 +19,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 import top.java.matrix.internal.StandardMatrix;
+import top.java.matrix.operations.multiplication.BlockedMultiplication;
 import top.java.matrix.operations.multiplication.FastMultiplication;
 import top.java.matrix.operations.multiplication.ReversedFastMultiplication;
 import top.java.matrix.operations.multiplication.TiledFastMultiplication;
@@ -34,7 +35,8 @@ import top.java.matrix.operations.multiplication.TiledFastMultiplication;
     AllPerformanceTests.SuiteOnly.NaiveMatrixTest.class,
     AllPerformanceTests.SuiteOnly.ReversedFastMatrixTest.class,
     AllPerformanceTests.SuiteOnly.FastMatrixTest.class,
-    AllPerformanceTests.SuiteOnly.TiledFastMatrixTest.class
+    AllPerformanceTests.SuiteOnly.TiledFastMatrixTest.class,
+    AllPerformanceTests.SuiteOnly.BlockedMatrixTest.class
 })
 public class AllPerformanceTests
 {
@@ -75,5 +77,14 @@ public class AllPerformanceTests
                 return new MatrixTest.ModifiedMatrixConstructor<>(new TiledFastMultiplication<>(StandardMatrix::new));
             }
         }
+
+        public static class BlockedMatrixTest<M extends Dimension> extends PerformanceTest<M>
+        {
+            @Override
+            protected MatrixConstructor<M, M> constructor()
+            {
+                return new MatrixTest.ModifiedMatrixConstructor<>(new BlockedMultiplication<>(StandardMatrix::new));
+            }
+        }
     }
 }
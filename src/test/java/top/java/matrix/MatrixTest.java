@@ -30,6 +30,7 @@ import org.junit.runners.Parameterized.Parameter;
 import org.junit.runners.Parameterized.Parameters;
 import top.java.matrix.internal.StandardMatrix;
 import top.java.matrix.operations.multiplication.BasicMultiplication;
+import top.java.matrix.operations.multiplication.BlockedMultiplication;
 import top.java.matrix.operations.multiplication.FastMultiplication;
 import top.java.matrix.operations.multiplication.ReversedFastMultiplication;
 import top.java.matrix.operations.multiplication.TiledFastMultiplication;
@@ -37,6 +38,7 @@ import top.java.matrix.util.OctaveFloatBinaryReader;
 import top.java.matrix.util.RawFloatMatrix;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static top.java.matrix.util.RawFloatMatrix.FACTORY;
 
 @RunWith(Parameterized.class)
@@ -84,7 +86,8 @@ public class MatrixTest<M extends Dimension>
             {new ModifiedMatrixConstructor<>(new BasicMultiplication<>(StandardMatrix::new))},
             {new ModifiedMatrixConstructor<>(new ReversedFastMultiplication<>(StandardMatrix::new))},
             {new ModifiedMatrixConstructor<>(new FastMultiplication<>(StandardMatrix::new))},
-            {new ModifiedMatrixConstructor<>(new TiledFastMultiplication<>(StandardMatrix::new))}
+            {new ModifiedMatrixConstructor<>(new TiledFastMultiplication<>(StandardMatrix::new))},
+            {new ModifiedMatrixConstructor<>(new BlockedMultiplication<>(StandardMatrix::new))}
         };
         return Arrays.asList(implementations);
     }
@@ -149,6 +152,16 @@ public class MatrixTest<M extends Dimension>
         assertEquals(expected, result);
     }
 
+    @Test
+    public void testFractionalMultiplication()
+    {
+        final Matrix<M, M> X = constructor.construct(FACTORY.create(2, 2, new float[] {0.5F, 1.25F, 0.25F, 2}));
+        final Matrix<M, M> Y = constructor.construct(FACTORY.create(2, 2, new float[] {0.5F, 0.75F, 1, 0.125F}));
+        Matrix<M, M> expected = constructor.construct(FACTORY.create(2, 2, new float[] {0.4375F, 2.125F, 0.53125F, 1.5F}));
+        Matrix<M, M> result = X.times(Y);
+        assertEquals(expected, result);
+    }
+
     @Test
     public void testLargeMultiplication1000x1000()
     {
@@ -165,6 +178,27 @@ public class MatrixTest<M extends Dimension>
         assertEquals(expected, matrix.transpose());
     }
 
+    @Test
+    public void testSmallMultiplicationInto()
+    {
+        final Matrix<M, M> X = constructor.construct(FACTORY.create(3, 5, new float[] {1, 6, 11, 2, 7, 12, 3, 8, 13, 4, 9, 14, 5, 10, 15}));
+        final Matrix<M, M> Y = constructor.construct(FACTORY.create(5, 2, new float[] {1, 3, 5, 7, 9, 2, 4, 6, 8, 10}));
+        final Matrix<M, M> destination = constructor.construct(FACTORY.create(3, 2, new float[6]));
+        Matrix<M, M> expected = constructor.construct(FACTORY.create(3, 2, new float[] {95, 220, 345, 110, 260, 410}));
+        assertSame(destination, X.timesInto(Y, destination));
+        assertEquals(expected, destination);
+    }
+
+    @Test
+    public void testSmallTransposeInto5x2()
+    {
+        final Matrix<M, M> matrix = constructor.construct(FACTORY.create(5, 2, new float[] {1, 3, 5, 7, 9, 2, 4, 6, 8, 10}));
+        final Matrix<M, M> destination = constructor.construct(FACTORY.create(2, 5, new float[10]));
+        Matrix<M, M> expected = constructor.construct(FACTORY.create(2, 5, new float[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10}));
+        assertSame(destination, matrix.transposeInto(destination));
+        assertEquals(expected, destination);
+    }
+
     private Path path(String name)
     {
         return new File("src/test/resources/" + name).getAbsoluteFile().toPath();
@@ -27,10 +27,13 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameter;
 import org.junit.runners.Parameterized.Parameters;
 import top.java.matrix.util.OctaveFloatBinaryReader;
+import top.java.matrix.util.RawFloatMatrix;
 import static java.util.stream.Collectors.toList;
 
 /**
 * {@link PerformanceTest} is an abstract base class for matrix multiplication performance testing.
+* These tests only provide a rough comparison; for repeatable measurements (with warm-up, statistics and
+* allocation profiling) use the JMH benchmarks in {@code src/jmh/java} ({@code mvn -Pbenchmark -DskipTests verify}).
 *
 * @param <M> the dimensions of the test matrix
 *
@@ -41,7 +44,8 @@ public abstract class PerformanceTest<M extends Dimension>
 {
     public final static int REPETITIONS = 10;
 
-    private OctaveFloatBinaryReader reader = new OctaveFloatBinaryReader();
+    private static RawFloatMatrix rawThousand;
+
     private Matrix<M, M> thousand;
 
     @Parameter
@@ -56,8 +60,11 @@ public abstract class PerformanceTest<M extends Dimension>
     @Before
     public void initializeMatrices() throws IOException
     {
-        // TODO: load only once!
-        thousand = constructor().construct(reader.readFloatBinaryMatrix(path("Thousand.float.bin")));
+        if (rawThousand == null)
+        {
+            rawThousand = new OctaveFloatBinaryReader().readFloatBinaryMatrix(path("Thousand.float.bin"));
+        }
+        thousand = constructor().construct(rawThousand);
     }
 
     @Test
@@ -0,0 +1,110 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix;
+
+import java.util.Random;
+import top.java.matrix.internal.StandardMatrixBatch;
+
+/**
+* {@link RandomMatrices} creates test matrices with small random integer elements.
+* Small integer values keep all products and sums exactly representable, regardless of summation order, so that
+* results of different multiplication strategies can be compared for exact equality.
+* Every instance uses the same fixed seed, which makes test inputs reproducible.
+*
+* @author Mirko Raner
+**/
+public class RandomMatrices
+{
+    private final MatrixFactory factory;
+    private final Random random = new Random(42);
+    private final int bound;
+
+    public RandomMatrices(MatrixFactory factory)
+    {
+        this(factory, 9);
+    }
+
+    /**
+    * Creates a new {@link RandomMatrices} whose elements are limited to a custom range. Long chains of products
+    * need a smaller range than single products to stay exactly representable.
+    *
+    * @param factory the {@link MatrixFactory} for creating the matrices
+    * @param bound the largest absolute value of any element
+    **/
+    public RandomMatrices(MatrixFactory factory, int bound)
+    {
+        this.factory = factory;
+        this.bound = bound;
+    }
+
+    /**
+    * Creates a matrix whose elements are random integers between -bound and bound (inclusive).
+    *
+    * @param rows the number of rows
+    * @param columns the number of columns
+    * @return the new matrix
+    **/
+    public <R extends Dimension, C extends Dimension> Matrix<R, C> matrix(int rows, int columns)
+    {
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), values(rows*columns));
+    }
+
+    /**
+    * Creates a sparse matrix whose nonzero elements are random integers between -bound and bound (inclusive).
+    *
+    * @param rows the number of rows
+    * @param columns the number of columns
+    * @param density the probability of each element being nonzero
+    * @return the new matrix
+    **/
+    public <R extends Dimension, C extends Dimension> Matrix<R, C> matrix(int rows, int columns, double density)
+    {
+        float[] values = new float[rows*columns];
+        for (int index = 0; index < values.length; index++)
+        {
+            values[index] = random.nextDouble() < density? next():0;
+        }
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), values);
+    }
+
+    /**
+    * Creates a batch of matrices whose elements are random integers between -bound and bound (inclusive).
+    *
+    * @param size the number of matrices in the batch
+    * @param rows the number of rows of each matrix
+    * @param columns the number of columns of each matrix
+    * @return the new batch
+    **/
+    public <R extends Dimension, C extends Dimension> MatrixBatch<R, C> batch(int size, int rows, int columns)
+    {
+        return new StandardMatrixBatch<>(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), size, values(size*rows*columns));
+    }
+
+    private float[] values(int length)
+    {
+        float[] values = new float[length];
+        for (int index = 0; index < values.length; index++)
+        {
+            values[index] = next();
+        }
+        return values;
+    }
+
+    private float next()
+    {
+        return random.nextInt(2*bound + 1) - bound;
+    }
+}
@@ -0,0 +1,179 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.nio.FloatBuffer;
+import org.junit.After;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.RandomMatrices;
+import top.java.matrix.operations.multiplication.BasicMultiplication;
+import top.java.matrix.operations.multiplication.OpenCLMultiplication;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+public class DeviceMatrixTest<M extends Dimension, N extends Dimension, K extends Dimension, L extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private RandomMatrices random = new RandomMatrices(factory);
+    private OpenCLMultiplication<?, ?, ?> device = new OpenCLMultiplication<>(factory);
+
+    @After
+    public void close()
+    {
+        device.close();
+    }
+
+    @Test
+    public void testChainedProductsStayOnDevice()
+    {
+        // Requires an OpenCL runtime (e.g., PoCL in CI):
+        //
+        assumeTrue(device.isAvailable());
+        Matrix<M, K> a = random.matrix(37, 23);
+        Matrix<K, L> b = random.matrix(23, 29);
+        Matrix<L, N> c = random.matrix(29, 11);
+        try (DeviceMatrix<M, K> A = DeviceMatrix.of(device, a).toDevice();
+            DeviceMatrix<K, L> B = DeviceMatrix.of(device, b);
+            DeviceMatrix<L, N> C = DeviceMatrix.of(device, c))
+        {
+            assertTrue(A.isOnDevice() && A.isOnHost());
+            try (DeviceMatrix<M, L> AB = A.times(B); DeviceMatrix<M, N> ABC = AB.times(C))
+            {
+                assertTrue(AB.isOnDevice());
+                assertFalse(AB.isOnHost());
+                assertFalse(ABC.isOnHost());
+                assertEquals(basic(basic(a, b), c), ABC);
+                assertTrue(ABC.isOnHost() && ABC.isOnDevice());
+                ABC.getStorage();
+                assertFalse(ABC.isOnDevice());
+            }
+            StandardVector<K> x = new StandardVector<>(random.matrix(23, 1).getValues());
+            assertEquals(a.times(x), A.times(x));
+            assertTrue(A.isOnDevice());
+        }
+    }
+
+    @Test
+    public void testHostOperationsRetainDeviceCopy()
+    {
+        assumeTrue(device.isAvailable());
+        Matrix<M, K> a = random.matrix(37, 23);
+        Matrix<K, N> b = random.matrix(23, 29);
+        try (DeviceMatrix<M, K> A = DeviceMatrix.of(device, a).toDevice())
+        {
+            assertEquals(a.transpose(), A.transpose());
+            assertTrue(A.isOnDevice());
+            try (DeviceMatrix<M, N> AB = A.times(b))
+            {
+                assertEquals(basic(a, b), AB);
+            }
+            assertTrue(A.isOnDevice());
+            assertTrue(A.getStorageForReading().isReadOnly());
+        }
+    }
+
+    @Test
+    public void testHostStorageWithoutOpenCL()
+    {
+        assumeFalse(device.isAvailable());
+        Matrix<M, K> a = random.matrix(37, 23);
+        Matrix<K, N> b = random.matrix(23, 29);
+        try (DeviceMatrix<M, K> A = DeviceMatrix.of(device, a).toDevice();
+            DeviceMatrix<K, N> B = DeviceMatrix.of(device, b).toDevice())
+        {
+            assertFalse(A.isOnDevice());
+            assertTrue(A.isOnHost());
+            assertTrue(A.getBuffer().isDirect());
+            assertTrue(A.getStorageForReading().isReadOnly());
+            try (DeviceMatrix<M, N> AB = A.times(B))
+            {
+                assertEquals(basic(a, b), AB);
+            }
+            StandardVector<K> x = new StandardVector<>(random.matrix(23, 1).getValues());
+            assertEquals(a.times(x), A.times(x));
+        }
+    }
+
+    @Test
+    public void testViewsAndMixedOperands()
+    {
+        Matrix<K, M> a = random.matrix(23, 37);
+        Matrix<K, N> b = random.matrix(23, 29);
+        try (DeviceMatrix<K, M> A = DeviceMatrix.of(device, a);
+            DeviceMatrix<K, N> B = DeviceMatrix.of(device, b))
+        {
+            assertEquals(basic(a.transpose(), b), A.transposeView().times(B));
+            assertEquals(basic(a.transpose(), b), A.transposeView().times(b));
+            assertEquals(basic(a.transpose(), b), a.transpose().times(B));
+            assertArrayEquals(a.getValues(), A.getValues(), 0F);
+            assertEquals(a.at(5, 7), A.at(5, 7), 0F);
+        }
+    }
+
+    @Test
+    public void testProductsAreOwnedByCaller()
+    {
+        Matrix<M, K> a = random.matrix(7, 5);
+        Matrix<K, N> b = random.matrix(5, 3);
+        try (DeviceMatrix<M, K> A = DeviceMatrix.of(device, a))
+        {
+            // Even with a multiplication that creates other matrices, the product is a separate DeviceMatrix:
+            //
+            @SuppressWarnings("unchecked")
+            DeviceMatrix<M, K> basic = (DeviceMatrix<M, K>)A.using(new BasicMultiplication<>(factory));
+            DeviceMatrix<M, N> AB = basic.times(b);
+            AB.close();
+            assertTrue(AB.isClosed());
+            assertFalse(A.isClosed());
+            try (DeviceMatrix<M, N> product = A.times(b))
+            {
+                assertEquals(basic(a, b), product);
+            }
+        }
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testClose()
+    {
+        DeviceMatrix<M, K> A = DeviceMatrix.of(device, random.matrix(3, 2));
+        Matrix<K, M> view = A.transposeView();
+        A.close();
+        assertTrue(A.isClosed());
+        view.at(0, 0);
+    }
+
+    @Test
+    public void testBufferRemainsReadableAfterClose()
+    {
+        Matrix<M, K> a = random.matrix(3, 2);
+        DeviceMatrix<M, K> A = DeviceMatrix.of(device, a);
+        FloatBuffer buffer = A.getBuffer();
+        A.close();
+        assertEquals(a.at(2, 1), buffer.get(5), 0F);
+    }
+
+    private <R extends Dimension, C extends Dimension, D extends Dimension> Matrix<R, C> basic(Matrix<R, D> left, Matrix<D, C> right)
+    {
+        return new BasicMultiplication<R, C, D>(factory).apply(left, right);
+    }
+}
@@ -0,0 +1,178 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.nio.FloatBuffer;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.operations.multiplication.BlockedMultiplication;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static top.java.matrix.util.RawFloatMatrix.FACTORY;
+
+public class DirectMatrixTest<M extends Dimension>
+{
+    private float[] values = {1, 6, 11, 2, 7, 12, 3, 8, 13, 4, 9, 14, 5, 10, 15};
+
+    @Test
+    public void testBufferIsDirect()
+    {
+        try (DirectMatrix<M, M> matrix = new DirectMatrix<>(FACTORY.create(3, 5, values)))
+        {
+            assertTrue(matrix.getBuffer().isDirect());
+            assertEquals(15, matrix.getBuffer().remaining());
+        }
+    }
+
+    @Test
+    public void testAt()
+    {
+        try (DirectMatrix<M, M> matrix = new DirectMatrix<>(FACTORY.create(3, 5, values)))
+        {
+            assertEquals(6F, matrix.at(1, 0), 0F);
+            assertEquals(13F, matrix.at(2, 2), 0F);
+        }
+    }
+
+    @Test
+    public void testGetValuesCopiesToHeap()
+    {
+        try (DirectMatrix<M, M> matrix = new DirectMatrix<>(FACTORY.create(3, 5, values)))
+        {
+            assertArrayEquals(values, matrix.getValues(), 0F);
+        }
+    }
+
+    @Test
+    public void testEqualsStandardMatrix()
+    {
+        try (DirectMatrix<M, M> matrix = new DirectMatrix<>(FACTORY.create(3, 5, values)))
+        {
+            Matrix<M, M> standard = new StandardMatrix<>(FACTORY.create(3, 5, values));
+            assertEquals(standard, matrix);
+            assertEquals(matrix, standard);
+            assertEquals(standard.hashCode(), matrix.hashCode());
+        }
+    }
+
+    @Test
+    public void testDefaultMultiplicationIsShared()
+    {
+        try (DirectMatrix<M, M> matrix = new DirectMatrix<>(FACTORY.create(3, 5, values)))
+        {
+            assertSame(DirectMatrix.getDefaultMultiplication(), matrix.getMultiplication());
+            assertSame(DirectMatrix.getDefaultMultiplication(), matrix.transpose().getMultiplication());
+        }
+    }
+
+    @Test
+    public void testMultiplicationProducesDirectMatrix()
+    {
+        try (DirectMatrix<M, M> X = new DirectMatrix<>(FACTORY.create(3, 5, values));
+            DirectMatrix<M, M> Y = new DirectMatrix<>(FACTORY.create(5, 2, new float[] {1, 3, 5, 7, 9, 2, 4, 6, 8, 10})))
+        {
+            Matrix<M, M> result = X.using(new BlockedMultiplication<>(DirectMatrix::new)).times(Y);
+            assertEquals(DirectMatrix.class, result.getClass());
+            assertEquals(new StandardMatrix<>(FACTORY.create(3, 2, new float[] {95, 220, 345, 110, 260, 410})), result);
+            ((DirectMatrix<?, ?>)result).close();
+        }
+    }
+
+    @Test
+    public void testTranspose()
+    {
+        try (DirectMatrix<M, M> matrix = new DirectMatrix<>(FACTORY.create(5, 2, new float[] {1, 3, 5, 7, 9, 2, 4, 6, 8, 10})))
+        {
+            Matrix<M, M> expected = new StandardMatrix<>(FACTORY.create(2, 5, new float[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10}));
+            assertEquals(expected, matrix.transpose());
+        }
+    }
+
+    @Test
+    public void testTransposeInto()
+    {
+        try (DirectMatrix<M, M> matrix = new DirectMatrix<>(FACTORY.create(5, 2, new float[] {1, 3, 5, 7, 9, 2, 4, 6, 8, 10}));
+            DirectMatrix<M, M> destination = DirectMatrix.allocate(Dimension.FACTORY.create(2), Dimension.FACTORY.create(5)))
+        {
+            Matrix<M, M> expected = new StandardMatrix<>(FACTORY.create(2, 5, new float[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10}));
+            assertSame(destination, matrix.transposeInto(destination));
+            assertEquals(expected, destination);
+        }
+    }
+
+    @Test
+    public void testTransposeViewSharesStorage()
+    {
+        try (DirectMatrix<M, M> matrix = new DirectMatrix<>(FACTORY.create(5, 2, new float[] {1, 3, 5, 7, 9, 2, 4, 6, 8, 10})))
+        {
+            Matrix<M, M> view = matrix.transposeView();
+            assertEquals(DirectMatrix.class, view.getClass());
+            assertEquals(matrix.transpose(), view);
+            assertEquals(6F, view.at(1, 2), 0F);
+            matrix.getStorage().put(7, 60);
+            assertEquals(60F, view.at(1, 2), 0F);
+            assertEquals(matrix, view.transposeView());
+        }
+    }
+
+    @Test
+    public void testSubMatrix()
+    {
+        try (DirectMatrix<M, M> matrix = new DirectMatrix<>(FACTORY.create(3, 5, values)))
+        {
+            Matrix<M, M> block = matrix.subMatrix(1, 1, 2, 3);
+            assertEquals(DirectMatrix.class, block.getClass());
+            assertArrayEquals(new float[] {7, 12, 8, 13, 9, 14}, block.getValues(), 0F);
+            assertEquals(new StandardMatrix<>(FACTORY.create(1, 5, new float[] {11, 12, 13, 14, 15})), matrix.row(2));
+        }
+    }
+
+    @Test
+    public void testWrap()
+    {
+        FloatBuffer buffer = FloatBuffer.wrap(new float[] {0, 1, 2, 3, 4});
+        buffer.position(1);
+        DirectMatrix<M, M> matrix = DirectMatrix.wrap(Dimension.FACTORY.create(2), Dimension.FACTORY.create(2), buffer);
+        assertEquals(3F, matrix.at(0, 1), 0F);
+        matrix.close();
+        assertEquals(4F, buffer.get(4), 0F);
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testAccessAfterClose()
+    {
+        DirectMatrix<M, M> matrix = DirectMatrix.allocate(Dimension.FACTORY.create(2), Dimension.FACTORY.create(2));
+        Matrix<M, M> derived = matrix.using();
+        matrix.close();
+        assertTrue(matrix.isClosed());
+        derived.at(0, 0);
+    }
+
+    @Test
+    public void testBuffersRemainReadableAfterClose()
+    {
+        DirectMatrix<M, M> matrix = new DirectMatrix<>(FACTORY.create(3, 5, values));
+        FloatBuffer buffer = matrix.getBuffer();
+        FloatBuffer storage = matrix.subMatrix(1, 1, 2, 3).getStorage();
+        matrix.close();
+        assertTrue(matrix.isClosed());
+        assertEquals(15F, buffer.get(14), 0F);
+        assertEquals(7F, storage.get(4), 0F);
+    }
+}
@@ -0,0 +1,97 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.util.RawDoubleMatrix;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static top.java.matrix.util.RawFloatMatrix.FACTORY;
+
+public class DoubleMatrixTest<M extends Dimension, N extends Dimension>
+{
+    // ⎡1 3 5⎤
+    // ⎣2 4 6⎦
+    //
+    private double[] values = {1, 2, 3, 4, 5, 6};
+
+    @Test
+    public void testDoubleValuesKeepFullPrecision()
+    {
+        double third = 1D/3;
+        DoubleMatrix<M, N> matrix = new DoubleMatrix<>(RawDoubleMatrix.FACTORY.create(1, 2, new double[] {third, 1E-50}));
+        assertEquals(third, matrix.doubleAt(0, 0), 0D);
+        assertEquals(1E-50, matrix.doubleAt(0, 1), 0D);
+        assertEquals((float)third, matrix.at(0, 0), 0F);
+        assertArrayEquals(new float[] {(float)third, 0}, matrix.getValues(), 0F);
+    }
+
+    @Test
+    public void testEquals()
+    {
+        DoubleMatrix<M, N> matrix = new DoubleMatrix<>(RawDoubleMatrix.FACTORY.create(2, 3, values));
+        assertEquals(new StandardMatrix<>(FACTORY.create(2, 3, new float[] {1, 2, 3, 4, 5, 6})), matrix);
+        assertEquals(matrix, new StandardMatrix<>(FACTORY.create(2, 3, new float[] {1, 2, 3, 4, 5, 6})));
+
+        // Elements that only differ in double precision:
+        //
+        double[] perturbed = values.clone();
+        perturbed[0] += 1E-12;
+        assertNotEquals(matrix, new DoubleMatrix<>(RawDoubleMatrix.FACTORY.create(2, 3, perturbed)));
+        assertEquals(matrix, new DoubleMatrix<>(RawDoubleMatrix.FACTORY.create(2, 3, values.clone())));
+    }
+
+    @Test
+    public void testOf()
+    {
+        Matrix<M, N> single = new StandardMatrix<>(FACTORY.create(2, 3, new float[] {1, 2, 3, 4, 5, 6}));
+        DoubleMatrix<M, N> matrix = DoubleMatrix.of(single);
+        assertArrayEquals(values, matrix.getDoubleValues(), 0D);
+        assertSame(matrix, DoubleMatrix.of(matrix));
+    }
+
+    @Test
+    public void testTransposeAndViews()
+    {
+        DoubleMatrix<M, N> matrix = new DoubleMatrix<>(RawDoubleMatrix.FACTORY.create(2, 3, values));
+        DoubleMatrix<N, M> transpose = matrix.transpose();
+        assertArrayEquals(new double[] {1, 3, 5, 2, 4, 6}, transpose.getDoubleValues(), 0D);
+        assertEquals(transpose, matrix.transposeView());
+        assertEquals(DoubleMatrix.class, matrix.transposeView().getClass());
+        Matrix<M, N> block = matrix.subMatrix(0, 1, 2, 2);
+        assertArrayEquals(new double[] {3, 4, 5, 6}, ((DoubleMatrix<M, N>)block).getDoubleValues(), 0D);
+        assertEquals(6F, block.at(1, 1), 0F);
+    }
+
+    @Test
+    public void testTimes()
+    {
+        // Products involving a double matrix are computed (and returned) in double precision:
+        //
+        double[] small = {1, 1E-10};
+        DoubleMatrix<M, N> left = new DoubleMatrix<>(RawDoubleMatrix.FACTORY.create(1, 2, small));
+        DoubleMatrix<N, M> right = new DoubleMatrix<>(RawDoubleMatrix.FACTORY.create(2, 1, small));
+        Matrix<M, M> product = left.times(right);
+        assertEquals(DoubleMatrix.class, product.getClass());
+        assertEquals(1 + 1E-20, ((DoubleMatrix<M, M>)product).doubleAt(0, 0), 0D);
+        Matrix<M, M> mixed = left.times(new StandardMatrix<>(FACTORY.create(2, 1, new float[] {2, 3})));
+        assertEquals(2 + 3E-10, ((DoubleMatrix<M, M>)mixed).doubleAt(0, 0), 1E-22);
+    }
+}
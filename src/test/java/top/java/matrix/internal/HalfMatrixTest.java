@@ -0,0 +1,109 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.internal.HalfMatrix.Encoding;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static top.java.matrix.util.RawFloatMatrix.FACTORY;
+
+public class HalfMatrixTest<M extends Dimension, N extends Dimension>
+{
+    @Test
+    public void testFP16Encoding()
+    {
+        Encoding fp16 = Encoding.FP16;
+        assertEquals((short)0x3C00, fp16.encode(1F));
+        assertEquals((short)0xC000, fp16.encode(-2F));
+        assertEquals((short)0x7BFF, fp16.encode(65504F));
+        assertEquals((short)0x7C00, fp16.encode(65520F));
+        assertEquals((short)0x0001, fp16.encode(0x1p-24f));
+        assertEquals((short)0x0400, fp16.encode(0x1p-14f));
+        assertEquals((short)0x3555, fp16.encode(1F/3));
+        assertEquals(Float.POSITIVE_INFINITY, fp16.decode((short)0x7C00), 0F);
+        assertEquals(0x1p-24f, fp16.decode((short)0x0001), 0F);
+        assertEquals(-0F, fp16.decode((short)0x8000), 0F);
+        assertEquals(Float.NaN, fp16.decode(fp16.encode(Float.NaN)), 0F);
+
+        // Ties round to even (1 + 2^-11 is halfway between 1 and 1 + 2^-10):
+        //
+        assertEquals((short)0x3C00, fp16.encode(1 + 0x1p-11f));
+        assertEquals((short)0x3C02, fp16.encode(1 + 3*0x1p-11f));
+    }
+
+    @Test
+    public void testFP16RoundTrip()
+    {
+        for (int bits = 0; bits < 0x10000; bits++)
+        {
+            short encoded = (short)bits;
+            float decoded = Encoding.FP16.decode(encoded);
+            if (!Float.isNaN(decoded))
+            {
+                assertEquals(encoded, Encoding.FP16.encode(decoded));
+            }
+        }
+    }
+
+    @Test
+    public void testBF16Encoding()
+    {
+        Encoding bf16 = Encoding.BF16;
+        assertEquals((short)0x3F80, bf16.encode(1F));
+        assertEquals((short)0x3F80, bf16.encode(Float.intBitsToFloat(0x3F808000)));
+        assertEquals((short)0x3F82, bf16.encode(Float.intBitsToFloat(0x3F818000)));
+        assertEquals((short)0x3F81, bf16.encode(Float.intBitsToFloat(0x3F808001)));
+        assertEquals(Float.POSITIVE_INFINITY, bf16.decode(bf16.encode(Float.MAX_VALUE)), 0F);
+        assertEquals(Float.NaN, bf16.decode(bf16.encode(Float.NaN)), 0F);
+        assertEquals(1E30F, bf16.decode(bf16.encode(1E30F)), 1E28F);
+    }
+
+    @Test
+    public void testMatrix()
+    {
+        // ⎡1 3 5⎤
+        // ⎣2 4 6⎦
+        //
+        float[] values = {1, 2, 3, 4, 5, 6};
+        for (Encoding encoding: Encoding.values())
+        {
+            HalfMatrix<M, N> matrix = HalfMatrix.of(new StandardMatrix<>(FACTORY.create(2, 3, values)), encoding);
+            assertEquals(encoding, matrix.getEncoding());
+            assertEquals(6, matrix.getEncodedValues().length);
+            assertArrayEquals(values, matrix.getValues(), 0F);
+            assertEquals(new StandardMatrix<>(FACTORY.create(2, 3, values)), matrix);
+            assertEquals(4F, matrix.at(1, 1), 0F);
+            HalfMatrix<N, M> transpose = matrix.transpose();
+            assertArrayEquals(new float[] {1, 3, 5, 2, 4, 6}, transpose.getValues(), 0F);
+            assertEquals(transpose, matrix.transposeView());
+            Matrix<M, N> block = matrix.subMatrix(1, 1, 1, 2);
+            assertEquals(HalfMatrix.class, block.getClass());
+            assertArrayEquals(new float[] {4, 6}, block.getValues(), 0F);
+        }
+    }
+
+    @Test
+    public void testPrecision()
+    {
+        float[] values = {1F/3};
+        Matrix<M, N> matrix = new StandardMatrix<>(FACTORY.create(1, 1, values));
+        assertEquals(1F/3, HalfMatrix.of(matrix, Encoding.FP16).at(0, 0), 1F/3*0x1p-11f);
+        assertEquals(1F/3, HalfMatrix.of(matrix, Encoding.BF16).at(0, 0), 1F/3*0x1p-8f);
+    }
+}
@@ -0,0 +1,139 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.RandomMatrices;
+import top.java.matrix.operations.multiplication.BasicMultiplication;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LazyMatrixTest<A extends Dimension, B extends Dimension, C extends Dimension, D extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private RandomMatrices random = new RandomMatrices(factory, 3);
+
+    @Test
+    public void testEvaluationIsDeferred()
+    {
+        LazyMatrix<A, C> product = LazyMatrix.of(random.<A, B>matrix(7, 5)).times(random.matrix(5, 3));
+        assertFalse(product.isEvaluated());
+        assertEquals(7, product.getRows());
+        assertEquals(3, product.getColumns());
+        assertFalse(product.isEvaluated());
+        product.getValues();
+        assertTrue(product.isEvaluated());
+    }
+
+    @Test
+    public void testChainMatchesEagerEvaluation()
+    {
+        Matrix<A, B> first = random.matrix(10, 30);
+        Matrix<B, C> second = random.matrix(30, 5);
+        Matrix<C, D> third = random.matrix(5, 60);
+        Matrix<A, D> expected = basic(basic(first, second), third);
+        assertEquals(expected, LazyMatrix.of(first).times(second).times(third));
+    }
+
+    @Test
+    public void testChainOrderMinimizesCost()
+    {
+        // (10x100)(100x5)(5x50): multiplying the first two factors first takes 7500 instead of 75000 multiplications
+        //
+        LazyMatrix<A, D> product = LazyMatrix.of(random.<A, B>matrix(10, 100)).times(random.<B, C>matrix(100, 5)).times(random.matrix(5, 50));
+        assertEquals("((0 1) 2)", product.plan());
+        LazyMatrix<A, D> other = LazyMatrix.of(random.<A, B>matrix(50, 5)).times(random.<B, C>matrix(5, 100)).times(random.matrix(100, 10));
+        assertEquals("(0 (1 2))", other.plan());
+    }
+
+    @Test
+    public void testTransposeOfProductIsFused()
+    {
+        Matrix<A, B> first = random.matrix(13, 21);
+        Matrix<B, C> second = random.matrix(21, 8);
+        LazyMatrix<C, A> transposed = LazyMatrix.of(first).times(second).transpose();
+        assertEquals("(0' 1')", transposed.plan());
+        assertEquals(basic(first, second).transpose(), transposed);
+    }
+
+    @Test
+    public void testDoubleTransposeCancels()
+    {
+        Matrix<A, B> matrix = random.matrix(4, 6);
+        LazyMatrix<A, B> twice = LazyMatrix.of(matrix).transpose().transpose();
+        assertEquals("0", twice.plan());
+        assertEquals(matrix.at(2, 3), twice.at(2, 3), 0F);
+        assertFalse(twice.isEvaluated());
+    }
+
+    @Test
+    public void testLazyTransposeElementAccess()
+    {
+        Matrix<A, B> matrix = random.matrix(4, 6);
+        LazyMatrix<B, A> transposed = LazyMatrix.of(matrix).transpose();
+        assertEquals(matrix.at(1, 5), transposed.at(5, 1), 0F);
+        assertFalse(transposed.isEvaluated());
+    }
+
+    @Test
+    public void testTimesInto()
+    {
+        Matrix<A, B> first = random.matrix(9, 4);
+        Matrix<B, C> second = random.matrix(4, 11);
+        Matrix<C, D> third = random.matrix(11, 3);
+        float[] storage = new float[27];
+        Matrix<A, D> destination = factory.create(Dimension.FACTORY.create(9), Dimension.FACTORY.create(3), storage);
+        assertSame(destination, LazyMatrix.of(first).times(second).timesInto(third, destination));
+        assertArrayEquals(basic(basic(first, second), third).getValues(), storage, 0F);
+    }
+
+    @Test
+    public void testTimesIntoFactorOfChain()
+    {
+        Matrix<A, A> first = random.matrix(5, 5);
+        Matrix<A, A> second = random.matrix(5, 5);
+        Matrix<A, A> expected = basic(basic(first, second), second);
+        assertSame(first, LazyMatrix.of(first).times(second).timesInto(second, first));
+        assertEquals(expected, first);
+
+        // A destination that is a different matrix object, but shares its storage with a factor:
+        //
+        float[] storage = random.matrix(5, 5).getValues();
+        Matrix<A, A> factor = factory.create(Dimension.FACTORY.create(5), Dimension.FACTORY.create(5), storage);
+        Matrix<A, A> destination = factory.create(Dimension.FACTORY.create(5), Dimension.FACTORY.create(5), storage);
+        expected = basic(basic(factor, second), second);
+        LazyMatrix.of(factor).times(second).timesInto(second, destination);
+        assertEquals(expected, destination);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testMismatchedDimensions()
+    {
+        Matrix<B, C> second = random.matrix(5, 3);
+        LazyMatrix.of(random.<A, B>matrix(7, 4)).times(second);
+    }
+
+    private <M extends Dimension, N extends Dimension, K extends Dimension> Matrix<M, N> basic(Matrix<M, K> left, Matrix<K, N> right)
+    {
+        return new BasicMultiplication<M, N, K>(factory).apply(left, right);
+    }
+}
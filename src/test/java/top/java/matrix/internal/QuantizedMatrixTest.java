@@ -0,0 +1,91 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.util.Random;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.internal.QuantizedMatrix.Axis;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static top.java.matrix.util.RawFloatMatrix.FACTORY;
+
+public class QuantizedMatrixTest<M extends Dimension, N extends Dimension>
+{
+    @Test
+    public void testQuantizeRows()
+    {
+        // ⎡0  127.5 255⎤
+        // ⎣-2   0    3 ⎦
+        //
+        float[] values = {0, -2, 127.5F, 0, 255, 3};
+        QuantizedMatrix<M, N> matrix = QuantizedMatrix.quantize(FACTORY.create(2, 3, values), Axis.ROWS);
+        assertEquals(Axis.ROWS, matrix.getAxis());
+        assertArrayEquals(new float[] {1, 5F/255}, matrix.getScales(), 1E-7F);
+        assertArrayEquals(new int[] {-128, -26}, matrix.getZeroPoints());
+        assertArrayEquals(new byte[] {-128, -128, 0, -26, 127, 127}, matrix.getQuantizedValues());
+        assertEquals(0F, matrix.at(1, 1), 0F);
+        assertEquals(255F, matrix.at(0, 2), 0F);
+    }
+
+    @Test
+    public void testQuantizationError()
+    {
+        Random random = new Random(42);
+        float[] values = new float[37*23];
+        for (int index = 0; index < values.length; index++)
+        {
+            values[index] = (float)random.nextGaussian()*(1 + index%7);
+        }
+        for (Axis axis: Axis.values())
+        {
+            QuantizedMatrix<M, N> matrix = QuantizedMatrix.quantize(FACTORY.create(37, 23, values), axis);
+            float[] dequantized = matrix.dequantize().getValues();
+            for (int row = 0; row < 37; row++)
+            {
+                for (int column = 0; column < 23; column++)
+                {
+                    float scale = matrix.getScales()[axis == Axis.ROWS? row:column];
+                    assertEquals(values[row + column*37], dequantized[row + column*37], scale/2 + 1E-6F);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testZeroIsExact()
+    {
+        float[] values = {3, 0, 5, 0, 0, 0};
+        QuantizedMatrix<M, N> matrix = QuantizedMatrix.quantize(FACTORY.create(2, 3, values), Axis.COLUMNS);
+        assertArrayEquals(values, matrix.getValues(), 1E-6F);
+        assertEquals(0F, matrix.at(1, 0), 0F);
+        assertEquals(0F, matrix.at(1, 2), 0F);
+    }
+
+    @Test
+    public void testTransposeView()
+    {
+        float[] values = {1, -2, 3, -4, 5, -6};
+        QuantizedMatrix<M, N> matrix = QuantizedMatrix.quantize(FACTORY.create(2, 3, values), Axis.ROWS);
+        QuantizedMatrix<N, M> transpose = matrix.transposeView();
+        assertEquals(Axis.COLUMNS, transpose.getAxis());
+        assertEquals(matrix.dequantize().transpose(), transpose);
+        assertEquals(matrix.at(1, 2), transpose.at(2, 1), 0F);
+        Matrix<M, N> block = matrix.subMatrix(0, 1, 2, 2);
+        assertArrayEquals(new float[] {matrix.at(0, 1), matrix.at(1, 1), matrix.at(0, 2), matrix.at(1, 2)}, block.getValues(), 0F);
+    }
+}
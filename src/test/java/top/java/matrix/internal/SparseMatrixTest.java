@@ -0,0 +1,120 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.nio.ReadOnlyBufferException;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.internal.SparseMatrix.Format;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static top.java.matrix.util.RawFloatMatrix.FACTORY;
+
+public class SparseMatrixTest<M extends Dimension, N extends Dimension>
+{
+    // ⎡1 0 0 4⎤
+    // ⎢0 0 3 0⎥
+    // ⎣2 0 0 5⎦
+    //
+    private float[] values = {1, 0, 2, 0, 0, 0, 0, 3, 0, 4, 0, 5};
+
+    @Test
+    public void testCompressedColumns()
+    {
+        SparseMatrix<M, N> matrix = SparseMatrix.of(FACTORY.create(3, 4, values), Format.CSC, 0);
+        assertEquals(5, matrix.getNonZeros());
+        assertArrayEquals(new int[] {0, 2, 2, 3, 5}, matrix.getPointers());
+        assertArrayEquals(new int[] {0, 2, 1, 0, 2}, matrix.getIndices());
+        assertArrayEquals(new float[] {1, 2, 3, 4, 5}, matrix.getNonZeroValues(), 0F);
+        assertArrayEquals(values, matrix.getValues(), 0F);
+    }
+
+    @Test
+    public void testCompressedRows()
+    {
+        SparseMatrix<M, N> matrix = SparseMatrix.of(FACTORY.create(3, 4, values), Format.CSR, 0);
+        assertArrayEquals(new int[] {0, 2, 3, 5}, matrix.getPointers());
+        assertArrayEquals(new int[] {0, 3, 2, 0, 3}, matrix.getIndices());
+        assertArrayEquals(new float[] {1, 4, 3, 2, 5}, matrix.getNonZeroValues(), 0F);
+        assertArrayEquals(values, matrix.getValues(), 0F);
+    }
+
+    @Test
+    public void testThreshold()
+    {
+        float[] noisy = {1, 1E-7F, 2, -1E-6F, 0, 0, 0, 3, 0, 4, 0, 5};
+        SparseMatrix<M, N> matrix = SparseMatrix.of(FACTORY.create(3, 4, noisy), Format.CSC, 1E-5F);
+        assertEquals(new StandardMatrix<>(FACTORY.create(3, 4, values)), matrix);
+    }
+
+    @Test
+    public void testAt()
+    {
+        for (Format format: Format.values())
+        {
+            SparseMatrix<M, N> matrix = SparseMatrix.of(FACTORY.create(3, 4, values), format, 0);
+            assertEquals(3F, matrix.at(1, 2), 0F);
+            assertEquals(5F, matrix.at(2, 3), 0F);
+            assertEquals(0F, matrix.at(1, 3), 0F);
+        }
+    }
+
+    @Test
+    public void testToFormat()
+    {
+        SparseMatrix<M, N> csc = SparseMatrix.of(FACTORY.create(3, 4, values), Format.CSC, 0);
+        SparseMatrix<M, N> csr = csc.toFormat(Format.CSR);
+        assertSame(csc, csc.toFormat(Format.CSC));
+        assertArrayEquals(SparseMatrix.of(FACTORY.create(3, 4, values), Format.CSR, 0).getIndices(), csr.getIndices());
+        assertEquals(csc, csr);
+        assertArrayEquals(csc.getIndices(), csr.toFormat(Format.CSC).getIndices());
+    }
+
+    @Test
+    public void testTransposeSharesArrays()
+    {
+        SparseMatrix<M, N> matrix = SparseMatrix.of(FACTORY.create(3, 4, values), Format.CSC, 0);
+        SparseMatrix<N, M> transpose = matrix.transpose();
+        assertEquals(Format.CSR, transpose.getFormat());
+        assertSame(matrix.getNonZeroValues(), transpose.getNonZeroValues());
+        assertEquals(new StandardMatrix<>(FACTORY.create(3, 4, values)).transpose(), transpose);
+    }
+
+    @Test
+    public void testSubMatrix()
+    {
+        SparseMatrix<M, N> matrix = SparseMatrix.of(FACTORY.create(3, 4, values), Format.CSR, 0);
+        Matrix<M, N> block = matrix.subMatrix(1, 2, 2, 2);
+        assertArrayEquals(new float[] {3, 0, 0, 5}, block.getValues(), 0F);
+    }
+
+    @Test(expected=ReadOnlyBufferException.class)
+    public void testTimesIntoSparseDestination()
+    {
+        Matrix<M, M> identity = new StandardMatrix<>(FACTORY.create(3, 3, new float[] {1, 0, 0, 0, 1, 0, 0, 0, 1}));
+        Matrix<M, N> matrix = new StandardMatrix<>(FACTORY.create(3, 4, values));
+        identity.timesInto(matrix, SparseMatrix.of(FACTORY.create(3, 4, new float[12]), Format.CSC, 0));
+    }
+
+    @Test(expected=ReadOnlyBufferException.class)
+    public void testTransposeIntoSparseDestination()
+    {
+        Matrix<M, N> matrix = new StandardMatrix<>(FACTORY.create(3, 4, values));
+        matrix.transposeInto(SparseMatrix.of(FACTORY.create(4, 3, new float[12]), Format.CSR, 0));
+    }
+}
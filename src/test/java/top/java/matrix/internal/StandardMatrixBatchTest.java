@@ -0,0 +1,63 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixBatch;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static top.java.matrix.util.RawFloatMatrix.FACTORY;
+
+public class StandardMatrixBatchTest<M extends Dimension, N extends Dimension>
+{
+    private Matrix<M, N> first = new StandardMatrix<>(FACTORY.create(2, 3, new float[] {1, 2, 3, 4, 5, 6}));
+    private Matrix<M, N> second = new StandardMatrix<>(FACTORY.create(2, 3, new float[] {7, 8, 9, 10, 11, 12}));
+
+    @Test
+    public void testOf()
+    {
+        MatrixBatch<M, N> batch = StandardMatrixBatch.of(first, second);
+        assertEquals(2, batch.size());
+        assertEquals(6, batch.getStride());
+        assertArrayEquals(new float[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}, batch.getValues(), 0F);
+    }
+
+    @Test
+    public void testGet()
+    {
+        MatrixBatch<M, N> batch = StandardMatrixBatch.of(first, second);
+        assertEquals(first, batch.get(0));
+        assertEquals(second, batch.get(1));
+    }
+
+    @Test
+    public void testTimes()
+    {
+        MatrixBatch<M, N> batch = StandardMatrixBatch.of(first, second);
+        MatrixBatch<N, M> transposed = StandardMatrixBatch.of(first.transpose(), second.transpose());
+        MatrixBatch<M, M> result = batch.times(transposed);
+        assertEquals(first.times(first.transpose()), result.get(0));
+        assertEquals(second.times(second.transpose()), result.get(1));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testDifferentDimensions()
+    {
+        StandardMatrixBatch.of(first, first.transpose().transpose(), new StandardMatrix<M, N>(FACTORY.create(3, 2, new float[6])));
+    }
+}
@@ -0,0 +1,205 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.internal;
+
+import java.nio.ReadOnlyBufferException;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.operations.Activation;
+import top.java.matrix.operations.Reduction;
+import top.java.matrix.operations.access.DirectElementAccess;
+import top.java.matrix.operations.access.RowMajorElementAccess;
+import top.java.matrix.operations.access.StridedElementAccess;
+import top.java.matrix.operations.multiplication.BasicMultiplication;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static top.java.matrix.util.RawFloatMatrix.FACTORY;
+
+public class StandardMatrixTest<M extends Dimension>
+{
+    private float[] values = {1, 6, 11, 2, 7, 12, 3, 8, 13, 4, 9, 14, 5, 10, 15};
+
+    @Test
+    public void testTransposeViewSharesStorage()
+    {
+        Matrix<M, M> matrix = new StandardMatrix<>(FACTORY.create(3, 5, values));
+        Matrix<M, M> view = matrix.transposeView();
+        assertEquals(RowMajorElementAccess.class, view.getElementAccess().getClass());
+        assertSame(values, view.getStorage().array());
+        assertEquals(matrix.transpose(), view);
+        assertEquals(matrix.transpose().hashCode(), view.hashCode());
+        assertEquals(12F, view.at(1, 2), 0F);
+        values[5] = 120;
+        assertEquals(120F, view.at(1, 2), 0F);
+    }
+
+    @Test
+    public void testTransposeOfTransposeView()
+    {
+        Matrix<M, M> matrix = new StandardMatrix<>(FACTORY.create(3, 5, values));
+        Matrix<M, M> view = matrix.transposeView().transposeView();
+        assertEquals(DirectElementAccess.class, view.getElementAccess().getClass());
+        assertSame(values, view.getValues());
+        assertEquals(matrix, view);
+        assertEquals(matrix, matrix.transposeView().transpose());
+    }
+
+    @Test
+    public void testGetValuesOfTransposeView()
+    {
+        Matrix<M, M> view = new StandardMatrix<M, M>(FACTORY.create(3, 5, values)).transposeView();
+        float[] expected = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15};
+        assertArrayEquals(expected, view.getValues(), 0F);
+        assertTrue(view.getBuffer().isReadOnly());
+    }
+
+    @Test
+    public void testUsingRetainsLayout()
+    {
+        Matrix<M, M> view = new StandardMatrix<M, M>(FACTORY.create(3, 5, values)).transposeView();
+        Matrix<M, M> using = view.using(new BasicMultiplication<>(StandardMatrix::new));
+        assertEquals(view, using);
+        assertEquals(RowMajorElementAccess.class, using.getElementAccess().getClass());
+    }
+
+    @Test
+    public void testStridedElementAccess()
+    {
+        // The 2x2 sub-matrix in the lower right corner of the 3x5 matrix, starting at (1, 3):
+        //
+        StridedElementAccess access = new StridedElementAccess(StandardMatrix::new, 10, 1, 3);
+        Matrix<M, M> view = new StandardMatrix<>(Dimension.FACTORY.create(2), Dimension.FACTORY.create(2), values, access);
+        assertFalse(view.getElementAccess().isColumnMajor(Dimension.FACTORY.create(2), Dimension.FACTORY.create(2)));
+        assertArrayEquals(new float[] {9, 14, 10, 15}, view.getValues(), 0F);
+        assertEquals(14F, view.at(1, 0), 0F);
+        assertEquals(10F, view.transposeView().at(1, 0), 0F);
+    }
+
+    @Test(expected=ReadOnlyBufferException.class)
+    public void testBufferOfViewIsReadOnly()
+    {
+        new StandardMatrix<M, M>(FACTORY.create(3, 5, values)).transposeView().getBuffer().put(0, 0);
+    }
+
+    @Test
+    public void testTransposeIntoView()
+    {
+        Matrix<M, M> matrix = new StandardMatrix<>(FACTORY.create(3, 5, values));
+        float[] storage = new float[15];
+        Matrix<M, M> destination = new StandardMatrix<M, M>(FACTORY.create(3, 5, storage)).transposeView();
+        assertSame(destination, matrix.transposeInto(destination));
+        assertEquals(matrix.transpose(), destination);
+        assertArrayEquals(values, storage, 0F);
+    }
+
+    @Test
+    public void testSubMatrixSharesStorage()
+    {
+        Matrix<M, M> matrix = new StandardMatrix<>(FACTORY.create(3, 5, values));
+        Matrix<M, M> block = matrix.subMatrix(1, 2, 2, 3);
+        assertEquals(new StandardMatrix<>(FACTORY.create(2, 3, new float[] {8, 13, 9, 14, 10, 15})), block);
+        assertSame(values, block.getStorage().array());
+        values[10] = 90;
+        assertEquals(90F, block.at(0, 1), 0F);
+    }
+
+    @Test
+    public void testRowAndColumn()
+    {
+        Matrix<M, M> matrix = new StandardMatrix<>(FACTORY.create(3, 5, values));
+        assertArrayEquals(new float[] {6, 7, 8, 9, 10}, matrix.row(1).getValues(), 0F);
+        assertArrayEquals(new float[] {3, 8, 13}, matrix.column(2).getValues(), 0F);
+        assertArrayEquals(new float[] {7, 8, 9}, matrix.row(1).subMatrix(0, 1, 1, 3).getValues(), 0F);
+        assertArrayEquals(new float[] {11, 12, 13, 14, 15}, matrix.transposeView().column(2).getValues(), 0F);
+    }
+
+    @Test
+    public void testSubMatrixOfTransposeView()
+    {
+        Matrix<M, M> matrix = new StandardMatrix<>(FACTORY.create(3, 5, values));
+        Matrix<M, M> block = matrix.transposeView().subMatrix(3, 1, 2, 2);
+        assertEquals(matrix.subMatrix(1, 3, 2, 2).transpose(), block);
+    }
+
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testSubMatrixOutOfBounds()
+    {
+        new StandardMatrix<M, M>(FACTORY.create(3, 5, values)).subMatrix(1, 3, 2, 3);
+    }
+
+    @Test
+    public void testValuesOfColumnMajorPrefixViews()
+    {
+        Matrix<M, M> matrix = new StandardMatrix<>(FACTORY.create(3, 5, values));
+        assertArrayEquals(new float[] {1, 6, 11}, matrix.column(0).getValues(), 0F);
+        assertArrayEquals(new float[] {1, 6, 11, 2, 7, 12}, matrix.subMatrix(0, 0, 3, 2).getValues(), 0F);
+        assertSame(values, matrix.subMatrix(0, 0, 3, 5).getValues());
+    }
+
+    @Test
+    public void testReduceColumnMajorPrefixViews()
+    {
+        Matrix<M, M> matrix = new StandardMatrix<>(FACTORY.create(4, 4, sequence(16)));
+        assertEquals(6F, matrix.column(0).reduce(Reduction.SUM), 0F);
+        assertEquals(28F, matrix.subMatrix(0, 0, 4, 2).reduce(Reduction.SUM), 0F);
+    }
+
+    @Test
+    public void testPlusColumnOfColumnMajorPrefixViews()
+    {
+        Matrix<M, M> matrix = new StandardMatrix<>(FACTORY.create(4, 4, sequence(16)));
+        Matrix<M, One> column = matrix.column(0);
+        Matrix<M, M> block = matrix.subMatrix(0, 0, 4, 2);
+        Matrix<M, M> expected = new StandardMatrix<>(FACTORY.create(4, 2, new float[] {0, 2, 4, 6, 4, 6, 8, 10}));
+        Matrix<M, M> sum = block.plusColumn(column);
+        assertEquals(expected, sum);
+        assertEquals(8, sum.getValues().length);
+    }
+
+    @Test
+    public void testBiasFromColumnMajorPrefixView()
+    {
+        Matrix<M, M> matrix = new StandardMatrix<>(FACTORY.create(4, 4, sequence(16)));
+        Matrix<M, M> identity = new StandardMatrix<>(FACTORY.create(2, 2, new float[] {1, 0, 0, 1}));
+        Matrix<M, M> block = matrix.subMatrix(0, 0, 4, 2);
+        Matrix<M, M> expected = new StandardMatrix<>(FACTORY.create(4, 2, new float[] {0, 2, 4, 6, 4, 6, 8, 10}));
+        assertEquals(expected, block.times(identity, matrix.column(0), Activation.IDENTITY));
+    }
+
+    @Test
+    public void testDefaultMultiplicationIsShared()
+    {
+        Matrix<M, M> first = new StandardMatrix<>(FACTORY.create(2, 2, new float[4]));
+        Matrix<M, M> second = new StandardMatrix<>(FACTORY.create(3, 3, new float[9]));
+        assertSame(StandardMatrix.getDefaultMultiplication(), first.getMultiplication());
+        assertSame(StandardMatrix.getDefaultMultiplication(), second.transpose().getMultiplication());
+    }
+
+    private float[] sequence(int length)
+    {
+        float[] sequence = new float[length];
+        for (int index = 0; index < length; index++)
+        {
+            sequence[index] = index;
+        }
+        return sequence;
+    }
+}
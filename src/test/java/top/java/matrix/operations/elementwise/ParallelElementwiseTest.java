@@ -0,0 +1,131 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.elementwise;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.RandomMatrices;
+import top.java.matrix.internal.DirectMatrix;
+import top.java.matrix.internal.StandardMatrix;
+import top.java.matrix.operations.Activation;
+import top.java.matrix.operations.Arithmetic;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ParallelElementwiseTest<M extends Dimension, N extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private RandomMatrices random = new RandomMatrices(factory);
+
+    @Test
+    public void testMap()
+    {
+        Matrix<M, N> matrix = random.matrix(37, 23);
+        float[] expected = matrix.getValues().clone();
+        for (int index = 0; index < expected.length; index++)
+        {
+            expected[index] = Math.max(0, expected[index]);
+        }
+        Matrix<M, N> result = new ParallelElementwise<M, N>(factory).map(matrix, Activation.RELU);
+        assertEquals(StandardMatrix.class, result.getClass());
+        assertArrayEquals(expected, result.getValues(), 0F);
+        assertArrayEquals(expected, matrix.map(Activation.RELU).getValues(), 0F);
+    }
+
+    @Test
+    public void testCombineInParallel()
+    {
+        // A small pool and a matrix above the sequential threshold force the work to be split:
+        //
+        ParallelElementwise<M, N> elementwise = new ParallelElementwise<>(factory, new ForkJoinPool(3));
+        Matrix<M, N> left = random.matrix(301, 263);
+        Matrix<M, N> right = random.matrix(301, 263);
+        float[] sum = left.getValues().clone();
+        float[] difference = left.getValues().clone();
+        float[] product = left.getValues().clone();
+        float[] values = right.getValues();
+        for (int index = 0; index < values.length; index++)
+        {
+            sum[index] += values[index];
+            difference[index] -= values[index];
+            product[index] *= values[index];
+        }
+        assertArrayEquals(sum, elementwise.combine(left, right, Arithmetic.ADD).getValues(), 0F);
+        assertArrayEquals(difference, left.minus(right).getValues(), 0F);
+        assertArrayEquals(product, left.hadamard(right).getValues(), 0F);
+        assertArrayEquals(sum, left.plus(right).getValues(), 0F);
+    }
+
+    @Test
+    public void testCombineColumnAndRow()
+    {
+        ParallelElementwise<M, N> elementwise = new ParallelElementwise<>(factory);
+        Matrix<M, N> matrix = random.matrix(5, 3);
+        Matrix<M, One> column = random.matrix(5, 1);
+        Matrix<One, N> row = random.matrix(1, 3);
+        Matrix<M, N> columnSum = elementwise.combineColumn(matrix, column, Arithmetic.ADD);
+        Matrix<M, N> rowProduct = elementwise.combineRow(matrix, row, Arithmetic.MULTIPLY);
+        for (int rowIndex = 0; rowIndex < 5; rowIndex++)
+        {
+            for (int columnIndex = 0; columnIndex < 3; columnIndex++)
+            {
+                float value = matrix.at(rowIndex, columnIndex);
+                assertEquals(value + column.at(rowIndex, 0), columnSum.at(rowIndex, columnIndex), 0F);
+                assertEquals(value*row.at(0, columnIndex), rowProduct.at(rowIndex, columnIndex), 0F);
+            }
+        }
+        assertEquals(columnSum, matrix.plusColumn(column));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testCombineRejectsMismatchedShapes()
+    {
+        new ParallelElementwise<M, N>(factory).combine(random.matrix(3, 4), random.matrix(4, 3), Arithmetic.ADD);
+    }
+
+    @Test
+    public void testScaleAndTransposedView()
+    {
+        Matrix<N, M> transpose = random.matrix(23, 37);
+        Matrix<M, N> view = transpose.transposeView();
+        Matrix<M, N> scaled = view.scale(2);
+        for (int row = 0; row < 37; row++)
+        {
+            for (int column = 0; column < 23; column++)
+            {
+                assertEquals(2*transpose.at(column, row), scaled.at(row, column), 0F);
+            }
+        }
+    }
+
+    @Test
+    public void testInPlaceIntoDirectMatrix()
+    {
+        Matrix<M, N> matrix = random.matrix(37, 23);
+        try (DirectMatrix<M, N> destination = DirectMatrix.allocate(Dimension.FACTORY.create(37), Dimension.FACTORY.create(23)))
+        {
+            ParallelElementwise<M, N> elementwise = new ParallelElementwise<>(DirectMatrix::new);
+            assertSame(destination, elementwise.mapInto(matrix, Activation.IDENTITY, destination));
+            assertSame(destination, elementwise.combineInto(destination, matrix, Arithmetic.ADD, destination));
+            assertEquals(matrix.scale(2), destination);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Path;
+import java.util.Properties;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.internal.HalfMatrix;
+import top.java.matrix.internal.StandardMatrix;
+import top.java.matrix.internal.opencl.OpenCLException;
+import top.java.matrix.operations.MatrixMultiplication;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdaptiveMultiplicationTest<M extends Dimension, N extends Dimension, K extends Dimension>
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MatrixFactory factory = StandardMatrix::new;
+
+    @Test
+    public void testTinyMatricesUseScalarPath()
+    {
+        AdaptiveMultiplication<M, N, K> adaptive = new AdaptiveMultiplication<>(factory, null);
+        assertEquals(AdaptiveMultiplication.SCALAR, adaptive.select(3, 5, 2));
+    }
+
+    @Test
+    public void testLargeMatricesUseBlockedPathByDefault()
+    {
+        AdaptiveMultiplication<M, N, K> adaptive = new AdaptiveMultiplication<>(factory, null);
+        assertEquals(AdaptiveMultiplication.BLOCKED, adaptive.select(1000, 1000, 1000));
+    }
+
+    @Test
+    public void testCalibrationIsPersisted() throws IOException
+    {
+        Path table = folder.getRoot().toPath().resolve("tuning.properties");
+        AdaptiveMultiplication<M, N, K> adaptive = new AdaptiveMultiplication<>(factory, table);
+        adaptive.register("slow", new SlowMultiplication<>(factory));
+        String best = adaptive.calibrate(64, 64, 64);
+        assertTrue(table.toFile().exists());
+        AdaptiveMultiplication<M, N, K> restarted = new AdaptiveMultiplication<>(factory, table);
+        assertEquals(best, restarted.select(60, 50, 40));
+    }
+
+    @Test
+    public void testTiledStrategyIsOnlySelectedForLittlePadding() throws IOException
+    {
+        Path table = folder.getRoot().toPath().resolve("tuning.properties");
+        Files.write(table, "6.6.6=tiled-16\n".getBytes(UTF_8));
+        AdaptiveMultiplication<M, N, K> adaptive = new AdaptiveMultiplication<M, N, K>(factory, table)
+            .register("tiled-16", new TiledFastMultiplication<>(factory, 16));
+        assertEquals("tiled-16", adaptive.select(64, 64, 64));
+        assertEquals("tiled-16", adaptive.select(63, 61, 62));
+        assertEquals(AdaptiveMultiplication.BLOCKED, adaptive.select(40, 50, 60));
+    }
+
+    @Test
+    public void testFailingStrategyIsExcluded() throws IOException
+    {
+        Path table = folder.getRoot().toPath().resolve("tuning.properties");
+        Files.write(table, "6.6.6=failing\n".getBytes(UTF_8));
+        AdaptiveMultiplication<M, N, K> adaptive = new AdaptiveMultiplication<M, N, K>(factory, table)
+            .register("failing", new FailingMultiplication<>(factory));
+        assertEquals("failing", adaptive.select(40, 40, 40));
+        Dimension size = Dimension.FACTORY.create(40);
+        float[] identity = new float[40*40];
+        for (int index = 0; index < 40; index++)
+        {
+            identity[index*41] = 1;
+        }
+        Matrix<M, K> left = factory.create(size, size, identity);
+        Matrix<K, N> right = factory.create(size, size, identity);
+        assertEquals(left, adaptive.apply(left, right));
+        assertEquals(AdaptiveMultiplication.BLOCKED, adaptive.select(40, 40, 40));
+    }
+
+    @Test
+    public void testCallerErrorsDoNotExcludeStrategies()
+    {
+        AdaptiveMultiplication<M, One, K> adaptive = new AdaptiveMultiplication<>(factory, null);
+        Dimension size = Dimension.FACTORY.create(512);
+        Dimension one = Dimension.FACTORY.create(1);
+        Matrix<M, K> left = factory.create(size, size, new float[512*512]);
+        Matrix<K, One> right = factory.create(size, one, new float[512]);
+        Matrix<M, One> readOnly = HalfMatrix.of(factory.create(size, one, new float[512]), HalfMatrix.Encoding.FP16);
+        try
+        {
+            adaptive.applyInto(left, right, readOnly);
+            fail("Expected ReadOnlyBufferException");
+        }
+        catch (ReadOnlyBufferException expected)
+        {
+            // Expected
+        }
+        try
+        {
+            adaptive.apply(left, factory.create(one, one, new float[1]));
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException expected)
+        {
+            // Expected
+        }
+        assertEquals(AdaptiveMultiplication.VECTOR, adaptive.select(512, 512, 1));
+    }
+
+    @Test
+    public void testMultiplicationsDoNotWriteTableAndSaveMerges() throws IOException
+    {
+        Path table = folder.getRoot().toPath().resolve("tuning.properties");
+        Files.write(table, "1.1.1=basic\n".getBytes(UTF_8));
+        AdaptiveMultiplication<M, N, K> first = new AdaptiveMultiplication<>(factory, table);
+        AdaptiveMultiplication<M, N, K> second = new AdaptiveMultiplication<>(factory, table);
+        Dimension size = Dimension.FACTORY.create(64);
+        Matrix<M, K> left = factory.create(size, size, new float[64*64]);
+        Matrix<K, N> right = factory.create(size, size, new float[64*64]);
+        first.apply(left, right);
+        assertEquals("1.1.1=basic\n", new String(Files.readAllBytes(table), UTF_8));
+        second.calibrate(1000, 30, 40);
+        first.close();
+        Properties saved = new Properties();
+        try (Reader reader = Files.newBufferedReader(table, UTF_8))
+        {
+            saved.load(reader);
+        }
+        assertEquals("basic", saved.getProperty("1.1.1"));
+        assertEquals(AdaptiveMultiplication.BLOCKED, saved.getProperty("6.6.6"));
+        assertTrue(saved.containsKey("10.5.6"));
+    }
+
+    @Test
+    public void testFormatSpecificMultiplicationOfOperandIsUsed()
+    {
+        AdaptiveMultiplication<M, N, K> adaptive = new AdaptiveMultiplication<>(factory, null);
+        FormatSpecificMultiplication<M, N, K> specific = new FormatSpecificMultiplication<>(factory);
+        Dimension size = Dimension.FACTORY.create(8);
+        Matrix<M, K> left = factory.create(size, size, new float[8*8]);
+        Matrix<K, N> right = factory.create(size, size, new float[8*8]);
+        adaptive.apply(left, right);
+        assertEquals(0, specific.calls);
+        adaptive.apply(left.using(specific), right);
+        assertEquals(1, specific.calls);
+        adaptive.apply(left, right.using(specific));
+        assertEquals(2, specific.calls);
+    }
+
+    static class SlowMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+    extends MatrixMultiplication<M, N, K>
+    {
+        SlowMultiplication(MatrixFactory factory)
+        {
+            super(factory);
+        }
+
+        @Override
+        public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+        {
+            try
+            {
+                Thread.sleep(50);
+            }
+            catch (InterruptedException interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return new BasicMultiplication<M, N, K>(factory).apply(left, right);
+        }
+    }
+
+    static class FailingMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+    extends MatrixMultiplication<M, N, K>
+    {
+        FailingMultiplication(MatrixFactory factory)
+        {
+            super(factory);
+        }
+
+        @Override
+        public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+        {
+            throw new OpenCLException("No OpenCL platform", OpenCLException.PLATFORM_NOT_FOUND);
+        }
+    }
+
+    static class FormatSpecificMultiplication<M extends Dimension, N extends Dimension, K extends Dimension>
+    extends BasicMultiplication<M, N, K>
+    {
+        int calls;
+
+        FormatSpecificMultiplication(MatrixFactory factory)
+        {
+            super(factory);
+        }
+
+        @Override
+        public boolean isFormatSpecific()
+        {
+            return true;
+        }
+
+        @Override
+        public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+        {
+            calls++;
+            return super.apply(left, right);
+        }
+    }
+}
@@ -15,12 +15,15 @@
 //                                                                          //
 package top.java.matrix.operations.multiplication;
 
+import java.util.Arrays;
 import org.junit.Test;
 import top.java.matrix.Dimension;
 import top.java.matrix.Matrix;
 import top.java.matrix.MatrixFactory;
 import top.java.matrix.internal.StandardMatrix;
+import top.java.matrix.operations.multiplication.BasicMultiplication.Accumulation;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class BasicMultiplicationTest<M extends Dimension, N extends Dimension, K extends Dimension>
 {
@@ -35,4 +38,60 @@ public class BasicMultiplicationTest<M extends Dimension, N extends Dimension, K
         Matrix<M, N> result = multiplication.apply(left, right);
         assertEquals(StandardMatrix.class, result.getClass());
     }
+
+    @Test
+    public void testFractionalProductsAreNotTruncated()
+    {
+        MatrixFactory factory = StandardMatrix::new;
+        Matrix<M, K> left = factory.create(Dimension.FACTORY.create(2), Dimension.FACTORY.create(2), new float[] {0.5F, 1.25F, 0.25F, 2});
+        Matrix<K, N> right = factory.create(Dimension.FACTORY.create(2), Dimension.FACTORY.create(1), new float[] {0.5F, 0.75F});
+        Matrix<M, N> result = new BasicMultiplication<M, N, K>(factory).apply(left, right);
+        assertEquals(0.4375F, result.at(0, 0), 0F);
+        assertEquals(2.125F, result.at(1, 0), 0F);
+    }
+
+    @Test
+    public void testAccumulation()
+    {
+        // 1E8 + 1 + 1 + ... + 1 - 1E8, where every single 1 is lost to rounding when accumulating in float:
+        //
+        MatrixFactory factory = StandardMatrix::new;
+        float[] values = new float[1002];
+        float[] ones = new float[1002];
+        Arrays.fill(values, 1);
+        Arrays.fill(ones, 1);
+        values[0] = 1E8F;
+        values[1001] = -1E8F;
+        Matrix<M, K> left = factory.create(Dimension.FACTORY.create(1), Dimension.FACTORY.create(1002), values);
+        Matrix<K, N> right = factory.create(Dimension.FACTORY.create(1002), Dimension.FACTORY.create(1), ones);
+        assertEquals(0F, new BasicMultiplication<M, N, K>(factory, Accumulation.FLOAT).apply(left, right).at(0, 0), 0F);
+        assertEquals(1000F, new BasicMultiplication<M, N, K>(factory, Accumulation.DOUBLE).apply(left, right).at(0, 0), 0F);
+        assertEquals(1000F, new BasicMultiplication<M, N, K>(factory, Accumulation.COMPENSATED).apply(left, right).at(0, 0), 8F);
+    }
+
+    @Test
+    public void testApplyIntoOverwritesDestination()
+    {
+        MatrixFactory factory = StandardMatrix::new;
+        Matrix<M, K> left = factory.create(Dimension.FACTORY.create(2), Dimension.FACTORY.create(2), new float[] {1, 2, 3, 4});
+        Matrix<K, N> right = factory.create(Dimension.FACTORY.create(2), Dimension.FACTORY.create(1), new float[] {5, 6});
+        float[] storage = {100, 100};
+        Matrix<M, N> destination = factory.create(Dimension.FACTORY.create(2), Dimension.FACTORY.create(1), storage);
+        BasicMultiplication<M, N, K> multiplication = new BasicMultiplication<>(factory);
+        assertSame(destination, multiplication.applyInto(left, right, destination));
+        assertEquals(23F, storage[0], 0F);
+        assertEquals(34F, storage[1], 0F);
+        multiplication.applyInto(left, right, destination);
+        assertEquals(23F, storage[0], 0F);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testApplyIntoWrongDimensions()
+    {
+        MatrixFactory factory = StandardMatrix::new;
+        Matrix<M, K> left = factory.create(Dimension.FACTORY.create(2), Dimension.FACTORY.create(2), new float[4]);
+        Matrix<K, N> right = factory.create(Dimension.FACTORY.create(2), Dimension.FACTORY.create(1), new float[2]);
+        Matrix<M, N> destination = factory.create(Dimension.FACTORY.create(1), Dimension.FACTORY.create(2), new float[2]);
+        new BasicMultiplication<M, N, K>(factory).applyInto(left, right, destination);
+    }
 }
@@ -0,0 +1,160 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.RandomMatrices;
+import top.java.matrix.internal.DirectMatrix;
+import top.java.matrix.internal.StandardMatrix;
+import top.java.matrix.operations.Activation;
+import top.java.matrix.operations.Epilogue;
+import top.java.matrix.operations.access.StridedElementAccess;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class BlockedMultiplicationTest<M extends Dimension, N extends Dimension, K extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private RandomMatrices random = new RandomMatrices(factory);
+
+    @Test
+    public void testBlockedMultiplicationUsesFactory()
+    {
+        BlockedMultiplication<M, N, K> multiplication = new BlockedMultiplication<>(factory);
+        Dimension one = Dimension.FACTORY.create(1);
+        Matrix<M, K> left = factory.create(one, one, new float[] {3});
+        Matrix<K, N> right = factory.create(one, one, new float[] {5});
+        Matrix<M, N> result = multiplication.apply(left, right);
+        assertEquals(StandardMatrix.class, result.getClass());
+        assertEquals(15F, result.at(0, 0), 0F);
+    }
+
+    @Test
+    public void testRaggedEdgesAndMultipleBlocks()
+    {
+        // Small block sizes force multiple tiles, multiple depth panels, and partial micro-kernel blocks:
+        //
+        BlockedMultiplication<M, N, K> blocked = new BlockedMultiplication<>(factory, new ForkJoinPool(3), 8, 5, 12);
+        Matrix<M, K> left = random.matrix(37, 23);
+        Matrix<K, N> right = random.matrix(23, 29);
+        assertEquals(new BasicMultiplication<M, N, K>(factory).apply(left, right), blocked.apply(left, right));
+    }
+
+    @Test
+    public void testDefaultBlockSizes()
+    {
+        Matrix<M, K> left = random.matrix(301, 517);
+        Matrix<K, N> right = random.matrix(517, 263);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(left, right);
+        assertEquals(expected, new BlockedMultiplication<M, N, K>(factory).apply(left, right));
+    }
+
+    @Test
+    public void testApplyIntoReusesDestination()
+    {
+        BlockedMultiplication<M, N, K> blocked = new BlockedMultiplication<>(factory, new ForkJoinPool(2), 8, 5, 12);
+        Matrix<M, K> left = random.matrix(37, 23);
+        Matrix<K, N> right = random.matrix(23, 29);
+        Matrix<M, N> destination = random.matrix(37, 29);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(left, right);
+        assertSame(destination, blocked.applyInto(left, right, destination));
+        assertEquals(expected, destination);
+        assertEquals(expected, blocked.applyInto(left, right, destination));
+    }
+
+    @Test
+    public void testApplyIntoDirectMatrix()
+    {
+        Matrix<M, K> left = random.matrix(37, 23);
+        Matrix<K, N> right = random.matrix(23, 29);
+        try (DirectMatrix<M, N> destination = DirectMatrix.allocate(Dimension.FACTORY.create(37), Dimension.FACTORY.create(29)))
+        {
+            new BlockedMultiplication<M, N, K>(factory).applyInto(left, right, destination);
+            assertEquals(new BasicMultiplication<M, N, K>(factory).apply(left, right), destination);
+        }
+    }
+
+    @Test
+    public void testTransposedAndStridedViews()
+    {
+        BlockedMultiplication<M, N, K> blocked = new BlockedMultiplication<>(factory, new ForkJoinPool(2), 8, 5, 12);
+        Matrix<K, M> leftTranspose = random.matrix(23, 37);
+        Matrix<N, K> rightTranspose = random.matrix(29, 23);
+        Matrix<M, K> left = leftTranspose.transposeView();
+        Matrix<K, N> right = rightTranspose.transposeView();
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(leftTranspose.transpose(), rightTranspose.transpose());
+        assertEquals(expected, blocked.apply(left, right));
+        assertEquals(expected, blocked.apply(leftTranspose.transpose(), right));
+        assertEquals(expected, blocked.apply(left, rightTranspose.transpose()));
+
+        // A 37x23 matrix that only uses every other column of a 37x46 matrix, starting at column 1:
+        //
+        float[] values = random.matrix(37, 46).getValues();
+        Matrix<M, K> strided = new StandardMatrix<>(Dimension.FACTORY.create(37), Dimension.FACTORY.create(23), values,
+            new StridedElementAccess(factory, 37, 1, 74));
+        Matrix<M, K> copy = factory.create(Dimension.FACTORY.create(37), Dimension.FACTORY.create(23), strided.getValues());
+        assertEquals(blocked.apply(copy, right), blocked.apply(strided, right));
+    }
+
+    @Test
+    public void testSubMatrixViews()
+    {
+        // Multiplies a window of the left matrix with a window of the right matrix, and stores the result in a
+        // window of a larger destination matrix:
+        //
+        BlockedMultiplication<M, N, K> blocked = new BlockedMultiplication<>(factory, new ForkJoinPool(2), 8, 5, 12);
+        Matrix<M, K> left = random.matrix(50, 40).subMatrix(5, 3, 37, 23);
+        Matrix<K, N> right = random.matrix(30, 60).subMatrix(4, 20, 23, 29);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(copy(left), copy(right));
+        assertEquals(expected, blocked.apply(left, right));
+        Matrix<M, N> destination = random.matrix(40, 40);
+        Matrix<M, N> window = destination.subMatrix(2, 7, 37, 29);
+        assertSame(window, blocked.applyInto(left, right, window));
+        assertEquals(expected, window);
+        assertEquals(expected, destination.subMatrix(2, 7, 37, 29));
+    }
+
+    @Test
+    public void testFusedBiasAndActivation()
+    {
+        BlockedMultiplication<M, N, K> blocked = new BlockedMultiplication<>(factory, new ForkJoinPool(2), 8, 5, 12);
+        Matrix<M, K> left = random.matrix(37, 23);
+        Matrix<K, N> right = random.matrix(23, 29);
+        Matrix<M, One> bias = random.matrix(37, 1);
+        Matrix<M, N> product = new BasicMultiplication<M, N, K>(factory).apply(left, right);
+        Matrix<M, N> sum = product.plusColumn(bias);
+        assertEquals(sum.map(Activation.RELU), blocked.applyFused(left, right, new Epilogue(bias, Activation.RELU)));
+        assertEquals(sum.map(Activation.RELU), left.times(right, bias, Activation.RELU));
+        assertEquals(sum.map(Activation.TANH), blocked.applyFused(left, right, new Epilogue(bias, Activation.TANH)));
+        assertEquals(product.map(Activation.SIGMOID), blocked.applyFused(left, right, new Epilogue(null, Activation.SIGMOID)));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testFusedBiasMismatch()
+    {
+        new BlockedMultiplication<M, N, K>(factory).applyFused(random.matrix(3, 2), random.matrix(2, 4), new Epilogue(random.matrix(2, 1), Activation.IDENTITY));
+    }
+
+    private <R extends Dimension, C extends Dimension> Matrix<R, C> copy(Matrix<R, C> matrix)
+    {
+        return factory.create(Dimension.FACTORY.create(matrix.getRows()), Dimension.FACTORY.create(matrix.getColumns()), matrix.getValues());
+    }
+}
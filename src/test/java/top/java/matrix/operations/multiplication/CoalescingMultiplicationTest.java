@@ -0,0 +1,131 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.RandomMatrices;
+import top.java.matrix.Vector;
+import top.java.matrix.internal.StandardMatrix;
+import top.java.matrix.internal.StandardVector;
+import top.java.matrix.operations.MatrixMultiplication;
+import static org.junit.Assert.assertEquals;
+
+public class CoalescingMultiplicationTest<M extends Dimension, N extends Dimension, K extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private RandomMatrices random = new RandomMatrices(factory);
+
+    @Test
+    public void testConcurrentCallsAreCoalesced() throws Exception
+    {
+        int threads = 8;
+        CoalescingMultiplication<M, One, K> coalescing = new CoalescingMultiplication<>(factory,
+            new BasicMultiplication<>(factory), threads, 10, TimeUnit.SECONDS);
+        Matrix<M, K> weights = random.<M, K>matrix(37, 23).using(coalescing);
+        List<Matrix<K, One>> inputs = new ArrayList<>();
+        for (int index = 0; index < threads; index++)
+        {
+            inputs.add(random.matrix(23, 1));
+        }
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<Matrix<M, One>>> results = new ArrayList<>();
+            for (Matrix<K, One> input: inputs)
+            {
+                results.add(executor.submit(() ->
+                {
+                    barrier.await();
+                    return weights.times(input);
+                }));
+            }
+            BasicMultiplication<M, One, K> basic = new BasicMultiplication<>(factory);
+            for (int index = 0; index < threads; index++)
+            {
+                assertEquals(basic.apply(weights, inputs.get(index)), results.get(index).get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, coalescing.getBatches());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSingleCallWaitsForMaximumDelay()
+    {
+        CoalescingMultiplication<M, N, K> coalescing = new CoalescingMultiplication<>(factory,
+            new BasicMultiplication<>(factory), 64, 20, TimeUnit.MILLISECONDS);
+        Matrix<M, K> left = random.matrix(37, 23);
+        Matrix<K, N> right = random.matrix(23, 3);
+        assertEquals(new BasicMultiplication<M, N, K>(factory).apply(left, right), coalescing.apply(left, right));
+        assertEquals(1, coalescing.getBatches());
+    }
+
+    @Test
+    public void testVectorOperands()
+    {
+        CoalescingMultiplication<M, One, K> coalescing = new CoalescingMultiplication<>(factory,
+            new BasicMultiplication<>(factory), 64, 20, TimeUnit.MILLISECONDS);
+        Matrix<M, K> matrix = random.matrix(37, 23);
+        Vector<K> input = new StandardVector<>(random.<K, One>matrix(23, 1).getValues());
+        Vector<M> expected = matrix.times(input);
+        assertEquals(expected, matrix.using(coalescing).times(input));
+        assertEquals(1, coalescing.getBatches());
+
+        // An explicitly registered matrix-vector multiplication takes precedence:
+        //
+        assertEquals(expected, matrix.using(coalescing, new ParallelMatrixVectorMultiplication<>(factory)).times(input));
+        assertEquals(1, coalescing.getBatches());
+    }
+
+    @Test
+    public void testWideOperandsAreMultipliedDirectly()
+    {
+        CoalescingMultiplication<M, N, K> coalescing = new CoalescingMultiplication<>(factory,
+            new BasicMultiplication<>(factory), 4, 10, TimeUnit.SECONDS);
+        Matrix<M, K> left = random.matrix(37, 23);
+        Matrix<K, N> right = random.matrix(23, 29);
+        assertEquals(new BasicMultiplication<M, N, K>(factory).apply(left, right), coalescing.apply(left, right));
+    }
+
+    @Test(expected=OutOfMemoryError.class)
+    public void testErrorsAreRethrownUnwrapped()
+    {
+        MatrixMultiplication<M, N, K> failing = new MatrixMultiplication<M, N, K>(factory)
+        {
+            @Override
+            public Matrix<M, N> apply(Matrix<M, K> left, Matrix<K, N> right)
+            {
+                throw new OutOfMemoryError();
+            }
+        };
+        new CoalescingMultiplication<>(factory, failing, 64, 1, TimeUnit.MILLISECONDS).apply(random.matrix(3, 2), random.matrix(2, 1));
+    }
+}
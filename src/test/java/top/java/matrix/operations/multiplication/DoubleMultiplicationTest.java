@@ -0,0 +1,132 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.internal.DoubleMatrix;
+import top.java.matrix.internal.StandardMatrix;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DoubleMultiplicationTest<M extends Dimension, N extends Dimension, K extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private Random random = new Random(42);
+
+    @Test
+    public void testDoubleProducts()
+    {
+        DoubleMultiplication<M, N, K> multiplication = new DoubleMultiplication<>(factory, new ForkJoinPool(3));
+        DoubleMatrix<M, K> left = random(37, 23);
+        DoubleMatrix<K, N> right = random(23, 29);
+        double[] expected = multiply(left, right);
+        Matrix<M, N> product = multiplication.apply(left, right);
+        assertEquals(DoubleMatrix.class, product.getClass());
+        assertArrayEquals(expected, ((DoubleMatrix<M, N>)product).getDoubleValues(), 1E-12);
+
+        // Mixed precision and views:
+        //
+        Matrix<K, N> single = single(right);
+        Matrix<M, N> mixed = multiplication.apply(left, single);
+        assertEquals(DoubleMatrix.class, mixed.getClass());
+        assertArrayEquals(multiply(left, DoubleMatrix.of(single)), ((DoubleMatrix<M, N>)mixed).getDoubleValues(), 1E-12);
+        Matrix<M, K> transposed = this.<K, M>random(23, 37).transposeView();
+        assertArrayEquals(multiply(DoubleMatrix.of(transposed), right),
+            ((DoubleMatrix<M, N>)multiplication.apply(transposed, right)).getDoubleValues(), 1E-12);
+    }
+
+    @Test
+    public void testSingleProductsAreDelegated()
+    {
+        DoubleMultiplication<M, N, K> multiplication = new DoubleMultiplication<>(factory);
+        Matrix<M, K> left = single(random(7, 5));
+        Matrix<K, N> right = single(random(5, 3));
+        Matrix<M, N> product = multiplication.apply(left, right);
+        assertEquals(StandardMatrix.class, product.getClass());
+        assertEquals(new BasicMultiplication<M, N, K>(factory).apply(left, right), product);
+    }
+
+    @Test
+    public void testApplyInto()
+    {
+        DoubleMultiplication<M, N, K> multiplication = new DoubleMultiplication<>(factory, new ForkJoinPool(2));
+        DoubleMatrix<M, K> left = random(37, 23);
+        DoubleMatrix<K, N> right = random(23, 29);
+        double[] expected = multiply(left, right);
+        DoubleMatrix<M, N> destination = random(37, 29);
+        assertSame(destination, multiplication.applyInto(left, right, destination));
+        assertArrayEquals(expected, destination.getDoubleValues(), 1E-12);
+
+        // A window of a larger double matrix:
+        //
+        DoubleMatrix<M, N> larger = random(40, 40);
+        Matrix<M, N> window = larger.subMatrix(2, 7, 37, 29);
+        assertSame(window, multiplication.applyInto(left, right, window));
+        @SuppressWarnings("unchecked")
+        DoubleMatrix<M, N> written = (DoubleMatrix<M, N>)larger.subMatrix(2, 7, 37, 29);
+        assertArrayEquals(expected, written.getDoubleValues(), 1E-12);
+
+        // A single-precision destination receives the narrowed result:
+        //
+        Matrix<M, N> single = factory.create(Dimension.FACTORY.create(37), Dimension.FACTORY.create(29), new float[37*29]);
+        multiplication.applyInto(left, right, single);
+        assertEquals(new DoubleMatrix<>(Dimension.FACTORY.create(37), Dimension.FACTORY.create(29), expected), single);
+    }
+
+    private double[] multiply(DoubleMatrix<?, ?> left, DoubleMatrix<?, ?> right)
+    {
+        return multiply(left.getDoubleValues(), right.getDoubleValues(), left.getRows(), left.getColumns(), right.getColumns());
+    }
+
+    private double[] multiply(double[] A, double[] B, int rows, int depth, int columns)
+    {
+        double[] C = new double[rows*columns];
+        for (int y = 0; y < rows; y++)
+        {
+            for (int x = 0; x < columns; x++)
+            {
+                double sum = 0;
+                for (int z = 0; z < depth; z++)
+                {
+                    sum += A[y + z*rows]*B[z + x*depth];
+                }
+                C[y + x*rows] = sum;
+            }
+        }
+        return C;
+    }
+
+    private <R extends Dimension, C extends Dimension> Matrix<R, C> single(Matrix<R, C> matrix)
+    {
+        return factory.create(Dimension.FACTORY.create(matrix.getRows()), Dimension.FACTORY.create(matrix.getColumns()), matrix.getValues());
+    }
+
+    private <R extends Dimension, C extends Dimension> DoubleMatrix<R, C> random(int rows, int columns)
+    {
+        double[] values = new double[rows*columns];
+        for (int index = 0; index < values.length; index++)
+        {
+            values[index] = random.nextDouble() - 0.5;
+        }
+        return new DoubleMatrix<>(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), values);
+    }
+}
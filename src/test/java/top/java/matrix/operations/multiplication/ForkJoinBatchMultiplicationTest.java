@@ -0,0 +1,70 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixBatch;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.RandomMatrices;
+import top.java.matrix.internal.StandardMatrix;
+import top.java.matrix.internal.StandardMatrixBatch;
+import static org.junit.Assert.assertEquals;
+
+public class ForkJoinBatchMultiplicationTest<M extends Dimension, N extends Dimension, K extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private RandomMatrices random = new RandomMatrices(factory);
+
+    @Test
+    public void testPairwiseProducts()
+    {
+        ForkJoinBatchMultiplication<M, N, K> multiplication = new ForkJoinBatchMultiplication<>(StandardMatrixBatch::new, new ForkJoinPool(3));
+        MatrixBatch<M, K> left = random.batch(100, 17, 33);
+        MatrixBatch<K, N> right = random.batch(100, 33, 9);
+        MatrixBatch<M, N> result = multiplication.apply(left, right);
+        assertEquals(100, result.size());
+        assertEquals(17, result.getRows());
+        assertEquals(9, result.getColumns());
+        BasicMultiplication<M, N, K> basic = new BasicMultiplication<>(factory);
+        for (int index = 0; index < 100; index++)
+        {
+            assertEquals(basic.apply(left.get(index), right.get(index)), result.get(index));
+        }
+    }
+
+    @Test
+    public void testBroadcastSingleRightHandSide()
+    {
+        MatrixBatch<M, K> left = random.batch(50, 16, 16);
+        MatrixBatch<K, N> right = random.batch(1, 16, 16);
+        MatrixBatch<M, N> result = new ForkJoinBatchMultiplication<M, N, K>(StandardMatrixBatch::new).apply(left, right);
+        assertEquals(50, result.size());
+        Matrix<K, N> weights = right.get(0);
+        for (int index = 0; index < 50; index++)
+        {
+            assertEquals(new BasicMultiplication<M, N, K>(factory).apply(left.get(index), weights), result.get(index));
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testMismatchedBatchSizes()
+    {
+        new ForkJoinBatchMultiplication<M, N, K>(StandardMatrixBatch::new).apply(random.batch(3, 2, 2), random.batch(2, 2, 2));
+    }
+}
@@ -0,0 +1,88 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.RandomMatrices;
+import top.java.matrix.internal.HalfMatrix;
+import top.java.matrix.internal.HalfMatrix.Encoding;
+import top.java.matrix.internal.StandardMatrix;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class HalfMultiplicationTest<M extends Dimension, N extends Dimension, K extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private RandomMatrices random = new RandomMatrices(factory);
+
+    @Test
+    public void testHalfProducts()
+    {
+        // Small integers are exactly representable in both encodings, so the products are exact:
+        //
+        HalfMultiplication<M, N, K> multiplication = new HalfMultiplication<>(factory, new ForkJoinPool(3));
+        Matrix<M, K> left = random.matrix(37, 23);
+        Matrix<K, N> right = random.matrix(23, 150);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(left, right);
+        for (Encoding encoding: Encoding.values())
+        {
+            HalfMatrix<M, K> halfLeft = HalfMatrix.of(left, encoding);
+            HalfMatrix<K, N> halfRight = HalfMatrix.of(right, encoding);
+            assertEquals(expected, multiplication.apply(halfLeft, halfRight));
+            assertEquals(expected, multiplication.apply(halfLeft, right));
+            assertEquals(expected, multiplication.apply(left, halfRight));
+            assertEquals(StandardMatrix.class, multiplication.apply(halfLeft, halfRight).getClass());
+            assertEquals(expected, halfLeft.times(halfRight));
+            assertEquals(expected, left.times(halfRight));
+        }
+    }
+
+    @Test
+    public void testViews()
+    {
+        HalfMultiplication<M, N, K> multiplication = new HalfMultiplication<>(factory, new ForkJoinPool(2));
+        Matrix<K, M> leftTranspose = random.matrix(23, 37);
+        Matrix<M, K> left = HalfMatrix.of(leftTranspose, Encoding.FP16).transposeView();
+        Matrix<K, N> right = HalfMatrix.of(random.matrix(30, 60), Encoding.BF16).subMatrix(4, 20, 23, 29);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(copy(left), copy(right));
+        assertEquals(expected, multiplication.apply(left, right));
+    }
+
+    @Test
+    public void testApplyInto()
+    {
+        HalfMultiplication<M, N, K> multiplication = new HalfMultiplication<>(factory, new ForkJoinPool(2));
+        Matrix<M, K> left = HalfMatrix.of(random.matrix(37, 23), Encoding.FP16);
+        Matrix<K, N> right = random.matrix(23, 29);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(copy(left), right);
+        Matrix<M, N> destination = random.matrix(37, 29);
+        assertSame(destination, multiplication.applyInto(left, right, destination));
+        assertEquals(expected, destination);
+        Matrix<M, N> larger = random.matrix(40, 40);
+        Matrix<M, N> window = larger.subMatrix(2, 7, 37, 29);
+        assertSame(window, multiplication.applyInto(left, right, window));
+        assertEquals(expected, larger.subMatrix(2, 7, 37, 29));
+    }
+
+    private <R extends Dimension, C extends Dimension> Matrix<R, C> copy(Matrix<R, C> matrix)
+    {
+        return factory.create(Dimension.FACTORY.create(matrix.getRows()), Dimension.FACTORY.create(matrix.getColumns()), matrix.getValues());
+    }
+}
@@ -0,0 +1,127 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import com.aparapi.Kernel;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class KernelPoolTest
+{
+    static class TestKernel extends Kernel
+    {
+        boolean disposed;
+
+        @Override
+        public void run()
+        {
+            // Never executed
+        }
+
+        @Override
+        public synchronized void dispose()
+        {
+            disposed = true;
+            super.dispose();
+        }
+    }
+
+    private List<TestKernel> created = new ArrayList<>();
+
+    @Test
+    public void testKernelIsReusedForSameKey()
+    {
+        try (KernelPool<TestKernel> pool = new KernelPool<>())
+        {
+            TestKernel first = pool.execute("a", this::create, kernel -> kernel);
+            TestKernel second = pool.execute("a", this::create, kernel -> kernel);
+            assertSame(first, second);
+            assertEquals(1, pool.getKernelsCreated());
+            assertEquals(1, pool.getExecutions());
+        }
+    }
+
+    @Test
+    public void testDifferentKeysUseDifferentKernels()
+    {
+        try (KernelPool<TestKernel> pool = new KernelPool<>())
+        {
+            TestKernel first = pool.execute("a", this::create, kernel -> kernel);
+            TestKernel second = pool.execute("b", this::create, kernel -> kernel);
+            assertFalse(first == second);
+            assertEquals(2, pool.getKernelsCreated());
+            assertEquals(0, pool.getExecutions());
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedKernelIsEvicted()
+    {
+        try (KernelPool<TestKernel> pool = new KernelPool<>(2))
+        {
+            pool.execute("a", this::create, kernel -> kernel);
+            pool.execute("b", this::create, kernel -> kernel);
+            pool.execute("a", this::create, kernel -> kernel);
+            pool.execute("c", this::create, kernel -> kernel);
+            assertEquals(3, created.size());
+            assertFalse(created.get(0).disposed);
+            assertTrue(created.get(1).disposed);
+            assertFalse(created.get(2).disposed);
+        }
+    }
+
+    @Test
+    public void testCloseDisposesKernels()
+    {
+        KernelPool<TestKernel> pool = new KernelPool<>();
+        pool.execute("a", this::create, kernel -> kernel);
+        pool.execute("b", this::create, kernel -> kernel);
+        pool.close();
+        assertTrue(created.stream().allMatch(kernel -> kernel.disposed));
+    }
+
+    @Test
+    public void testResultArrayIsReusedButNotShared()
+    {
+        FastMultiplication.FastKernel kernel = new FastMultiplication.FastKernel();
+        try
+        {
+            float[] first = kernel.multiply(new float[] {1, 2}, new float[] {3}, 2, 1, 1);
+            float[] result = kernel.C;
+            float[] second = kernel.multiply(new float[] {4, 5}, new float[] {6}, 2, 1, 1);
+            assertSame(result, kernel.C);
+            assertArrayEquals(new float[] {3, 6}, first, 0F);
+            assertArrayEquals(new float[] {24, 30}, second, 0F);
+        }
+        finally
+        {
+            kernel.dispose();
+        }
+    }
+
+    private TestKernel create()
+    {
+        TestKernel kernel = new TestKernel();
+        created.add(kernel);
+        return kernel;
+    }
+}
@@ -0,0 +1,78 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.RandomMatrices;
+import top.java.matrix.internal.StandardMatrix;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+public class OpenCLMultiplicationTest<M extends Dimension, N extends Dimension, K extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private RandomMatrices random = new RandomMatrices(factory);
+
+    @Test
+    public void testRaggedShapesAndBufferReuse()
+    {
+        // Requires an OpenCL runtime (e.g., PoCL in CI):
+        //
+        try (OpenCLMultiplication<M, N, K> multiplication = new OpenCLMultiplication<>(factory))
+        {
+            assumeTrue(multiplication.isAvailable());
+            BasicMultiplication<M, N, K> basic = new BasicMultiplication<>(factory);
+            int[][] shapes = {{37, 23, 29}, {3, 5, 1}, {301, 517, 263}, {64, 64, 64}};
+            for (int[] shape: shapes)
+            {
+                Matrix<M, K> left = random.matrix(shape[0], shape[1]);
+                Matrix<K, N> right = random.matrix(shape[1], shape[2]);
+                assertEquals(basic.apply(left, right), multiplication.apply(left, right));
+            }
+        }
+    }
+
+    @Test
+    public void testFallbackWithoutOpenCL()
+    {
+        try (OpenCLMultiplication<M, N, K> multiplication = new OpenCLMultiplication<>(factory))
+        {
+            assumeFalse(multiplication.isAvailable());
+            assertNotNull(multiplication.getUnavailableReason());
+            assertEquals(0, multiplication.getTileSize());
+            Matrix<M, K> left = random.matrix(37, 23);
+            Matrix<K, N> right = random.matrix(23, 29);
+            assertEquals(new BasicMultiplication<M, N, K>(factory).apply(left, right), multiplication.apply(left, right));
+        }
+    }
+
+    @Test
+    public void testFallbackAfterClose()
+    {
+        OpenCLMultiplication<M, N, K> multiplication = new OpenCLMultiplication<>(factory);
+        multiplication.close();
+        assertFalse(multiplication.isAvailable());
+        Matrix<M, K> left = random.matrix(5, 3);
+        Matrix<K, N> right = random.matrix(3, 4);
+        assertEquals(new BasicMultiplication<M, N, K>(factory).apply(left, right), multiplication.apply(left, right));
+    }
+}
@@ -0,0 +1,195 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.RandomMatrices;
+import top.java.matrix.Vector;
+import top.java.matrix.internal.DirectMatrix;
+import top.java.matrix.internal.StandardMatrix;
+import top.java.matrix.internal.StandardVector;
+import top.java.matrix.operations.access.StridedElementAccess;
+import static org.junit.Assert.assertEquals;
+
+public class ParallelMatrixVectorMultiplicationTest<M extends Dimension, N extends Dimension, K extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private RandomMatrices random = new RandomMatrices(factory);
+
+    @Test
+    public void testMatrixTimesVector()
+    {
+        ParallelMatrixVectorMultiplication<M, K> gemv = new ParallelMatrixVectorMultiplication<>(factory, new ForkJoinPool(3));
+        for (int[] shape: new int[][] {{1, 1}, {37, 23}, {5, 1029}, {1029, 5}, {301, 517}})
+        {
+            Matrix<M, K> matrix = random.matrix(shape[0], shape[1]);
+            Vector<K> vector = vector(shape[1]);
+            Vector<M> result = gemv.apply(matrix, vector);
+            assertEquals(shape[0], result.getSize());
+            assertEquals(expected(matrix, vector), result);
+            assertEquals(expected(matrix, vector), matrix.times(vector));
+        }
+    }
+
+    @Test
+    public void testTransposedMatrixTimesVector()
+    {
+        ParallelMatrixVectorMultiplication<M, K> gemv = new ParallelMatrixVectorMultiplication<>(factory, new ForkJoinPool(3));
+        for (int[] shape: new int[][] {{37, 23}, {5, 1029}, {1029, 5}, {301, 517}})
+        {
+            Matrix<M, K> matrix = random.matrix(shape[0], shape[1]);
+            Vector<M> vector = vector(shape[0]);
+            Matrix<K, M> transpose = matrix.transpose();
+            assertEquals(expected(transpose, vector), gemv.applyTransposed(matrix, vector));
+            assertEquals(expected(transpose, vector), matrix.transposeTimes(vector));
+        }
+    }
+
+    @Test
+    public void testAboveSequentialThreshold()
+    {
+        // 300x400 elements exceed the sequential threshold, so the rows (or columns) are split into parallel tasks:
+        //
+        Matrix<M, K> matrix = random.matrix(300, 400);
+        Vector<K> vector = vector(400);
+        Vector<M> transposedVector = vector(300);
+        assertEquals(expected(matrix, vector), matrix.times(vector));
+        assertEquals(expected(matrix.transpose(), transposedVector), matrix.transposeTimes(transposedVector));
+        Matrix<M, K> view = random.<K, M>matrix(400, 300).transposeView();
+        assertEquals(expected(copy(view), vector), view.times(vector));
+        assertEquals(expected(copy(view).transpose(), transposedVector), view.transposeTimes(transposedVector));
+    }
+
+    @Test
+    public void testTransposedAndStridedViews()
+    {
+        Matrix<K, M> storage = random.matrix(23, 37);
+        Matrix<M, K> view = storage.transposeView();
+        Matrix<M, K> copy = copy(view);
+        Vector<K> vector = vector(23);
+        Vector<M> transposedVector = vector(37);
+        assertEquals(expected(copy, vector), view.times(vector));
+        assertEquals(expected(copy.transpose(), transposedVector), view.transposeTimes(transposedVector));
+
+        // A 37x23 matrix that only uses every other column of a 37x46 matrix, starting at column 1:
+        //
+        float[] values = random.matrix(37, 46).getValues();
+        Matrix<M, K> strided = new StandardMatrix<>(Dimension.FACTORY.create(37), Dimension.FACTORY.create(23), values,
+            new StridedElementAccess(factory, 37, 1, 74));
+        assertEquals(expected(copy(strided), vector), strided.times(vector));
+        assertEquals(expected(copy(strided).transpose(), transposedVector), strided.transposeTimes(transposedVector));
+        Matrix<M, K> window = random.matrix(50, 40).subMatrix(5, 3, 37, 23);
+        assertEquals(expected(copy(window), vector), window.times(vector));
+    }
+
+    @Test
+    public void testDirectMatrix()
+    {
+        ParallelMatrixVectorMultiplication<M, K> gemv = new ParallelMatrixVectorMultiplication<>(factory, new ForkJoinPool(3));
+        for (int[] shape: new int[][] {{37, 23}, {5, 1029}, {1029, 5}, {2100, 3}, {301, 517}})
+        {
+            Matrix<M, K> matrix = random.matrix(shape[0], shape[1]);
+            Vector<K> vector = vector(shape[1]);
+            Vector<M> transposedVector = vector(shape[0]);
+            try (DirectMatrix<M, K> direct = new DirectMatrix<>(Dimension.FACTORY.create(shape[0]), Dimension.FACTORY.create(shape[1]), matrix.getValues()))
+            {
+                assertEquals(expected(matrix, vector), direct.times(vector));
+                assertEquals(expected(matrix, vector), gemv.apply(direct, vector));
+                assertEquals(expected(matrix.transpose(), transposedVector), gemv.applyTransposed(direct, transposedVector));
+            }
+        }
+    }
+
+    @Test
+    public void testDirectMatrixViews()
+    {
+        // Views of off-heap storage are read in place, with unit row stride, unit column stride, or neither:
+        //
+        Matrix<M, K> matrix = random.matrix(50, 46);
+        Vector<K> vector = vector(23);
+        try (DirectMatrix<M, K> direct = new DirectMatrix<>(Dimension.FACTORY.create(50), Dimension.FACTORY.create(46), matrix.getValues()))
+        {
+            Matrix<M, K> window = direct.subMatrix(5, 3, 37, 23);
+            assertEquals(expected(copy(window), vector), window.times(vector));
+            Matrix<M, K> transposedWindow = direct.<K, M>subMatrix(3, 5, 23, 37).transposeView();
+            assertEquals(expected(copy(transposedWindow), vector), transposedWindow.times(vector));
+            Matrix<M, K> strided = DirectMatrix.<M, K>wrap(Dimension.FACTORY.create(25), Dimension.FACTORY.create(23), direct.getBuffer())
+                .using(new StridedElementAccess(DirectMatrix::new, 50, 2, 100));
+            assertEquals(matrix.at(2, 3), strided.at(1, 1), 0F);
+            assertEquals(expected(copy(strided), vector), strided.times(vector));
+        }
+    }
+
+    @Test
+    public void testDotProduct()
+    {
+        for (int size: new int[] {1, 7, 1029, 70000})
+        {
+            Vector<N> left = vector(size);
+            Vector<N> right = vector(size);
+            float expected = 0;
+            for (int index = 0; index < size; index++)
+            {
+                expected += left.at(index, 0)*right.at(index, 0);
+            }
+            assertEquals(expected, left.dot(right), 0F);
+        }
+    }
+
+    @Test
+    public void testSingleColumnMatrixMultiplication()
+    {
+        AdaptiveMultiplication<M, One, K> adaptive = new AdaptiveMultiplication<>(factory, null);
+        assertEquals(AdaptiveMultiplication.VECTOR, adaptive.select(1000, 1000, 1));
+        Matrix<M, K> left = random.matrix(301, 517);
+        Matrix<K, One> right = random.matrix(517, 1);
+        Matrix<M, One> expected = new BasicMultiplication<M, One, K>(factory).apply(left, right);
+        VectorMultiplication<M, One, K> multiplication = new VectorMultiplication<>(factory);
+        assertEquals(expected, multiplication.apply(left, right));
+        Matrix<M, One> destination = random.matrix(301, 1);
+        multiplication.applyInto(left, right, destination);
+        assertEquals(expected, destination);
+        assertEquals(expected, adaptive.apply(left, right));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testSizeMismatch()
+    {
+        Matrix<M, K> matrix = random.matrix(3, 4);
+        new ParallelMatrixVectorMultiplication<M, K>(factory).apply(matrix, vector(5));
+    }
+
+    private <R extends Dimension, C extends Dimension> Vector<R> expected(Matrix<R, C> matrix, Vector<C> vector)
+    {
+        Matrix<R, One> product = new BasicMultiplication<R, One, C>(factory).apply(matrix, vector);
+        return new StandardVector<>(product.getValues());
+    }
+
+    private <R extends Dimension, C extends Dimension> Matrix<R, C> copy(Matrix<R, C> matrix)
+    {
+        return factory.create(Dimension.FACTORY.create(matrix.getRows()), Dimension.FACTORY.create(matrix.getColumns()), matrix.getValues());
+    }
+
+    private <D extends Dimension> Vector<D> vector(int size)
+    {
+        return new StandardVector<>(random.matrix(size, 1).getValues());
+    }
+}
@@ -0,0 +1,97 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.internal.QuantizedMatrix;
+import top.java.matrix.internal.QuantizedMatrix.Axis;
+import top.java.matrix.internal.StandardMatrix;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class QuantizedMultiplicationTest<M extends Dimension, N extends Dimension, K extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private Random random = new Random(42);
+
+    @Test
+    public void testIntegerProductMatchesDequantizedProduct()
+    {
+        QuantizedMultiplication<M, N, K> multiplication = new QuantizedMultiplication<>(factory, new ForkJoinPool(3));
+        QuantizedMatrix<M, K> left = QuantizedMatrix.quantize(this.<M, K>random(37, 23), Axis.ROWS);
+        QuantizedMatrix<K, N> right = QuantizedMatrix.quantize(this.<K, N>random(23, 29), Axis.COLUMNS);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(left.dequantize(), right.dequantize());
+        Matrix<M, N> product = multiplication.apply(left, right);
+        assertEquals(StandardMatrix.class, product.getClass());
+        assertArrayEquals(expected.getValues(), product.getValues(), 1E-4F);
+        assertArrayEquals(expected.getValues(), left.times(right).getValues(), 1E-4F);
+    }
+
+    @Test
+    public void testDynamicQuantization()
+    {
+        // A quantized weight matrix times single-precision activations, which are quantized per column:
+        //
+        QuantizedMultiplication<M, N, K> multiplication = new QuantizedMultiplication<>(factory);
+        QuantizedMatrix<M, K> weights = QuantizedMatrix.quantize(this.<M, K>random(37, 23), Axis.ROWS);
+        Matrix<K, N> input = random(23, 5);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(weights.dequantize(),
+            QuantizedMatrix.quantize(input, Axis.COLUMNS).dequantize());
+        assertArrayEquals(expected.getValues(), multiplication.apply(weights, input).getValues(), 1E-4F);
+    }
+
+    @Test
+    public void testOtherAxesAreDequantized()
+    {
+        QuantizedMultiplication<M, N, K> multiplication = new QuantizedMultiplication<>(factory);
+        QuantizedMatrix<M, K> left = QuantizedMatrix.quantize(this.<M, K>random(37, 23), Axis.COLUMNS);
+        QuantizedMatrix<K, N> right = QuantizedMatrix.quantize(this.<K, N>random(23, 29), Axis.ROWS);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(left.dequantize(), right.dequantize());
+        assertArrayEquals(expected.getValues(), multiplication.apply(left, right).getValues(), 1E-4F);
+    }
+
+    @Test
+    public void testApplyInto()
+    {
+        QuantizedMultiplication<M, N, K> multiplication = new QuantizedMultiplication<>(factory, new ForkJoinPool(2));
+        QuantizedMatrix<M, K> left = QuantizedMatrix.quantize(this.<M, K>random(37, 23), Axis.ROWS);
+        QuantizedMatrix<K, N> right = QuantizedMatrix.quantize(this.<K, N>random(23, 29), Axis.COLUMNS);
+        Matrix<M, N> expected = multiplication.apply(left, right);
+        Matrix<M, N> destination = random(37, 29);
+        assertSame(destination, multiplication.applyInto(left, right, destination));
+        assertEquals(expected, destination);
+        Matrix<M, N> larger = random(40, 40);
+        Matrix<M, N> window = larger.subMatrix(2, 7, 37, 29);
+        assertSame(window, multiplication.applyInto(left, right, window));
+        assertEquals(expected, larger.subMatrix(2, 7, 37, 29));
+    }
+
+    private <R extends Dimension, C extends Dimension> Matrix<R, C> random(int rows, int columns)
+    {
+        float[] values = new float[rows*columns];
+        for (int index = 0; index < values.length; index++)
+        {
+            values[index] = (float)random.nextGaussian();
+        }
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), values);
+    }
+}
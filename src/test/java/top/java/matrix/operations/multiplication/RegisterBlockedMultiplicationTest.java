@@ -0,0 +1,74 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.RandomMatrices;
+import top.java.matrix.internal.StandardMatrix;
+import top.java.matrix.operations.multiplication.RegisterBlockedMultiplication.Block;
+import static org.junit.Assert.assertEquals;
+
+public class RegisterBlockedMultiplicationTest<M extends Dimension, N extends Dimension, K extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private RandomMatrices random = new RandomMatrices(factory);
+
+    @Test
+    public void testAllBlockShapesWithRaggedEdges()
+    {
+        // None of the dimensions is a multiple of any block size, so the edge blocks compute redundant results:
+        //
+        Matrix<M, K> left = random.matrix(37, 23);
+        Matrix<K, N> right = random.matrix(23, 29);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(left, right);
+        for (Block block: Block.values())
+        {
+            try (RegisterBlockedMultiplication<M, N, K> multiplication = new RegisterBlockedMultiplication<>(factory, block))
+            {
+                assertEquals(block.name(), expected, multiplication.apply(left, right));
+            }
+        }
+    }
+
+    @Test
+    public void testMatrixSmallerThanBlock()
+    {
+        try (RegisterBlockedMultiplication<M, N, K> multiplication = new RegisterBlockedMultiplication<>(factory))
+        {
+            Matrix<M, K> left = random.matrix(3, 5);
+            Matrix<K, N> right = random.matrix(5, 1);
+            assertEquals(new BasicMultiplication<M, N, K>(factory).apply(left, right), multiplication.apply(left, right));
+        }
+    }
+
+    @Test
+    public void testKernelIsReused()
+    {
+        try (RegisterBlockedMultiplication<M, N, K> multiplication = new RegisterBlockedMultiplication<>(factory))
+        {
+            Matrix<M, K> left = random.matrix(64, 48);
+            Matrix<K, N> right = random.matrix(48, 64);
+            Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(left, right);
+            assertEquals(expected, multiplication.apply(left, right));
+            assertEquals(expected, multiplication.apply(left, right));
+            assertEquals(1, multiplication.getKernelPool().getKernelsCreated());
+            assertEquals(1, multiplication.getKernelPool().getExecutions());
+        }
+    }
+}
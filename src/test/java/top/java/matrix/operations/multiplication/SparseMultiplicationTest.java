@@ -0,0 +1,107 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.RandomMatrices;
+import top.java.matrix.internal.SparseMatrix;
+import top.java.matrix.internal.SparseMatrix.Format;
+import top.java.matrix.internal.StandardMatrix;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SparseMultiplicationTest<M extends Dimension, N extends Dimension, K extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private RandomMatrices random = new RandomMatrices(factory);
+
+    @Test
+    public void testSparseTimesDense()
+    {
+        SparseMultiplication<M, N, K> sparse = new SparseMultiplication<>(factory, new ForkJoinPool(3));
+        Matrix<M, K> left = random.matrix(137, 93, 0.05);
+        Matrix<K, N> right = random.matrix(93, 71, 1);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(left, right);
+        for (Format format: Format.values())
+        {
+            Matrix<M, N> result = sparse.apply(SparseMatrix.of(left, format, 0), right);
+            assertEquals(StandardMatrix.class, result.getClass());
+            assertEquals(expected, result);
+        }
+    }
+
+    @Test
+    public void testDenseTimesSparse()
+    {
+        SparseMultiplication<M, N, K> sparse = new SparseMultiplication<>(factory, new ForkJoinPool(3));
+        Matrix<M, K> left = random.matrix(137, 93, 1);
+        Matrix<K, N> right = random.matrix(93, 71, 0.05);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(left, right);
+        for (Format format: Format.values())
+        {
+            assertEquals(expected, sparse.apply(left, SparseMatrix.of(right, format, 0)));
+        }
+    }
+
+    @Test
+    public void testSparseTimesSparse()
+    {
+        SparseMultiplication<M, N, K> sparse = new SparseMultiplication<>(factory, new ForkJoinPool(3));
+        Matrix<M, K> left = random.matrix(137, 93, 0.05);
+        Matrix<K, N> right = random.matrix(93, 71, 0.1);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(left, right);
+        for (Format leftFormat: Format.values())
+        {
+            for (Format rightFormat: Format.values())
+            {
+                Matrix<M, N> result = sparse.apply(SparseMatrix.of(left, leftFormat, 0), SparseMatrix.of(right, rightFormat, 0));
+                assertEquals(SparseMatrix.class, result.getClass());
+                assertEquals(expected, result);
+            }
+        }
+    }
+
+    @Test
+    public void testApplyInto()
+    {
+        SparseMultiplication<M, N, K> sparse = new SparseMultiplication<>(factory);
+        Matrix<M, K> left = random.matrix(37, 23, 0.2);
+        Matrix<K, N> right = random.matrix(23, 29, 1);
+        Matrix<M, N> destination = random.matrix(37, 29, 1);
+        assertSame(destination, sparse.applyInto(SparseMatrix.of(left, Format.CSC, 0), right, destination));
+        assertEquals(new BasicMultiplication<M, N, K>(factory).apply(left, right), destination);
+    }
+
+    @Test
+    public void testTimes()
+    {
+        // Sparse operands are multiplied by SparseMultiplication, regardless of which matrix's operations are used:
+        //
+        Matrix<M, K> left = random.matrix(37, 23, 0.2);
+        Matrix<K, N> right = random.matrix(23, 29, 0.2);
+        Matrix<M, N> expected = new BasicMultiplication<M, N, K>(factory).apply(left, right);
+        SparseMatrix<K, N> sparseRight = SparseMatrix.of(right, Format.CSR, 0);
+        assertEquals(expected, left.times(sparseRight));
+        assertEquals(expected, SparseMatrix.of(left, Format.CSC, 0).times(right));
+        Matrix<M, N> product = SparseMatrix.of(left, Format.CSC, 0).times(sparseRight);
+        assertEquals(SparseMatrix.class, product.getClass());
+        assertEquals(expected, product);
+    }
+}
@@ -0,0 +1,87 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.multiplication;
+
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.RandomMatrices;
+import top.java.matrix.internal.StandardMatrix;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TiledFastMultiplicationTest<M extends Dimension, N extends Dimension, K extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private RandomMatrices random = new RandomMatrices(factory);
+
+    @Test
+    public void testRaggedRectangularShape()
+    {
+        // None of the dimensions is a multiple of the tile size, so every edge tile is partially masked:
+        //
+        try (TiledFastMultiplication<M, N, K> tiled = new TiledFastMultiplication<>(factory, 4))
+        {
+            Matrix<M, K> left = random.matrix(37, 23);
+            Matrix<K, N> right = random.matrix(23, 29);
+            assertEquals(new BasicMultiplication<M, N, K>(factory).apply(left, right), tiled.apply(left, right));
+        }
+    }
+
+    @Test
+    public void testMatricesSmallerThanTile()
+    {
+        try (TiledFastMultiplication<M, N, K> tiled = new TiledFastMultiplication<>(factory, 8))
+        {
+            Matrix<M, K> left = random.matrix(3, 5);
+            Matrix<K, N> right = random.matrix(5, 2);
+            assertEquals(new BasicMultiplication<M, N, K>(factory).apply(left, right), tiled.apply(left, right));
+        }
+    }
+
+    @Test
+    public void testEmptyDepth()
+    {
+        try (TiledFastMultiplication<M, N, K> tiled = new TiledFastMultiplication<>(factory, 4))
+        {
+            Matrix<M, N> result = tiled.apply(random.matrix(3, 0), random.matrix(0, 2));
+            assertEquals(factory.create(Dimension.FACTORY.create(3), Dimension.FACTORY.create(2), new float[6]), result);
+        }
+    }
+
+    @Test
+    public void testSupportsLimitsPadding()
+    {
+        TiledFastMultiplication<M, N, K> tiled = new TiledFastMultiplication<>(factory, 10);
+        assertTrue(tiled.supports(1000, 1000, 1000));
+        assertTrue(tiled.supports(1001, 1000, 999));
+        assertFalse(tiled.supports(11, 11, 11));
+    }
+
+    @Test
+    public void testDefaultTileSizeWithoutOpenCL()
+    {
+        assertEquals(TiledFastMultiplication.DEFAULT_TILE_SIZE, TiledFastMultiplication.tileSize(null));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testZeroTileSize()
+    {
+        new TiledFastMultiplication<M, N, K>(factory, 0);
+    }
+}
@@ -0,0 +1,100 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.reduction;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Dimension.One;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.RandomMatrices;
+import top.java.matrix.internal.StandardMatrix;
+import top.java.matrix.operations.Reduction;
+import static org.junit.Assert.assertEquals;
+
+public class ParallelReductionTest<M extends Dimension, N extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private RandomMatrices random = new RandomMatrices(factory);
+
+    @Test
+    public void testReduce()
+    {
+        // A small pool and a matrix above the sequential threshold force the work to be split:
+        //
+        ParallelReduction<M, N> reduction = new ParallelReduction<>(factory, new ForkJoinPool(3));
+        Matrix<M, N> matrix = random.matrix(301, 263);
+        double sum = 0;
+        double squares = 0;
+        float minimum = Float.POSITIVE_INFINITY;
+        float maximum = Float.NEGATIVE_INFINITY;
+        for (float value: matrix.getValues())
+        {
+            sum += value;
+            squares += value*value;
+            minimum = Math.min(minimum, value);
+            maximum = Math.max(maximum, value);
+        }
+        assertEquals(sum, reduction.reduce(matrix, Reduction.SUM), 0F);
+        assertEquals(minimum, reduction.reduce(matrix, Reduction.MINIMUM), 0F);
+        assertEquals(maximum, reduction.reduce(matrix, Reduction.MAXIMUM), 0F);
+        assertEquals((float)Math.sqrt(squares), reduction.reduce(matrix, Reduction.NORM), 0F);
+        assertEquals(sum, matrix.reduce(Reduction.SUM), 0F);
+    }
+
+    @Test
+    public void testReduceColumnsAndRows()
+    {
+        ParallelReduction<M, N> reduction = new ParallelReduction<>(factory, new ForkJoinPool(2));
+        Matrix<M, N> matrix = random.matrix(37, 23);
+        Matrix<One, N> columnSums = reduction.reduceColumns(matrix, Reduction.SUM);
+        Matrix<M, One> rowMaxima = reduction.reduceRows(matrix, Reduction.MAXIMUM);
+        assertEquals(1, columnSums.getRows());
+        assertEquals(23, columnSums.getColumns());
+        assertEquals(37, rowMaxima.getRows());
+        assertEquals(1, rowMaxima.getColumns());
+        for (int column = 0; column < 23; column++)
+        {
+            float sum = 0;
+            for (int row = 0; row < 37; row++)
+            {
+                sum += matrix.at(row, column);
+            }
+            assertEquals(sum, columnSums.at(0, column), 0F);
+        }
+        for (int row = 0; row < 37; row++)
+        {
+            float maximum = Float.NEGATIVE_INFINITY;
+            for (int column = 0; column < 23; column++)
+            {
+                maximum = Math.max(maximum, matrix.at(row, column));
+            }
+            assertEquals(maximum, rowMaxima.at(row, 0), 0F);
+        }
+        assertEquals(columnSums, matrix.reduceColumns(Reduction.SUM));
+        assertEquals(rowMaxima, matrix.reduceRows(Reduction.MAXIMUM));
+    }
+
+    @Test
+    public void testTransposedView()
+    {
+        Matrix<N, M> transpose = random.matrix(23, 37);
+        Matrix<M, N> view = transpose.transposeView();
+        assertEquals(transpose.reduceRows(Reduction.SUM).transpose(), view.reduceColumns(Reduction.SUM));
+        assertEquals(transpose.reduce(Reduction.NORM), view.reduce(Reduction.NORM), 0F);
+    }
+}
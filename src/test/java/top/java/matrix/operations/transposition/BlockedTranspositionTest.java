@@ -0,0 +1,118 @@
+//                                                                          //
+// Copyright 2017 Mirko Raner                                               //
+//                                                                          //
+// Licensed under the Apache License, Version 2.0 (the "License");          //
+// you may not use this file except in compliance with the License.         //
+// You may obtain a copy of the License at                                  //
+//                                                                          //
+//     http://www.apache.org/licenses/LICENSE-2.0                           //
+//                                                                          //
+// Unless required by applicable law or agreed to in writing, software      //
+// distributed under the License is distributed on an "AS IS" BASIS,        //
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. //
+// See the License for the specific language governing permissions and      //
+// limitations under the License.                                           //
+//                                                                          //
+package top.java.matrix.operations.transposition;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.MatrixFactory;
+import top.java.matrix.internal.DirectMatrix;
+import top.java.matrix.internal.StandardMatrix;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class BlockedTranspositionTest<M extends Dimension, N extends Dimension>
+{
+    private MatrixFactory factory = StandardMatrix::new;
+    private Random random = new Random(42);
+
+    @Test
+    public void testSmallBlocks()
+    {
+        // A small block size forces several levels of recursion and ragged blocks at the edges:
+        //
+        BlockedTransposition<M, N> blocked = new BlockedTransposition<>(factory, new ForkJoinPool(3), 4);
+        Matrix<M, N> matrix = random(37, 23);
+        assertEquals(new BasicTransposition<M, N>(factory).apply(matrix), blocked.apply(matrix));
+    }
+
+    @Test
+    public void testParallelTransposition()
+    {
+        Matrix<M, N> matrix = random(517, 301);
+        Matrix<N, M> transpose = new BlockedTransposition<M, N>(factory).apply(matrix);
+        assertEquals(StandardMatrix.class, transpose.getClass());
+        assertEquals(new BasicTransposition<M, N>(factory).apply(matrix), transpose);
+    }
+
+    @Test
+    public void testApplyIntoDirectMatrix()
+    {
+        Matrix<M, N> matrix = random(300, 200);
+        try (DirectMatrix<N, M> destination = DirectMatrix.allocate(Dimension.FACTORY.create(200), Dimension.FACTORY.create(300)))
+        {
+            assertSame(destination, new BlockedTransposition<M, N>(factory).applyInto(matrix, destination));
+            assertEquals(new BasicTransposition<M, N>(factory).apply(matrix), destination);
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testApplyIntoWrongDimensions()
+    {
+        new BlockedTransposition<M, N>(factory).applyInto(random(3, 2), random(3, 2));
+    }
+
+    @Test
+    public void testApplyInPlace()
+    {
+        BlockedTransposition<M, M> blocked = new BlockedTransposition<>(factory, new ForkJoinPool(3), 4);
+        for (int size: new int[] {1, 2, 5, 37, 300})
+        {
+            Matrix<M, M> matrix = random(size, size);
+            Matrix<M, M> expected = new BasicTransposition<M, M>(factory).apply(matrix);
+            assertSame(matrix, blocked.applyInPlace(matrix));
+            assertEquals(expected, matrix);
+        }
+    }
+
+    @Test
+    public void testTransposeView()
+    {
+        BlockedTransposition<N, M> blocked = new BlockedTransposition<>(factory, new ForkJoinPool(3), 4);
+        Matrix<M, N> matrix = random(37, 23);
+        assertEquals(matrix, blocked.apply(matrix.transposeView()));
+    }
+
+    @Test
+    public void testApplyInPlaceToView()
+    {
+        BlockedTransposition<M, M> blocked = new BlockedTransposition<>(factory, new ForkJoinPool(3), 4);
+        Matrix<M, M> matrix = random(37, 37);
+        Matrix<M, M> expected = new BasicTransposition<M, M>(factory).apply(matrix);
+        Matrix<M, M> view = matrix.transposeView();
+        blocked.applyInPlace(view);
+        assertEquals(expected, matrix);
+        assertEquals(expected.transpose(), view);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testApplyInPlaceNonSquare()
+    {
+        new BlockedTransposition<M, N>(factory).applyInPlace(random(3, 2));
+    }
+
+    private <R extends Dimension, C extends Dimension> Matrix<R, C> random(int rows, int columns)
+    {
+        float[] values = new float[rows*columns];
+        for (int index = 0; index < values.length; index++)
+        {
+            values[index] = random.nextFloat();
+        }
+        return factory.create(Dimension.FACTORY.create(rows), Dimension.FACTORY.create(columns), values);
+    }
+}
@@ -0,0 +1,92 @@
+package top.java.matrix.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.internal.LazyMatrix;
+import top.java.matrix.internal.StandardMatrix;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ComputeExecutorTest<M extends Dimension, N extends Dimension, K extends Dimension>
+{
+    private float[] values = {1, 6, 11, 2, 7, 12, 3, 8, 13, 4, 9, 14, 5, 10, 15};
+
+    @Test
+    public void testTimesAsync() throws Exception
+    {
+        Matrix<M, K> left = new StandardMatrix<>(RawFloatMatrix.FACTORY.create(3, 5, values));
+        Matrix<K, N> right = new StandardMatrix<>(RawFloatMatrix.FACTORY.create(5, 3, values));
+        assertEquals(left.times(right), left.timesAsync(right).get(10, TimeUnit.SECONDS));
+        Matrix<M, N> lazy = LazyMatrix.of(left).timesAsync(right).get(10, TimeUnit.SECONDS);
+        assertTrue(((LazyMatrix<M, N>)lazy).isEvaluated());
+        assertEquals(left.times(right), lazy);
+    }
+
+    @Test
+    public void testBackPressureAndCancellation() throws Exception
+    {
+        try (ComputeExecutor executor = new ComputeExecutor(1, 2))
+        {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch blocked = new CountDownLatch(1);
+            CompletableFuture<Integer> running = executor.submit(() -> await(started, blocked));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            AtomicBoolean executed = new AtomicBoolean();
+            CompletableFuture<Boolean> queued = executor.submit(() -> executed.getAndSet(true));
+            assertEquals(0, executor.getAvailableCapacity());
+            try
+            {
+                executor.submit(() -> 0).get(10, TimeUnit.SECONDS);
+                fail("Expected rejection");
+            }
+            catch (ExecutionException exception)
+            {
+                assertEquals(RejectedExecutionException.class, exception.getCause().getClass());
+            }
+            assertTrue(queued.cancel(true));
+            assertEquals(1, executor.getAvailableCapacity());
+            blocked.countDown();
+            assertEquals(Integer.valueOf(42), running.get(10, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(7), executor.submit(() -> 7).get(10, TimeUnit.SECONDS));
+            assertFalse(executed.get());
+            assertEquals(2, executor.getAvailableCapacity());
+        }
+    }
+
+    @Test
+    public void testExceptionalCompletion() throws Exception
+    {
+        try (ComputeExecutor executor = new ComputeExecutor(1, 1))
+        {
+            executor.submit(() -> {throw new ArithmeticException();}).get(10, TimeUnit.SECONDS);
+            fail("Expected exception");
+        }
+        catch (ExecutionException exception)
+        {
+            assertEquals(ArithmeticException.class, exception.getCause().getClass());
+        }
+    }
+
+    private static int await(CountDownLatch started, CountDownLatch blocked)
+    {
+        started.countDown();
+        try
+        {
+            blocked.await();
+        }
+        catch (InterruptedException interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+        return 42;
+    }
+}
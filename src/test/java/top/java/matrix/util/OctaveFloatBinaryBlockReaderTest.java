@@ -0,0 +1,75 @@
+package top.java.matrix.util;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class OctaveFloatBinaryBlockReaderTest
+{
+    private Path path = new File("src/test/resources/Thousand.float.bin").getAbsoluteFile().toPath();
+
+    @Test
+    public void testReadColumns() throws Exception {
+        float[] expected = new OctaveFloatBinaryReader().readFloatBinaryMatrix(path).matrix();
+        try (OctaveFloatBinaryBlockReader reader = new OctaveFloatBinaryBlockReader(path, 12)) {
+            RawFloatMatrix block = reader.readColumns(997, 3);
+            assertEquals(1000, block.rows());
+            assertEquals(3, block.columns());
+            assertArrayEquals(Arrays.copyOfRange(expected, 997000, 1000000), block.matrix(), 0F);
+        }
+    }
+
+    @Test
+    public void testReadRows() throws Exception {
+        float[] expected = new OctaveFloatBinaryReader().readFloatBinaryMatrix(path).matrix();
+        try (OctaveFloatBinaryBlockReader reader = new OctaveFloatBinaryBlockReader(path)) {
+            RawFloatMatrix block = reader.readRows(10, 2);
+            assertEquals(2, block.rows());
+            assertEquals(1000, block.columns());
+            for (int column = 0; column < 1000; column++) {
+                assertEquals(expected[column*1000 + 10], block.matrix()[column*2], 0F);
+                assertEquals(expected[column*1000 + 11], block.matrix()[column*2 + 1], 0F);
+            }
+        }
+    }
+
+    @Test
+    public void testColumnBlocks() throws Exception {
+        float[] expected = new OctaveFloatBinaryReader().readFloatBinaryMatrix(path).matrix();
+        float[] actual = new float[expected.length];
+        int position = 0;
+        try (OctaveFloatBinaryBlockReader reader = new OctaveFloatBinaryBlockReader(path, 4096)) {
+            for (RawFloatMatrix block: reader.columnBlocks(300)) {
+                System.arraycopy(block.matrix(), 0, actual, position, block.matrix().length);
+                position += block.matrix().length;
+            }
+        }
+        assertEquals(expected.length, position);
+        assertArrayEquals(expected, actual, 0F);
+    }
+
+    @Test
+    public void testRowBlocks() throws Exception {
+        int blocks = 0;
+        int rows = 0;
+        try (OctaveFloatBinaryBlockReader reader = new OctaveFloatBinaryBlockReader(path)) {
+            for (RawFloatMatrix block: reader.rowBlocks(400)) {
+                assertEquals(1000, block.columns());
+                rows += block.rows();
+                blocks++;
+            }
+        }
+        assertEquals(3, blocks);
+        assertEquals(1000, rows);
+    }
+
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testReadBeyondEnd() throws Exception {
+        try (OctaveFloatBinaryBlockReader reader = new OctaveFloatBinaryBlockReader(path)) {
+            reader.readColumns(999, 2);
+        }
+    }
+}
@@ -1,14 +1,29 @@
 package top.java.matrix.util;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import top.java.matrix.Dimension;
+import top.java.matrix.internal.DirectMatrix;
+import top.java.matrix.internal.StandardMatrix;
 import top.java.matrix.util.OctaveFloatBinaryReader;
 import top.java.matrix.util.RawFloatMatrix;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
-public class OctaveFloatBinaryReaderTest
+public class OctaveFloatBinaryReaderTest<M extends Dimension, N extends Dimension>
 {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testMatrixA() throws Exception {
         OctaveFloatBinaryReader reader = new OctaveFloatBinaryReader();
@@ -32,4 +47,58 @@ public class OctaveFloatBinaryReaderTest
         assertEquals(3196F, raw.matrix()[4], 1E-6F);
         assertEquals(505F, raw.matrix()[15999999], 1E-6F);
     }
+
+    @Test
+    public void testMatrix20x20() throws Exception {
+        OctaveFloatBinaryReader reader = new OctaveFloatBinaryReader();
+        Path path = new File("src/test/resources/matrix20x20.float.bin").getAbsoluteFile().toPath();
+        RawFloatMatrix raw = reader.readFloatBinaryMatrix(path);
+        assertEquals(20, raw.rows());
+        assertEquals(20, raw.columns());
+        assertEquals(839F, raw.matrix()[0], 1E-6F);
+        assertEquals(486F, raw.matrix()[1], 1E-6F);
+    }
+
+    @Test
+    public void testMapThousand() throws Exception {
+        OctaveFloatBinaryReader reader = new OctaveFloatBinaryReader();
+        Path path = new File("src/test/resources/Thousand.float.bin").getAbsoluteFile().toPath();
+        try (DirectMatrix<M, N> mapped = reader.mapFloatBinaryMatrix(path)) {
+            assertEquals(1000, mapped.getRows());
+            assertEquals(1000, mapped.getColumns());
+            assertTrue(mapped.getBuffer().isDirect());
+            assertTrue(mapped.getBuffer().isReadOnly());
+            assertEquals(new StandardMatrix<>(reader.readFloatBinaryMatrix(path)), mapped);
+        }
+    }
+
+    @Test
+    public void testReadDoubleBinaryMatrix() throws Exception {
+        double[] values = {1D/3, Math.PI, -1E-300, 1E300, 0, 42};
+        Path path = writeDoubleBinaryMatrix(2, 3, values);
+        RawDoubleMatrix raw = new OctaveFloatBinaryReader().readDoubleBinaryMatrix(path);
+        assertEquals(2, raw.rows());
+        assertEquals(3, raw.columns());
+        assertArrayEquals(values, raw.matrix(), 0D);
+    }
+
+    @Test(expected=IOException.class)
+    public void testReadDoubleBinaryMatrixRejectsFloats() throws Exception {
+        Path path = new File("src/test/resources/matrix20x20.float.bin").getAbsoluteFile().toPath();
+        new OctaveFloatBinaryReader().readDoubleBinaryMatrix(path);
+    }
+
+    private Path writeDoubleBinaryMatrix(int rows, int columns, double[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(45 + values.length*Double.BYTES).order(LITTLE_ENDIAN);
+        buffer.put("Octave-1-L".getBytes(UTF_8)).put((byte)0);
+        buffer.putInt(1).put("x".getBytes(UTF_8));
+        buffer.putInt(0).put((byte)0);
+        buffer.put((byte)0xFF).putInt(6).put("matrix".getBytes(UTF_8));
+        buffer.putInt(-2).putInt(rows).putInt(columns);
+        buffer.put((byte)7);
+        buffer.asDoubleBuffer().put(values);
+        Path path = folder.newFile().toPath();
+        Files.write(path, buffer.array());
+        return path;
+    }
 }
@@ -0,0 +1,68 @@
+package top.java.matrix.util;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import top.java.matrix.Dimension;
+import top.java.matrix.Matrix;
+import top.java.matrix.internal.DirectMatrix;
+import top.java.matrix.internal.StandardMatrix;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class OctaveFloatBinaryWriterTest<M extends Dimension, N extends Dimension>
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private float[] values = {1, 6, 11, 2, 7, 12, 3, 8, 13, 4, 9, 14, 5, 10, 15};
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Path path = folder.newFile().toPath();
+        OctaveFloatBinaryWriter.writeFloatBinaryMatrix(path, new StandardMatrix<>(RawFloatMatrix.FACTORY.create(3, 5, values)));
+        RawFloatMatrix raw = new OctaveFloatBinaryReader().readFloatBinaryMatrix(path);
+        assertEquals(3, raw.rows());
+        assertEquals(5, raw.columns());
+        assertArrayEquals(values, raw.matrix(), 0F);
+    }
+
+    @Test
+    public void testSameBytesAsOctave() throws Exception {
+        Path original = new File("src/test/resources/matrix20x20.float.bin").getAbsoluteFile().toPath();
+        Path copy = folder.newFile().toPath();
+        RawFloatMatrix raw = new OctaveFloatBinaryReader().readFloatBinaryMatrix(original);
+        try (OctaveFloatBinaryWriter writer = new OctaveFloatBinaryWriter(copy, "random20x20", 20, 20, 4096)) {
+            writer.writeColumns(0, new StandardMatrix<>(raw));
+        }
+        assertArrayEquals(Files.readAllBytes(original), Files.readAllBytes(copy));
+    }
+
+    @Test
+    public void testWriteRowBlocksFromDirectMatrices() throws Exception {
+        Path path = folder.newFile().toPath();
+        try (OctaveFloatBinaryWriter writer = new OctaveFloatBinaryWriter(path, "blocks", 3, 5, 8)) {
+            try (DirectMatrix<M, N> last = new DirectMatrix<>(RawFloatMatrix.FACTORY.create(1, 5, new float[] {11, 12, 13, 14, 15}))) {
+                writer.writeRows(2, last);
+            }
+            try (DirectMatrix<M, N> first = new DirectMatrix<>(RawFloatMatrix.FACTORY.create(2, 5, new float[] {1, 6, 2, 7, 3, 8, 4, 9, 5, 10}))) {
+                writer.writeRows(0, first);
+            }
+        }
+        assertArrayEquals(values, new OctaveFloatBinaryReader().readFloatBinaryMatrix(path).matrix(), 0F);
+    }
+
+    @Test
+    public void testUnwrittenBlocksAreZero() throws Exception {
+        Path path = folder.newFile().toPath();
+        Matrix<M, N> column = new StandardMatrix<>(RawFloatMatrix.FACTORY.create(3, 1, new float[] {4, 9, 14}));
+        try (OctaveFloatBinaryWriter writer = new OctaveFloatBinaryWriter(path, 3, 5)) {
+            writer.writeColumns(3, column);
+        }
+        float[] expected = {0, 0, 0, 0, 0, 0, 0, 0, 0, 4, 9, 14, 0, 0, 0};
+        assertArrayEquals(expected, new OctaveFloatBinaryReader().readFloatBinaryMatrix(path).matrix(), 0F);
+    }
+}